@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix
+
+import org.eclipse.jdt.core.dom.ASTVisitor
+import org.eclipse.jdt.core.dom.EnumConstantDeclaration
+import org.eclipse.jdt.core.dom.NormalAnnotation
+import org.eclipse.jdt.core.dom.SingleMemberAnnotation
+import org.eclipse.jdt.core.dom.StringLiteral
+
+/**
+ * Collects the strings of the XJC generated model for
+ * org.mitre.stix.BinaryDictionary: namespace URIs, prefixes, element,
+ * attribute and type names from the JAXB annotations, and the values of the
+ * enumerations (e.g., the default vocabularies.)
+ */
+class BinaryDictionaryCollector {
+
+	// annotations whose string members name things
+	static final NAMING_ANNOTATIONS = [
+		"XmlSchema",
+		"XmlNs",
+		"XmlType",
+		"XmlRootElement",
+		"XmlElement",
+		"XmlElementDecl",
+		"XmlElementRef",
+		"XmlAttribute"
+	]
+
+	static final NAMING_MEMBERS = ["name", "namespace", "namespaceURI", "prefix"]
+
+	def strings = new TreeSet<String>()
+
+	def add(value) {
+		// the dictionary is line based with # comments, which also leaves out
+		// "##default"
+		if (value && !value.startsWith("#") && !(value =~ /[\r\n]/)) {
+			strings << value
+		}
+	}
+
+	/**
+	 * Collects the strings of a compilation unit.
+	 *
+	 * @param cu
+	 *            The parsed source of a model class, enum or package-info
+	 */
+	def collect(cu) {
+		def collector = this
+
+		cu.accept(new ASTVisitor() {
+
+			boolean visit(NormalAnnotation annotation) {
+				if (NAMING_ANNOTATIONS.contains(FastPathBindingAnalyzer.simpleName(annotation))) {
+					annotation.values().each { pair ->
+						if (NAMING_MEMBERS.contains(pair.getName().getIdentifier()) &&
+								pair.getValue() instanceof StringLiteral) {
+							collector.add(pair.getValue().getLiteralValue())
+						}
+					}
+				}
+
+				true
+			}
+
+			boolean visit(SingleMemberAnnotation annotation) {
+				if (FastPathBindingAnalyzer.simpleName(annotation) == "XmlEnumValue" &&
+						annotation.getValue() instanceof StringLiteral) {
+					collector.add(annotation.getValue().getLiteralValue())
+				}
+
+				true
+			}
+
+			boolean visit(EnumConstantDeclaration constant) {
+				// constants without an XmlEnumValue are named after their value
+				if (!constant.modifiers().any { it instanceof SingleMemberAnnotation &&
+						FastPathBindingAnalyzer.simpleName(it) == "XmlEnumValue" }) {
+					collector.add(constant.getName().getIdentifier())
+				}
+
+				true
+			}
+		})
+	}
+
+	/**
+	 * Writes the strings, one per line in sorted order.
+	 *
+	 * @param file
+	 *            The binary-dictionary.txt to write
+	 */
+	def write(file) {
+		file.parentFile.mkdirs()
+		file.withWriter("UTF-8") { out ->
+			out.println "# Generated by the generatedSourceTransformation task"
+
+			strings.each { value ->
+				out.println value
+			}
+		}
+	}
+}
@@ -0,0 +1,464 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix
+
+import org.eclipse.jdt.core.dom.AST
+import org.eclipse.jdt.core.dom.ASTParser
+import org.eclipse.jdt.core.dom.Annotation
+import org.eclipse.jdt.core.dom.ArrayType
+import org.eclipse.jdt.core.dom.BooleanLiteral
+import org.eclipse.jdt.core.dom.CompilationUnit
+import org.eclipse.jdt.core.dom.EnumDeclaration
+import org.eclipse.jdt.core.dom.FieldDeclaration
+import org.eclipse.jdt.core.dom.Modifier
+import org.eclipse.jdt.core.dom.NormalAnnotation
+import org.eclipse.jdt.core.dom.ParameterizedType
+import org.eclipse.jdt.core.dom.PrimitiveType
+import org.eclipse.jdt.core.dom.SingleMemberAnnotation
+import org.eclipse.jdt.core.dom.StringLiteral
+import org.eclipse.jdt.core.dom.TypeDeclaration
+import org.eclipse.jdt.core.dom.TypeLiteral
+
+import org.gradle.api.logging.Logging
+
+/**
+ * Reads the XJC generated sources of the model classes fast-path bindings
+ * were asked for, and describes the fields the bindings have to read and
+ * write for FastPathBindingTemplates.
+ *
+ * A class is only bound if every field it declares has a mapping the
+ * templates support, and its generated superclasses (which are bound along
+ * with it) do too. Anything else is left to JAXB.
+ */
+class FastPathBindingAnalyzer {
+
+	static final logger = Logging.getLogger(FastPathBindingAnalyzer)
+
+	// annotations whose mappings the templates do not handle
+	static final UNSUPPORTED_ANNOTATIONS = [
+		"XmlElementRef",
+		"XmlElementRefs",
+		"XmlElements",
+		"XmlAnyElement",
+		"XmlMixed",
+		"XmlList",
+		"XmlElementWrapper",
+		"XmlID",
+		"XmlIDREF",
+		"XmlInlineBinaryData",
+		"XmlMimeType"
+	]
+
+	static final ADAPTERS = [
+		"CollapsedStringAdapter": "COLLAPSED",
+		"NormalizedStringAdapter": "NORMALIZED"
+	]
+
+	static final KINDS = [
+		"java.lang.String": "STRING",
+		"javax.xml.namespace.QName": "QNAME",
+		"javax.xml.datatype.XMLGregorianCalendar": "CALENDAR",
+		"boolean": "BOOLEAN",
+		"java.lang.Boolean": "BOOLEAN",
+		"byte": "BYTE",
+		"java.lang.Byte": "BYTE",
+		"short": "SHORT",
+		"java.lang.Short": "SHORT",
+		"int": "INT",
+		"java.lang.Integer": "INT",
+		"long": "LONG",
+		"java.lang.Long": "LONG",
+		"float": "FLOAT",
+		"java.lang.Float": "FLOAT",
+		"double": "DOUBLE",
+		"java.lang.Double": "DOUBLE",
+		"java.math.BigInteger": "INTEGER",
+		"java.math.BigDecimal": "DECIMAL",
+		"byte[]": "BASE64"
+	]
+
+	def sourceDir
+	def parserOptions
+
+	// parsed compilation units by fully qualified class name, null if there
+	// is no generated source for the class
+	def units = [:]
+
+	// package namespace and element and attribute forms by package name
+	def schemas = [:]
+
+	// class descriptions by fully qualified class name, null if unsupported
+	def infos = [:]
+
+	FastPathBindingAnalyzer(sourceDir, parserOptions) {
+		this.sourceDir = sourceDir
+		this.parserOptions = parserOptions
+	}
+
+	/**
+	 * Describes the classes to bind: the classes asked for and their
+	 * generated superclasses, less any that cannot be bound.
+	 *
+	 * @param classNames
+	 *            The fully qualified names of the classes asked for
+	 * @return The descriptions by fully qualified class name
+	 */
+	def analyze(classNames) {
+		def bound = [:]
+
+		classNames.each { className ->
+			for (def name = className; name != null; name = infos[name]?.superclass) {
+				if (describe(name) == null) {
+					logger.warn("No fast-path binding for ${className}, ${name} cannot be bound")
+					break
+				}
+
+				bound[name] = infos[name]
+			}
+		}
+
+		bound
+	}
+
+	def parse(file) {
+		def parser = ASTParser.newParser(AST.JLS8)
+		parser.setCompilerOptions(parserOptions)
+		parser.setKind(ASTParser.K_COMPILATION_UNIT)
+		parser.setSource(file.getText("UTF-8").toCharArray())
+
+		(CompilationUnit) parser.createAST(null)
+	}
+
+	def unit(className) {
+		className = className.toString()
+
+		if (!units.containsKey(className)) {
+			def file = new File(sourceDir, className.replace('.', File.separator) + ".java")
+
+			units[className] = file.exists() ? parse(file) : null
+		}
+
+		units[className]
+	}
+
+	def schema(pkg) {
+		if (!schemas.containsKey(pkg)) {
+			def schema = [namespace: "", elementQualified: false, attributeQualified: false]
+
+			def cu = unit("${pkg}.package-info")
+
+			cu?.getPackage()?.annotations()?.each { annotation ->
+				if (simpleName(annotation) == "XmlSchema") {
+					def values = values(annotation)
+
+					schema.namespace = values.namespace ?: ""
+					schema.elementQualified = values.elementFormDefault?.endsWith(".QUALIFIED") ?: false
+					schema.attributeQualified = values.attributeFormDefault?.endsWith(".QUALIFIED") ?: false
+				}
+			}
+
+			schemas[pkg] = schema
+		}
+
+		schemas[pkg]
+	}
+
+	// Returns the fully qualified name of a type as named in a compilation unit
+	def resolve(cu, typeName) {
+		if (PrimitiveType.toCode(typeName) != null) {
+			return typeName
+		}
+
+		def dot = typeName.indexOf('.')
+
+		// a qualified name, or a nested class named by its enclosing class
+		if (dot > 0) {
+			def outer = typeName.substring(0, dot)
+
+			if (Character.isLowerCase(outer.charAt(0))) {
+				return typeName
+			}
+
+			return "${resolve(cu, outer)}${typeName.substring(dot)}".toString()
+		}
+
+		def type = cu.types().get(0)
+
+		if (type.getName().getIdentifier() == typeName) {
+			return "${cu.getPackage().getName()}.${typeName}".toString()
+		}
+
+		if (nested(type, typeName) != null) {
+			return "${cu.getPackage().getName()}.${type.getName()}.${typeName}".toString()
+		}
+
+		def imported = cu.imports().find { importDeclaration ->
+			!importDeclaration.isOnDemand() && !importDeclaration.isStatic() &&
+					importDeclaration.getName().toString().endsWith(".${typeName}")
+		}
+
+		if (imported) {
+			return imported.getName().toString()
+		}
+
+		def pkg = cu.getPackage().getName().toString()
+
+		if (unit("${pkg}.${typeName}") != null) {
+			return "${pkg}.${typeName}".toString()
+		}
+
+		"java.lang.${typeName}".toString()
+	}
+
+	// Returns the declaration of a class or enum nested in a type, or null
+	static nested(type, name) {
+		type.bodyDeclarations().find { declaration ->
+			(declaration instanceof TypeDeclaration || declaration instanceof EnumDeclaration) &&
+					declaration.getName().getIdentifier() == name
+		}
+	}
+
+	// Returns the declaration of a generated class or enum, or null
+	def declaration(className) {
+		className = className.toString()
+
+		if (unit(className) != null) {
+			return unit(className).types().get(0)
+		}
+
+		def dot = className.lastIndexOf('.')
+
+		if (dot < 0) {
+			return null
+		}
+
+		def outer = declaration(className.substring(0, dot))
+
+		(outer == null) ? null : nested(outer, className.substring(dot + 1))
+	}
+
+	static simpleName(Annotation annotation) {
+		def name = annotation.getTypeName().getFullyQualifiedName()
+
+		name.substring(name.lastIndexOf('.') + 1)
+	}
+
+	// Returns the values of an annotation's members as Strings
+	static values(Annotation annotation) {
+		def values = [:]
+
+		if (annotation instanceof NormalAnnotation) {
+			annotation.values().each { pair ->
+				values[pair.getName().getIdentifier()] = value(pair.getValue())
+			}
+		} else if (annotation instanceof SingleMemberAnnotation) {
+			values.value = value(annotation.getValue())
+		}
+
+		values
+	}
+
+	static value(expression) {
+		if (expression instanceof StringLiteral) {
+			return expression.getLiteralValue()
+		}
+
+		if (expression instanceof BooleanLiteral) {
+			return String.valueOf(expression.booleanValue())
+		}
+
+		if (expression instanceof TypeLiteral) {
+			return expression.getType().toString()
+		}
+
+		expression.toString()
+	}
+
+	// Returns the description of a class or null if it cannot be bound
+	def describe(className) {
+		if (infos.containsKey(className)) {
+			return infos[className]
+		}
+
+		// guards against cycles
+		infos[className] = null
+
+		def cu = unit(className)
+
+		if (cu == null || !(cu.types().get(0) instanceof TypeDeclaration)) {
+			return null
+		}
+
+		def type = (TypeDeclaration) cu.types().get(0)
+		def pkg = cu.getPackage().getName().toString()
+		def schema = schema(pkg)
+
+		def info = [
+			name: type.getName().getIdentifier(),
+			isAbstract: Modifier.isAbstract(type.getModifiers()),
+			root: true,
+			superclass: null,
+			value: null,
+			anyAttribute: null,
+			attributes: [],
+			elements: []
+		]
+
+		if (type.getSuperclassType() != null) {
+			def superclass = resolve(cu, type.getSuperclassType().toString())
+
+			if (unit(superclass) != null) {
+				if (describe(superclass) == null) {
+					logger.info("    ${className} extends ${superclass}, which cannot be bound")
+					return null
+				}
+
+				info.root = false
+				info.superclass = superclass
+			}
+		}
+
+		for (FieldDeclaration fieldDeclaration : type.getFields()) {
+			def modifiers = fieldDeclaration.getModifiers()
+
+			if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+				continue
+			}
+
+			for (def fragment : fieldDeclaration.fragments()) {
+				def name = fragment.getName().getIdentifier()
+
+				if (!describeField(cu, schema, info, fieldDeclaration, name)) {
+					logger.info("    ${className}.${name} cannot be bound")
+					return null
+				}
+			}
+		}
+
+		infos[className] = info
+	}
+
+	// Adds a field to the description of its class, returning false if it
+	// cannot be bound
+	def describeField(cu, schema, info, fieldDeclaration, name) {
+		def annotations = [:]
+
+		fieldDeclaration.modifiers().each { modifier ->
+			if (modifier instanceof Annotation) {
+				annotations[simpleName(modifier)] = values(modifier)
+			}
+		}
+
+		if (annotations.containsKey("XmlTransient")) {
+			return true
+		}
+
+		if (annotations.keySet().any { UNSUPPORTED_ANNOTATIONS.contains(it) }) {
+			return false
+		}
+
+		def declaredType = fieldDeclaration.getType()
+
+		if (annotations.containsKey("XmlAnyAttribute")) {
+			info.anyAttribute = name
+			return true
+		}
+
+		def list = false
+		def itemType = declaredType
+
+		if (declaredType instanceof ParameterizedType) {
+			if (declaredType.getType().toString() != "List") {
+				return false
+			}
+
+			list = true
+			itemType = declaredType.typeArguments().get(0)
+
+			if (itemType instanceof ParameterizedType || itemType instanceof ArrayType) {
+				return false
+			}
+		}
+
+		def field = [
+			name: name,
+			type: declaredType.toString(),
+			itemType: itemType.toString(),
+			list: list
+		]
+
+		def resolved = resolve(cu, field.itemType)
+
+		if (itemType instanceof ArrayType) {
+			resolved = itemType.toString()
+		}
+
+		def adapter = annotations.XmlJavaTypeAdapter?.value
+
+		if (adapter != null) {
+			def adapterName = adapter.substring(adapter.lastIndexOf('.') + 1)
+
+			if (!ADAPTERS.containsKey(adapterName) || resolved != "java.lang.String") {
+				return false
+			}
+
+			field.kind = ADAPTERS[adapterName]
+		} else if (KINDS.containsKey(resolved)) {
+			field.kind = KINDS[resolved]
+		} else if (resolved == "java.lang.Object") {
+			if (annotations.XmlSchemaType?.name != "anySimpleType") {
+				return false
+			}
+
+			field.kind = "ANY_SIMPLE"
+		} else if (declaration(resolved) != null) {
+			field.kind = (declaration(resolved) instanceof EnumDeclaration) ? "ENUM" : "OBJECT"
+		} else {
+			return false
+		}
+
+		if (annotations.containsKey("XmlValue")) {
+			if (list || field.kind == "OBJECT") {
+				return false
+			}
+
+			info.value = field
+		} else if (annotations.containsKey("XmlAttribute")) {
+			def attribute = annotations.XmlAttribute
+
+			if (list || field.kind == "OBJECT") {
+				return false
+			}
+
+			field.localName = (attribute.name && attribute.name != "##default") ? attribute.name : name
+
+			if (attribute.namespace && attribute.namespace != "##default") {
+				field.namespace = attribute.namespace
+			} else {
+				field.namespace = schema.attributeQualified ? schema.namespace : ""
+			}
+
+			info.attributes << field
+		} else {
+			def element = annotations.XmlElement ?: [:]
+
+			if (element.nillable == "true" || (element.type && !element.type.endsWith("DEFAULT"))) {
+				return false
+			}
+
+			field.localName = (element.name && element.name != "##default") ? element.name : name
+
+			if (element.namespace && element.namespace != "##default") {
+				field.namespace = element.namespace
+			} else {
+				field.namespace = schema.elementQualified ? schema.namespace : ""
+			}
+
+			info.elements << field
+		}
+
+		true
+	}
+}
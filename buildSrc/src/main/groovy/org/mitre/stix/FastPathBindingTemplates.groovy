@@ -0,0 +1,387 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix
+
+/**
+ * Renders the methods of org.mitre.stix.FastPathBinding for a model class
+ * described by FastPathBindingAnalyzer, so that FastPathUnmarshaller and
+ * FastPathMarshaller can read and write it by setting and getting its fields
+ * directly.
+ *
+ * Each class only handles the fields it declares and defers to its superclass
+ * for the rest. Types are written as they appear in the field declarations,
+ * so they resolve against the class's own imports.
+ */
+class FastPathBindingTemplates {
+
+	static final String BINDING = "org.mitre.stix.FastPathBinding"
+	static final String UNMARSHALLER = "org.mitre.stix.FastPathUnmarshaller"
+	static final String MARSHALLER = "org.mitre.stix.FastPathMarshaller"
+	static final String EXCEPTION = "javax.xml.stream.XMLStreamException"
+	static final String CONVERTER = "javax.xml.bind.DatatypeConverter"
+
+	static final PRIMITIVES = ["boolean", "byte", "short", "int", "long", "float", "double"]
+
+	// DatatypeConverter method suffixes for the numeric, boolean and binary kinds
+	static final CONVERSIONS = [
+		BOOLEAN: "Boolean",
+		BYTE: "Byte",
+		SHORT: "Short",
+		INT: "Int",
+		LONG: "Long",
+		FLOAT: "Float",
+		DOUBLE: "Double",
+		INTEGER: "Integer",
+		DECIMAL: "Decimal",
+		BASE64: "Base64Binary"
+	]
+
+	// Returns the expression parsing the lexical value held by expression
+	static parse(field, expression) {
+		switch (field.kind) {
+			case "STRING":
+			case "ANY_SIMPLE":
+				return expression
+			case "COLLAPSED":
+				return "${UNMARSHALLER}.collapse(${expression})"
+			case "NORMALIZED":
+				return "${UNMARSHALLER}.normalize(${expression})"
+			case "QNAME":
+				return "unmarshaller.parseQName(${expression})"
+			case "CALENDAR":
+				return "unmarshaller.parseCalendar(${expression})"
+			case "ENUM":
+				return "${field.itemType}.fromValue(${expression}.trim())"
+			default:
+				return "${CONVERTER}.parse${CONVERSIONS[field.kind]}(${expression})"
+		}
+	}
+
+	// Returns the expression printing the value held by expression
+	static print(field, expression) {
+		switch (field.kind) {
+			case "STRING":
+			case "COLLAPSED":
+			case "NORMALIZED":
+				return expression
+			case "ANY_SIMPLE":
+				return "String.valueOf(${expression})"
+			case "CALENDAR":
+				return "${expression}.toXMLFormat()"
+			case "ENUM":
+				return "${expression}.value()"
+			default:
+				return "${CONVERTER}.print${CONVERSIONS[field.kind]}(${expression})"
+		}
+	}
+
+	// Returns the statements assigning value to the field, or adding it to the field's list
+	static assign(field, value, indent) {
+		if (!field.list) {
+			return "${indent}this.${field.name} = ${value};\n"
+		}
+
+		"""\
+${indent}if (this.${field.name} == null) {
+${indent}	this.${field.name} = new java.util.ArrayList<${field.itemType}>();
+${indent}}
+${indent}this.${field.name}.add(${value});
+"""
+	}
+
+	// Returns the switch statements dispatching on the names of the fields, by namespace
+	static dispatch(fields, body) {
+		def source = new StringBuilder()
+
+		fields.groupBy { it.namespace }.each { namespace, members ->
+			source << """\
+		if ("${namespace}".equals(namespaceURI)) {
+			switch (localName) {
+"""
+			members.each { field ->
+				source << """\
+			case "${field.localName}":
+${body(field)}				return true;
+"""
+			}
+
+			source << """\
+			}
+		}
+"""
+		}
+
+		source.toString()
+	}
+
+	static newInstance(info) {
+		def body
+
+		// only concrete subclasses with bindings of their own are instantiated
+		if (info.isAbstract) {
+			body = "throw new UnsupportedOperationException(getClass().getName());"
+		} else {
+			body = "return new ${info.name}();"
+		}
+
+		"""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#newFastPathInstance()
+	 */
+	@Override
+	public ${BINDING} newFastPathInstance() {
+		${body}
+	}
+"""
+	}
+
+	static readAttribute(info) {
+		def source = new StringBuilder("""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#readFastPathAttribute(${UNMARSHALLER}, String, String, String)
+	 */
+	@Override
+	public boolean readFastPathAttribute(${UNMARSHALLER} unmarshaller,
+			String namespaceURI, String localName, String value) {
+""")
+
+		source << dispatch(info.attributes) { field ->
+			assign(field, parse(field, "value"), "\t\t\t\t")
+		}
+
+		if (!info.root) {
+			if (info.anyAttribute) {
+				source << """\
+		if (super.readFastPathAttribute(unmarshaller, namespaceURI, localName, value)) {
+			return true;
+		}
+"""
+			} else {
+				source << """\
+		return super.readFastPathAttribute(unmarshaller, namespaceURI, localName, value);
+	}
+"""
+				return source.toString()
+			}
+		}
+
+		if (info.anyAttribute) {
+			source << """\
+		this.${info.anyAttribute}.put(new javax.xml.namespace.QName(namespaceURI, localName), value);
+		return true;
+	}
+"""
+		} else {
+			source << """\
+		return false;
+	}
+"""
+		}
+
+		source.toString()
+	}
+
+	static readContent(info) {
+		def body
+
+		if (info.value) {
+			body = assign(info.value, parse(info.value, "unmarshaller.readText()"), "\t\t")
+		} else {
+			body = "\t\tunmarshaller.readElements(this);\n"
+		}
+
+		"""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#readFastPathContent(${UNMARSHALLER})
+	 */
+	@Override
+	public void readFastPathContent(${UNMARSHALLER} unmarshaller)
+			throws ${EXCEPTION} {
+${body}	}
+"""
+	}
+
+	static readElement(info) {
+		def source = new StringBuilder("""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#readFastPathElement(${UNMARSHALLER}, String, String)
+	 */
+	@Override
+	public boolean readFastPathElement(${UNMARSHALLER} unmarshaller,
+			String namespaceURI, String localName) throws ${EXCEPTION} {
+""")
+
+		source << dispatch(info.elements) { field ->
+			def value
+
+			if (field.kind == "OBJECT") {
+				value = "unmarshaller.read(${field.itemType}.class)"
+			} else {
+				value = parse(field, "unmarshaller.readText()")
+			}
+
+			assign(field, value, "\t\t\t\t")
+		}
+
+		if (info.root) {
+			source << """\
+		return false;
+	}
+"""
+		} else {
+			source << """\
+		return super.readFastPathElement(unmarshaller, namespaceURI, localName);
+	}
+"""
+		}
+
+		source.toString()
+	}
+
+	static writeAttributes(info) {
+		def source = new StringBuilder("""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#writeFastPathAttributes(${MARSHALLER})
+	 */
+	@Override
+	public void writeFastPathAttributes(${MARSHALLER} marshaller)
+			throws ${EXCEPTION} {
+""")
+
+		if (!info.root) {
+			source << "\t\tsuper.writeFastPathAttributes(marshaller);\n"
+		}
+
+		info.attributes.each { field ->
+			def statement
+
+			if (field.kind == "QNAME") {
+				statement = "marshaller.writeQNameAttribute(\"${field.namespace}\", \"${field.localName}\", this.${field.name});"
+			} else {
+				statement = "marshaller.writeAttribute(\"${field.namespace}\", \"${field.localName}\", ${print(field, "this.${field.name}")});"
+			}
+
+			source << guard(field, "this.${field.name}", statement, "\t\t")
+		}
+
+		if (info.anyAttribute) {
+			source << """\
+		for (java.util.Map.Entry<javax.xml.namespace.QName, String> attribute : this.${info.anyAttribute}.entrySet()) {
+			marshaller.writeAttribute(attribute.getKey().getNamespaceURI(), attribute.getKey().getLocalPart(), attribute.getValue());
+		}
+"""
+		}
+
+		source << "\t}\n"
+
+		source.toString()
+	}
+
+	static writeContent(info) {
+		def source = new StringBuilder("""\
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see ${BINDING}#writeFastPathContent(${MARSHALLER})
+	 */
+	@Override
+	public void writeFastPathContent(${MARSHALLER} marshaller)
+			throws ${EXCEPTION} {
+""")
+
+		if (info.value) {
+			source << guard(info.value, "this.${info.value.name}",
+					"marshaller.writeText(${print(info.value, "this.${info.value.name}")});", "\t\t")
+		} else {
+			if (!info.root) {
+				source << "\t\tsuper.writeFastPathContent(marshaller);\n"
+			}
+
+			info.elements.each { field ->
+				if (field.list) {
+					source << """\
+		if (this.${field.name} != null) {
+			for (${field.itemType} item : this.${field.name}) {
+${writeElementStatement(field, "item", "\t\t\t\t")}			}
+		}
+"""
+				} else {
+					source << guard(field, "this.${field.name}",
+							writeElementStatement(field, "this.${field.name}", "").trim(), "\t\t")
+				}
+			}
+		}
+
+		source << "\t}\n"
+
+		source.toString()
+	}
+
+	static writeElementStatement(field, value, indent) {
+		def statement
+
+		switch (field.kind) {
+			case "OBJECT":
+				statement = "marshaller.writeElement(\"${field.namespace}\", \"${field.localName}\", ${field.itemType}.class, ${value});"
+				break
+			case "QNAME":
+				statement = "marshaller.writeQNameElement(\"${field.namespace}\", \"${field.localName}\", ${value});"
+				break
+			default:
+				statement = "marshaller.writeTextElement(\"${field.namespace}\", \"${field.localName}\", ${print(field, value)});"
+		}
+
+		"${indent}${statement}\n"
+	}
+
+	// Wraps a statement in a null check unless the field is primitive
+	static guard(field, expression, statement, indent) {
+		if (PRIMITIVES.contains(field.itemType)) {
+			return "${indent}${statement}\n"
+		}
+
+		"""\
+${indent}if (${expression} != null) {
+${indent}	${statement}
+${indent}}
+"""
+	}
+
+	/**
+	 * Returns the source of the methods implementing FastPathBinding for a
+	 * class.
+	 *
+	 * @param info
+	 *            The class as described by FastPathBindingAnalyzer
+	 * @return The method declarations
+	 */
+	static methods(info) {
+		def methods = [newInstance(info)]
+
+		methods << readAttribute(info)
+
+		// simple content cannot be extended with elements, so only the class
+		// declaring the value and the root of the hierarchy read content
+		if (info.root || info.value) {
+			methods << readContent(info)
+		}
+
+		methods << readElement(info)
+		methods << writeAttributes(info)
+		methods << writeContent(info)
+
+		methods
+	}
+}
@@ -5,6 +5,7 @@
 package org.mitre.stix
 
 import org.gradle.api.DefaultTask
+import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.TaskAction
 
 import groovy.io.FileType
@@ -31,6 +32,11 @@ import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants
  *
  */
 class GeneratedSourceTransformationTask extends DefaultTask {
+
+	// fully qualified names of the model classes to generate fast-path StAX
+	// bindings for (see org.mitre.stix.FastPathBinding)
+	@Input List<String> fastPathTypes = []
+
 	def lineSeperator
 	def codeFormatterOptions
 	def parserOptions
@@ -130,6 +136,16 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 	// Add methods to source
 	def addMethodsToSrc(source, methodTemplate, templateBindings) {
 		
+		def engine = new SimpleTemplateEngine()
+		
+		def template = engine.createTemplate(methodTemplate).make(templateBindings)
+		
+		addMethodSourceToSrc(source, template.toString())
+	}
+
+	// Add a method's source to source as is
+	def addMethodSourceToSrc(source, methodSource) {
+		
 		def document = new org.eclipse.jface.text.Document(source)
 	
 		def parser = ASTParser.newParser(AST.JLS8)
@@ -144,11 +160,6 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 			
 			def rewriter = ASTRewrite.create(cu.getAST())
 			
-			def engine = new SimpleTemplateEngine()
-			
-			def template = engine.createTemplate(methodTemplate).make(templateBindings)
-			def methodSource = template.toString()
-			
 			def lrw = rewriter.getListRewrite((TypeDeclaration) cu.types().get(0),
 					TypeDeclaration.BODY_DECLARATIONS_PROPERTY)
 			
@@ -162,6 +173,47 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 		document.get()
 	}
 
+	// Add an interface to the interfaces the class in source implements
+	def addInterfaceToSrc(source, interfaceName) {
+		
+		def document = new org.eclipse.jface.text.Document(source)
+	
+		def parser = ASTParser.newParser(AST.JLS8)
+		parser.setCompilerOptions(parserOptions)
+		parser.setKind(ASTParser.K_COMPILATION_UNIT)
+		parser.setSource(document.get().toCharArray())
+		
+		def cu = (CompilationUnit) parser.createAST(null)
+		
+		def ast = cu.getAST()
+		def rewriter = ASTRewrite.create(ast)
+		
+		def lrw = rewriter.getListRewrite((TypeDeclaration) cu.types().get(0),
+				TypeDeclaration.SUPER_INTERFACE_TYPES_PROPERTY)
+		
+		lrw.insertLast(ast.newSimpleType(ast.newName(interfaceName.split("\\."))), null)
+		
+		def edits = rewriter.rewriteAST(document, null)
+		edits.apply(document)
+		
+		document.get()
+	}
+
+	// Add the fast-path binding methods, and the interface at the root of
+	// the bound hierarchy
+	def addFastPathBindingToSrc(source, info) {
+		
+		if (info.root) {
+			source = addInterfaceToSrc(source, FastPathBindingTemplates.BINDING)
+		}
+		
+		FastPathBindingTemplates.methods(info).each { methodSource ->
+			source = addMethodSourceToSrc(source, methodSource)
+		}
+		
+		source
+	}
+
 	@TaskAction
 	def sourceTransformation() {
 		
@@ -267,38 +319,157 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 						[
 							imports: 
 							[
-								"java.io.StringReader",
-								"javax.xml.bind.JAXBContext",
+								"org.mitre.stix.DocumentUtilities"
+							],
+							template:
+								"""\
+	/**
+	 * Writes this instance to an OutputStream as UTF-8 encoded XML that is
+	 * not formatted, without building a String. The stream is not closed.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 */
+	public void toXML(java.io.OutputStream outputStream) {
+		toXML(outputStream, false);
+	}
+"""
+						],
+						[
+							imports: 
+							[
+								"org.mitre.stix.DocumentUtilities"
+							],
+							template:
+								"""\
+	/**
+	 * Writes this instance to an OutputStream as UTF-8 encoded XML, without
+	 * building a String. The stream is not closed.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 * @param prettyPrint
+	 *            True for pretty print, otherwise false
+	 */
+	public void toXML(java.io.OutputStream outputStream, boolean prettyPrint) {
+		DocumentUtilities.writeXML(toJAXBElement(), outputStream, prettyPrint);
+	}
+"""
+						],
+						[
+							imports: 
+							[
 								"javax.xml.bind.JAXBException",
 								"javax.xml.bind.Unmarshaller",
-								"javax.xml.transform.stream.StreamSource",
+								"org.mitre.stix.DocumentUtilities",
 								"org.mitre.stix.STIXSchema",
 								"org.mitre.stix.ValidationEventHandler"
 							],
 							template:
 								"""\
 	/**
-	 * Creates \${name} instance for XML String
+	 * Creates \${name} instance from an XML Source
 	 * 
-	 * @param text
-	 *            XML String for the document
-	 * @return The \${name} instance for the passed XML String
+	 * @param source
+	 *            XML Source for the document
+	 * @return The \${name} instance for the passed XML Source
 	 */
-	public static \${name} fromXMLString(String text) {
-		JAXBContext jaxbContext;
+	public static \${name} fromXML(javax.xml.transform.Source source) {
 		try {
-			jaxbContext = JAXBContext.newInstance(\${name}.class.getPackage()
-					.getName());
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+			// builds the JAXBContext in the background while the schema loads
+			DocumentUtilities.warmUpJAXBContext();
+			javax.xml.validation.Schema schema = STIXSchema.getInstance().getSchema();
 			
-			unmarshaller.setSchema(STIXSchema.getInstance().getSchema());
+			Unmarshaller unmarshaller = DocumentUtilities
+					.createUnmarshaller(\${name}.class);
+			
+			unmarshaller.setSchema(schema);
 			unmarshaller.setEventHandler(new ValidationEventHandler());
-			StreamSource streamSource = new StreamSource(new StringReader(text));
-			return (\${name}) unmarshaller.unmarshal(streamSource);
+			return (\${name}) unmarshaller.unmarshal(source);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		} 
 	}
+"""
+						],
+						[
+							imports: 
+							[
+								"java.io.StringReader",
+								"javax.xml.transform.stream.StreamSource"
+							],
+							template:
+								"""\
+	/**
+	 * Creates \${name} instance for XML String
+	 * 
+	 * @param text
+	 *            XML String for the document
+	 * @return The \${name} instance for the passed XML String
+	 */
+	public static \${name} fromXMLString(String text) {
+		return fromXML(new StreamSource(new StringReader(text)));
+	}
+"""
+						],
+						[
+							imports: 
+							[
+								"javax.xml.transform.stream.StreamSource"
+							],
+							template:
+								"""\
+	/**
+	 * Creates \${name} instance from XML read from an InputStream. The
+	 * encoding is detected from the XML declaration. The stream is not closed.
+	 * 
+	 * @param inputStream
+	 *            XML stream for the document
+	 * @return The \${name} instance for the passed XML stream
+	 */
+	public static \${name} fromXML(java.io.InputStream inputStream) {
+		return fromXML(new StreamSource(inputStream));
+	}
+"""
+						],
+						[
+							imports: 
+							[
+							],
+							template:
+								"""\
+	/**
+	 * Creates \${name} instance from XML read from a channel. The encoding is
+	 * detected from the XML declaration. The channel is not closed.
+	 * 
+	 * @param channel
+	 *            XML channel for the document
+	 * @return The \${name} instance for the passed XML channel
+	 */
+	public static \${name} fromXML(java.nio.channels.ReadableByteChannel channel) {
+		return fromXML(java.nio.channels.Channels.newInputStream(channel));
+	}
+"""
+						],
+						[
+							imports: 
+							[
+								"org.mitre.stix.ByteBufferInputStream"
+							],
+							template:
+								"""\
+	/**
+	 * Creates \${name} instance from XML held in the remaining bytes of a
+	 * ByteBuffer. The encoding is detected from the XML declaration. The
+	 * position of the buffer is left as it is.
+	 * 
+	 * @param buffer
+	 *            XML bytes for the document
+	 * @return The \${name} instance for the passed XML bytes
+	 */
+	public static \${name} fromXML(java.nio.ByteBuffer buffer) {
+		return fromXML(new ByteBufferInputStream(buffer));
+	}
 """
 						],
 						[
@@ -326,7 +497,22 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 					]
 			]
 		
+		def analyzer = new FastPathBindingAnalyzer(project.file("src/generated/java"), parserOptions)
+		
+		def fastPathBindings = analyzer.analyze(fastPathTypes)
+		
+		def binaryDictionary = new BinaryDictionaryCollector()
+		
+		def modelMetadata = new ModelMetadataCollector(analyzer)
+		
 		project.file("src/generated/java").eachFileRecurse(FileType.FILES) { file ->
+			
+			def cu = analyzer.parse(file)
+			
+			binaryDictionary.collect(cu)
+			
+			modelMetadata.collect(cu)
+			
 			if (!file.name.endsWith("EnumType.java") && !file.name.endsWith("TypeEnum.java")) {
 				
 				def uri = file.toURI()
@@ -352,6 +538,13 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 									methodDeclaration["template"], ["pkg":pkg, "name":name])
 							
 						}
+						
+						if (fastPathBindings.containsKey("${pkg}.${name}".toString())) {
+							logger.debug("    binding ${pkg + "." + name}")
+							
+							source = addFastPathBindingToSrc(source,
+									fastPathBindings["${pkg}.${name}".toString()])
+						}
 					} else {
 						// handle package-info
 						logger.debug("    ignoring ${pkg}.${name}")
@@ -372,5 +565,23 @@ class GeneratedSourceTransformationTask extends DefaultTask {
 				}
 			}
 		}
+		
+		// lists the concrete bound classes for org.mitre.stix.FastPathRegistry
+		project.file("src/main/resources/org/mitre/stix/fast-path-bindings.txt").with { outFile ->
+			outFile.parentFile.mkdirs()
+			outFile.withWriter("UTF-8") { out ->
+				out.println "# Generated by the generatedSourceTransformation task"
+				
+				fastPathBindings.findAll { className, info -> !info.isAbstract }.keySet().sort().each { className ->
+					out.println className
+				}
+			}
+		}
+		
+		// the model's strings for org.mitre.stix.BinaryDictionary
+		binaryDictionary.write(project.file("src/main/resources/org/mitre/stix/binary-dictionary.txt"))
+		
+		// the model's names for org.mitre.stix.ModelMetadata
+		modelMetadata.write(project.file("src/main/resources/org/mitre/stix/model-metadata.txt"))
 	}
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix
+
+import org.eclipse.jdt.core.dom.Annotation
+import org.eclipse.jdt.core.dom.EnumDeclaration
+import org.eclipse.jdt.core.dom.TypeDeclaration
+
+/**
+ * Collects the namespace URI and element or type name of each class of the
+ * XJC generated model for org.mitre.stix.ModelMetadata, as
+ * STIXSchema.getNamespaceURI and STIXSchema.getName would read them from the
+ * annotations at runtime.
+ */
+class ModelMetadataCollector {
+
+	def analyzer
+
+	// namespace URI and name by binary class name
+	def metadata = new TreeMap<String, List<String>>()
+
+	ModelMetadataCollector(analyzer) {
+		this.analyzer = analyzer
+	}
+
+	/**
+	 * Collects the metadata of the classes and enums of a compilation unit,
+	 * including nested ones.
+	 *
+	 * @param cu
+	 *            The parsed source of a model class, enum or package-info
+	 */
+	def collect(cu) {
+		if (cu.getPackage() == null) {
+			return
+		}
+
+		def pkg = cu.getPackage().getName().toString()
+		def namespace = analyzer.schema(pkg).namespace
+
+		cu.types().each { type ->
+			collect(type, "${pkg}.${type.getName().getIdentifier()}", namespace)
+		}
+	}
+
+	def collect(type, className, namespace) {
+		def annotations = type.modifiers().findAll { it instanceof Annotation }
+
+		def rootElement = annotations.find { FastPathBindingAnalyzer.simpleName(it) == "XmlRootElement" }
+		def xmlType = annotations.find { FastPathBindingAnalyzer.simpleName(it) == "XmlType" }
+		def annotation = rootElement ?: xmlType
+
+		// the file is line and tab based
+		if (annotation != null) {
+			def name = FastPathBindingAnalyzer.values(annotation).name ?: "##default"
+
+			if (!(name =~ /[\t\r\n]/) && !(namespace =~ /[\t\r\n]/)) {
+				metadata[className.toString()] = [namespace, name]
+			}
+		}
+
+		type.bodyDeclarations().each { declaration ->
+			if (declaration instanceof TypeDeclaration || declaration instanceof EnumDeclaration) {
+				collect(declaration, "${className}\$${declaration.getName().getIdentifier()}", namespace)
+			}
+		}
+	}
+
+	/**
+	 * Writes the metadata, one class per line in sorted order: its binary
+	 * name, namespace URI and name separated by tabs.
+	 *
+	 * @param file
+	 *            The model-metadata.txt to write
+	 */
+	def write(file) {
+		file.parentFile.mkdirs()
+		file.withWriter("UTF-8") { out ->
+			out.println "# Generated by the generatedSourceTransformation task"
+
+			metadata.each { className, values ->
+				out.println "${className}\t${values[0]}\t${values[1]}"
+			}
+		}
+	}
+}
@@ -18,10 +18,14 @@ import org.gradle.api.tasks.TaskAction
 
 /**
  * Gradle Task used to dynamically creates the src/main/resources/namespace-prefix.xjb
+ * file and the src/main/resources/org/mitre/stix/schema-index-v*.properties
  * file from the schemas.
  *
  * namespace-prefix.xjb prevents XJC from dynamically assigning ns namespaces
  * and catalog.xml is used for parsing and validation.
+ *
+ * The schema index is shipped in the jar and read by STIXSchema in place of
+ * crawling the schemas at runtime.
  * 
  * @author nemonik (Michael Joseph Walsh <github.com@nemonik.com>)
  *
@@ -31,7 +35,7 @@ class PrefixNamespaceBindingsTask extends DefaultTask {
 	@Input String schemaVersion
 	
 	PrefixNamespaceBindingsTask() {
-		description "Dynamically create the prefix-namespace bindings file off of the schemas"
+		description "Dynamically create the prefix-namespace bindings file and the schema index off of the schemas"
 	}
 	
 	// Returns a hashmap Binding objects
@@ -122,9 +126,75 @@ class PrefixNamespaceBindingsTask extends DefaultTask {
 		prefixSchemaBindings
 	}
 
+	// Returns a map of prefix to [namespace, schemaLocation] crawled the same
+	// way STIXSchema crawls the schemas at runtime, with every schema included
+	def index() {
+		
+		def resources = project.file("src/main/resources")
+		
+		def schemas = []
+		project.file("src/main/resources/schemas/v${schemaVersion}").eachFileRecurse(FileType.FILES) { file ->
+			if (file.name.endsWith(".xsd")) {
+				schemas << file
+			}
+		}
+		
+		// relative to the classpath root and with "/" separators on every platform
+		def schemaLocations = schemas.collectEntries { schema ->
+			[(resources.toURI().relativize(schema.toURI()).getPath()): schema]
+		}.sort()
+		
+		def index = [:]
+		
+		schemaLocations.each { schemaLocation, schema ->
+			
+			def document = DocumentBuilderFactory.newInstance()
+					.newDocumentBuilder().parse(schema)
+			
+			def targetNamespace = document.getDocumentElement().getAttribute("targetNamespace")
+			
+			def attributes = document.getDocumentElement().getAttributes()
+			
+			for (int i = 0 ; i < attributes.getLength() ; i++) {
+				def attribute = attributes.item(i)
+				
+				if (attribute.getNodeName().startsWith("xmlns:") && attribute.getNodeValue().equals(targetNamespace)) {
+					
+					def prefix = attribute.getNodeName().split(":")[1]
+					
+					// a prefix already claimed by an external schema keeps it
+					if (index.containsKey(prefix) && index[prefix][1].startsWith("schemas/v${schemaVersion}/external")) {
+						continue
+					}
+					
+					index[prefix] = [targetNamespace, schemaLocation]
+				}
+			}
+		}
+		
+		index
+	}
+	
+	// Dynamically creates the src/main/resources/org/mitre/stix/schema-index-v*.properties file used by STIXSchema
+	def createIndex() {
+		def dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
+		def date = new Date();
+		
+		project.file("src/main/resources/org/mitre/stix/schema-index-v${schemaVersion}.properties").withWriter("ISO-8859-1") { writer ->
+			writer.writeLine("# WARNING!!!!! Dynamically created on ${dateFormat.format(date)} by the build.gradle's createPrefixNamespaceBindings task. All changes made to this file will be lost.")
+			writer.writeLine("# prefix=namespace schemaLocation")
+			
+			index().sort().each { prefix, binding ->
+				writer.writeLine("${prefix}=${binding[0]} ${binding[1]}")
+			}
+		}
+	}
+
 	// Dynamically creates the src/main/resources/namespace-prefix.xjb file used by XJC jaxb2-namespace-prefix plugin
 	@TaskAction
 	def create() {
+		createIndex()
+		
 		def prefixSchemaBindings = get()
 		
 		def dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding STIX_Packages (see STIXCorpus) in the binary
+ * form of STIXBinaryCodec with writing and reading them as XML through the
+ * same fast-path bindings, so only the format differs. The size of each form
+ * is reported alongside the encoding benchmarks as their "bytes" counter.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json BinaryCodecBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	/**
+	 * The size of the last encoding, reported by JMH as a secondary result.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Size {
+
+		public long bytes;
+	}
+
+	private STIXPackage stixPackage;
+
+	private byte[] xml;
+
+	private byte[] binary;
+
+	@Setup
+	public void setup() {
+		stixPackage = STIXCorpus.createPackage(indicators);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		FastPathMarshaller.marshal(stixPackage, outputStream);
+		xml = outputStream.toByteArray();
+
+		binary = STIXBinaryCodec.encode(stixPackage);
+	}
+
+	@Benchmark
+	public byte[] encodeXML(Size size) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+				xml.length);
+
+		FastPathMarshaller.marshal(stixPackage, outputStream);
+
+		byte[] bytes = outputStream.toByteArray();
+		size.bytes = bytes.length;
+
+		return bytes;
+	}
+
+	@Benchmark
+	public byte[] encodeBinary(Size size) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+				binary.length);
+
+		STIXBinaryCodec.encode(stixPackage, outputStream);
+
+		byte[] bytes = outputStream.toByteArray();
+		size.bytes = bytes.length;
+
+		return bytes;
+	}
+
+	@Benchmark
+	public STIXPackage decodeXML() {
+		return FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+
+	@Benchmark
+	public STIXPackage decodeBinary() {
+		return STIXBinaryCodec.decode(binary, STIXPackage.class);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.bootstrap.DOMImplementationRegistry;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSOutput;
+import org.w3c.dom.ls.LSSerializer;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the DocumentUtilities serialization and parsing helpers.
+ *
+ * The lookupPerCall benchmarks repeat what DocumentUtilities used to do on
+ * every call (a DOMImplementationRegistry lookup and a new
+ * DocumentBuilderFactory) for comparison with the cached factories and
+ * thread-local builders and serializers it uses now.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DocumentUtilitiesBenchmark {
+
+	private String xml;
+
+	private Document document;
+
+	@Setup
+	public void setup() throws IOException {
+		InputStream inputStream = getClass().getResourceAsStream(
+				"/org/mitre/stix/examples/sample.xml");
+
+		try {
+			xml = IOUtils.toString(inputStream, "UTF-8");
+		} finally {
+			inputStream.close();
+		}
+
+		document = DocumentUtilities.toDocument(xml);
+	}
+
+	@Benchmark
+	public String toXMLStringCompact() {
+		return DocumentUtilities.toXMLString(document, false);
+	}
+
+	@Benchmark
+	public String toXMLStringPretty() {
+		return DocumentUtilities.toXMLString(document, true);
+	}
+
+	@Benchmark
+	public Document toDocumentFromString() {
+		return DocumentUtilities.toDocument(xml);
+	}
+
+	@Benchmark
+	public String stripFormatting() {
+		return DocumentUtilities.stripFormattingfromXMLString(xml);
+	}
+
+	@Benchmark
+	public String toXMLStringLookupPerCall() throws Exception {
+		DOMImplementationRegistry registry = DOMImplementationRegistry
+				.newInstance();
+		DOMImplementationLS domImplementationLS = (DOMImplementationLS) registry
+				.getDOMImplementation("LS");
+		LSSerializer serializer = domImplementationLS.createLSSerializer();
+
+		LSOutput lsOutput = domImplementationLS.createLSOutput();
+		lsOutput.setEncoding("UTF-8");
+		ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+		lsOutput.setByteStream(byteStream);
+
+		serializer.write(document, lsOutput);
+
+		return new String(byteStream.toByteArray(), "UTF-8");
+	}
+
+	@Benchmark
+	public Document toDocumentFromStringLookupPerCall() throws Exception {
+		DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory
+				.newInstance();
+		documentBuilderFactory.setNamespaceAware(true);
+		documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+		documentBuilderFactory.setCoalescing(true);
+
+		Document parsed = documentBuilderFactory.newDocumentBuilder().parse(
+				new InputSource(new StringReader(xml)));
+
+		DocumentUtilities.removeUnusedNamespaces(parsed);
+
+		return parsed;
+	}
+}
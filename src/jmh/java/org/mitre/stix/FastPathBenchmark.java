@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares unmarshalling and marshalling STIX_Packages (see STIXCorpus) with
+ * the generated fast-path bindings against doing so with JAXB. Neither side
+ * validates, so only the binding is measured.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json FastPathBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FastPathBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private byte[] xml;
+
+	private STIXPackage stixPackage;
+
+	private Unmarshaller unmarshaller;
+
+	private Marshaller marshaller;
+
+	@Setup
+	public void setup() throws JAXBException, UnsupportedEncodingException {
+		xml = STIXCorpus.createPackageXML(indicators).getBytes("UTF-8");
+		stixPackage = STIXCorpus.createPackage(indicators);
+
+		unmarshaller = DocumentUtilities.stixJaxbContext().createUnmarshaller();
+		marshaller = DocumentUtilities.stixJaxbContext().createMarshaller();
+	}
+
+	@Benchmark
+	public Object unmarshalJAXB() throws JAXBException {
+		return unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+	}
+
+	@Benchmark
+	public STIXPackage unmarshalFastPath() {
+		return FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+
+	@Benchmark
+	public byte[] marshalJAXB() throws JAXBException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+				xml.length);
+
+		marshaller.marshal(stixPackage.toJAXBElement(), outputStream);
+
+		return outputStream.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] marshalFastPath() {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+				xml.length);
+
+		FastPathMarshaller.marshal(stixPackage, outputStream);
+
+		return outputStream.toByteArray();
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares resolving a reference to every Indicator of a STIX_Package (see
+ * STIXCorpus) with an IdrefIndex, including building the index, with
+ * searching the package's Indicators for each one.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json IdrefIndexBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IdrefIndexBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private STIXPackage stixPackage;
+
+	private List<Indicator> references;
+
+	@Setup
+	public void setup() {
+		stixPackage = STIXCorpus.createPackage(indicators);
+
+		references = new ArrayList<Indicator>();
+
+		for (IndicatorBaseType indicator : stixPackage.getIndicators()
+				.getIndicators()) {
+			references.add(new Indicator().withIdref(indicator.getId()));
+		}
+	}
+
+	@Benchmark
+	public int resolveWithIndex() {
+		IdrefIndex index = new IdrefIndex(stixPackage);
+
+		int resolved = 0;
+
+		for (Indicator reference : references) {
+			if (index.resolve(reference) != null) {
+				resolved++;
+			}
+		}
+
+		return resolved;
+	}
+
+	@Benchmark
+	public int resolveBySearching() {
+		int resolved = 0;
+
+		for (Indicator reference : references) {
+			QName idref = reference.getIdref();
+
+			for (IndicatorBaseType indicator : stixPackage.getIndicators()
+					.getIndicators()) {
+				if (idref.equals(indicator.getId())) {
+					resolved++;
+					break;
+				}
+			}
+		}
+
+		return resolved;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares looking up File hashes in an IndicatorBloomFilter of the
+ * Indicators of STIX_Packages (see STIXCorpus), built on the heap and
+ * mapped from a file, with matching them through an IndicatorMatcher, and
+ * measures building filters from packages and from XML read with a
+ * STIXPackageReader. Half of the hashes looked up are in the package.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json IndicatorBloomFilterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndicatorBloomFilterBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "100", "1000", "10000" })
+	public int indicators;
+
+	/**
+	 * The false positive probability of the filters.
+	 */
+	@Param({ "0.01", "0.0001" })
+	public double falsePositiveProbability;
+
+	private STIXPackage stixPackage;
+
+	private byte[] xml;
+
+	private IndicatorBloomFilter filter;
+
+	private IndicatorBloomFilter mappedFilter;
+
+	private IndicatorMatcher matcher;
+
+	private Path path;
+
+	private String[] hashes;
+
+	private int next = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		stixPackage = STIXCorpus.createPackage(indicators);
+		xml = STIXCorpus.createPackageXML(indicators).getBytes("UTF-8");
+
+		filter = IndicatorBloomFilter.build(stixPackage,
+				falsePositiveProbability);
+		matcher = new IndicatorMatcher(stixPackage);
+
+		path = Files.createTempFile("indicators", ".filter");
+		filter.write(path);
+		mappedFilter = IndicatorBloomFilter.map(path);
+
+		hashes = new String[indicators * 2];
+
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = String.format("%032X", i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(path);
+	}
+
+	private String nextHash() {
+		String hash = hashes[next];
+
+		next = (next + 1) % hashes.length;
+
+		return hash;
+	}
+
+	@Benchmark
+	public boolean mightContainHash() {
+		return filter.mightContainHash(nextHash());
+	}
+
+	@Benchmark
+	public boolean mappedMightContainHash() {
+		return mappedFilter.mightContainHash(nextHash());
+	}
+
+	@Benchmark
+	public List<Indicator> matchHash() {
+		return matcher.matchHash(nextHash());
+	}
+
+	@Benchmark
+	public boolean mightContainAddress() {
+		return mappedFilter.mightContainIPv4(0x0a000001 + (next++ & 3));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public IndicatorBloomFilter build() {
+		return IndicatorBloomFilter.build(stixPackage,
+				falsePositiveProbability);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public IndicatorBloomFilter buildFromReader() {
+		return IndicatorBloomFilter.build(new STIXPackageReader(
+				new ByteArrayInputStream(xml)), falsePositiveProbability);
+	}
+}
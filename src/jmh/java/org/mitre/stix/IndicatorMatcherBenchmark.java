@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.cybox.common_2.HashType;
+import org.mitre.cybox.common_2.ObjectPropertiesType;
+import org.mitre.cybox.cybox_2.Observable;
+import org.mitre.cybox.objects.FileObjectType;
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares matching File hashes against the Indicators of STIX_Packages (see
+ * STIXCorpus) through an IndicatorMatcher with walking the Indicators'
+ * Observables for each hash, and measures matching addresses and
+ * rebuilding. Half of the hashes matched are in the package. Run with -prof
+ * gc to see that matching allocates nothing.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json IndicatorMatcherBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndicatorMatcherBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private List<IndicatorBaseType> watchlist;
+
+	private IndicatorMatcher matcher;
+
+	private String[] hashes;
+
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		STIXPackage stixPackage = STIXCorpus.createPackage(indicators);
+
+		watchlist = stixPackage.getIndicators().getIndicators();
+		matcher = new IndicatorMatcher(stixPackage);
+
+		hashes = new String[indicators * 2];
+
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = String.format("%032X", i);
+		}
+	}
+
+	private String nextHash() {
+		String hash = hashes[next];
+
+		next = (next + 1) % hashes.length;
+
+		return hash;
+	}
+
+	@Benchmark
+	public List<Indicator> matchHash() {
+		return matcher.matchHash(nextHash());
+	}
+
+	@Benchmark
+	public Indicator walkIndicators() {
+		String hash = nextHash();
+
+		for (IndicatorBaseType indicatorBase : watchlist) {
+			Indicator indicator = (Indicator) indicatorBase;
+			Observable observable = indicator.getObservable();
+
+			if (observable == null || observable.getObject() == null) {
+				continue;
+			}
+
+			ObjectPropertiesType properties = observable.getObject()
+					.getProperties();
+
+			if (!(properties instanceof FileObjectType)
+					|| ((FileObjectType) properties).getHashes() == null) {
+				continue;
+			}
+
+			for (HashType hashType : ((FileObjectType) properties)
+					.getHashes().getHashes()) {
+				if (hashType.getSimpleHashValue() != null
+						&& hash.equalsIgnoreCase(String.valueOf(hashType
+								.getSimpleHashValue().getValue()))) {
+					return indicator;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	@Benchmark
+	public List<Indicator> matchAddress() {
+		return matcher.matchIPv4(0x0a000001 + (next++ & 3));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int rebuild() {
+		return matcher.rebuild(watchlist);
+	}
+}
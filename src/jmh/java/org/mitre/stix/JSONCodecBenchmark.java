@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding STIX_Packages (see STIXCorpus) as JSON with
+ * STIXJSONCodec with writing and reading them as XML through the same
+ * fast-path bindings, and measures converting their XML to JSON. Doubling
+ * the number of indicators should double the times, as neither form is
+ * converted through a tree.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json JSONCodecBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JSONCodecBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private STIXPackage stixPackage;
+
+	private byte[] xml;
+
+	private String json;
+
+	@Setup
+	public void setup() {
+		stixPackage = STIXCorpus.createPackage(indicators);
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		FastPathMarshaller.marshal(stixPackage, outputStream);
+		xml = outputStream.toByteArray();
+
+		json = STIXJSONCodec.encode(stixPackage);
+	}
+
+	@Benchmark
+	public byte[] encodeXML() {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+				xml.length);
+
+		FastPathMarshaller.marshal(stixPackage, outputStream);
+
+		return outputStream.toByteArray();
+	}
+
+	@Benchmark
+	public String encodeJSON() {
+		StringWriter out = new StringWriter(json.length());
+
+		STIXJSONCodec.encode(stixPackage, out);
+
+		return out.toString();
+	}
+
+	@Benchmark
+	public STIXPackage decodeXML() {
+		return FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+
+	@Benchmark
+	public STIXPackage decodeJSON() {
+		return STIXJSONCodec.decode(json, STIXPackage.class);
+	}
+
+	@Benchmark
+	public String convertXMLToJSON() {
+		StringWriter out = new StringWriter(json.length());
+
+		STIXJSONCodec.encodeXML(new ByteArrayInputStream(xml), out);
+
+		return out.toString();
+	}
+}
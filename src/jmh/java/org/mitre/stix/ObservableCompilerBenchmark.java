@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+
+import org.mitre.cybox.common_2.BaseObjectPropertyType;
+import org.mitre.cybox.common_2.ConditionTypeEnum;
+import org.mitre.cybox.common_2.StringObjectPropertyType;
+import org.mitre.cybox.cybox_2.ObjectType;
+import org.mitre.cybox.cybox_2.Observable;
+import org.mitre.cybox.objects.DomainNameObjectType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares matching events against large sets of Domain Name Indicators
+ * (with Equals, Contains, EndsWith and some FitsPattern conditions) through
+ * an evaluator compiled by an ObservableCompiler with interpreting the
+ * conditions of the Indicators' beans for every event, and measures
+ * compiling them.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json ObservableCompilerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObservableCompilerBenchmark {
+
+	private static final String DOMAIN_PATH = "DomainNameObjectType/Value";
+
+	/**
+	 * The number of Domain Name Indicators matched against.
+	 */
+	@Param({ "100", "1000", "10000" })
+	public int indicators;
+
+	private List<Indicator> watchlist;
+
+	private ObservableEvaluator evaluator;
+
+	private MapObservableEvent[] events;
+
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		watchlist = new ArrayList<Indicator>();
+
+		for (int i = 0; i < indicators; i++) {
+			ConditionTypeEnum condition;
+			String value;
+
+			switch (i % 8) {
+			case 0:
+				condition = ConditionTypeEnum.FITS_PATTERN;
+				value = "^c2-" + i + "\\.[a-z]+\\.example$";
+				break;
+			case 1:
+			case 2:
+				condition = ConditionTypeEnum.CONTAINS;
+				value = "malware" + i;
+				break;
+			case 3:
+			case 4:
+				condition = ConditionTypeEnum.ENDS_WITH;
+				value = ".bad" + i + ".example";
+				break;
+			default:
+				condition = ConditionTypeEnum.EQUALS;
+				value = "host" + i + ".example";
+				break;
+			}
+
+			watchlist.add(createIndicator(i, condition, value));
+		}
+
+		evaluator = new ObservableCompiler().compileAny(watchlist);
+
+		// half of the events match the last Indicators
+		events = new MapObservableEvent[16];
+
+		for (int i = 0; i < events.length; i++) {
+			String domain = (i % 2 == 0) ? "www.benign" + i + ".example"
+					: "www.bad" + (indicators - 4 - (i % 4)) + ".example";
+
+			events[i] = new MapObservableEvent().add(DOMAIN_PATH, domain);
+		}
+	}
+
+	private static Indicator createIndicator(int n,
+			ConditionTypeEnum condition, String value) {
+		StringObjectPropertyType property = new StringObjectPropertyType()
+				.withValue(value).withCondition(condition);
+
+		Observable observable = new Observable();
+		observable.setObject(new ObjectType()
+				.withProperties(new DomainNameObjectType().withValue(property)));
+
+		return new Indicator().withId(
+				new QName("http://example.com/", "indicator-" + n, "example"))
+				.withObservable(observable);
+	}
+
+	private MapObservableEvent nextEvent() {
+		MapObservableEvent event = events[next];
+
+		next = (next + 1) % events.length;
+
+		return event;
+	}
+
+	@Benchmark
+	public boolean matchCompiled() {
+		return evaluator.matches(nextEvent());
+	}
+
+	@Benchmark
+	public boolean matchInterpreted() {
+		final MapObservableEvent event = nextEvent();
+		final boolean[] matched = new boolean[1];
+
+		for (Indicator indicator : watchlist) {
+			PropertyPaths.visit(indicator.getObservable().getObject()
+					.getProperties(), new PropertyPaths.Visitor() {
+				@Override
+				public void property(String path,
+						BaseObjectPropertyType property) {
+					for (int i = 0; i < event.getValueCount(path); i++) {
+						matched[0] |= interpret(property, event.getValue(path, i)
+								.toString());
+					}
+				}
+			});
+
+			if (matched[0]) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean interpret(BaseObjectPropertyType property,
+			String value) {
+		String pattern = property.getValue().toString();
+
+		switch (property.getCondition()) {
+		case EQUALS:
+			return value.equals(pattern);
+		case CONTAINS:
+			return value.contains(pattern);
+		case ENDS_WITH:
+			return value.endsWith(pattern);
+		case FITS_PATTERN:
+			return Pattern.compile(pattern).matcher(value).find();
+		default:
+			return false;
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ObservableEvaluator compile() {
+		return new ObservableCompiler().compileAny(watchlist);
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.cybox.objects.FileObjectType;
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares unmarshalling whole STIX_Packages (see STIXCorpus) with
+ * unmarshalling only their headers and Indicator titles, and with selecting
+ * only their File Objects, through STIXProjection. Run with -prof gc to
+ * compare allocation as well.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json ProjectionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProjectionBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private byte[] xml;
+
+	private final STIXProjection titles = new STIXProjection().keep(
+			"STIX_Package/STIX_Header").keep(
+			"STIX_Package/Indicators/Indicator/Title");
+
+	private final STIXProjection files = new STIXProjection()
+			.keep(FileObjectType.class);
+
+	@Setup
+	public void setup() throws UnsupportedEncodingException {
+		xml = STIXCorpus.createPackageXML(indicators).getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public STIXPackage unmarshalAll() {
+		return FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+
+	@Benchmark
+	public STIXPackage unmarshalTitles() {
+		return titles.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+
+	@Benchmark
+	public int selectFiles() {
+		Iterator<FileObjectType> selection = files.select(
+				new ByteArrayInputStream(xml), FileObjectType.class);
+
+		int count = 0;
+
+		while (selection.hasNext()) {
+			selection.next();
+			count++;
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.mitre.cybox.common_2.HashListType;
+import org.mitre.cybox.common_2.HashType;
+import org.mitre.cybox.common_2.SimpleHashValueType;
+import org.mitre.cybox.cybox_2.ObjectType;
+import org.mitre.cybox.cybox_2.Observable;
+import org.mitre.cybox.default_vocabularies_2.HashNameVocab10;
+import org.mitre.cybox.objects.FileObjectType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+
+/**
+ * Generates the STIX_Packages benchmarks run against: the sample watchlist
+ * (org/mitre/stix/examples/sample.xml) with a number of File hash Indicators
+ * built as the IndicatorHash example builds them added to it. The output is
+ * deterministic, so runs are comparable.
+ */
+public final class STIXCorpus {
+
+	private static final String EXAMPLE_NAMESPACE = "http://example.com/";
+
+	private STIXCorpus() {
+	}
+
+	/**
+	 * Returns the sample watchlist as XML text.
+	 *
+	 * @return The sample.xml text
+	 */
+	public static String sampleXML() {
+		InputStream inputStream = STIXCorpus.class
+				.getResourceAsStream("/org/mitre/stix/examples/sample.xml");
+
+		try {
+			return IOUtils.toString(inputStream, "UTF-8");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+
+	/**
+	 * Creates a STIX_Package holding the sample watchlist's Indicator followed
+	 * by a number of File hash Indicators.
+	 *
+	 * @param hashIndicators
+	 *            The number of File hash Indicators to add
+	 * @return The STIX_Package
+	 */
+	public static STIXPackage createPackage(int hashIndicators) {
+		STIXPackage stixPackage = STIXPackage.fromXMLString(sampleXML());
+
+		XMLGregorianCalendar timestamp;
+
+		try {
+			timestamp = DatatypeFactory.newInstance().newXMLGregorianCalendar(
+					"2015-01-01T00:00:00Z");
+		} catch (DatatypeConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+
+		for (int i = 0; i < hashIndicators; i++) {
+			stixPackage.getIndicators().getIndicators()
+					.add(createHashIndicator(i, timestamp));
+		}
+
+		return stixPackage;
+	}
+
+	/**
+	 * Creates the XML text of a STIX_Package made by createPackage.
+	 *
+	 * @param hashIndicators
+	 *            The number of File hash Indicators to add
+	 * @return The STIX_Package XML text
+	 */
+	public static String createPackageXML(int hashIndicators) {
+		return createPackage(hashIndicators).toXMLString(true);
+	}
+
+	private static Indicator createHashIndicator(int n,
+			XMLGregorianCalendar timestamp) {
+
+		List<HashType> hashes = new ArrayList<HashType>();
+		hashes.add(new HashType().withType(
+				new HashNameVocab10().withValue("MD5")).withSimpleHashValue(
+				new SimpleHashValueType().withValue(String.format("%032X", n))));
+
+		FileObjectType fileObject = new FileObjectType()
+				.withHashes(new HashListType(hashes));
+
+		ObjectType obj = new ObjectType().withProperties(fileObject).withId(
+				new QName(EXAMPLE_NAMESPACE, "file-" + n, "example"));
+
+		Observable observable = new Observable().withId(new QName(
+				EXAMPLE_NAMESPACE, "observable-" + n, "example"));
+
+		observable.setObject(obj);
+
+		return new Indicator()
+				.withId(new QName(EXAMPLE_NAMESPACE, "indicator-" + n,
+						"example")).withTimestamp(timestamp)
+				.withTitle("File Hash Example").withObservable(observable);
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures marshalling, unmarshalling, namespace pruning and validation of
+ * STIX_Packages of increasing size (see STIXCorpus.)
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json STIXPackageBenchmark"
+ *
+ * to keep a JSON report that later runs can be compared against.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class STIXPackageBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "0", "10", "100", "1000" })
+	public int indicators;
+
+	private String xml;
+
+	private STIXPackage stixPackage;
+
+	@Setup
+	public void setup() {
+		stixPackage = STIXCorpus.createPackage(indicators);
+		xml = stixPackage.toXMLString(true);
+	}
+
+	/**
+	 * A freshly parsed Document for each invocation, as
+	 * removeUnusedNamespaces changes the Document it is given. It is parsed
+	 * directly, since DocumentUtilities.toDocument(String) already removes
+	 * unused namespaces.
+	 */
+	@State(Scope.Thread)
+	public static class UnprunedDocument {
+
+		DocumentBuilder documentBuilder;
+
+		Document document;
+
+		@Setup
+		public void createDocumentBuilder()
+				throws ParserConfigurationException {
+			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory
+					.newInstance();
+			documentBuilderFactory.setNamespaceAware(true);
+			documentBuilder = documentBuilderFactory.newDocumentBuilder();
+		}
+
+		@Setup(Level.Invocation)
+		public void parse(STIXPackageBenchmark benchmark) throws SAXException,
+				IOException {
+			document = documentBuilder.parse(new InputSource(new StringReader(
+					benchmark.xml)));
+		}
+	}
+
+	@Benchmark
+	public STIXPackage fromXMLString() {
+		return STIXPackage.fromXMLString(xml);
+	}
+
+	@Benchmark
+	public String toXMLStringPretty() {
+		return stixPackage.toXMLString(true);
+	}
+
+	@Benchmark
+	public String toXMLStringCompact() {
+		return stixPackage.toXMLString(false);
+	}
+
+	@Benchmark
+	public Document toDocument() {
+		return DocumentUtilities.toDocument(stixPackage.toJAXBElement());
+	}
+
+	@Benchmark
+	public Document removeUnusedNamespaces(UnprunedDocument unpruned) {
+		DocumentUtilities.removeUnusedNamespaces(unpruned.document);
+		return unpruned.document;
+	}
+
+	@Benchmark
+	public boolean validate() throws SAXException {
+		return STIXSchema.getInstance().validate(xml);
+	}
+}
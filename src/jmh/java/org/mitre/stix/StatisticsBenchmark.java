@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.mitre.stix.stix_1.STIXPackage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares gathering STIXStatistics of STIX_Packages (see STIXCorpus) with
+ * just reading their events with StAX, and with unmarshalling them.
+ *
+ * Run with, e.g.,
+ *
+ *	./gradlew jmh -PjmhArgs="-rf json StatisticsBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StatisticsBenchmark {
+
+	/**
+	 * The number of File hash Indicators added to the sample watchlist.
+	 */
+	@Param({ "10", "100", "1000" })
+	public int indicators;
+
+	private byte[] xml;
+
+	private final XMLInputFactory xmlInputFactory = XMLInputFactory
+			.newInstance();
+
+	@Setup
+	public void setup() throws UnsupportedEncodingException {
+		xml = STIXCorpus.createPackageXML(indicators).getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public int readEvents() throws XMLStreamException {
+		XMLStreamReader reader = xmlInputFactory
+				.createXMLStreamReader(new ByteArrayInputStream(xml));
+
+		int count = 0;
+
+		while (reader.hasNext()) {
+			count += reader.next();
+		}
+
+		reader.close();
+
+		return count;
+	}
+
+	@Benchmark
+	public STIXStatistics scan() {
+		return STIXStatistics.scan(new ByteArrayInputStream(xml));
+	}
+
+	@Benchmark
+	public STIXPackage unmarshal() {
+		return FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(xml),
+				STIXPackage.class);
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.Arrays;
+
+/**
+ * A binary radix trie of address prefixes (e.g., the CIDR blocks of an
+ * IndicatorMatcher) finding the longest prefix of an address.
+ *
+ * Addresses of up to 128 bits are given as two longs, most significant bits
+ * first, so an IPv4 address is given as its 32 bits shifted into the top of
+ * the first long. The nodes are held in arrays of ints, so matching follows
+ * one array element per bit and creates no objects.
+ *
+ * Not thread-safe while prefixes are put; thread-safe once published.
+ */
+final class AddressTrie<V> {
+
+	// the children of each node, 0 where there is none (the root, node 0, is
+	// no node's child)
+	private int[] zero = new int[16];
+
+	private int[] one = new int[16];
+
+	private Object[] values = new Object[16];
+
+	private int nodes = 1;
+
+	/**
+	 * Puts the value of a prefix, replacing any it had.
+	 *
+	 * @param high
+	 *            The most significant 64 bits of the prefix
+	 * @param low
+	 *            The least significant 64 bits of the prefix
+	 * @param length
+	 *            The number of bits of the prefix, from 0 to 128
+	 * @param value
+	 *            The value
+	 */
+	void put(long high, long low, int length, V value) {
+		int node = 0;
+
+		for (int bit = 0; bit < length; bit++) {
+			int[] children = isSet(high, low, bit) ? one : zero;
+			int child = children[node];
+
+			if (child == 0) {
+				child = addNode();
+
+				// the arrays may have been replaced
+				children = isSet(high, low, bit) ? one : zero;
+				children[node] = child;
+			}
+
+			node = child;
+		}
+
+		values[node] = value;
+	}
+
+	/**
+	 * Returns the value of the longest prefix of an address.
+	 *
+	 * @param high
+	 *            The most significant 64 bits of the address
+	 * @param low
+	 *            The least significant 64 bits of the address
+	 * @param length
+	 *            The number of bits of the address, 32 or 128
+	 * @return The value or null if no prefix of the address has one
+	 */
+	@SuppressWarnings("unchecked")
+	V match(long high, long low, int length) {
+		Object match = values[0];
+		int node = 0;
+
+		for (int bit = 0; bit < length; bit++) {
+			node = isSet(high, low, bit) ? one[node] : zero[node];
+
+			if (node == 0) {
+				break;
+			}
+
+			if (values[node] != null) {
+				match = values[node];
+			}
+		}
+
+		return (V) match;
+	}
+
+	private int addNode() {
+		if (nodes == values.length) {
+			int capacity = nodes * 2;
+
+			zero = Arrays.copyOf(zero, capacity);
+			one = Arrays.copyOf(one, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		return nodes++;
+	}
+
+	private static boolean isSet(long high, long low, int bit) {
+		return (bit < 64) ? (high << bit) < 0 : (low << (bit - 64)) < 0;
+	}
+}
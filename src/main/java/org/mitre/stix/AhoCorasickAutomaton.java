@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An Aho-Corasick automaton finding whether a text contains, starts with,
+ * ends with or equals any of a set of strings in one pass over it, for the
+ * string conditions an ObservableCompiler merges.
+ *
+ * The transitions of each state are held in sorted arrays of characters,
+ * and each state knows the conditions of the strings ending there, so a
+ * search creates no objects.
+ *
+ * Thread-safe once built.
+ */
+final class AhoCorasickAutomaton {
+
+	static final int CONTAINS = 1;
+
+	static final int STARTS_WITH = 2;
+
+	static final int ENDS_WITH = 4;
+
+	static final int EQUALS = 8;
+
+	private final boolean caseSensitive;
+
+	// state 0 is the root
+	private final char[][] labels;
+
+	private final int[][] targets;
+
+	private final int[] failures;
+
+	// the conditions of the strings ending at each state, and their length
+	private final int[] conditions;
+
+	private final int[] depths;
+
+	// the next state along the failure links with conditions, -1 if none
+	private final int[] outputs;
+
+	/**
+	 * Builds an automaton.
+	 *
+	 * @param strings
+	 *            The strings
+	 * @param stringConditions
+	 *            The condition of each string, one of CONTAINS, STARTS_WITH,
+	 *            ENDS_WITH or EQUALS
+	 * @param caseSensitive
+	 *            Whether characters are compared in their case
+	 */
+	AhoCorasickAutomaton(List<String> strings, List<Integer> stringConditions,
+			boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+
+		int capacity = 1;
+
+		for (String string : strings) {
+			capacity += string.length();
+		}
+
+		labels = new char[capacity][];
+		targets = new int[capacity][];
+		failures = new int[capacity];
+		conditions = new int[capacity];
+		depths = new int[capacity];
+		outputs = new int[capacity];
+
+		// the trie is built with lists of children, then frozen into arrays
+		List<List<Character>> childLabels = new ArrayList<List<Character>>();
+		List<List<Integer>> childTargets = new ArrayList<List<Integer>>();
+
+		childLabels.add(new ArrayList<Character>());
+		childTargets.add(new ArrayList<Integer>());
+		int states = 1;
+
+		for (int i = 0; i < strings.size(); i++) {
+			String string = strings.get(i);
+			int state = 0;
+
+			for (int j = 0; j < string.length(); j++) {
+				char c = fold(string.charAt(j));
+				int index = childLabels.get(state).indexOf(c);
+
+				if (index >= 0) {
+					state = childTargets.get(state).get(index);
+				} else {
+					int child = states++;
+
+					childLabels.get(state).add(c);
+					childTargets.get(state).add(child);
+					childLabels.add(new ArrayList<Character>());
+					childTargets.add(new ArrayList<Integer>());
+					depths[child] = depths[state] + 1;
+
+					state = child;
+				}
+			}
+
+			conditions[state] |= stringConditions.get(i);
+		}
+
+		for (int state = 0; state < states; state++) {
+			freeze(state, childLabels.get(state), childTargets.get(state));
+		}
+
+		linkFailures();
+	}
+
+	private void freeze(int state, List<Character> stateLabels,
+			List<Integer> stateTargets) {
+		int count = stateLabels.size();
+
+		labels[state] = new char[count];
+		targets[state] = new int[count];
+
+		// sorted by label, for binary searches
+		for (int i = 0; i < count; i++) {
+			char c = stateLabels.get(i);
+			int target = stateTargets.get(i);
+			int j = i;
+
+			while (j > 0 && labels[state][j - 1] > c) {
+				labels[state][j] = labels[state][j - 1];
+				targets[state][j] = targets[state][j - 1];
+				j--;
+			}
+
+			labels[state][j] = c;
+			targets[state][j] = target;
+		}
+	}
+
+	/**
+	 * Links each state to the state of its longest proper suffix, breadth
+	 * first.
+	 */
+	private void linkFailures() {
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+
+		outputs[0] = -1;
+
+		for (int child : targets[0]) {
+			failures[child] = 0;
+			outputs[child] = -1;
+			pending.add(child);
+		}
+
+		while (!pending.isEmpty()) {
+			int state = pending.remove();
+
+			for (int i = 0; i < labels[state].length; i++) {
+				char c = labels[state][i];
+				int child = targets[state][i];
+				int failure = failures[state];
+
+				while (failure != 0 && transition(failure, c) < 0) {
+					failure = failures[failure];
+				}
+
+				int target = transition(failure, c);
+				failures[child] = (target >= 0) ? target : 0;
+
+				int suffix = failures[child];
+				outputs[child] = (suffix != 0 && conditions[suffix] != 0) ? suffix
+						: outputs[suffix];
+
+				pending.add(child);
+			}
+		}
+	}
+
+	private int transition(int state, char c) {
+		int index = Arrays.binarySearch(labels[state], c);
+
+		return (index >= 0) ? targets[state][index] : -1;
+	}
+
+	private char fold(char c) {
+		return caseSensitive ? c : Character.toLowerCase(c);
+	}
+
+	/**
+	 * Returns whether a text satisfies the condition of any of the strings.
+	 *
+	 * @param text
+	 *            The text
+	 * @return True if it contains, starts with, ends with or equals one of
+	 *         them as their conditions call for
+	 */
+	boolean matches(CharSequence text) {
+		int length = text.length();
+		int state = 0;
+
+		// every text contains, starts and ends with the empty string
+		if ((conditions[0] & ~EQUALS) != 0) {
+			return true;
+		}
+
+		if (length == 0) {
+			return conditions[0] != 0;
+		}
+
+		for (int i = 0; i < length; i++) {
+			char c = fold(text.charAt(i));
+			int target = transition(state, c);
+
+			while (target < 0 && state != 0) {
+				state = failures[state];
+				target = transition(state, c);
+			}
+
+			state = (target < 0) ? 0 : target;
+
+			for (int output = (conditions[state] != 0) ? state
+					: outputs[state]; output >= 0; output = outputs[output]) {
+				int condition = conditions[output];
+
+				if ((condition & CONTAINS) != 0) {
+					return true;
+				}
+
+				if ((condition & STARTS_WITH) != 0 && depths[output] == i + 1) {
+					return true;
+				}
+
+				if (i == length - 1) {
+					if ((condition & ENDS_WITH) != 0) {
+						return true;
+					}
+
+					if ((condition & EQUALS) != 0 && depths[output] == length) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+}
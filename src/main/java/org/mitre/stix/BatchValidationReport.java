@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of validating a batch of documents (see BatchValidator): a
+ * FileValidationReport per document, in the order the documents were found,
+ * and the throughput of the batch as a whole.
+ */
+public class BatchValidationReport {
+
+	private final List<FileValidationReport> files;
+
+	private final long elapsedNanos;
+
+	private int validCount;
+
+	private long byteCount;
+
+	private long validationNanos;
+
+	BatchValidationReport(List<FileValidationReport> files, long elapsedNanos) {
+		this.files = Collections.unmodifiableList(files);
+		this.elapsedNanos = elapsedNanos;
+
+		for (FileValidationReport file : files) {
+			if (file.isValid()) {
+				validCount++;
+			}
+
+			byteCount += file.getByteCount();
+			validationNanos += file.getElapsedNanos();
+		}
+	}
+
+	/**
+	 * Returns the report for each document validated.
+	 *
+	 * @return The per-document reports
+	 */
+	public List<FileValidationReport> getFiles() {
+		return files;
+	}
+
+	/**
+	 * Returns the number of documents validated.
+	 *
+	 * @return The number of documents
+	 */
+	public int getFileCount() {
+		return files.size();
+	}
+
+	/**
+	 * Returns the number of documents that validated.
+	 *
+	 * @return The number of valid documents
+	 */
+	public int getValidCount() {
+		return validCount;
+	}
+
+	/**
+	 * Returns the number of documents that failed to validate.
+	 *
+	 * @return The number of invalid documents
+	 */
+	public int getInvalidCount() {
+		return files.size() - validCount;
+	}
+
+	/**
+	 * Returns whether every document validated.
+	 *
+	 * @return True if there are no invalid documents
+	 */
+	public boolean isValid() {
+		return validCount == files.size();
+	}
+
+	/**
+	 * Returns the number of bytes read across all documents.
+	 *
+	 * @return The number of bytes read
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Returns the wall-clock time taken by the batch.
+	 *
+	 * @return The elapsed time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the time spent validating summed across all documents, which
+	 * exceeds the elapsed time when documents are validated in parallel.
+	 *
+	 * @return The validation time in nanoseconds
+	 */
+	public long getValidationNanos() {
+		return validationNanos;
+	}
+
+	/**
+	 * Returns the number of documents validated per second of wall-clock
+	 * time.
+	 *
+	 * @return The document throughput
+	 */
+	public double getFilesPerSecond() {
+		return perSecond(files.size());
+	}
+
+	/**
+	 * Returns the number of bytes validated per second of wall-clock time.
+	 *
+	 * @return The byte throughput
+	 */
+	public double getBytesPerSecond() {
+		return perSecond(byteCount);
+	}
+
+	private double perSecond(long count) {
+		if (elapsedNanos == 0) {
+			return 0;
+		}
+
+		return count / ((double) elapsedNanos / TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"%d documents (%d valid, %d invalid), %d bytes in %d ms: "
+						+ "%.1f documents/s, %.1f KB/s", files.size(),
+				validCount, getInvalidCount(), byteCount,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+				getFilesPerSecond(), getBytesPerSecond() / 1024);
+	}
+}
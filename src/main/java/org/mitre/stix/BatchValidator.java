@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+import javax.xml.transform.sax.SAXSource;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Validates batches of STIX documents in parallel: every XML file under a
+ * directory, the files under a directory matching a glob, or the XML entries
+ * of a zip or tar stream.
+ *
+ * Each document is validated as a task on an ExecutorService (by default a
+ * ForkJoinPool with one thread per available processor), reading it as a
+ * stream so its encoding is taken from its XML declaration. Each task borrows
+ * its own Validator from the STIXSchema's ValidatorPool and collects its
+ * issues into its own ValidationReport, so one invalid or unreadable document
+ * never stops the batch.
+ *
+ * Archive entries are necessarily read one after another from the stream;
+ * each is buffered and handed to a task, with no more than two entries per
+ * pooled Validator buffered at once.
+ */
+public class BatchValidator implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(BatchValidator.class
+			.getName());
+
+	private static final String DEFAULT_GLOB = "**.xml";
+
+	private final ExecutorService executor;
+
+	private final boolean ownsExecutor;
+
+	private volatile int maxIssues = ValidationReport.DEFAULT_MAX_ISSUES;
+
+	/**
+	 * Creates a validator running on its own ForkJoinPool, which is shut down
+	 * by close().
+	 */
+	public BatchValidator() {
+		this(new ForkJoinPool(), true);
+	}
+
+	/**
+	 * Creates a validator running on the supplied ExecutorService, which is
+	 * left running by close().
+	 *
+	 * @param executor
+	 *            The ExecutorService to validate documents on
+	 */
+	public BatchValidator(ExecutorService executor) {
+		this(executor, false);
+	}
+
+	private BatchValidator(ExecutorService executor, boolean ownsExecutor) {
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+	}
+
+	/**
+	 * Sets the maximum number of issues kept per document, beyond which
+	 * issues are only counted.
+	 *
+	 * @param maxIssues
+	 *            The maximum number of issues, ValidationReport's
+	 *            DEFAULT_MAX_ISSUES unless set
+	 */
+	public void setMaxIssues(int maxIssues) {
+		if (maxIssues < 0) {
+			throw new IllegalArgumentException("maxIssues must not be negative");
+		}
+
+		this.maxIssues = maxIssues;
+	}
+
+	/**
+	 * Validates every file ending in ".xml" under a directory and its
+	 * subdirectories.
+	 *
+	 * @param directory
+	 *            The directory
+	 * @return The report for the batch
+	 * @throws IOException
+	 *             If the directory cannot be walked
+	 */
+	public BatchValidationReport validate(Path directory) throws IOException {
+		return validate(directory, DEFAULT_GLOB);
+	}
+
+	/**
+	 * Validates the files under a directory whose paths relative to the
+	 * directory match a glob (e.g., "*.xml" for the XML files in the
+	 * directory itself but none of its subdirectories.) See
+	 * java.nio.file.FileSystem.getPathMatcher for the glob syntax.
+	 *
+	 * @param directory
+	 *            The directory
+	 * @param glob
+	 *            The glob
+	 * @return The report for the batch
+	 * @throws IOException
+	 *             If the directory cannot be walked
+	 */
+	public BatchValidationReport validate(final Path directory, String glob)
+			throws IOException {
+
+		final PathMatcher matcher = directory.getFileSystem().getPathMatcher(
+				"glob:" + glob);
+
+		final Batch batch = new Batch();
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(final Path file,
+					BasicFileAttributes attrs) {
+
+				if (attrs.isRegularFile()
+						&& matcher.matches(directory.relativize(file))) {
+
+					batch.submit(file.toString(), file.toUri().toString(),
+							new Callable<InputStream>() {
+
+								@Override
+								public InputStream call() throws IOException {
+									return Files.newInputStream(file);
+								}
+							});
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return batch.finish();
+	}
+
+	/**
+	 * Validates every entry ending in ".xml" of a zip stream. The stream is
+	 * read to its end but not closed.
+	 *
+	 * @param inputStream
+	 *            The zip stream
+	 * @return The report for the batch
+	 * @throws IOException
+	 *             If the stream cannot be read
+	 */
+	public BatchValidationReport validateZip(InputStream inputStream)
+			throws IOException {
+		return validate(new ZipArchiveInputStream(inputStream));
+	}
+
+	/**
+	 * Validates every entry ending in ".xml" of a tar stream. A compressed
+	 * tar stream must be decompressed first (e.g., wrapped in a
+	 * GZIPInputStream.) The stream is read to its end but not closed.
+	 *
+	 * @param inputStream
+	 *            The tar stream
+	 * @return The report for the batch
+	 * @throws IOException
+	 *             If the stream cannot be read
+	 */
+	public BatchValidationReport validateTar(InputStream inputStream)
+			throws IOException {
+		return validate(new TarArchiveInputStream(inputStream));
+	}
+
+	private BatchValidationReport validate(ArchiveInputStream archive)
+			throws IOException {
+
+		Batch batch = new Batch();
+
+		ArchiveEntry entry;
+
+		while ((entry = archive.getNextEntry()) != null) {
+
+			if (entry.isDirectory()
+					|| !entry.getName().toLowerCase(Locale.ENGLISH)
+							.endsWith(".xml")) {
+				continue;
+			}
+
+			if (!archive.canReadEntryData(entry)) {
+				LOGGER.warning("Skipping " + entry.getName()
+						+ ", its data cannot be read");
+				continue;
+			}
+
+			final byte[] bytes = IOUtils.toByteArray(archive);
+
+			batch.submit(entry.getName(), entry.getName(),
+					new Callable<InputStream>() {
+
+						@Override
+						public InputStream call() {
+							return new ByteArrayInputStream(bytes);
+						}
+					});
+		}
+
+		return batch.finish();
+	}
+
+	/**
+	 * Validates one document, collecting rather than throwing its issues.
+	 */
+	private FileValidationReport validateDocument(String name,
+			String systemId, Callable<InputStream> opener) {
+
+		ValidationReport report = new ValidationReport(
+				ValidationReport.Mode.COLLECT, maxIssues);
+
+		CountingInputStream inputStream = null;
+
+		long start = System.nanoTime();
+
+		try {
+			inputStream = new CountingInputStream(opener.call());
+
+			InputSource inputSource = new InputSource(inputStream);
+			inputSource.setSystemId(systemId);
+
+			STIXSchema.getInstance().validateInto(new SAXSource(inputSource),
+					report);
+		} catch (Exception e) {
+			// unreadable, in which case validate wraps the IOException
+			Exception cause = e;
+
+			if (e instanceof RuntimeException
+					&& e.getCause() instanceof IOException) {
+				cause = (IOException) e.getCause();
+			}
+
+			report.add(ValidationReport.Severity.FATAL_ERROR,
+					new SAXParseException(cause.toString(), null, systemId,
+							-1, -1, cause));
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+
+		long elapsedNanos = System.nanoTime() - start;
+
+		return new FileValidationReport(name, report,
+				inputStream == null ? 0 : inputStream.getByteCount(),
+				elapsedNanos);
+	}
+
+	/**
+	 * The documents of one call, submitted as they are found.
+	 */
+	private class Batch {
+
+		private final long start = System.nanoTime();
+
+		private final List<Future<FileValidationReport>> futures = new ArrayList<Future<FileValidationReport>>();
+
+		private final Semaphore pending = new Semaphore(STIXSchema
+				.getInstance().getValidatorPool().getMaxSize() * 2);
+
+		void submit(final String name, final String systemId,
+				final Callable<InputStream> opener) {
+
+			try {
+				pending.acquire();
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+
+			try {
+				futures.add(executor.submit(new Callable<FileValidationReport>() {
+
+					@Override
+					public FileValidationReport call() {
+						try {
+							return validateDocument(name, systemId, opener);
+						} finally {
+							pending.release();
+						}
+					}
+				}));
+			} catch (RejectedExecutionException e) {
+				pending.release();
+				cancel();
+				throw e;
+			}
+		}
+
+		BatchValidationReport finish() {
+
+			List<FileValidationReport> files = new ArrayList<FileValidationReport>(
+					futures.size());
+
+			try {
+				for (Future<FileValidationReport> future : futures) {
+					files.add(future.get());
+				}
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				cancel();
+				throw new RuntimeException(e.getCause());
+			}
+
+			BatchValidationReport report = new BatchValidationReport(files,
+					System.nanoTime() - start);
+
+			LOGGER.fine(report.toString());
+
+			return report;
+		}
+
+		private void cancel() {
+			for (Future<FileValidationReport> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Shuts down the ForkJoinPool if this validator created it.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+}
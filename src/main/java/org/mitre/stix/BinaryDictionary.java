@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * The strings the binary format (see STIXBinaryCodec) knows before it reads
+ * or writes anything: the namespace URIs, prefixes, element, attribute and
+ * type names, and enumeration values of the model, as listed by the build in
+ * binary-dictionary.txt alongside this class. Each is encoded as its index,
+ * so vocabulary values and names cost a byte or two from the first use.
+ *
+ * A stream records the checksum of the dictionary it was written with, as
+ * it can only be read with the same one. Immutable once loaded, so shared by
+ * all threads.
+ */
+final class BinaryDictionary {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(BinaryDictionary.class.getName());
+
+	private static final String RESOURCE = "binary-dictionary.txt";
+
+	private static class Holder {
+		static final BinaryDictionary instance = new BinaryDictionary();
+	}
+
+	private final List<String> strings = new ArrayList<String>();
+
+	private final CRC32 checksum = new CRC32();
+
+	static BinaryDictionary getInstance() {
+		return Holder.instance;
+	}
+
+	private BinaryDictionary() {
+
+		// the empty string (no namespace, no prefix) is always first
+		strings.add("");
+
+		InputStream inputStream = BinaryDictionary.class
+				.getResourceAsStream(RESOURCE);
+
+		if (inputStream == null) {
+			LOGGER.fine("No binary dictionary was built, all strings are written out");
+			return;
+		}
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					inputStream, "UTF-8"));
+
+			try {
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					if (line.length() > 0 && !line.startsWith("#")) {
+						strings.add(line);
+						checksum.update(line.getBytes("UTF-8"));
+						checksum.update('\n');
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read " + RESOURCE, e);
+
+			strings.subList(1, strings.size()).clear();
+			checksum.reset();
+		}
+	}
+
+	/**
+	 * Returns the strings, indexed by their code.
+	 */
+	List<String> getStrings() {
+		return Collections.unmodifiableList(strings);
+	}
+
+	/**
+	 * Returns the checksum of the strings.
+	 */
+	int getChecksum() {
+		return (int) checksum.getValue();
+	}
+}
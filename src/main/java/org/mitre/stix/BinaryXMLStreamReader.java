@@ -0,0 +1,982 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An XMLStreamReader reading the binary format written by
+ * BinaryXMLStreamWriter (see STIXBinaryCodec), so that FastPathUnmarshaller
+ * and JAXB can unmarshal it as they would XML.
+ *
+ * Not thread-safe.
+ */
+class BinaryXMLStreamReader implements XMLStreamReader {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String[] NONE = new String[0];
+
+	private static final Location LOCATION = new Location() {
+
+		public int getLineNumber() {
+			return -1;
+		}
+
+		public int getColumnNumber() {
+			return -1;
+		}
+
+		public int getCharacterOffset() {
+			return -1;
+		}
+
+		public String getPublicId() {
+			return null;
+		}
+
+		public String getSystemId() {
+			return null;
+		}
+	};
+
+	/**
+	 * An open element: its name and the namespaces it declares (prefix and
+	 * namespace URI pairs.)
+	 */
+	private static class Element {
+
+		final String prefix;
+		final String namespaceURI;
+		final String localName;
+		final String[] namespaces;
+
+		Element(String prefix, String namespaceURI, String localName,
+				String[] namespaces) {
+			this.prefix = prefix;
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.namespaces = namespaces;
+		}
+	}
+
+	private final InputStream in;
+
+	private final byte[] buffer = new byte[8192];
+
+	private int position = 0;
+
+	private int limit = 0;
+
+	private final List<String> strings;
+
+	private final LinkedList<Element> elements = new LinkedList<Element>();
+
+	private int eventType = XMLStreamConstants.START_DOCUMENT;
+
+	// the element of the current start or end tag
+	private Element element;
+
+	// prefix, namespace URI, local name and value of each attribute of the
+	// current start tag
+	private String[] attributes = NONE;
+
+	private String text;
+
+	private char[] textCharacters;
+
+	private String piData;
+
+	private final NamespaceContext namespaceContext = new NamespaceContext() {
+
+		public String getNamespaceURI(String prefix) {
+			String namespaceURI = BinaryXMLStreamReader.this
+					.getNamespaceURI(prefix);
+
+			return (namespaceURI == null) ? XMLConstants.NULL_NS_URI
+					: namespaceURI;
+		}
+
+		public String getPrefix(String namespaceURI) {
+			for (Element open : elements) {
+				for (int i = 0; i < open.namespaces.length; i += 2) {
+					String prefix = open.namespaces[i];
+
+					if (open.namespaces[i + 1].equals(namespaceURI)
+							&& namespaceURI.equals(BinaryXMLStreamReader.this
+									.getNamespaceURI(prefix))) {
+						return prefix;
+					}
+				}
+			}
+
+			return XMLConstants.XML_NS_URI.equals(namespaceURI) ? XMLConstants.XML_NS_PREFIX
+					: null;
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			List<String> prefixes = new ArrayList<String>(1);
+			String prefix = getPrefix(namespaceURI);
+
+			if (prefix != null) {
+				prefixes.add(prefix);
+			}
+
+			return prefixes.iterator();
+		}
+	};
+
+	/**
+	 * Creates a reader and reads the header of the format.
+	 *
+	 * @param in
+	 *            The stream to read from, which is not closed by close()
+	 * @throws XMLStreamException
+	 *             If the stream is not in the format, or was written with a
+	 *             different BinaryDictionary
+	 */
+	BinaryXMLStreamReader(InputStream in) throws XMLStreamException {
+		this.in = in;
+
+		BinaryDictionary dictionary = BinaryDictionary.getInstance();
+
+		strings = new ArrayList<String>(dictionary.getStrings());
+
+		for (byte b : STIXBinaryCodec.MAGIC) {
+			if (read() != (b & 0xFF)) {
+				throw new XMLStreamException("Not a binary STIX document");
+			}
+		}
+
+		int version = read();
+
+		if (version != STIXBinaryCodec.VERSION) {
+			throw new XMLStreamException("Unsupported binary STIX version "
+					+ version);
+		}
+
+		if (readInt() != dictionary.getChecksum()) {
+			throw new XMLStreamException(
+					"The document was written with a different binary dictionary");
+		}
+	}
+
+	private int read() throws XMLStreamException {
+		if (position == limit) {
+			try {
+				limit = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+
+			position = 0;
+
+			if (limit <= 0) {
+				limit = 0;
+				throw new XMLStreamException("Unexpected end of stream");
+			}
+		}
+
+		return buffer[position++] & 0xFF;
+	}
+
+	private byte[] read(int length) throws XMLStreamException {
+		byte[] bytes = new byte[length];
+
+		int offset = Math.min(length, limit - position);
+
+		System.arraycopy(buffer, position, bytes, 0, offset);
+		position += offset;
+
+		while (offset < length) {
+			try {
+				int n = in.read(bytes, offset, length - offset);
+
+				if (n < 0) {
+					throw new XMLStreamException("Unexpected end of stream");
+				}
+
+				offset += n;
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+
+		return bytes;
+	}
+
+	private int readVarInt() throws XMLStreamException {
+		int value = 0;
+
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = read();
+
+			value |= (b & 0x7F) << shift;
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new XMLStreamException("Malformed integer");
+	}
+
+	private int readInt() throws XMLStreamException {
+		return (read() << 24) | (read() << 16) | (read() << 8) | read();
+	}
+
+	private long readLong() throws XMLStreamException {
+		return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+
+	private String readString() throws XMLStreamException {
+		int code = readVarInt();
+
+		if (code > 0) {
+			if (code > strings.size()) {
+				throw new XMLStreamException("Unknown string " + code);
+			}
+
+			return strings.get(code - 1);
+		}
+
+		String value = new String(read(readVarInt()), UTF_8);
+
+		if (STIXBinaryCodec.isCoded(value, strings.size())) {
+			strings.add(value);
+		}
+
+		return value;
+	}
+
+	private String readValue() throws XMLStreamException {
+		int kind = read();
+
+		switch (kind) {
+		case STIXBinaryCodec.STRING_VALUE:
+			return readString();
+		case STIXBinaryCodec.QNAME_VALUE:
+			return readString() + ":" + readString();
+		case STIXBinaryCodec.QNAME_UUID_VALUE:
+			String prefix = readString();
+			String head = readString();
+
+			return prefix + ":" + head
+					+ new UUID(readLong(), readLong()).toString();
+		default:
+			throw new XMLStreamException("Unknown value kind " + kind);
+		}
+	}
+
+	private void setText(String value) {
+		text = value;
+		textCharacters = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#next()
+	 */
+	@Override
+	public int next() throws XMLStreamException {
+		if (eventType == XMLStreamConstants.END_DOCUMENT) {
+			throw new NoSuchElementException();
+		}
+
+		// the namespaces of an element stay in scope up to its end tag
+		if (eventType == XMLStreamConstants.END_ELEMENT) {
+			elements.pop();
+		}
+
+		attributes = NONE;
+		setText(null);
+
+		int token = read();
+
+		switch (token) {
+		case STIXBinaryCodec.START_ELEMENT:
+			String prefix = readString();
+			String namespaceURI = readString();
+			String localName = readString();
+
+			String[] namespaces = NONE;
+			int count = readVarInt();
+
+			if (count > 0) {
+				namespaces = new String[count * 2];
+
+				for (int i = 0; i < namespaces.length; i++) {
+					namespaces[i] = readString();
+				}
+			}
+
+			element = new Element(prefix, namespaceURI, localName, namespaces);
+			elements.push(element);
+
+			count = readVarInt();
+
+			if (count > 0) {
+				attributes = new String[count * 4];
+
+				for (int i = 0; i < attributes.length; i += 4) {
+					attributes[i] = readString();
+					attributes[i + 1] = readString();
+					attributes[i + 2] = readString();
+					attributes[i + 3] = readValue();
+				}
+			}
+
+			eventType = XMLStreamConstants.START_ELEMENT;
+			break;
+		case STIXBinaryCodec.END_ELEMENT:
+			if (elements.isEmpty()) {
+				throw new XMLStreamException("Unbalanced end tag");
+			}
+
+			element = elements.peek();
+			eventType = XMLStreamConstants.END_ELEMENT;
+			break;
+		case STIXBinaryCodec.CHARACTERS:
+			setText(readValue());
+			eventType = XMLStreamConstants.CHARACTERS;
+			break;
+		case STIXBinaryCodec.COMMENT:
+			setText(readString());
+			eventType = XMLStreamConstants.COMMENT;
+			break;
+		case STIXBinaryCodec.PROCESSING_INSTRUCTION:
+			setText(readString());
+			piData = readString();
+			eventType = XMLStreamConstants.PROCESSING_INSTRUCTION;
+			break;
+		case STIXBinaryCodec.END_DOCUMENT:
+			element = null;
+			eventType = XMLStreamConstants.END_DOCUMENT;
+			break;
+		default:
+			throw new XMLStreamException("Unknown token " + token);
+		}
+
+		return eventType;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#nextTag()
+	 */
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+
+		while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+				|| event == XMLStreamConstants.COMMENT
+				|| event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+			event = next();
+		}
+
+		if (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("Expected a start or end tag");
+		}
+
+		return event;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getElementText()
+	 */
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (eventType != XMLStreamConstants.START_ELEMENT) {
+			throw new XMLStreamException("Not on a start tag");
+		}
+
+		StringBuilder content = null;
+		String first = "";
+
+		int event = next();
+
+		while (event != XMLStreamConstants.END_ELEMENT) {
+			if (event == XMLStreamConstants.CHARACTERS) {
+				if (content != null) {
+					content.append(text);
+				} else if (first.length() == 0) {
+					first = text;
+				} else {
+					content = new StringBuilder(first).append(text);
+				}
+			} else if (event != XMLStreamConstants.COMMENT
+					&& event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+				throw new XMLStreamException("Element has child elements");
+			}
+
+			event = next();
+		}
+
+		return (content == null) ? first : content.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasNext()
+	 */
+	@Override
+	public boolean hasNext() throws XMLStreamException {
+		return eventType != XMLStreamConstants.END_DOCUMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#close()
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		// the stream belongs to the caller
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#require(int, java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void require(int type, String namespaceURI, String localName)
+			throws XMLStreamException {
+		if (type != eventType
+				|| (namespaceURI != null && !namespaceURI
+						.equals(getNamespaceURI()))
+				|| (localName != null && !localName.equals(getLocalName()))) {
+			throw new XMLStreamException("Expected event " + type + " "
+					+ new QName(namespaceURI, String.valueOf(localName)));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI(java.lang.String)
+	 */
+	@Override
+	public String getNamespaceURI(String prefix) {
+		if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+			return XMLConstants.XML_NS_URI;
+		}
+
+		if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+		}
+
+		for (Element open : elements) {
+			for (int i = 0; i < open.namespaces.length; i += 2) {
+				if (open.namespaces[i].equals(prefix)) {
+					return open.namespaces[i + 1];
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isStartElement()
+	 */
+	@Override
+	public boolean isStartElement() {
+		return eventType == XMLStreamConstants.START_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isEndElement()
+	 */
+	@Override
+	public boolean isEndElement() {
+		return eventType == XMLStreamConstants.END_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isCharacters()
+	 */
+	@Override
+	public boolean isCharacters() {
+		return eventType == XMLStreamConstants.CHARACTERS;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isWhiteSpace()
+	 */
+	@Override
+	public boolean isWhiteSpace() {
+		if (eventType != XMLStreamConstants.CHARACTERS) {
+			return false;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void requireStartElement() {
+		if (eventType != XMLStreamConstants.START_ELEMENT) {
+			throw new IllegalStateException("Not on a start tag");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeValue(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public String getAttributeValue(String namespaceURI, String localName) {
+		requireStartElement();
+
+		for (int i = 0; i < attributes.length; i += 4) {
+			if (attributes[i + 2].equals(localName)
+					&& (namespaceURI == null || attributes[i + 1]
+							.equals(namespaceURI))) {
+				return attributes[i + 3];
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeCount()
+	 */
+	@Override
+	public int getAttributeCount() {
+		requireStartElement();
+
+		return attributes.length / 4;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeName(int)
+	 */
+	@Override
+	public QName getAttributeName(int index) {
+		requireStartElement();
+
+		return new QName(attributes[index * 4 + 1], attributes[index * 4 + 2],
+				attributes[index * 4]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeNamespace(int)
+	 */
+	@Override
+	public String getAttributeNamespace(int index) {
+		requireStartElement();
+
+		String namespaceURI = attributes[index * 4 + 1];
+
+		return (namespaceURI.length() == 0) ? null : namespaceURI;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeLocalName(int)
+	 */
+	@Override
+	public String getAttributeLocalName(int index) {
+		requireStartElement();
+
+		return attributes[index * 4 + 2];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributePrefix(int)
+	 */
+	@Override
+	public String getAttributePrefix(int index) {
+		requireStartElement();
+
+		return attributes[index * 4];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeType(int)
+	 */
+	@Override
+	public String getAttributeType(int index) {
+		requireStartElement();
+
+		return "CDATA";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeValue(int)
+	 */
+	@Override
+	public String getAttributeValue(int index) {
+		requireStartElement();
+
+		return attributes[index * 4 + 3];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isAttributeSpecified(int)
+	 */
+	@Override
+	public boolean isAttributeSpecified(int index) {
+		requireStartElement();
+
+		return true;
+	}
+
+	private String[] currentNamespaces() {
+		if (eventType != XMLStreamConstants.START_ELEMENT
+				&& eventType != XMLStreamConstants.END_ELEMENT) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return element.namespaces;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceCount()
+	 */
+	@Override
+	public int getNamespaceCount() {
+		return currentNamespaces().length / 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespacePrefix(int)
+	 */
+	@Override
+	public String getNamespacePrefix(int index) {
+		String prefix = currentNamespaces()[index * 2];
+
+		return (prefix.length() == 0) ? null : prefix;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI(int)
+	 */
+	@Override
+	public String getNamespaceURI(int index) {
+		return currentNamespaces()[index * 2 + 1];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceContext()
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getEventType()
+	 */
+	@Override
+	public int getEventType() {
+		return eventType;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getText()
+	 */
+	@Override
+	public String getText() {
+		if (!hasText()) {
+			throw new IllegalStateException("The event has no text");
+		}
+
+		return text;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextCharacters()
+	 */
+	@Override
+	public char[] getTextCharacters() {
+		if (textCharacters == null) {
+			textCharacters = getText().toCharArray();
+		}
+
+		return textCharacters;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextCharacters(int, char[],
+	 * int, int)
+	 */
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target,
+			int targetStart, int length) throws XMLStreamException {
+		String value = getText();
+
+		int count = Math.min(length, value.length() - sourceStart);
+
+		if (count <= 0) {
+			return 0;
+		}
+
+		value.getChars(sourceStart, sourceStart + count, target, targetStart);
+
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextStart()
+	 */
+	@Override
+	public int getTextStart() {
+		getText();
+
+		return 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextLength()
+	 */
+	@Override
+	public int getTextLength() {
+		return getText().length();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getEncoding()
+	 */
+	@Override
+	public String getEncoding() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasText()
+	 */
+	@Override
+	public boolean hasText() {
+		return eventType == XMLStreamConstants.CHARACTERS
+				|| eventType == XMLStreamConstants.COMMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getLocation()
+	 */
+	@Override
+	public Location getLocation() {
+		return LOCATION;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getName()
+	 */
+	@Override
+	public QName getName() {
+		if (!hasName()) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return new QName(element.namespaceURI, element.localName,
+				element.prefix);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getLocalName()
+	 */
+	@Override
+	public String getLocalName() {
+		if (!hasName()) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return element.localName;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasName()
+	 */
+	@Override
+	public boolean hasName() {
+		return eventType == XMLStreamConstants.START_ELEMENT
+				|| eventType == XMLStreamConstants.END_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI()
+	 */
+	@Override
+	public String getNamespaceURI() {
+		if (!hasName() || element.namespaceURI.length() == 0) {
+			return null;
+		}
+
+		return element.namespaceURI;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPrefix()
+	 */
+	@Override
+	public String getPrefix() {
+		return hasName() ? element.prefix : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getVersion()
+	 */
+	@Override
+	public String getVersion() {
+		return "1.0";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isStandalone()
+	 */
+	@Override
+	public boolean isStandalone() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#standaloneSet()
+	 */
+	@Override
+	public boolean standaloneSet() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getCharacterEncodingScheme()
+	 */
+	@Override
+	public String getCharacterEncodingScheme() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPITarget()
+	 */
+	@Override
+	public String getPITarget() {
+		return (eventType == XMLStreamConstants.PROCESSING_INSTRUCTION) ? text
+				: null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPIData()
+	 */
+	@Override
+	public String getPIData() {
+		return (eventType == XMLStreamConstants.PROCESSING_INSTRUCTION) ? piData
+				: null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String name) {
+		return null;
+	}
+}
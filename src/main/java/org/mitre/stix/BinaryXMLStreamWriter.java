@@ -0,0 +1,749 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * An XMLStreamWriter writing the binary format read by
+ * BinaryXMLStreamReader (see STIXBinaryCodec.)
+ *
+ * Namespace URIs, prefixes, names and short values are written once and
+ * referred to by index afterwards, starting from the strings of the
+ * BinaryDictionary. Values that are qualified names (e.g., ids, idrefs and
+ * xsi:types) are split into prefix and local part, and a UUID ending the
+ * local part is written as its 16 bytes.
+ *
+ * Namespace declarations are written as they are given, as is all text.
+ * Entity references and DTDs are not supported.
+ *
+ * Not thread-safe.
+ */
+class BinaryXMLStreamWriter implements XMLStreamWriter {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final OutputStream out;
+
+	private final byte[] buffer = new byte[8192];
+
+	private int count = 0;
+
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	// namespace bindings (prefix to namespace URI) of the open elements
+	private final LinkedList<Map<String, String>> scopes = new LinkedList<Map<String, String>>();
+
+	private NamespaceContext rootNamespaceContext;
+
+	private int depth = 0;
+
+	// the start tag being buffered until its attributes are known
+	private boolean pending = false;
+	private boolean pendingEmpty;
+	private String pendingPrefix;
+	private String pendingNamespaceURI;
+	private String pendingLocalName;
+	private final List<String> pendingNamespaces = new ArrayList<String>();
+	private final List<String> pendingAttributes = new ArrayList<String>();
+
+	private final NamespaceContext namespaceContext = new NamespaceContext() {
+
+		public String getNamespaceURI(String prefix) {
+			String namespaceURI = lookupNamespaceURI(prefix);
+
+			return (namespaceURI == null) ? XMLConstants.NULL_NS_URI
+					: namespaceURI;
+		}
+
+		public String getPrefix(String namespaceURI) {
+			return lookupPrefix(namespaceURI);
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			List<String> prefixes = new ArrayList<String>(1);
+			String prefix = lookupPrefix(namespaceURI);
+
+			if (prefix != null) {
+				prefixes.add(prefix);
+			}
+
+			return prefixes.iterator();
+		}
+	};
+
+	/**
+	 * Creates a writer and writes the header of the format.
+	 *
+	 * @param out
+	 *            The stream to write to, which is not closed by close()
+	 */
+	BinaryXMLStreamWriter(OutputStream out) {
+		this.out = out;
+
+		BinaryDictionary dictionary = BinaryDictionary.getInstance();
+
+		List<String> strings = dictionary.getStrings();
+
+		for (int i = 0; i < strings.size(); i++) {
+			codes.put(strings.get(i), i);
+		}
+
+		scopes.push(new HashMap<String, String>(4));
+
+		for (byte b : STIXBinaryCodec.MAGIC) {
+			write(b);
+		}
+
+		write(STIXBinaryCodec.VERSION);
+		writeInt(dictionary.getChecksum());
+	}
+
+	private void write(int b) {
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+
+		buffer[count++] = (byte) b;
+	}
+
+	private void write(byte[] bytes) {
+		if (bytes.length > buffer.length - count) {
+			flushBuffer();
+
+			if (bytes.length > buffer.length) {
+				try {
+					out.write(bytes);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+				return;
+			}
+		}
+
+		System.arraycopy(bytes, 0, buffer, count, bytes.length);
+		count += bytes.length;
+	}
+
+	private void flushBuffer() {
+		try {
+			out.write(buffer, 0, count);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		count = 0;
+	}
+
+	private void writeVarInt(int value) {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		write(value);
+	}
+
+	private void writeInt(int value) {
+		write(value >>> 24);
+		write(value >>> 16);
+		write(value >>> 8);
+		write(value);
+	}
+
+	private void writeLong(long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+	/**
+	 * Writes a string as its code plus one, or as 0 and its UTF-8 bytes if it
+	 * has none yet, in which case short strings are given the next code.
+	 */
+	private void writeString(String value) {
+		Integer code = codes.get(value);
+
+		if (code != null) {
+			writeVarInt(code + 1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(UTF_8);
+
+		writeVarInt(0);
+		writeVarInt(bytes.length);
+		write(bytes);
+
+		if (STIXBinaryCodec.isCoded(value, codes.size())) {
+			codes.put(value, codes.size());
+		}
+	}
+
+	private void writeValue(String value) {
+		int colon = value.indexOf(':');
+
+		if (colon > 0 && STIXBinaryCodec.isName(value, 0, colon)
+				&& STIXBinaryCodec.isName(value, colon + 1, value.length())) {
+			String prefix = value.substring(0, colon);
+
+			int uuid = value.length() - STIXBinaryCodec.UUID_LENGTH;
+
+			if (uuid > colon && STIXBinaryCodec.isUUID(value, uuid)) {
+				UUID id = UUID.fromString(value.substring(uuid));
+
+				write(STIXBinaryCodec.QNAME_UUID_VALUE);
+				writeString(prefix);
+				writeString(value.substring(colon + 1, uuid));
+				writeLong(id.getMostSignificantBits());
+				writeLong(id.getLeastSignificantBits());
+			} else {
+				write(STIXBinaryCodec.QNAME_VALUE);
+				writeString(prefix);
+				writeString(value.substring(colon + 1));
+			}
+		} else {
+			write(STIXBinaryCodec.STRING_VALUE);
+			writeString(value);
+		}
+	}
+
+	private String lookupNamespaceURI(String prefix) {
+		if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+			return XMLConstants.XML_NS_URI;
+		}
+
+		for (Map<String, String> scope : scopes) {
+			String namespaceURI = scope.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		if (rootNamespaceContext != null) {
+			String namespaceURI = rootNamespaceContext.getNamespaceURI(prefix);
+
+			if (namespaceURI != null && namespaceURI.length() > 0) {
+				return namespaceURI;
+			}
+		}
+
+		return null;
+	}
+
+	private String lookupPrefix(String namespaceURI) {
+		if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+			return XMLConstants.XML_NS_PREFIX;
+		}
+
+		for (Map<String, String> scope : scopes) {
+			for (Map.Entry<String, String> entry : scope.entrySet()) {
+				if (entry.getValue().equals(namespaceURI)
+						&& namespaceURI.equals(lookupNamespaceURI(entry
+								.getKey()))) {
+					return entry.getKey();
+				}
+			}
+		}
+
+		if (rootNamespaceContext != null) {
+			return rootNamespaceContext.getPrefix(namespaceURI);
+		}
+
+		return null;
+	}
+
+	private void start(String prefix, String namespaceURI, String localName,
+			boolean empty) {
+		flushPending();
+
+		pending = true;
+		pendingEmpty = empty;
+		pendingPrefix = (prefix == null) ? "" : prefix;
+		pendingNamespaceURI = (namespaceURI == null) ? "" : namespaceURI;
+		pendingLocalName = localName;
+
+		scopes.push(new HashMap<String, String>(4));
+		depth++;
+	}
+
+	private void flushPending() {
+		if (!pending) {
+			return;
+		}
+
+		pending = false;
+
+		write(STIXBinaryCodec.START_ELEMENT);
+		writeString(pendingPrefix);
+		writeString(pendingNamespaceURI);
+		writeString(pendingLocalName);
+
+		writeVarInt(pendingNamespaces.size() / 2);
+
+		for (String value : pendingNamespaces) {
+			writeString(value);
+		}
+
+		writeVarInt(pendingAttributes.size() / 4);
+
+		for (int i = 0; i < pendingAttributes.size(); i += 4) {
+			writeString(pendingAttributes.get(i));
+			writeString(pendingAttributes.get(i + 1));
+			writeString(pendingAttributes.get(i + 2));
+			writeValue(pendingAttributes.get(i + 3));
+		}
+
+		pendingNamespaces.clear();
+		pendingAttributes.clear();
+
+		if (pendingEmpty) {
+			end();
+		}
+	}
+
+	private void end() {
+		write(STIXBinaryCodec.END_ELEMENT);
+
+		scopes.pop();
+		depth--;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		String namespaceURI = lookupNamespaceURI(XMLConstants.DEFAULT_NS_PREFIX);
+
+		start("", namespaceURI, localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		start(lookupPrefix(namespaceURI), namespaceURI, localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		start(prefix, namespaceURI, localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		start(lookupPrefix(namespaceURI), namespaceURI, localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		start(prefix, namespaceURI, localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		String namespaceURI = lookupNamespaceURI(XMLConstants.DEFAULT_NS_PREFIX);
+
+		start("", namespaceURI, localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndElement()
+	 */
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		flushPending();
+
+		if (depth == 0) {
+			throw new XMLStreamException("No element is open");
+		}
+
+		end();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndDocument()
+	 */
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		flushPending();
+
+		while (depth > 0) {
+			end();
+		}
+
+		write(STIXBinaryCodec.END_DOCUMENT);
+		flushBuffer();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#close()
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#flush()
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+		flushBuffer();
+
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String localName, String value)
+			throws XMLStreamException {
+		writeAttribute("", "", localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI,
+			String localName, String value) throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Attributes can only be written on a start tag");
+		}
+
+		pendingAttributes.add((prefix == null) ? "" : prefix);
+		pendingAttributes.add((namespaceURI == null) ? "" : namespaceURI);
+		pendingAttributes.add(localName);
+		pendingAttributes.add(value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		String prefix = "";
+
+		if (namespaceURI != null && namespaceURI.length() > 0) {
+			prefix = lookupPrefix(namespaceURI);
+
+			if (prefix == null) {
+				throw new XMLStreamException("No prefix is bound to "
+						+ namespaceURI);
+			}
+		}
+
+		writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeNamespace(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Namespaces can only be declared on a start tag");
+		}
+
+		if (prefix == null || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			prefix = XMLConstants.DEFAULT_NS_PREFIX;
+		}
+
+		pendingNamespaces.add(prefix);
+		pendingNamespaces.add(namespaceURI);
+
+		scopes.peek().put(prefix, namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void writeDefaultNamespace(String namespaceURI)
+			throws XMLStreamException {
+		writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeComment(java.lang.String)
+	 */
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		flushPending();
+
+		write(STIXBinaryCodec.COMMENT);
+		writeString(data);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target)
+			throws XMLStreamException {
+		writeProcessingInstruction(target, "");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String, java.lang.String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target, String data)
+			throws XMLStreamException {
+		flushPending();
+
+		write(STIXBinaryCodec.PROCESSING_INSTRUCTION);
+		writeString(target);
+		writeString(data);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCData(java.lang.String)
+	 */
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		writeCharacters(data);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeDTD(java.lang.String)
+	 */
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		throw new XMLStreamException("DTDs are not supported");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEntityRef(java.lang.String)
+	 */
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		throw new XMLStreamException("Entity references are not supported");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument()
+	 */
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		// the header is written by the constructor
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		// the header is written by the constructor
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String encoding, String version)
+			throws XMLStreamException {
+		// the header is written by the constructor
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(java.lang.String)
+	 */
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		flushPending();
+
+		if (text.length() > 0) {
+			write(STIXBinaryCodec.CHARACTERS);
+			writeValue(text);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(char[], int, int)
+	 */
+	@Override
+	public void writeCharacters(char[] text, int start, int len)
+			throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getPrefix(java.lang.String)
+	 */
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return lookupPrefix(uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#setPrefix(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		scopes.peek().put(prefix == null ? "" : prefix, uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#setDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		setPrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#setNamespaceContext(javax.xml.namespace
+	 * .NamespaceContext)
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context)
+			throws XMLStreamException {
+		if (depth > 0) {
+			throw new XMLStreamException(
+					"The namespace context can only be set before the root element");
+		}
+
+		rootNamespaceContext = context;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getNamespaceContext()
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException(name + " is not supported");
+	}
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream over the remaining bytes of a ByteBuffer (e.g., one read
+ * from a socket or a memory-mapped file), so they can be parsed without first
+ * being copied into an array or decoded into a String.
+ *
+ * The stream reads from a duplicate of the buffer, so the position of the
+ * buffer itself is left as it is. Without a mark, reset returns to the
+ * position the buffer had when the stream was created. Not thread-safe.
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+
+	// as in ByteArrayInputStream, the start of the stream until marked
+	private int mark;
+
+	/**
+	 * Creates a stream over the bytes between the buffer's position and its
+	 * limit.
+	 *
+	 * @param buffer
+	 *            The buffer
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+		this.mark = buffer.position();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+
+		int count = Math.min(length, buffer.remaining());
+
+		buffer.get(bytes, offset, count);
+
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#skip(long)
+	 */
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+
+		buffer.position(buffer.position() + count);
+
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#markSupported()
+	 */
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#mark(int)
+	 */
+	@Override
+	public void mark(int readLimit) {
+		mark = buffer.position();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.InputStream#reset()
+	 */
+	@Override
+	public void reset() {
+		buffer.position(mark);
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * A read-only hash table keyed by byte sequences (e.g., the hashes of an
+ * IndicatorMatcher), looked up from bytes or from their hexadecimal text
+ * without creating any objects.
+ *
+ * Thread-safe once published.
+ */
+final class ByteKeyTable<V> {
+
+	private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final byte[][] keys;
+
+	private final Object[] values;
+
+	private final int mask;
+
+	private final int size;
+
+	/**
+	 * Creates a table holding entries.
+	 *
+	 * @param entries
+	 *            The values by key, whose positions and limits are left as
+	 *            they are
+	 */
+	ByteKeyTable(Map<ByteBuffer, V> entries) {
+		int capacity = capacity(entries.size());
+
+		this.keys = new byte[capacity][];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+		this.size = entries.size();
+
+		for (Map.Entry<ByteBuffer, V> entry : entries.entrySet()) {
+			ByteBuffer buffer = entry.getKey().duplicate();
+			byte[] key = new byte[buffer.remaining()];
+			buffer.get(key);
+
+			int slot = hash(key, 0, key.length) & mask;
+
+			while (keys[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			keys[slot] = key;
+			values[slot] = entry.getValue();
+		}
+	}
+
+	/**
+	 * Returns the size of an open-addressed table at most half full.
+	 */
+	static int capacity(int size) {
+		int capacity = 2;
+
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+
+	/**
+	 * Returns the value of a key.
+	 *
+	 * @param key
+	 *            An array holding the key
+	 * @param offset
+	 *            The offset of the key in the array
+	 * @param length
+	 *            The length of the key
+	 * @return The value or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	V get(byte[] key, int offset, int length) {
+		for (int slot = hash(key, offset, length) & mask;; slot = (slot + 1)
+				& mask) {
+			byte[] candidate = keys[slot];
+
+			if (candidate == null) {
+				return null;
+			}
+
+			if (candidate.length == length
+					&& regionEquals(candidate, key, offset)) {
+				return (V) values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of a key written in hexadecimal, in either case.
+	 *
+	 * @param hex
+	 *            The key as hexadecimal text
+	 * @return The value or null if there is none or the text is not
+	 *         hexadecimal
+	 */
+	@SuppressWarnings("unchecked")
+	V getHex(CharSequence hex) {
+		int length = hex.length();
+
+		if ((length & 1) != 0) {
+			return null;
+		}
+
+		int hash = FNV_OFFSET_BASIS;
+
+		for (int i = 0; i < length; i += 2) {
+			int b = hexByte(hex, i);
+
+			if (b < 0) {
+				return null;
+			}
+
+			hash = (hash ^ b) * FNV_PRIME;
+		}
+
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			byte[] candidate = keys[slot];
+
+			if (candidate == null) {
+				return null;
+			}
+
+			if (candidate.length * 2 == length && hexEquals(candidate, hex)) {
+				return (V) values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of keys.
+	 */
+	int size() {
+		return size;
+	}
+
+	private static int hash(byte[] key, int offset, int length) {
+		int hash = FNV_OFFSET_BASIS;
+
+		for (int i = offset; i < offset + length; i++) {
+			hash = (hash ^ (key[i] & 0xff)) * FNV_PRIME;
+		}
+
+		return spread(hash);
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean regionEquals(byte[] candidate, byte[] key,
+			int offset) {
+		for (int i = 0; i < candidate.length; i++) {
+			if (candidate[i] != key[offset + i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean hexEquals(byte[] candidate, CharSequence hex) {
+		for (int i = 0; i < candidate.length; i++) {
+			if ((candidate[i] & 0xff) != hexByte(hex, i * 2)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the byte written as two hexadecimal digits at an index of some
+	 * text, or -1 if they are not hexadecimal digits.
+	 */
+	static int hexByte(CharSequence text, int index) {
+		int high = hexDigit(text.charAt(index));
+		int low = hexDigit(text.charAt(index + 1));
+
+		return (high < 0 || low < 0) ? -1 : (high << 4) | low;
+	}
+
+	/**
+	 * Returns the value of an ASCII hexadecimal digit, or -1 if it is not
+	 * one.
+	 */
+	static int hexDigit(char c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		} else if (c >= 'a' && c <= 'f') {
+			return c - 'a' + 10;
+		} else if (c >= 'A' && c <= 'F') {
+			return c - 'A' + 10;
+		}
+
+		return -1;
+	}
+}
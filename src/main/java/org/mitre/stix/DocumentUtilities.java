@@ -6,20 +6,38 @@ package org.mitre.stix;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.dom.DOMResult;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -43,6 +61,36 @@ public class DocumentUtilities {
 	private static final String XML_SCHEMA_INSTANCE = "http://www.w3.org/2001/XMLSchema-instance";
 	private static final String XML_NAMESPACE = "http://www.w3.org/2000/xmlns/";
 
+	/**
+	 * JAXBContexts created for packages outside of the STIX model keyed by
+	 * their context path. Contexts are thread-safe and expensive to create, so
+	 * one is kept for each context path for the life of the process.
+	 */
+	private static final ConcurrentMap<String, JAXBContext> jaxbContexts = new ConcurrentHashMap<String, JAXBContext>();
+
+	private static final AtomicReference<FutureTask<JAXBContext>> warmUp = new AtomicReference<FutureTask<JAXBContext>>();
+
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory
+			.newInstance();
+
+	// shares the strings of the ids, idrefs and other QName attributes of
+	// each object as it is unmarshalled
+	private static final Unmarshaller.Listener internNames = new Unmarshaller.Listener() {
+
+		/* (non-Javadoc)
+		 * @see javax.xml.bind.Unmarshaller.Listener#afterUnmarshal(java.lang.Object, java.lang.Object)
+		 */
+		@Override
+		public void afterUnmarshal(Object target, Object parent) {
+			IdrefIndex.internNames(target);
+		}
+	};
+
+	/**
+	 * Returns the JAXBContext for the STIX model.
+	 *
+	 * @return The JAXBContext for the STIX model.
+	 */
 	public static JAXBContext stixJaxbContext() {
         // Here is safe lazy initialization trick, revealed in the book:
         // Java Concurrency in Practice, Goetz, 2006. Chapter 16.2.3
@@ -61,6 +109,232 @@ public class DocumentUtilities {
         }
     }
 
+	/**
+	 * Returns a cached JAXBContext for a context path (i.e., a package name or
+	 * a colon-separated list of package names.)
+	 *
+	 * The STIX model packages all share the context returned by
+	 * stixJaxbContext(), all other context paths are created once and then
+	 * reused.
+	 *
+	 * @param contextPath
+	 *            The package name or colon-separated list of package names
+	 * @return The JAXBContext for the context path
+	 */
+	public static JAXBContext getJAXBContext(String contextPath) {
+
+		if (contextPath.startsWith("org.mitre")) {
+			return stixJaxbContext();
+		}
+
+		JAXBContext jaxbContext = jaxbContexts.get(contextPath);
+
+		if (jaxbContext == null) {
+			try {
+				jaxbContext = JAXBContext.newInstance(contextPath);
+			} catch (JAXBException e) {
+				throw new RuntimeException(e);
+			}
+
+			JAXBContext existing = jaxbContexts.putIfAbsent(contextPath,
+					jaxbContext);
+
+			if (existing != null) {
+				jaxbContext = existing;
+			}
+		}
+
+		return jaxbContext;
+	}
+
+	/**
+	 * Returns a cached JAXBContext for the package of a JAXB model class.
+	 *
+	 * @param clazz
+	 *            A JAXB model class
+	 * @return The JAXBContext for the class's package
+	 */
+	public static JAXBContext getJAXBContext(Class<?> clazz) {
+		return getJAXBContext(clazz.getPackage().getName());
+	}
+
+	/**
+	 * Creates an Unmarshaller for a JAXB model class whose ids, idrefs and
+	 * other QName attributes share their namespace URIs and prefixes through
+	 * QNameRegistry, as those read by FastPathUnmarshaller and
+	 * STIXPackageReader do.
+	 *
+	 * @param clazz
+	 *            A JAXB model class
+	 * @return A new Unmarshaller for the class's package
+	 */
+	public static Unmarshaller createUnmarshaller(Class<?> clazz) {
+		return createUnmarshaller(getJAXBContext(clazz));
+	}
+
+	/**
+	 * Creates an Unmarshaller from a JAXBContext whose ids, idrefs and other
+	 * QName attributes share their namespace URIs and prefixes through
+	 * QNameRegistry.
+	 *
+	 * @param jaxbContext
+	 *            A JAXBContext, e.g., stixJaxbContext()
+	 * @return A new Unmarshaller
+	 */
+	public static Unmarshaller createUnmarshaller(JAXBContext jaxbContext) {
+		try {
+			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+
+			unmarshaller.setListener(internNames);
+
+			return unmarshaller;
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Starts creating the STIX model's JAXBContext on a background daemon
+	 * thread, so that the first marshal or unmarshal does not pay for it. Only
+	 * the first call starts a thread, later calls return the same Future.
+	 *
+	 * @return A Future for the STIX model's JAXBContext
+	 */
+	public static Future<JAXBContext> warmUpJAXBContext() {
+
+		FutureTask<JAXBContext> task = warmUp.get();
+
+		if (task != null) {
+			return task;
+		}
+
+		task = new FutureTask<JAXBContext>(new Callable<JAXBContext>() {
+
+			public JAXBContext call() {
+				return stixJaxbContext();
+			}
+		});
+
+		if (!warmUp.compareAndSet(null, task)) {
+			return warmUp.get();
+		}
+
+		Thread thread = new Thread(task, "stix-jaxb-context-warm-up");
+		thread.setDaemon(true);
+		thread.start();
+
+		return task;
+	}
+
+	/**
+	 * DocumentBuilderFactory used for all Documents created and parsed here.
+	 * Factories are expensive to look up, so one is configured up front and
+	 * each thread keeps its own DocumentBuilder from it.
+	 */
+	private static final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+
+	private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<DocumentBuilder>() {
+
+		@Override
+		protected DocumentBuilder initialValue() {
+			try {
+				return documentBuilderFactory.newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	private static final ThreadLocal<LSSerializer> serializers = new ThreadLocal<LSSerializer>() {
+
+		@Override
+		protected LSSerializer initialValue() {
+			return DOMImplementationLSHolder.instance.createLSSerializer();
+		}
+	};
+
+	/**
+	 * The DOM Load and Save implementation, which is looked up through the
+	 * DOMImplementationRegistry only once.
+	 */
+	private static class DOMImplementationLSHolder {
+		public static final DOMImplementationLS instance = lookup();
+
+		private static DOMImplementationLS lookup() {
+			try {
+				DOMImplementationRegistry registry = DOMImplementationRegistry
+						.newInstance();
+
+				return (DOMImplementationLS) registry
+						.getDOMImplementation("LS");
+
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException(e);
+			} catch (InstantiationException e) {
+				throw new RuntimeException(e);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			} catch (ClassCastException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static DocumentBuilderFactory createDocumentBuilderFactory() {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		factory.setIgnoringElementContentWhitespace(true);
+		factory.isIgnoringComments();
+		factory.setCoalescing(true);
+
+		return factory;
+	}
+
+	/**
+	 * Creates the XMLInputFactory of each class reading STIX with StAX, so
+	 * they all read namespaces and refuse DTDs and external entities alike.
+	 *
+	 * @param coalescing
+	 *            True to report adjacent text and CDATA as one event
+	 * @return A namespace-aware XMLInputFactory without DTD support
+	 */
+	static XMLInputFactory createXMLInputFactory(boolean coalescing) {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING,
+				Boolean.valueOf(coalescing));
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+
+		return factory;
+	}
+
+	/**
+	 * Returns the calling thread's DocumentBuilder, reset for reuse.
+	 */
+	private static DocumentBuilder getDocumentBuilder() {
+		DocumentBuilder documentBuilder = documentBuilders.get();
+		documentBuilder.reset();
+
+		return documentBuilder;
+	}
+
+	/**
+	 * Returns the calling thread's LSSerializer configured to write an XML
+	 * declaration and to pretty print or not.
+	 */
+	private static LSSerializer getSerializer(boolean prettyPrint) {
+		LSSerializer serializer = serializers.get();
+
+		serializer.getDomConfig().setParameter("format-pretty-print",
+				Boolean.valueOf(prettyPrint));
+		serializer.getDomConfig().setParameter("xml-declaration",
+				Boolean.TRUE);
+
+		return serializer;
+	}
+
 	@SuppressWarnings("unused")
 	private static final Logger LOGGER = Logger
 			.getLogger(DocumentUtilities.class.getName());
@@ -105,7 +379,8 @@ public class DocumentUtilities {
 	 * @param jaxbElement
 	 *            JAXB representation of an XML Element
 	 * @param prettyPrint
-	 *            True for pretty print, otherwise false
+	 *            True to indent the Document with whitespace text nodes,
+	 *            otherwise false
 	 * @return The Document representation
 	 */
 	public static Document toDocument(JAXBElement<?> jaxbElement,
@@ -114,33 +389,21 @@ public class DocumentUtilities {
 		Document document = null;
 
 		try {
-			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory
-					.newInstance();
-			documentBuilderFactory.setNamespaceAware(true);
-			documentBuilderFactory.setIgnoringElementContentWhitespace(true);
-			documentBuilderFactory.isIgnoringComments();
-			documentBuilderFactory.setCoalescing(true);
-
-			document = documentBuilderFactory.newDocumentBuilder()
-					.newDocument();
-
-			String packName = jaxbElement.getDeclaredType().getPackage().getName();
-			JAXBContext jaxbContext;
-			if (packName.startsWith("org.mitre")){
-				jaxbContext = stixJaxbContext();
-			} else {
-				jaxbContext = JAXBContext.newInstance(packName);
-			}
+			DocumentBuilder documentBuilder = getDocumentBuilder();
 
-			Marshaller marshaller = jaxbContext.createMarshaller();
+			document = documentBuilder.newDocument();
+
+			JAXBContext jaxbContext = getJAXBContext(jaxbElement
+					.getDeclaredType());
 
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT,
-					prettyPrint);
+			Marshaller marshaller = jaxbContext.createMarshaller();
 
 			marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
 
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
 			try {
-				marshaller.marshal(jaxbElement, document);
+				marshal(marshaller, jaxbElement, document);
 			} catch (JAXBException e) {
 				// otherwise handle non-XMLRootElements
 				QName qualifiedName = new QName(
@@ -151,20 +414,100 @@ public class DocumentUtilities {
 				JAXBElement root = new JAXBElement(qualifiedName,
 						jaxbElement.getClass(), jaxbElement);
 
-				marshaller.marshal(root, document);
-			}
+				document = documentBuilder.newDocument();
 
-			removeUnusedNamespaces(document);
+				marshal(marshaller, root, document);
+			}
 
-		} catch (ParserConfigurationException e) {
-			throw new RuntimeException(e);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
 
+		if (prettyPrint && document.getDocumentElement() != null) {
+			indent(document.getDocumentElement(), 0);
+		}
+
 		return document;
 	}
 
+	/**
+	 * Indents the element children of an element and its descendants with
+	 * whitespace text nodes, four spaces a level as JAXB_FORMATTED_OUTPUT
+	 * does when marshalling to a stream. Elements with text content are left
+	 * as they are.
+	 */
+	private static void indent(Element element, int depth) {
+		boolean hasElements = false;
+
+		for (Node child = element.getFirstChild(); child != null; child = child
+				.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE) {
+				hasElements = true;
+			} else if (child.getNodeType() == Node.TEXT_NODE
+					|| child.getNodeType() == Node.CDATA_SECTION_NODE) {
+				if (child.getNodeValue().trim().length() > 0) {
+					return;
+				}
+			}
+		}
+
+		if (!hasElements) {
+			return;
+		}
+
+		Document document = element.getOwnerDocument();
+		StringBuilder whitespace = new StringBuilder("\n");
+
+		for (int i = 0; i <= depth; i++) {
+			whitespace.append("    ");
+		}
+
+		Node child = element.getFirstChild();
+
+		while (child != null) {
+			Node next = child.getNextSibling();
+
+			if (child.getNodeType() == Node.TEXT_NODE) {
+				element.removeChild(child);
+			} else {
+				element.insertBefore(
+						document.createTextNode(whitespace.toString()), child);
+
+				if (child.getNodeType() == Node.ELEMENT_NODE) {
+					indent((Element) child, depth + 1);
+				}
+			}
+
+			child = next;
+		}
+
+		element.appendChild(document.createTextNode(whitespace.substring(0,
+				whitespace.length() - 4)));
+	}
+
+	/**
+	 * Marshals into a Document through a NamespaceMinimizingXMLStreamWriter,
+	 * so that only the namespaces used are declared and the Document need
+	 * not be pruned afterwards by removeUnusedNamespaces. As the Document is
+	 * held in memory anyway, the whole of it is buffered so that every
+	 * namespace is declared on the document element.
+	 */
+	private static void marshal(Marshaller marshaller, Object jaxbElement,
+			Document document) throws JAXBException {
+		try {
+			XMLStreamWriter writer = new NamespaceMinimizingXMLStreamWriter(
+					xmlOutputFactory.createXMLStreamWriter(new DOMResult(
+							document)),
+					Collections.<String, String> emptyMap(), Integer.MAX_VALUE);
+
+			marshaller.marshal(jaxbElement, writer);
+
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Returns a String for a JAXBElement
 	 *
@@ -210,38 +553,83 @@ public class DocumentUtilities {
 	public static String toXMLString(Document document, boolean prettyPrint) {
 
 		try {
-			DOMImplementationRegistry registry = DOMImplementationRegistry
-					.newInstance();
-			DOMImplementationLS domImplementationLS = (DOMImplementationLS) registry
-					.getDOMImplementation("LS");
-			LSSerializer serializaer = domImplementationLS.createLSSerializer();
-
-			if (prettyPrint) {
-				serializaer.getDomConfig().setParameter("format-pretty-print",
-						Boolean.TRUE);
-				serializaer.getDomConfig().setParameter("xml-declaration",
-						Boolean.TRUE);
-			}
-
-			// otherwise UTF-16 is used by default
-			LSOutput lsOutput = domImplementationLS.createLSOutput();
-			lsOutput.setEncoding("UTF-8");
 			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-			lsOutput.setByteStream(byteStream);
 
-			serializaer.write(document, lsOutput);
+			writeXML(document, byteStream, prettyPrint);
 
 			return new String(byteStream.toByteArray(), "UTF-8");
 
-		} catch (ClassNotFoundException e) {
-			throw new RuntimeException(e);
-		} catch (InstantiationException e) {
-			throw new RuntimeException(e);
-		} catch (IllegalAccessException e) {
+		} catch (UnsupportedEncodingException e) {
 			throw new RuntimeException(e);
-		} catch (ClassCastException e) {
+		}
+	}
+
+	/**
+	 * Writes a Document object representing the entire XML document to an
+	 * OutputStream as UTF-8 encoded XML. The stream is not closed.
+	 *
+	 * @param document
+	 *            Document object representing the entire XML document
+	 * @param outputStream
+	 *            The stream to write to
+	 * @param prettyPrint
+	 *            True for pretty print, otherwise false
+	 */
+	public static void writeXML(Document document, OutputStream outputStream,
+			boolean prettyPrint) {
+
+		LSSerializer serializer = getSerializer(prettyPrint);
+
+		// otherwise UTF-16 is used by default
+		LSOutput lsOutput = DOMImplementationLSHolder.instance.createLSOutput();
+		lsOutput.setEncoding("UTF-8");
+		lsOutput.setByteStream(outputStream);
+
+		serializer.write(document, lsOutput);
+	}
+
+	/**
+	 * Writes a JAXBElement to an OutputStream as UTF-8 encoded XML. The stream
+	 * is not closed.
+	 *
+	 * Unless pretty printed, the element is marshalled straight to the stream
+	 * without a Document or String being built along the way.
+	 *
+	 * @param jaxbElement
+	 *            JAXB representation of an XML Element
+	 * @param outputStream
+	 *            The stream to write to
+	 * @param prettyPrint
+	 *            True for pretty print, otherwise false
+	 */
+	public static void writeXML(JAXBElement<?> jaxbElement,
+			OutputStream outputStream, boolean prettyPrint) {
+
+		if (prettyPrint) {
+			writeXML(toDocument(jaxbElement), outputStream, true);
+			return;
+		}
+
+		try {
+			Marshaller marshaller = getJAXBContext(
+					jaxbElement.getDeclaredType()).createMarshaller();
+
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+
+			XMLStreamWriter writer = new NamespaceMinimizingXMLStreamWriter(
+					xmlOutputFactory.createXMLStreamWriter(outputStream,
+							"UTF-8"));
+
+			writer.writeStartDocument("UTF-8", "1.0");
+
+			marshaller.marshal(jaxbElement, writer);
+
+			writer.writeEndDocument();
+			writer.flush();
+
+		} catch (JAXBException e) {
 			throw new RuntimeException(e);
-		} catch (UnsupportedEncodingException e) {
+		} catch (XMLStreamException e) {
 			throw new RuntimeException(e);
 		}
 	}
@@ -289,6 +677,10 @@ public class DocumentUtilities {
 	 * stackoverflow question on the subject. I've modified it slightly, but it
 	 * will prune down the namespaces to only those used.
 	 *
+	 * Documents created by toDocument(JAXBElement) are marshalled through a
+	 * NamespaceMinimizingXMLStreamWriter and so do not need pruning; this is
+	 * still needed for Documents parsed from XML.
+	 *
 	 * @param document
 	 *            Document object representing the entire XML document
 	 */
@@ -392,21 +784,50 @@ public class DocumentUtilities {
 	 * @return The Document representation
 	 */
 	public static Document toDocument(String xml) {
-		try {
+		return parse(new InputSource(new StringReader(xml)));
+	}
 
-			DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory
-					.newInstance();
-			documentBuilderFactory.setNamespaceAware(true);
-			documentBuilderFactory.setIgnoringElementContentWhitespace(true);
-			documentBuilderFactory.isIgnoringComments();
-			documentBuilderFactory.setCoalescing(true);
+	/**
+	 * Creates a Document from XML read from an InputStream. The encoding is
+	 * detected from the XML declaration. The stream is not closed.
+	 *
+	 * @param inputStream
+	 *            The XML
+	 * @return The Document representation
+	 */
+	public static Document toDocument(InputStream inputStream) {
+		return parse(new InputSource(inputStream));
+	}
+
+	/**
+	 * Creates a Document from XML read from a channel. The encoding is
+	 * detected from the XML declaration. The channel is not closed.
+	 *
+	 * @param channel
+	 *            The XML
+	 * @return The Document representation
+	 */
+	public static Document toDocument(ReadableByteChannel channel) {
+		return toDocument(Channels.newInputStream(channel));
+	}
 
-			DocumentBuilder documentBuilder = documentBuilderFactory
-					.newDocumentBuilder();
+	/**
+	 * Creates a Document from XML held in the remaining bytes of a
+	 * ByteBuffer. The encoding is detected from the XML declaration. The
+	 * position of the buffer is left as it is.
+	 *
+	 * @param buffer
+	 *            The XML
+	 * @return The Document representation
+	 */
+	public static Document toDocument(ByteBuffer buffer) {
+		return toDocument(new ByteBufferInputStream(buffer));
+	}
 
-			InputSource inputSource = new InputSource();
+	private static Document parse(InputSource inputSource) {
+		try {
 
-			inputSource.setCharacterStream(new StringReader(xml));
+			DocumentBuilder documentBuilder = getDocumentBuilder();
 
 			Document document = documentBuilder.parse(inputSource);
 
@@ -414,8 +835,6 @@ public class DocumentUtilities {
 
 			return document;
 
-		} catch (ParserConfigurationException e) {
-			throw new RuntimeException(e);
 		} catch (SAXException e) {
 			throw new RuntimeException(e);
 		} catch (IOException e) {
@@ -431,41 +850,6 @@ public class DocumentUtilities {
 	 * @return The XML String as on line.
 	 */
 	public static String stripFormattingfromXMLString(String xml) {
-		try {
-			Document document = DocumentUtilities.toDocument(xml);
-
-			DOMImplementationRegistry registry = DOMImplementationRegistry
-					.newInstance();
-			DOMImplementationLS domImplementationLS = (DOMImplementationLS) registry
-					.getDOMImplementation("LS");
-			LSSerializer serializaer = domImplementationLS.createLSSerializer();
-
-			serializaer.getDomConfig().setParameter("format-pretty-print",
-					Boolean.FALSE);
-
-			serializaer.getDomConfig().setParameter("xml-declaration",
-					Boolean.TRUE);
-
-			// otherwise UTF-16 is used by default
-			LSOutput lsOutput = domImplementationLS.createLSOutput();
-			lsOutput.setEncoding("UTF-8");
-			ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-			lsOutput.setByteStream(byteStream);
-
-			serializaer.write(document, lsOutput);
-
-			return new String(byteStream.toByteArray(), "UTF-8");
-
-		} catch (UnsupportedEncodingException e) {
-			throw new RuntimeException(e);
-		} catch (ClassNotFoundException e) {
-			throw new RuntimeException(e);
-		} catch (InstantiationException e) {
-			throw new RuntimeException(e);
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
-		} catch (ClassCastException e) {
-			throw new RuntimeException(e);
-		}
+		return toXMLString(DocumentUtilities.toDocument(xml), false);
 	}
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.Map;
+
+/**
+ * A read-only trie of domain names by their labels, last label first (e.g.,
+ * the domains of an IndicatorMatcher), finding the longest of them a name is
+ * or is a subdomain of: "example.com" is found for "www.example.com", but not
+ * for "badexample.com".
+ *
+ * The children of every node are held in one open-addressed table keyed by
+ * their parent and label, and labels are compared with the name in place,
+ * ignoring the case of ASCII letters, so matching creates no objects.
+ *
+ * Thread-safe once published.
+ */
+final class DomainTrie<V> {
+
+	// node 0 is the root
+	private final int[] parents;
+
+	private final String[] labels;
+
+	private final int[] hashes;
+
+	private final Object[] values;
+
+	private int nodes = 1;
+
+	// the children of every node, 0 for an empty slot
+	private final int[] slots;
+
+	private final int mask;
+
+	/**
+	 * Creates a trie holding domains.
+	 *
+	 * @param domains
+	 *            The values by domain name, in lower case without a trailing
+	 *            dot
+	 */
+	DomainTrie(Map<String, V> domains) {
+		int labelCount = 1;
+
+		for (String domain : domains.keySet()) {
+			labelCount += countLabels(domain, domain.length());
+		}
+
+		this.parents = new int[labelCount];
+		this.labels = new String[labelCount];
+		this.hashes = new int[labelCount];
+		this.values = new Object[labelCount];
+
+		int capacity = ByteKeyTable.capacity(labelCount);
+
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+
+		for (Map.Entry<String, V> entry : domains.entrySet()) {
+			String domain = entry.getKey();
+			int node = 0;
+			int end = domain.length();
+
+			while (true) {
+				int start = labelStart(domain, end);
+				int child = find(node, domain, start, end);
+
+				if (child == 0) {
+					child = add(node, domain, start, end);
+				}
+
+				node = child;
+
+				if (start == 0) {
+					break;
+				}
+
+				end = start - 1;
+			}
+
+			values[node] = entry.getValue();
+		}
+	}
+
+	/**
+	 * Returns the value of the longest domain a name is or is a subdomain
+	 * of.
+	 *
+	 * @param name
+	 *            The domain name, in any case, with or without a trailing dot
+	 * @return The value or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	V match(CharSequence name) {
+		int end = name.length();
+
+		if (end > 0 && name.charAt(end - 1) == '.') {
+			end--;
+		}
+
+		Object match = null;
+		int node = 0;
+
+		while (true) {
+			int start = labelStart(name, end);
+
+			node = find(node, name, start, end);
+
+			if (node == 0) {
+				break;
+			}
+
+			if (values[node] != null) {
+				match = values[node];
+			}
+
+			if (start == 0) {
+				break;
+			}
+
+			end = start - 1;
+		}
+
+		return (V) match;
+	}
+
+	private int find(int parent, CharSequence name, int start, int end) {
+		int hash = hash(name, start, end);
+
+		for (int slot = slot(parent, hash);; slot = (slot + 1) & mask) {
+			int node = slots[slot];
+
+			if (node == 0) {
+				return 0;
+			}
+
+			if (parents[node] == parent && hashes[node] == hash
+					&& labelEquals(labels[node], name, start, end)) {
+				return node;
+			}
+		}
+	}
+
+	private int add(int parent, String domain, int start, int end) {
+		int node = nodes++;
+		int hash = hash(domain, start, end);
+
+		parents[node] = parent;
+		labels[node] = domain.substring(start, end);
+		hashes[node] = hash;
+
+		int slot = slot(parent, hash);
+
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+
+		slots[slot] = node;
+
+		return node;
+	}
+
+	private int slot(int parent, int hash) {
+		int h = parent * 0x9e3779b9 + hash;
+
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private static int labelStart(CharSequence name, int end) {
+		int start = end;
+
+		while (start > 0 && name.charAt(start - 1) != '.') {
+			start--;
+		}
+
+		return start;
+	}
+
+	private static int countLabels(CharSequence name, int end) {
+		int count = 1;
+
+		for (int i = 0; i < end; i++) {
+			if (name.charAt(i) == '.') {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private static int hash(CharSequence name, int start, int end) {
+		int hash = 0;
+
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + toLowerCase(name.charAt(i));
+		}
+
+		return hash;
+	}
+
+	private static boolean labelEquals(String label, CharSequence name,
+			int start, int end) {
+		if (label.length() != end - start) {
+			return false;
+		}
+
+		for (int i = start; i < end; i++) {
+			if (label.charAt(i - start) != toLowerCase(name.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the lower case of an ASCII letter, or any other character as
+	 * it is.
+	 */
+	static char toLowerCase(char c) {
+		return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+	}
+}
@@ -0,0 +1,612 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The nodes of the evaluator trees an ObservableCompiler builds. Leaves test
+ * the values of one property path; And and Or nodes evaluate their children
+ * cheapest first and stop as soon as the outcome is known, and Or nodes
+ * merge the string conditions of their children on the same path into one
+ * StringSet.
+ */
+final class EvaluatorNodes {
+
+	private EvaluatorNodes() {
+	}
+
+	/**
+	 * A node of an evaluator tree.
+	 */
+	abstract static class Node implements ObservableEvaluator {
+
+		/**
+		 * Returns the relative cost of evaluating the node.
+		 */
+		abstract int cost();
+	}
+
+	private static final Comparator<Node> BY_COST = new Comparator<Node>() {
+		@Override
+		public int compare(Node a, Node b) {
+			return (a.cost() < b.cost()) ? -1 : (a.cost() == b.cost() ? 0
+					: 1);
+		}
+	};
+
+	/**
+	 * A node with a fixed outcome.
+	 */
+	static final class Constant extends Node {
+
+		private final boolean value;
+
+		private Constant(boolean value) {
+			this.value = value;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			return value;
+		}
+
+		@Override
+		int cost() {
+			return 0;
+		}
+	}
+
+	static final Node TRUE = new Constant(true);
+
+	static final Node FALSE = new Constant(false);
+
+	/**
+	 * Creates a node matching events all of a set of nodes match.
+	 */
+	static Node and(List<Node> nodes) {
+		List<Node> children = new ArrayList<Node>();
+
+		for (Node node : nodes) {
+			if (node == FALSE) {
+				return FALSE;
+			} else if (node instanceof And) {
+				Collections.addAll(children, ((And) node).children);
+			} else if (node != TRUE) {
+				children.add(node);
+			}
+		}
+
+		if (children.isEmpty()) {
+			return TRUE;
+		} else if (children.size() == 1) {
+			return children.get(0);
+		}
+
+		return new And(children);
+	}
+
+	/**
+	 * Creates a node matching events any of a set of nodes match.
+	 */
+	static Node or(List<Node> nodes) {
+		List<Node> children = new ArrayList<Node>();
+		Map<String, List<StringSet>> stringSets = new LinkedHashMap<String, List<StringSet>>();
+
+		List<Node> pending = new ArrayList<Node>(nodes);
+
+		for (int i = 0; i < pending.size(); i++) {
+			Node node = pending.get(i);
+
+			if (node == TRUE) {
+				return TRUE;
+			} else if (node instanceof Or) {
+				Collections.addAll(pending, ((Or) node).children);
+			} else if (node instanceof StringSet) {
+				StringSet stringSet = (StringSet) node;
+				List<StringSet> pathSets = stringSets.get(stringSet.path);
+
+				if (pathSets == null) {
+					pathSets = new ArrayList<StringSet>();
+					stringSets.put(stringSet.path, pathSets);
+				}
+
+				pathSets.add(stringSet);
+			} else if (node != FALSE) {
+				children.add(node);
+			}
+		}
+
+		for (List<StringSet> pathSets : stringSets.values()) {
+			children.add((pathSets.size() == 1) ? pathSets.get(0)
+					: StringSet.merge(pathSets));
+		}
+
+		if (children.isEmpty()) {
+			return FALSE;
+		} else if (children.size() == 1) {
+			return children.get(0);
+		}
+
+		return new Or(children);
+	}
+
+	/**
+	 * Creates a node matching events a node does not match.
+	 */
+	static Node not(Node node) {
+		if (node == TRUE) {
+			return FALSE;
+		} else if (node == FALSE) {
+			return TRUE;
+		} else if (node instanceof Not) {
+			return ((Not) node).child;
+		}
+
+		return new Not(node);
+	}
+
+	private static int sum(Node[] nodes) {
+		long cost = 0;
+
+		for (Node node : nodes) {
+			cost += node.cost();
+		}
+
+		return (int) Math.min(cost, Integer.MAX_VALUE);
+	}
+
+	private static Node[] sortByCost(List<Node> nodes) {
+		Node[] sorted = nodes.toArray(new Node[nodes.size()]);
+
+		Arrays.sort(sorted, BY_COST);
+
+		return sorted;
+	}
+
+	/**
+	 * Matches events all of its children match.
+	 */
+	static final class And extends Node {
+
+		final Node[] children;
+
+		private final int cost;
+
+		private And(List<Node> children) {
+			this.children = sortByCost(children);
+			this.cost = sum(this.children);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			for (Node child : children) {
+				if (!child.matches(event)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		int cost() {
+			return cost;
+		}
+	}
+
+	/**
+	 * Matches events any of its children match.
+	 */
+	static final class Or extends Node {
+
+		final Node[] children;
+
+		private final int cost;
+
+		private Or(List<Node> children) {
+			this.children = sortByCost(children);
+			this.cost = sum(this.children);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			for (Node child : children) {
+				if (child.matches(event)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		@Override
+		int cost() {
+			return cost;
+		}
+	}
+
+	/**
+	 * Matches events its child does not match.
+	 */
+	static final class Not extends Node {
+
+		final Node child;
+
+		private Not(Node child) {
+			this.child = child;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			return !child.matches(event);
+		}
+
+		@Override
+		int cost() {
+			return child.cost();
+		}
+	}
+
+	/**
+	 * Matches events with a value of a property path that passes a test.
+	 */
+	abstract static class PathNode extends Node {
+
+		final String path;
+
+		PathNode(String path) {
+			this.path = path;
+		}
+
+		/**
+		 * Returns whether a value passes the test.
+		 */
+		abstract boolean test(CharSequence value);
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			int count = event.getValueCount(path);
+
+			for (int i = 0; i < count; i++) {
+				if (test(event.getValue(path, i))) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Matches events with values of a property path, none of which pass the
+	 * test of a PathNode (e.g., for DoesNotEqual.)
+	 */
+	static final class NoneOf extends Node {
+
+		private final PathNode node;
+
+		NoneOf(PathNode node) {
+			this.node = node;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * org.mitre.stix.ObservableEvaluator#matches(org.mitre.stix.ObservableEvent
+		 * )
+		 */
+		@Override
+		public boolean matches(ObservableEvent event) {
+			return event.getValueCount(node.path) > 0 && !node.matches(event);
+		}
+
+		@Override
+		int cost() {
+			return node.cost();
+		}
+	}
+
+	/**
+	 * Tests values against a set of strings they must contain, start with,
+	 * end with or equal: through a hash table for the strings they must
+	 * equal in their case, and through Aho-Corasick automata for the rest.
+	 */
+	static final class StringSet extends PathNode {
+
+		private final List<String> strings;
+
+		private final List<Integer> conditions;
+
+		private final List<Boolean> caseSensitivities;
+
+		private final StringKeyTable<Boolean> equals;
+
+		private final AhoCorasickAutomaton caseSensitive;
+
+		private final AhoCorasickAutomaton caseInsensitive;
+
+		/**
+		 * Creates a set of one string.
+		 *
+		 * @param condition
+		 *            AhoCorasickAutomaton.CONTAINS, STARTS_WITH, ENDS_WITH or
+		 *            EQUALS
+		 */
+		static StringSet of(String path, String string, int condition,
+				boolean caseSensitive) {
+			return new StringSet(path, Collections.singletonList(string),
+					Collections.singletonList(condition),
+					Collections.singletonList(caseSensitive));
+		}
+
+		/**
+		 * Creates a set of the strings of sets of the same path.
+		 */
+		static StringSet merge(List<StringSet> stringSets) {
+			List<String> strings = new ArrayList<String>();
+			List<Integer> conditions = new ArrayList<Integer>();
+			List<Boolean> caseSensitivities = new ArrayList<Boolean>();
+
+			for (StringSet stringSet : stringSets) {
+				strings.addAll(stringSet.strings);
+				conditions.addAll(stringSet.conditions);
+				caseSensitivities.addAll(stringSet.caseSensitivities);
+			}
+
+			return new StringSet(stringSets.get(0).path, strings, conditions,
+					caseSensitivities);
+		}
+
+		private StringSet(String path, List<String> strings,
+				List<Integer> conditions, List<Boolean> caseSensitivities) {
+			super(path);
+
+			this.strings = strings;
+			this.conditions = conditions;
+			this.caseSensitivities = caseSensitivities;
+
+			Map<String, Boolean> equalStrings = new HashMap<String, Boolean>();
+			List<String> sensitive = new ArrayList<String>();
+			List<Integer> sensitiveConditions = new ArrayList<Integer>();
+			List<String> insensitive = new ArrayList<String>();
+			List<Integer> insensitiveConditions = new ArrayList<Integer>();
+
+			for (int i = 0; i < strings.size(); i++) {
+				if (!caseSensitivities.get(i)) {
+					insensitive.add(strings.get(i));
+					insensitiveConditions.add(conditions.get(i));
+				} else if (conditions.get(i) == AhoCorasickAutomaton.EQUALS) {
+					equalStrings.put(strings.get(i), Boolean.TRUE);
+				} else {
+					sensitive.add(strings.get(i));
+					sensitiveConditions.add(conditions.get(i));
+				}
+			}
+
+			this.equals = equalStrings.isEmpty() ? null
+					: new StringKeyTable<Boolean>(equalStrings);
+			this.caseSensitive = sensitive.isEmpty() ? null
+					: new AhoCorasickAutomaton(sensitive, sensitiveConditions,
+							true);
+			this.caseInsensitive = insensitive.isEmpty() ? null
+					: new AhoCorasickAutomaton(insensitive,
+							insensitiveConditions, false);
+		}
+
+		@Override
+		boolean test(CharSequence value) {
+			return (equals != null && equals.get(value) != null)
+					|| (caseSensitive != null && caseSensitive.matches(value))
+					|| (caseInsensitive != null && caseInsensitive
+							.matches(value));
+		}
+
+		@Override
+		int cost() {
+			return 1 + ((caseSensitive == null) ? 0 : 2)
+					+ ((caseInsensitive == null) ? 0 : 2);
+		}
+	}
+
+	/**
+	 * Tests values against a regular expression, compiled once, and found
+	 * anywhere in them (FitsPattern.)
+	 */
+	static final class PatternNode extends PathNode {
+
+		private final ThreadLocal<Matcher> matchers;
+
+		PatternNode(String path, String regex, boolean caseSensitive) {
+			super(path);
+
+			final Pattern pattern = Pattern.compile(regex,
+					caseSensitive ? 0 : Pattern.CASE_INSENSITIVE
+							| Pattern.UNICODE_CASE);
+
+			this.matchers = new ThreadLocal<Matcher>() {
+				@Override
+				protected Matcher initialValue() {
+					return pattern.matcher("");
+				}
+			};
+		}
+
+		@Override
+		boolean test(CharSequence value) {
+			return matchers.get().reset(value).find();
+		}
+
+		@Override
+		int cost() {
+			return 16;
+		}
+	}
+
+	/**
+	 * Tests values by their order relative to a value (GreaterThan,
+	 * LessThanOrEqual and so on): as numbers if both are numbers, and as
+	 * strings otherwise (e.g., ISO 8601 timestamps.)
+	 */
+	static final class Comparison extends PathNode {
+
+		// not a whole number
+		private static final long NOT_INTEGER = Long.MIN_VALUE;
+
+		private final String value;
+
+		private final long integerValue;
+
+		private final Double numberValue;
+
+		private final boolean less;
+
+		private final boolean equal;
+
+		private final boolean greater;
+
+		/**
+		 * Creates a comparison with a value.
+		 *
+		 * @param less
+		 *            Whether values less than the value pass
+		 * @param equal
+		 *            Whether values equal to it pass
+		 * @param greater
+		 *            Whether values greater than it pass
+		 */
+		Comparison(String path, String value, boolean less, boolean equal,
+				boolean greater) {
+			super(path);
+
+			this.value = value;
+			this.integerValue = parseInteger(value);
+			this.numberValue = parseNumber(value);
+			this.less = less;
+			this.equal = equal;
+			this.greater = greater;
+		}
+
+		@Override
+		boolean test(CharSequence text) {
+			int comparison;
+			long integer;
+
+			if (integerValue != NOT_INTEGER
+					&& (integer = parseInteger(text)) != NOT_INTEGER) {
+				comparison = (integer < integerValue) ? -1
+						: (integer == integerValue ? 0 : 1);
+			} else {
+				Double number = (numberValue == null) ? null
+						: parseNumber(text);
+
+				comparison = (number == null) ? compare(text, value) : number
+						.compareTo(numberValue);
+			}
+
+			return (comparison < 0) ? less : (comparison == 0 ? equal
+					: greater);
+		}
+
+		@Override
+		int cost() {
+			return 3;
+		}
+
+		/**
+		 * Parses a decimal integer without creating any objects.
+		 */
+		private static long parseInteger(CharSequence text) {
+			int length = text.length();
+			int i = (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) ? 1
+					: 0;
+
+			if (i == length || length - i > 18) {
+				return NOT_INTEGER;
+			}
+
+			long integer = 0;
+
+			for (; i < length; i++) {
+				char c = text.charAt(i);
+
+				if (c < '0' || c > '9') {
+					return NOT_INTEGER;
+				}
+
+				integer = integer * 10 + (c - '0');
+			}
+
+			return (text.charAt(0) == '-') ? -integer : integer;
+		}
+
+		private static Double parseNumber(CharSequence text) {
+			try {
+				return Double.valueOf(text.toString().trim());
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private static int compare(CharSequence a, String b) {
+			int length = Math.min(a.length(), b.length());
+
+			for (int i = 0; i < length; i++) {
+				int difference = a.charAt(i) - b.charAt(i);
+
+				if (difference != 0) {
+					return difference;
+				}
+			}
+
+			return a.length() - b.length();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Implemented by the JAXB model classes the build generates fast-path StAX
+ * bindings for (see the fastPathTypes of the generatedSourceTransformation
+ * task), so that FastPathUnmarshaller and FastPathMarshaller can read and
+ * write them by setting and getting their fields directly rather than through
+ * JAXB's reflective accessors.
+ *
+ * Each class handles the attributes and elements it declares itself and
+ * defers to its superclass for the rest. These methods are only meant to be
+ * called by FastPathUnmarshaller and FastPathMarshaller.
+ */
+public interface FastPathBinding {
+
+	/**
+	 * Returns a new, empty instance of the class.
+	 *
+	 * @return The new instance
+	 */
+	FastPathBinding newFastPathInstance();
+
+	/**
+	 * Sets the field bound to an attribute.
+	 *
+	 * @param unmarshaller
+	 *            The FastPathUnmarshaller reading the element
+	 * @param namespaceURI
+	 *            The namespace URI of the attribute, "" if it has none
+	 * @param localName
+	 *            The local name of the attribute
+	 * @param value
+	 *            The value of the attribute
+	 * @return True if the attribute is bound, false if it was ignored
+	 */
+	boolean readFastPathAttribute(FastPathUnmarshaller unmarshaller,
+			String namespaceURI, String localName, String value);
+
+	/**
+	 * Reads the content of the element, leaving the reader on its end tag.
+	 *
+	 * @param unmarshaller
+	 *            The FastPathUnmarshaller reading the element
+	 * @throws XMLStreamException
+	 *             If the content cannot be read
+	 */
+	void readFastPathContent(FastPathUnmarshaller unmarshaller)
+			throws XMLStreamException;
+
+	/**
+	 * Reads a child element into the field bound to it.
+	 *
+	 * @param unmarshaller
+	 *            The FastPathUnmarshaller positioned on the child's start tag
+	 * @param namespaceURI
+	 *            The namespace URI of the child, "" if it has none
+	 * @param localName
+	 *            The local name of the child
+	 * @return True if the child was read, false if it is not bound and was
+	 *         left unread
+	 * @throws XMLStreamException
+	 *             If the child cannot be read
+	 */
+	boolean readFastPathElement(FastPathUnmarshaller unmarshaller,
+			String namespaceURI, String localName) throws XMLStreamException;
+
+	/**
+	 * Writes the attributes of the instance.
+	 *
+	 * @param marshaller
+	 *            The FastPathMarshaller writing the element's start tag
+	 * @throws XMLStreamException
+	 *             If the attributes cannot be written
+	 */
+	void writeFastPathAttributes(FastPathMarshaller marshaller)
+			throws XMLStreamException;
+
+	/**
+	 * Writes the content of the instance, i.e., its child elements or text.
+	 *
+	 * @param marshaller
+	 *            The FastPathMarshaller writing the element
+	 * @throws XMLStreamException
+	 *             If the content cannot be written
+	 */
+	void writeFastPathContent(FastPathMarshaller marshaller)
+			throws XMLStreamException;
+}
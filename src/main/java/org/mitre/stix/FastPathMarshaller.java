@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.OutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Marshals JAXB model objects to StAX, writing the types the build generated
+ * fast-path bindings for (see FastPathBinding) without JAXB and falling back
+ * to JAXB for everything else. The counterpart of FastPathUnmarshaller.
+ *
+ * Output goes through a NamespaceMinimizingXMLStreamWriter, so only the
+ * namespaces used are declared, on the root element where possible, with the
+ * prefixes the model declares for them.
+ *
+ * Not thread-safe.
+ */
+public class FastPathMarshaller {
+
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory
+			.newInstance();
+
+	private final FastPathRegistry registry = FastPathRegistry.getInstance();
+
+	private final NamespaceMinimizingXMLStreamWriter writer;
+
+	private Marshaller marshaller;
+
+	private int generatedPrefixes = 0;
+
+	/**
+	 * Creates a marshaller writing to an XMLStreamWriter.
+	 *
+	 * @param writer
+	 *            The XMLStreamWriter
+	 */
+	public FastPathMarshaller(XMLStreamWriter writer) {
+		if (writer instanceof NamespaceMinimizingXMLStreamWriter) {
+			this.writer = (NamespaceMinimizingXMLStreamWriter) writer;
+		} else {
+			this.writer = new NamespaceMinimizingXMLStreamWriter(writer,
+					registry.getPrefixes());
+		}
+	}
+
+	/**
+	 * Writes a document to an OutputStream as UTF-8 encoded XML that is not
+	 * formatted. The stream is not closed.
+	 *
+	 * @param value
+	 *            A JAXBElement or a JAXB model object to write as the root
+	 *            element
+	 * @param outputStream
+	 *            The stream to write to
+	 */
+	public static void marshal(Object value, OutputStream outputStream) {
+		try {
+			FastPathMarshaller marshaller = new FastPathMarshaller(
+					xmlOutputFactory.createXMLStreamWriter(outputStream,
+							"UTF-8"));
+
+			marshaller.writer.writeStartDocument("UTF-8", "1.0");
+			marshaller.marshal(value);
+			marshaller.writer.writeEndDocument();
+			marshaller.writer.flush();
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Writes an element.
+	 *
+	 * @param value
+	 *            A JAXBElement, or a JAXB model object, which is written as
+	 *            the element named by its class (see
+	 *            STIXSchema.getQualifiedName)
+	 * @throws XMLStreamException
+	 *             If the element cannot be written
+	 */
+	public void marshal(Object value) throws XMLStreamException {
+		if (value instanceof JAXBElement) {
+			JAXBElement<?> element = (JAXBElement<?>) value;
+
+			writeElement(element.getName().getNamespaceURI(), element
+					.getName().getLocalPart(), element.getDeclaredType(),
+					element.getValue());
+		} else {
+			QName name = STIXSchema.getQualifiedName(value);
+
+			writeElement(name.getNamespaceURI(), name.getLocalPart(),
+					value.getClass(), value);
+		}
+	}
+
+	/**
+	 * Writes an element, with an xsi:type if the value is a subclass of the
+	 * declared type. Called by the generated bindings.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI of the element
+	 * @param localName
+	 *            The local name of the element
+	 * @param declaredType
+	 *            The class of the element
+	 * @param value
+	 *            The value of the element
+	 * @throws XMLStreamException
+	 *             If the element cannot be written
+	 */
+	public void writeElement(String namespaceURI, String localName,
+			Class<?> declaredType, Object value) throws XMLStreamException {
+
+		Class<?> type = value.getClass();
+
+		QName typeName = null;
+
+		if (type != declaredType) {
+			typeName = registry.getTypeName(type);
+		}
+
+		if (registry.forClass(type) == null
+				|| (type != declaredType && typeName == null)) {
+			fallback(new QName(namespaceURI, localName), declaredType, value);
+			return;
+		}
+
+		FastPathBinding binding = (FastPathBinding) value;
+
+		writer.writeStartElement(namespaceURI, localName);
+
+		if (typeName != null) {
+			writeQNameAttribute(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+					"type", typeName);
+		}
+
+		binding.writeFastPathAttributes(this);
+		binding.writeFastPathContent(this);
+
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes an element holding text. Called by the generated bindings.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI of the element
+	 * @param localName
+	 *            The local name of the element
+	 * @param text
+	 *            The text
+	 * @throws XMLStreamException
+	 *             If the element cannot be written
+	 */
+	public void writeTextElement(String namespaceURI, String localName,
+			String text) throws XMLStreamException {
+		writer.writeStartElement(namespaceURI, localName);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes an element holding a qualified name. Called by the generated
+	 * bindings.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI of the element
+	 * @param localName
+	 *            The local name of the element
+	 * @param value
+	 *            The qualified name
+	 * @throws XMLStreamException
+	 *             If the element cannot be written
+	 */
+	public void writeQNameElement(String namespaceURI, String localName,
+			QName value) throws XMLStreamException {
+		writer.writeStartElement(namespaceURI, localName);
+
+		String text = printQName(value);
+
+		// the prefix is only declared for attribute values that use it
+		if (value.getNamespaceURI().length() > 0) {
+			writer.declareNamespace(
+					text.substring(0, text.indexOf(':')),
+					value.getNamespaceURI());
+		}
+
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Writes an attribute. Called by the generated bindings.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI of the attribute, "" if it has none
+	 * @param localName
+	 *            The local name of the attribute
+	 * @param value
+	 *            The value of the attribute
+	 * @throws XMLStreamException
+	 *             If no start tag is open
+	 */
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		writer.writeAttribute(namespaceURI, localName, value);
+	}
+
+	/**
+	 * Writes an attribute whose value is a qualified name (e.g., an id or
+	 * idref.) Called by the generated bindings.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI of the attribute, "" if it has none
+	 * @param localName
+	 *            The local name of the attribute
+	 * @param value
+	 *            The qualified name
+	 * @throws XMLStreamException
+	 *             If no start tag is open
+	 */
+	public void writeQNameAttribute(String namespaceURI, String localName,
+			QName value) throws XMLStreamException {
+		writer.writeAttribute(namespaceURI, localName, printQName(value));
+	}
+
+	/**
+	 * Writes text content. Called by the generated bindings.
+	 *
+	 * @param text
+	 *            The text
+	 * @throws XMLStreamException
+	 *             If the text cannot be written
+	 */
+	public void writeText(String text) throws XMLStreamException {
+		writer.writeCharacters(text);
+	}
+
+	/**
+	 * Returns the lexical form of a qualified name, offering a namespace
+	 * declaration for its prefix if the namespace is not yet bound.
+	 */
+	private String printQName(QName value) throws XMLStreamException {
+		String namespaceURI = value.getNamespaceURI();
+
+		if (namespaceURI.length() == 0) {
+			return value.getLocalPart();
+		}
+
+		String prefix = writer.getPrefix(namespaceURI);
+
+		if (prefix == null || prefix.length() == 0) {
+			prefix = choosePrefix(value);
+			writer.writeNamespace(prefix, namespaceURI);
+		}
+
+		return prefix + ":" + value.getLocalPart();
+	}
+
+	private String choosePrefix(QName value) {
+		NamespaceContext namespaceContext = writer.getNamespaceContext();
+
+		String prefix = value.getPrefix();
+
+		if (prefix.length() > 0
+				&& namespaceContext.getNamespaceURI(prefix) == null) {
+			return prefix;
+		}
+
+		prefix = registry.getPrefixes().get(value.getNamespaceURI());
+
+		if (prefix != null && namespaceContext.getNamespaceURI(prefix) == null) {
+			return prefix;
+		}
+
+		do {
+			prefix = "fp" + (++generatedPrefixes);
+		} while (namespaceContext.getNamespaceURI(prefix) != null);
+
+		return prefix;
+	}
+
+	/**
+	 * Marshals an element with JAXB.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void fallback(QName name, Class declaredType, Object value)
+			throws XMLStreamException {
+		try {
+			if (marshaller == null) {
+				marshaller = DocumentUtilities.stixJaxbContext()
+						.createMarshaller();
+				marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			}
+
+			marshaller.marshal(new JAXBElement(name, declaredType, value),
+					writer);
+		} catch (JAXBException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+}
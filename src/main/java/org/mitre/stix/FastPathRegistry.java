@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.annotation.XmlNs;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+
+/**
+ * The model classes with fast-path bindings, as listed by the build in
+ * fast-path-bindings.txt alongside this class, keyed by class and by XML
+ * type name (for xsi:type.)
+ *
+ * The list is read once; a missing list or class only means JAXB is used
+ * instead. Immutable once loaded, so shared by all threads.
+ */
+final class FastPathRegistry {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(FastPathRegistry.class.getName());
+
+	private static final String RESOURCE = "fast-path-bindings.txt";
+
+	private static class Holder {
+		static final FastPathRegistry instance = new FastPathRegistry();
+	}
+
+	private final Map<Class<?>, FastPathBinding> prototypes = new HashMap<Class<?>, FastPathBinding>();
+
+	private final Map<QName, FastPathBinding> prototypesByTypeName = new HashMap<QName, FastPathBinding>();
+
+	private final Map<Class<?>, QName> typeNames = new HashMap<Class<?>, QName>();
+
+	private final Map<String, String> prefixes = new HashMap<String, String>();
+
+	static FastPathRegistry getInstance() {
+		return Holder.instance;
+	}
+
+	private FastPathRegistry() {
+
+		prefixes.put(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "xsi");
+
+		InputStream inputStream = FastPathRegistry.class
+				.getResourceAsStream(RESOURCE);
+
+		if (inputStream == null) {
+			LOGGER.fine("No fast-path bindings were built, JAXB is used throughout");
+			return;
+		}
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					inputStream, "UTF-8"));
+
+			try {
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+
+					if (line.length() > 0 && !line.startsWith("#")) {
+						register(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read " + RESOURCE, e);
+		}
+	}
+
+	private void register(String className) {
+
+		Class<?> clazz;
+		FastPathBinding prototype;
+
+		try {
+			clazz = Class.forName(className, true,
+					FastPathRegistry.class.getClassLoader());
+
+			if (!FastPathBinding.class.isAssignableFrom(clazz)
+					|| Modifier.isAbstract(clazz.getModifiers())) {
+				return;
+			}
+
+			prototype = (FastPathBinding) clazz.newInstance();
+		} catch (ClassNotFoundException e) {
+			LOGGER.warning("No fast-path binding for " + className + ": " + e);
+			return;
+		} catch (InstantiationException e) {
+			LOGGER.warning("No fast-path binding for " + className + ": " + e);
+			return;
+		} catch (IllegalAccessException e) {
+			LOGGER.warning("No fast-path binding for " + className + ": " + e);
+			return;
+		}
+
+		prototypes.put(clazz, prototype);
+
+		XmlSchema xmlSchema = clazz.getPackage().getAnnotation(XmlSchema.class);
+
+		if (xmlSchema != null) {
+			for (XmlNs xmlNs : xmlSchema.xmlns()) {
+				if (!prefixes.containsKey(xmlNs.namespaceURI())) {
+					prefixes.put(xmlNs.namespaceURI(), xmlNs.prefix());
+				}
+			}
+		}
+
+		XmlType xmlType = clazz.getAnnotation(XmlType.class);
+
+		// anonymous types cannot be named by xsi:type
+		if (xmlType != null && xmlType.name().length() > 0) {
+			String namespaceURI = xmlType.namespace();
+
+			if ("##default".equals(namespaceURI)) {
+				namespaceURI = (xmlSchema == null) ? "" : xmlSchema
+						.namespace();
+			}
+
+			QName typeName = QNameRegistry.internTypeName(namespaceURI,
+					xmlType.name(), XMLConstants.DEFAULT_NS_PREFIX);
+
+			prototypesByTypeName.put(typeName, prototype);
+			typeNames.put(clazz, typeName);
+		}
+	}
+
+	/**
+	 * Returns the prototype of a class with a fast-path binding.
+	 *
+	 * @return The prototype or null if the class has no binding of its own
+	 */
+	FastPathBinding forClass(Class<?> clazz) {
+		return prototypes.get(clazz);
+	}
+
+	/**
+	 * Returns the prototype of the class bound to an XML type.
+	 *
+	 * @return The prototype or null if no class is bound to the type
+	 */
+	FastPathBinding forTypeName(QName typeName) {
+		return prototypesByTypeName.get(typeName);
+	}
+
+	/**
+	 * Returns the XML type name of a class with a fast-path binding.
+	 *
+	 * @return The type name or null if the type is anonymous or not bound
+	 */
+	QName getTypeName(Class<?> clazz) {
+		return typeNames.get(clazz);
+	}
+
+	/**
+	 * Returns the prefixes the model declares for namespaces (namespace URI
+	 * to prefix.)
+	 */
+	Map<String, String> getPrefixes() {
+		return Collections.unmodifiableMap(prefixes);
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.adapters.CollapsedStringAdapter;
+import javax.xml.bind.annotation.adapters.NormalizedStringAdapter;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Unmarshals JAXB model objects from StAX, reading the types the build
+ * generated fast-path bindings for (see FastPathBinding) without JAXB and
+ * falling back to JAXB for everything else.
+ *
+ * Bound types are read by code generated into the model classes themselves,
+ * which sets their fields directly. Any element whose declared type or
+ * xsi:type has no binding is unmarshalled by JAXB from the same
+ * XMLStreamReader, so a document may mix the two freely and the result is
+ * the object graph JAXB would have built.
+ *
+ * Documents are not validated against the schema (see STIXSchema.validate),
+ * and elements and attributes a bound type does not declare are skipped, as
+ * JAXB does. A value that cannot be parsed (e.g., an unknown enumeration
+ * value) raises an IllegalArgumentException.
+ *
+ * Not thread-safe.
+ */
+public class FastPathUnmarshaller {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(FastPathUnmarshaller.class.getName());
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(false);
+
+	private static final CollapsedStringAdapter collapsedStringAdapter = new CollapsedStringAdapter();
+
+	private static final NormalizedStringAdapter normalizedStringAdapter = new NormalizedStringAdapter();
+
+	private final XMLStreamReader reader;
+
+	private final FastPathRegistry registry = FastPathRegistry.getInstance();
+
+	private Unmarshaller unmarshaller;
+
+	private DatatypeFactory datatypeFactory;
+
+	// JAXB leaves the reader on the event following the end tag of the
+	// element it unmarshals, rather than on the end tag itself
+	private boolean advanced = false;
+
+	/**
+	 * Creates an unmarshaller reading from an XMLStreamReader.
+	 *
+	 * @param reader
+	 *            The XMLStreamReader
+	 */
+	public FastPathUnmarshaller(XMLStreamReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Unmarshals the root element of a document read from an InputStream.
+	 * The encoding is detected from the XML declaration. The stream is not
+	 * closed.
+	 *
+	 * @param inputStream
+	 *            The XML document
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The root element's object
+	 */
+	public static <T> T unmarshal(InputStream inputStream, Class<T> declaredType) {
+		try {
+			XMLStreamReader reader = xmlInputFactory
+					.createXMLStreamReader(inputStream);
+
+			try {
+				return new FastPathUnmarshaller(reader).unmarshal(declaredType);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns whether a class has a fast-path binding of its own.
+	 *
+	 * @param type
+	 *            A JAXB model class
+	 * @return True if instances of the class are read and written without
+	 *         JAXB
+	 */
+	public static boolean isBound(Class<?> type) {
+		return FastPathRegistry.getInstance().forClass(type) != null;
+	}
+
+	/**
+	 * Unmarshals the element the reader is positioned on (or the root element
+	 * if it is positioned at the start of the document), leaving the reader on
+	 * the event following its end tag as JAXB does.
+	 *
+	 * @param declaredType
+	 *            The class of the element; an xsi:type names a subclass
+	 * @return The element's object
+	 * @throws XMLStreamException
+	 *             If the element cannot be read
+	 */
+	public <T> T unmarshal(Class<T> declaredType) throws XMLStreamException {
+
+		if (reader.getEventType() == XMLStreamConstants.START_DOCUMENT) {
+			reader.nextTag();
+		}
+
+		T value = read(declaredType);
+
+		if (advanced) {
+			advanced = false;
+		} else if (reader.hasNext()) {
+			reader.next();
+		}
+
+		return value;
+	}
+
+	/**
+	 * Reads the element the reader is positioned on. Called by the generated
+	 * bindings for each child element.
+	 *
+	 * @param declaredType
+	 *            The class of the element; an xsi:type names a subclass
+	 * @return The element's object
+	 * @throws XMLStreamException
+	 *             If the element cannot be read
+	 */
+	public <T> T read(Class<T> declaredType) throws XMLStreamException {
+
+		FastPathBinding prototype;
+
+		String xsiType = reader.getAttributeValue(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
+
+		if (xsiType != null) {
+			prototype = registry.forTypeName(parseQName(xsiType));
+		} else {
+			prototype = registry.forClass(declaredType);
+		}
+
+		if (prototype == null
+				|| !declaredType.isInstance(prototype)
+				|| reader.getAttributeValue(
+						XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "nil") != null) {
+			return fallback(declaredType);
+		}
+
+		FastPathBinding value = prototype.newFastPathInstance();
+
+		for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+			String namespaceURI = reader.getAttributeNamespace(i);
+
+			if (namespaceURI == null) {
+				namespaceURI = "";
+			} else if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI
+					.equals(namespaceURI)) {
+				continue;
+			}
+
+			value.readFastPathAttribute(this, namespaceURI,
+					reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+
+		value.readFastPathContent(this);
+
+		return declaredType.cast(value);
+	}
+
+	/**
+	 * Reads the child elements of the element the reader is positioned on
+	 * into a binding, leaving the reader on its end tag. Called by the
+	 * generated bindings.
+	 *
+	 * @param binding
+	 *            The object being read
+	 * @throws XMLStreamException
+	 *             If a child cannot be read
+	 */
+	public void readElements(FastPathBinding binding)
+			throws XMLStreamException {
+
+		while (nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String namespaceURI = reader.getNamespaceURI();
+
+			if (!binding.readFastPathElement(this, namespaceURI == null ? ""
+					: namespaceURI, reader.getLocalName())) {
+				if (LOGGER.isLoggable(Level.FINE)) {
+					LOGGER.fine("Skipping unexpected element "
+							+ reader.getName() + " at "
+							+ reader.getLocation().getLineNumber());
+				}
+
+				skipElement();
+			}
+		}
+	}
+
+	/**
+	 * Reads the text of the element the reader is positioned on, leaving the
+	 * reader on its end tag. Called by the generated bindings.
+	 *
+	 * @return The text
+	 * @throws XMLStreamException
+	 *             If the element has child elements
+	 */
+	public String readText() throws XMLStreamException {
+		return reader.getElementText();
+	}
+
+	/**
+	 * Parses a qualified name (e.g., an id or idref value) in the scope of
+	 * the element the reader is positioned on. The namespace URI and prefix
+	 * are shared (see QNameRegistry).
+	 *
+	 * @param value
+	 *            The lexical value
+	 * @return The QName
+	 */
+	public QName parseQName(String value) {
+		String text = value.trim();
+		int colon = text.indexOf(':');
+
+		String prefix = (colon < 0) ? XMLConstants.DEFAULT_NS_PREFIX : text
+				.substring(0, colon);
+		String namespaceURI = reader.getNamespaceContext().getNamespaceURI(
+				prefix);
+
+		return QNameRegistry.intern(namespaceURI == null ? "" : namespaceURI,
+				text.substring(colon + 1), prefix);
+	}
+
+	/**
+	 * Parses a date, time or dateTime value.
+	 *
+	 * @param value
+	 *            The lexical value
+	 * @return The XMLGregorianCalendar
+	 */
+	public XMLGregorianCalendar parseCalendar(String value) {
+		if (datatypeFactory == null) {
+			try {
+				datatypeFactory = DatatypeFactory.newInstance();
+			} catch (DatatypeConfigurationException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		return datatypeFactory.newXMLGregorianCalendar(value.trim());
+	}
+
+	/**
+	 * Collapses whitespace as JAXB does for token values.
+	 *
+	 * @param value
+	 *            The lexical value
+	 * @return The collapsed value
+	 */
+	public static String collapse(String value) {
+		return collapsedStringAdapter.unmarshal(value);
+	}
+
+	/**
+	 * Normalizes whitespace as JAXB does for normalizedString values.
+	 *
+	 * @param value
+	 *            The lexical value
+	 * @return The normalized value
+	 */
+	public static String normalize(String value) {
+		return normalizedStringAdapter.unmarshal(value);
+	}
+
+	/**
+	 * Moves to the next start or end tag, allowing for JAXB having already
+	 * moved past the end tag of the previous element.
+	 */
+	private int nextTag() throws XMLStreamException {
+		if (!advanced) {
+			return reader.nextTag();
+		}
+
+		advanced = false;
+
+		int event = reader.getEventType();
+
+		while (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+					&& !reader.isWhiteSpace()) {
+				throw new XMLStreamException("Unexpected text",
+						reader.getLocation());
+			}
+
+			event = reader.next();
+		}
+
+		return event;
+	}
+
+	/**
+	 * Skips the element the reader is positioned on, leaving the reader on
+	 * its end tag.
+	 */
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+
+		while (depth > 0) {
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Unmarshals the element the reader is positioned on with JAXB.
+	 */
+	private <T> T fallback(Class<T> declaredType) throws XMLStreamException {
+		try {
+			if (unmarshaller == null) {
+				unmarshaller = DocumentUtilities
+						.createUnmarshaller(DocumentUtilities
+								.stixJaxbContext());
+				unmarshaller.setEventHandler(new ValidationEventHandler());
+			}
+
+			T value = unmarshaller.unmarshal(reader, declaredType).getValue();
+
+			advanced = true;
+
+			return value;
+		} catch (JAXBException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of validating one document of a batch (see BatchValidator.)
+ */
+public class FileValidationReport {
+
+	private final String name;
+
+	private final ValidationReport validationReport;
+
+	private final long byteCount;
+
+	private final long elapsedNanos;
+
+	FileValidationReport(String name, ValidationReport validationReport,
+			long byteCount, long elapsedNanos) {
+		this.name = name;
+		this.validationReport = validationReport;
+		this.byteCount = byteCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the name of the document, i.e., its path or archive entry name.
+	 *
+	 * @return The name of the document
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns whether the document validated against the STIX schema.
+	 *
+	 * @return True if no errors were reported
+	 */
+	public boolean isValid() {
+		return validationReport.isValid();
+	}
+
+	/**
+	 * Returns the issues reported while validating the document, including
+	 * the fatal error (e.g., a parse or read error) that stopped validation,
+	 * if any.
+	 *
+	 * @return The ValidationReport for the document
+	 */
+	public ValidationReport getValidationReport() {
+		return validationReport;
+	}
+
+	/**
+	 * Returns the number of bytes read from the document.
+	 *
+	 * @return The number of bytes read
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Returns the time spent validating the document.
+	 *
+	 * @return The elapsed time in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name + ": " + validationReport
+				+ ", " + byteCount + " bytes in "
+				+ TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms";
+	}
+}
@@ -0,0 +1,367 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+
+/**
+ * An index of the objects of STIX and CybOX model graphs by their ids, for
+ * resolving idrefs (e.g., the Indicators, Observables, TTPs and Incidents a
+ * package refers to by idref) in constant time instead of by walking the
+ * graph.
+ *
+ * Objects are added with everything they contain, so an index can be built
+ * from a whole STIXPackage, or incrementally from the constructs of a
+ * STIXPackageReader as they are read:
+ *
+ * <pre>
+ * IdrefIndex index = new IdrefIndex();
+ *
+ * while (reader.hasNext()) {
+ * 	index.add(reader.next());
+ * }
+ * </pre>
+ *
+ * Every object of a model class with a QName id attribute is indexed. Ids
+ * match regardless of their prefixes (see QName.equals). Where several
+ * objects have the same id (e.g., versions of a construct), the first one
+ * added is kept. The id and idref fields and the fields holding other model
+ * objects are found by reflection once per class, and kept in a ClassValue
+ * so that model classes and their ClassLoaders can still be unloaded.
+ *
+ * Not thread-safe.
+ */
+public class IdrefIndex {
+
+	/**
+	 * How the id, idref and child objects of a model class are found.
+	 */
+	private static final class ClassInfo {
+
+		Field id;
+
+		Field idref;
+
+		// every QName attribute, the id and idref included
+		final List<Field> names = new ArrayList<Field>();
+
+		final List<Field> children = new ArrayList<Field>();
+	}
+
+	// null for classes that are not part of a JAXB model (e.g., dates and
+	// DOM nodes), so nothing of this class is kept with theirs
+	private static final ClassValue<ClassInfo> classInfos = new ClassValue<ClassInfo>() {
+
+		@Override
+		protected ClassInfo computeValue(Class<?> clazz) {
+			return createClassInfo(clazz);
+		}
+	};
+
+	// stands in for classes that are not part of a JAXB model
+	private static final ClassInfo NOT_MODEL = new ClassInfo();
+
+	private final Map<QName, Object> objects = new HashMap<QName, Object>();
+
+	/**
+	 * Creates an empty index.
+	 */
+	public IdrefIndex() {
+	}
+
+	/**
+	 * Creates an index of an object and everything it contains.
+	 *
+	 * @param root
+	 *            A JAXB model object, e.g., a STIXPackage
+	 */
+	public IdrefIndex(Object root) {
+		add(root);
+	}
+
+	/**
+	 * Adds an object and everything it contains to the index.
+	 *
+	 * @param root
+	 *            A JAXB model object or JAXBElement, e.g., a construct read
+	 *            by a STIXPackageReader
+	 * @return The number of objects with ids that were added
+	 */
+	public int add(Object root) {
+		int added = 0;
+
+		// the graphs are trees as deep as the documents they are read from,
+		// so they are walked without recursion
+		Deque<Object> pending = new ArrayDeque<Object>();
+		push(pending, root);
+
+		while (!pending.isEmpty()) {
+			Object value = pending.pop();
+			ClassInfo info = classInfo(value.getClass());
+
+			if (info.id != null) {
+				QName id = (QName) get(info.id, value);
+
+				if (id != null && !objects.containsKey(id)) {
+					objects.put(id, value);
+					added++;
+				}
+			}
+
+			for (Field child : info.children) {
+				push(pending, get(child, value));
+			}
+		}
+
+		return added;
+	}
+
+	private static void push(Deque<Object> pending, Object value) {
+		if (value == null) {
+			return;
+		}
+
+		if (value instanceof JAXBElement) {
+			push(pending, ((JAXBElement<?>) value).getValue());
+		} else if (value instanceof Collection) {
+			for (Object element : (Collection<?>) value) {
+				push(pending, element);
+			}
+		} else if (classInfo(value.getClass()) != NOT_MODEL) {
+			pending.push(value);
+		}
+	}
+
+	/**
+	 * Returns the object with an id.
+	 *
+	 * @param id
+	 *            The id
+	 * @return The object or null if there is none in the index
+	 */
+	public Object get(QName id) {
+		return objects.get(id);
+	}
+
+	/**
+	 * Returns the object with an id, if it is of a type.
+	 *
+	 * @param id
+	 *            The id
+	 * @param type
+	 *            The expected class, e.g., IndicatorBaseType.class
+	 * @return The object or null if there is none of the type in the index
+	 */
+	public <T> T get(QName id, Class<T> type) {
+		Object value = objects.get(id);
+
+		return type.isInstance(value) ? type.cast(value) : null;
+	}
+
+	/**
+	 * Returns whether there is an object with an id.
+	 *
+	 * @param id
+	 *            The id
+	 * @return True if the index has an object with the id
+	 */
+	public boolean contains(QName id) {
+		return objects.containsKey(id);
+	}
+
+	/**
+	 * Resolves the idref of a reference, e.g., an Indicator that only has an
+	 * idref.
+	 *
+	 * @param reference
+	 *            A JAXB model object with an idref attribute
+	 * @return The object its idref refers to, or null if it has no idref or
+	 *         the index has no such object
+	 */
+	public Object resolve(Object reference) {
+		QName idref = getIdref(reference);
+
+		return (idref == null) ? null : objects.get(idref);
+	}
+
+	/**
+	 * Resolves the idref of a reference to an object of a type.
+	 *
+	 * @param reference
+	 *            A JAXB model object with an idref attribute
+	 * @param type
+	 *            The expected class, e.g., IndicatorBaseType.class
+	 * @return The object its idref refers to, or null if it has no idref or
+	 *         the index has no such object of the type
+	 */
+	public <T> T resolve(Object reference, Class<T> type) {
+		QName idref = getIdref(reference);
+
+		return (idref == null) ? null : get(idref, type);
+	}
+
+	/**
+	 * Returns an object itself if it has an id, or the object its idref
+	 * refers to otherwise, so references and definitions can be handled
+	 * alike.
+	 *
+	 * @param value
+	 *            A JAXB model object
+	 * @return The object, the object it refers to, or null if it refers to
+	 *         an object the index does not have
+	 */
+	public Object dereference(Object value) {
+		return (getIdref(value) == null) ? value : resolve(value);
+	}
+
+	/**
+	 * Returns the number of objects in the index.
+	 *
+	 * @return The number of ids
+	 */
+	public int size() {
+		return objects.size();
+	}
+
+	/**
+	 * Returns the id of a model object.
+	 *
+	 * @param value
+	 *            A JAXB model object
+	 * @return The id or null if it has none
+	 */
+	public static QName getId(Object value) {
+		Field id = classInfo(value.getClass()).id;
+
+		return (id == null) ? null : (QName) get(id, value);
+	}
+
+	/**
+	 * Returns the idref of a model object.
+	 *
+	 * @param value
+	 *            A JAXB model object
+	 * @return The idref or null if it has none
+	 */
+	public static QName getIdref(Object value) {
+		Field idref = classInfo(value.getClass()).idref;
+
+		return (idref == null) ? null : (QName) get(idref, value);
+	}
+
+	/**
+	 * Replaces the QName attributes of a model object (e.g., its id and
+	 * idref) with ones whose strings are shared through QNameRegistry. Only
+	 * the object itself is changed, not the objects it contains.
+	 *
+	 * @param value
+	 *            A JAXB model object
+	 */
+	static void internNames(Object value) {
+		for (Field field : classInfo(value.getClass()).names) {
+			QName name = (QName) get(field, value);
+			QName interned = QNameRegistry.intern(name);
+
+			if (interned != name) {
+				try {
+					field.set(value, interned);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}
+	}
+
+	private static Object get(Field field, Object value) {
+		try {
+			return field.get(value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static ClassInfo classInfo(Class<?> clazz) {
+		ClassInfo info = classInfos.get(clazz);
+
+		return (info == null) ? NOT_MODEL : info;
+	}
+
+	private static ClassInfo createClassInfo(Class<?> clazz) {
+		if (clazz.isEnum() || clazz.getAnnotation(XmlType.class) == null) {
+			return null;
+		}
+
+		ClassInfo info = new ClassInfo();
+
+		for (Class<?> c = clazz; c != null && c != Object.class; c = c
+				.getSuperclass()) {
+
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				Class<?> type = field.getType();
+
+				if (Modifier.isStatic(modifiers)
+						|| Modifier.isTransient(modifiers)) {
+					continue;
+				}
+
+				if (type == QName.class) {
+					XmlAttribute xmlAttribute = field
+							.getAnnotation(XmlAttribute.class);
+
+					if (xmlAttribute != null) {
+						field.setAccessible(true);
+						info.names.add(field);
+					}
+
+					if (xmlAttribute != null
+							&& xmlAttribute.namespace().equals("##default")) {
+						if (info.id == null
+								&& "id".equals(xmlAttribute.name())) {
+							info.id = field;
+						} else if (info.idref == null
+								&& "idref".equals(xmlAttribute.name())) {
+							info.idref = field;
+						}
+					}
+				} else if (mayHoldModelObjects(type)) {
+					field.setAccessible(true);
+					info.children.add(field);
+				}
+			}
+		}
+
+		return info;
+	}
+
+	/**
+	 * Returns whether a field of a type may hold model objects, as opposed
+	 * to values such as strings, numbers, dates and the maps of other
+	 * attributes.
+	 */
+	private static boolean mayHoldModelObjects(Class<?> type) {
+		if (type.isPrimitive() || type.isEnum() || type.isArray()
+				|| Map.class.isAssignableFrom(type)) {
+			return false;
+		}
+
+		String name = type.getName();
+
+		return !name.startsWith("java.lang.") || type == Object.class;
+	}
+}
@@ -0,0 +1,743 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+
+/**
+ * A Bloom filter of the values of a set of Indicators, telling whether an
+ * event might match any of them in a few memory reads and with a few bits
+ * per value, e.g., to ship a watchlist to sensors or to screen events before
+ * an IndicatorMatcher (or a lookup of the Indicators themselves) confirms
+ * the few that might match.
+ *
+ * The filter holds the values an IndicatorMatcher compiles: the hashes of
+ * File Objects, the IPv4 and IPv6 addresses and CIDR blocks of Address
+ * Objects, the names of Domain Name Objects and the values of URI Objects
+ * compared for equality. It never misses a value it holds, and finds values
+ * it does not hold with about the false positive probability it was built
+ * for. Addresses are looked up at each prefix length of the CIDR blocks it
+ * holds, and domain names at each of their parent domains, so more lengths
+ * and labels mean more false positives.
+ *
+ * Filters are written to files with write, and mapped back into memory with
+ * map. The file is big-endian: the magic "STXF", a version, the number of
+ * hash functions, the number of values, the number of bits, the prefix
+ * lengths of the IPv4 blocks as a set of 33 bits and of the IPv6 blocks as
+ * a set of 129 bits in three longs, then the bits as longs. Queries read
+ * the bits straight from the mapping and create no objects (looking up IPv6
+ * addresses written as text uses a buffer per thread.)
+ *
+ * Thread-safe.
+ */
+public class IndicatorBloomFilter {
+
+	static final byte[] MAGIC = { 'S', 'T', 'X', 'F' };
+
+	static final int VERSION = 1;
+
+	static final int HEADER_LENGTH = 56;
+
+	// the kinds of values, hashed first so equal bytes of different kinds
+	// are different keys
+	private static final int HASH = 1;
+	private static final int IPV4 = 2;
+	private static final int IPV6 = 3;
+	private static final int DOMAIN = 4;
+	private static final int URI = 5;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	// derives the second hash of a value from the first
+	private static final long SEED = 0x9e3779b97f4a7c15L;
+
+	private static final ThreadLocal<long[]> ipv6Buffers = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	/**
+	 * Gathers the keys of the values of a set of Indicators.
+	 */
+	private static final class Builder extends IndicatorValues {
+
+		private long[] keys = new long[64];
+
+		private int keyCount = 0;
+
+		private long ipv4Lengths = 0;
+
+		private final long[] ipv6Lengths = new long[3];
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#hash(org.mitre.stix.indicator_2.Indicator, byte[])
+		 */
+		@Override
+		void hash(Indicator indicator, byte[] hash) {
+			add(hashKey(hash, 0, hash.length));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#address(org.mitre.stix.indicator_2.Indicator, boolean, long, long, int)
+		 */
+		@Override
+		void address(Indicator indicator, boolean ipv6, long high, long low,
+				int length) {
+			if (ipv6) {
+				ipv6Lengths[length >>> 6] |= 1L << length;
+			} else {
+				ipv4Lengths |= 1L << length;
+			}
+
+			add(addressKey(ipv6, high, low, length));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#domain(org.mitre.stix.indicator_2.Indicator, java.lang.String)
+		 */
+		@Override
+		void domain(Indicator indicator, String domain) {
+			add(domainKey(domain, 0, domain.length()));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#uri(org.mitre.stix.indicator_2.Indicator, java.lang.String)
+		 */
+		@Override
+		void uri(Indicator indicator, String uri) {
+			add(uriKey(uri));
+		}
+
+		private void add(long key) {
+			if (keyCount == keys.length) {
+				keys = Arrays.copyOf(keys, keyCount * 2);
+			}
+
+			keys[keyCount++] = key;
+		}
+
+		IndicatorBloomFilter build(double falsePositiveProbability) {
+			// values held by several Indicators are counted once
+			Arrays.sort(keys, 0, keyCount);
+			int valueCount = 0;
+
+			for (int i = 0; i < keyCount; i++) {
+				if (i == 0 || keys[i] != keys[i - 1]) {
+					keys[valueCount++] = keys[i];
+				}
+			}
+
+			double ln2 = Math.log(2);
+			double bits = -Math.max(valueCount, 1)
+					* Math.log(falsePositiveProbability) / (ln2 * ln2);
+			long bitCount = Math.max(64, ((long) Math.ceil(bits) + 63) & ~63L);
+			int hashCount = (int) Math.max(1,
+					Math.round(-Math.log(falsePositiveProbability) / ln2));
+
+			if (bitCount / 8 > Integer.MAX_VALUE - HEADER_LENGTH) {
+				throw new IllegalArgumentException(valueCount
+						+ " values are too many for a false positive probability of "
+						+ falsePositiveProbability);
+			}
+
+			long[] words = new long[(int) (bitCount >>> 6)];
+
+			for (int i = 0; i < valueCount; i++) {
+				long h1 = fmix64(keys[i]);
+				long h2 = fmix64(keys[i] ^ SEED) | 1;
+
+				for (int j = 0; j < hashCount; j++) {
+					long bit = bit(h1, h2, j, bitCount);
+
+					words[(int) (bit >>> 6)] |= 1L << bit;
+				}
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH
+					+ words.length * 8);
+
+			buffer.put(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(hashCount);
+			buffer.putInt(valueCount);
+			buffer.putLong(bitCount);
+			buffer.putLong(ipv4Lengths);
+
+			for (long lengths : ipv6Lengths) {
+				buffer.putLong(lengths);
+			}
+
+			for (long word : words) {
+				buffer.putLong(word);
+			}
+
+			buffer.clear();
+
+			return new IndicatorBloomFilter(buffer, hashCount, valueCount,
+					bitCount, ipv4Lengths, ipv6Lengths.clone());
+		}
+	}
+
+	private final ByteBuffer bits;
+
+	private final int hashCount;
+
+	private final int valueCount;
+
+	private final long bitCount;
+
+	private final long ipv4Lengths;
+
+	private final long[] ipv6Lengths;
+
+	private IndicatorBloomFilter(ByteBuffer bits, int hashCount,
+			int valueCount, long bitCount, long ipv4Lengths, long[] ipv6Lengths) {
+		this.bits = bits;
+		this.hashCount = hashCount;
+		this.valueCount = valueCount;
+		this.bitCount = bitCount;
+		this.ipv4Lengths = ipv4Lengths;
+		this.ipv6Lengths = ipv6Lengths;
+	}
+
+	/**
+	 * Builds a filter of a set of Indicators.
+	 *
+	 * @param indicators
+	 *            The Indicators, e.g., of a watchlist
+	 * @param falsePositiveProbability
+	 *            The probability of finding a value the filter does not hold,
+	 *            between 0 and 1 exclusive, e.g., 0.001
+	 * @return The filter
+	 */
+	public static IndicatorBloomFilter build(
+			Collection<? extends IndicatorBaseType> indicators,
+			double falsePositiveProbability) {
+		checkProbability(falsePositiveProbability);
+
+		Builder builder = new Builder();
+		builder.add(indicators);
+
+		return builder.build(falsePositiveProbability);
+	}
+
+	/**
+	 * Builds a filter of the Indicators of a package.
+	 *
+	 * @param stixPackage
+	 *            The package
+	 * @param falsePositiveProbability
+	 *            The probability of finding a value the filter does not hold
+	 * @return The filter
+	 */
+	public static IndicatorBloomFilter build(STIXPackage stixPackage,
+			double falsePositiveProbability) {
+		if (stixPackage.getIndicators() == null) {
+			return build(Collections.<IndicatorBaseType> emptyList(),
+					falsePositiveProbability);
+		}
+
+		return build(stixPackage.getIndicators().getIndicators(),
+				falsePositiveProbability);
+	}
+
+	/**
+	 * Builds a filter of the Indicators read by a reader, so that the
+	 * package is never held in memory whole. The reader is read to its end
+	 * but not closed.
+	 *
+	 * @param reader
+	 *            The reader
+	 * @param falsePositiveProbability
+	 *            The probability of finding a value the filter does not hold
+	 * @return The filter
+	 */
+	public static IndicatorBloomFilter build(STIXPackageReader reader,
+			double falsePositiveProbability) {
+		checkProbability(falsePositiveProbability);
+
+		Builder builder = new Builder();
+
+		while (reader.hasNext()) {
+			builder.add(reader.next());
+		}
+
+		return builder.build(falsePositiveProbability);
+	}
+
+	private static void checkProbability(double falsePositiveProbability) {
+		if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+			throw new IllegalArgumentException(
+					"falsePositiveProbability must be between 0 and 1");
+		}
+	}
+
+	/**
+	 * Maps a filter written with write into memory.
+	 *
+	 * @param path
+	 *            The file
+	 * @return The filter
+	 * @throws IOException
+	 *             If the file cannot be read or does not hold a filter
+	 */
+	public static IndicatorBloomFilter map(Path path) throws IOException {
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		ByteBuffer buffer;
+
+		try {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be mapped");
+			}
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} finally {
+			// the mapping remains valid once the channel is closed
+			channel.close();
+		}
+
+		if (buffer.capacity() < HEADER_LENGTH) {
+			throw new IOException(path + " is not an Indicator filter");
+		}
+
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (buffer.get(i) != MAGIC[i]) {
+				throw new IOException(path + " is not an Indicator filter");
+			}
+		}
+
+		int version = buffer.getInt(4);
+
+		if (version != VERSION) {
+			throw new IOException("Unsupported Indicator filter version "
+					+ version);
+		}
+
+		int hashCount = buffer.getInt(8);
+		int valueCount = buffer.getInt(12);
+		long bitCount = buffer.getLong(16);
+
+		if (hashCount < 1 || bitCount < 64 || (bitCount & 63) != 0
+				|| HEADER_LENGTH + bitCount / 8 != buffer.capacity()) {
+			throw new IOException(path + " is truncated or corrupt");
+		}
+
+		long[] ipv6Lengths = { buffer.getLong(32), buffer.getLong(40),
+				buffer.getLong(48) };
+
+		return new IndicatorBloomFilter(buffer, hashCount, valueCount,
+				bitCount, buffer.getLong(24), ipv6Lengths);
+	}
+
+	/**
+	 * Writes the filter, to be mapped with map.
+	 *
+	 * @param path
+	 *            The file, replaced if it exists
+	 * @throws IOException
+	 *             If the file cannot be written
+	 */
+	public void write(Path path) throws IOException {
+		OutputStream out = Files.newOutputStream(path);
+
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the filter to a stream, which is not closed.
+	 *
+	 * @param out
+	 *            The stream
+	 * @throws IOException
+	 *             If the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		ByteBuffer source = bits.duplicate();
+		WritableByteChannel channel = Channels.newChannel(out);
+
+		source.clear();
+
+		while (source.hasRemaining()) {
+			channel.write(source);
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Returns whether an Indicator might have a hash.
+	 *
+	 * @param hash
+	 *            The hash bytes, e.g., an MD5 digest
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainHash(byte[] hash) {
+		return mightContainHash(hash, 0, hash.length);
+	}
+
+	/**
+	 * Returns whether an Indicator might have a hash held in part of an
+	 * array.
+	 *
+	 * @param hash
+	 *            An array holding the hash bytes
+	 * @param offset
+	 *            The offset of the hash in the array
+	 * @param length
+	 *            The length of the hash
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainHash(byte[] hash, int offset, int length) {
+		return mightContain(hashKey(hash, offset, length));
+	}
+
+	/**
+	 * Returns whether an Indicator might have a hash written in hexadecimal,
+	 * in either case.
+	 *
+	 * @param hex
+	 *            The hash, e.g., "4EC0027BEF4D7E1786A04D021FA8A67F"
+	 * @return False if none has it or it is not hexadecimal, true if one
+	 *         might
+	 */
+	public boolean mightContainHash(CharSequence hex) {
+		int length = hex.length();
+
+		if (length == 0 || (length & 1) != 0) {
+			return false;
+		}
+
+		long key = step(FNV_OFFSET, HASH);
+
+		for (int i = 0; i < length; i += 2) {
+			int b = ByteKeyTable.hexByte(hex, i);
+
+			if (b < 0) {
+				return false;
+			}
+
+			key = step(key, b);
+		}
+
+		return mightContain(key);
+	}
+
+	/**
+	 * Returns whether an Indicator might have an IPv4 address or a CIDR
+	 * block it is in.
+	 *
+	 * @param address
+	 *            The address, its first octet in the most significant bits
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainIPv4(int address) {
+		long high = (long) address << 32;
+
+		for (long lengths = ipv4Lengths; lengths != 0; lengths &= lengths - 1) {
+			int length = Long.numberOfTrailingZeros(lengths);
+
+			if (mightContain(addressKey(false,
+					high & IndicatorValues.prefixMask(length), 0, length))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether an Indicator might have an IPv6 address or a CIDR
+	 * block it is in.
+	 *
+	 * @param high
+	 *            The most significant 64 bits of the address
+	 * @param low
+	 *            The least significant 64 bits of the address
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainIPv6(long high, long low) {
+		for (int i = 0; i < ipv6Lengths.length; i++) {
+			for (long lengths = ipv6Lengths[i]; lengths != 0; lengths &= lengths - 1) {
+				int length = i * 64 + Long.numberOfTrailingZeros(lengths);
+
+				if (mightContain(addressKey(true,
+						high & IndicatorValues.prefixMask(length),
+						low & IndicatorValues.prefixMask(length - 64), length))) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether an Indicator might have an IPv4 or IPv6 address or a
+	 * CIDR block it is in.
+	 *
+	 * @param address
+	 *            The 4 or 16 bytes of the address in network byte order,
+	 *            e.g., from InetAddress.getAddress
+	 * @return False if none has it or the address is of another length,
+	 *         true if one might
+	 */
+	public boolean mightContainAddress(byte[] address) {
+		if (address.length == 4) {
+			return mightContainIPv4((int) getLong(address, 0, 4));
+		} else if (address.length == 16) {
+			return mightContainIPv6(getLong(address, 0, 8),
+					getLong(address, 8, 8));
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether an Indicator might have an IPv4 or IPv6 address
+	 * written as text or a CIDR block it is in.
+	 *
+	 * @param address
+	 *            The address, e.g., "10.0.0.1" or "2001:db8::1"
+	 * @return False if none has it or the address is not recognized, true if
+	 *         one might
+	 */
+	public boolean mightContainAddress(CharSequence address) {
+		int length = address.length();
+
+		for (int i = 0; i < length; i++) {
+			if (address.charAt(i) == ':') {
+				long[] buffer = ipv6Buffers.get();
+
+				return IndicatorValues.parseIPv6(address, 0, length, buffer)
+						&& mightContainIPv6(buffer[0], buffer[1]);
+			}
+		}
+
+		long ipv4 = IndicatorValues.parseIPv4(address, 0, length);
+
+		return ipv4 >= 0 && mightContainIPv4((int) ipv4);
+	}
+
+	/**
+	 * Returns whether an Indicator might have a domain a name is or is a
+	 * subdomain of.
+	 *
+	 * @param name
+	 *            The domain name, in any case, e.g., "www.example.com"
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainDomain(CharSequence name) {
+		int end = name.length();
+
+		if (end > 0 && name.charAt(end - 1) == '.') {
+			end--;
+		}
+
+		for (int start = 0; start < end;) {
+			if (mightContain(domainKey(name, start, end))) {
+				return true;
+			}
+
+			while (start < end && name.charAt(start) != '.') {
+				start++;
+			}
+
+			start++;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns whether an Indicator might have a URI.
+	 *
+	 * @param uri
+	 *            The URI, as it is written in the Indicators
+	 * @return False if none has it, true if one might
+	 */
+	public boolean mightContainURI(CharSequence uri) {
+		return mightContain(uriKey(uri));
+	}
+
+	/**
+	 * Returns the number of distinct values the filter holds.
+	 *
+	 * @return The number of hashes, addresses, domains and URIs
+	 */
+	public int getValueCount() {
+		return valueCount;
+	}
+
+	/**
+	 * Returns the size of the filter.
+	 *
+	 * @return The number of bits
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * Returns the number of bits set or tested for each value.
+	 *
+	 * @return The number of hash functions
+	 */
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Returns the probability of finding a single value (e.g., a hash or an
+	 * address at one prefix length) the filter does not hold, for the number
+	 * of values it holds.
+	 *
+	 * @return The false positive probability
+	 */
+	public double getFalsePositiveProbability() {
+		return Math.pow(1 - Math.exp(-(double) hashCount * valueCount
+				/ bitCount), hashCount);
+	}
+
+	private boolean mightContain(long key) {
+		long h1 = fmix64(key);
+		long h2 = fmix64(key ^ SEED) | 1;
+
+		for (int i = 0; i < hashCount; i++) {
+			long bit = bit(h1, h2, i, bitCount);
+			long word = bits.getLong(HEADER_LENGTH + (int) (bit >>> 6) * 8);
+
+			if ((word & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the bit of the ith hash function of a value, from two hashes
+	 * of it. The combined hashes are mixed again before they are reduced to
+	 * a bit, as otherwise the bits of small filters repeat for some values.
+	 */
+	private static long bit(long h1, long h2, int i, long bitCount) {
+		return (fmix64(h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+	}
+
+	private static long hashKey(byte[] hash, int offset, int length) {
+		long key = step(FNV_OFFSET, HASH);
+
+		for (int i = offset; i < offset + length; i++) {
+			key = step(key, hash[i]);
+		}
+
+		return key;
+	}
+
+	private static long addressKey(boolean ipv6, long high, long low,
+			int length) {
+		long key = step(step(FNV_OFFSET, ipv6 ? IPV6 : IPV4), length);
+
+		for (int shift = 56; shift >= (ipv6 ? 0 : 32); shift -= 8) {
+			key = step(key, (int) (high >>> shift));
+		}
+
+		if (ipv6) {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				key = step(key, (int) (low >>> shift));
+			}
+		}
+
+		return key;
+	}
+
+	private static long domainKey(CharSequence name, int start, int end) {
+		long key = step(FNV_OFFSET, DOMAIN);
+
+		for (int i = start; i < end; i++) {
+			char c = DomainTrie.toLowerCase(name.charAt(i));
+
+			key = step(step(key, c >>> 8), c);
+		}
+
+		return key;
+	}
+
+	private static long uriKey(CharSequence uri) {
+		long key = step(FNV_OFFSET, URI);
+
+		for (int i = 0; i < uri.length(); i++) {
+			char c = uri.charAt(i);
+
+			key = step(step(key, c >>> 8), c);
+		}
+
+		return key;
+	}
+
+	/**
+	 * Adds a byte to an FNV-1a hash.
+	 */
+	private static long step(long hash, int b) {
+		return (hash ^ (b & 0xff)) * FNV_PRIME;
+	}
+
+	/**
+	 * Spreads the bits of a hash over all of it (the finalizer of
+	 * MurmurHash3), so the bits of the filter are picked evenly.
+	 */
+	private static long fmix64(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+
+	private static long getLong(byte[] bytes, int offset, int length) {
+		long value = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+
+		return value;
+	}
+}
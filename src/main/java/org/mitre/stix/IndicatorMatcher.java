@@ -0,0 +1,563 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+import org.mitre.stix.stix_1.STIXPackage;
+
+/**
+ * Matches events against a set of Indicators compiled into lookup tables,
+ * instead of walking Indicator.getObservable().getObject().getProperties()
+ * for every event. The values the Indicators' Observables hold are compiled
+ * into:
+ *
+ * <ul>
+ * <li>a hash table of the bytes of File Object hashes (e.g., as built in the
+ * IndicatorHash example),</li>
+ * <li>binary radix tries of the IPv4 and IPv6 addresses and CIDR blocks of
+ * Address Objects, matching every block an address is in,</li>
+ * <li>a trie of the names of Domain Name Objects by label, matching every
+ * domain a name is or is a subdomain of, and</li>
+ * <li>a hash table of the values of URI Objects.</li>
+ * </ul>
+ *
+ * Only values compared for equality are compiled: properties with no
+ * condition or the Equals condition, including lists of values (e.g.,
+ * "10.0.0.0##comma##10.0.0.1") applied to ANY of them. The Observables of OR
+ * compositions are compiled, those of AND compositions are not, and neither
+ * are Indicators that only refer to others by idref.
+ *
+ * A match returns the Indicators with the value matched, in the order they
+ * were compiled, as a list built when they were compiled, so matching
+ * creates no objects (matching IPv6 addresses written as text uses a buffer
+ * per thread.) The list of each block or domain is compiled with the
+ * Indicators of the blocks or domains it is in ahead of its own, widest
+ * first, so the tries only need to find the longest of them.
+ *
+ * Thread-safe. Matches read the tables compiled last, so they run
+ * concurrently with a rebuild, which replaces the tables atomically once it
+ * has compiled them.
+ */
+public class IndicatorMatcher {
+
+	private static final List<Indicator> NO_MATCH = Collections.emptyList();
+
+	private static final ThreadLocal<long[]> ipv6Buffers = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[2];
+		}
+	};
+
+	/**
+	 * The lookup tables compiled from a set of Indicators.
+	 */
+	private static final class Tables {
+
+		final ByteKeyTable<List<Indicator>> hashes;
+
+		final AddressTrie<List<Indicator>> ipv4Addresses;
+
+		final AddressTrie<List<Indicator>> ipv6Addresses;
+
+		final DomainTrie<List<Indicator>> domains;
+
+		final StringKeyTable<List<Indicator>> uris;
+
+		final int indicatorCount;
+
+		final int valueCount;
+
+		Tables(Compiler compiler) {
+			this.hashes = new ByteKeyTable<List<Indicator>>(compiler.hashes);
+
+			this.ipv4Addresses = new AddressTrie<List<Indicator>>();
+			this.ipv6Addresses = new AddressTrie<List<Indicator>>();
+
+			for (Map.Entry<AddressPrefix, List<Indicator>> entry : compiler
+					.nestedAddresses().entrySet()) {
+				AddressPrefix prefix = entry.getKey();
+
+				(prefix.ipv6 ? ipv6Addresses : ipv4Addresses).put(
+						prefix.high, prefix.low, prefix.length,
+						entry.getValue());
+			}
+
+			this.domains = new DomainTrie<List<Indicator>>(
+					compiler.nestedDomains());
+			this.uris = new StringKeyTable<List<Indicator>>(compiler.uris);
+
+			this.indicatorCount = compiler.getIndicatorCount();
+			this.valueCount = compiler.hashes.size()
+					+ compiler.addresses.size() + compiler.domains.size()
+					+ compiler.uris.size();
+		}
+	}
+
+	/**
+	 * An IPv4 or IPv6 address or CIDR block.
+	 */
+	private static final class AddressPrefix {
+
+		final boolean ipv6;
+
+		final long high;
+
+		final long low;
+
+		final int length;
+
+		AddressPrefix(boolean ipv6, long high, long low, int length) {
+			this.ipv6 = ipv6;
+			this.high = high;
+			this.low = low;
+			this.length = length;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			int hash = (int) (high ^ (high >>> 32));
+			hash = 31 * hash + (int) (low ^ (low >>> 32));
+
+			return 31 * hash + (ipv6 ? length + 256 : length);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof AddressPrefix)) {
+				return false;
+			}
+
+			AddressPrefix other = (AddressPrefix) obj;
+
+			return ipv6 == other.ipv6 && high == other.high
+					&& low == other.low && length == other.length;
+		}
+	}
+
+	/**
+	 * Gathers the values of a set of Indicators for the Tables.
+	 */
+	private static final class Compiler extends IndicatorValues {
+
+		final Map<ByteBuffer, List<Indicator>> hashes = new HashMap<ByteBuffer, List<Indicator>>();
+
+		final Map<AddressPrefix, List<Indicator>> addresses = new HashMap<AddressPrefix, List<Indicator>>();
+
+		final Map<String, List<Indicator>> domains = new HashMap<String, List<Indicator>>();
+
+		final Map<String, List<Indicator>> uris = new HashMap<String, List<Indicator>>();
+
+		// the lists of Indicators are built up here and handed out as
+		// unmodifiable views
+		private final Map<List<Indicator>, List<Indicator>> built = new IdentityHashMap<List<Indicator>, List<Indicator>>();
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#hash(org.mitre.stix.indicator_2.Indicator, byte[])
+		 */
+		@Override
+		void hash(Indicator indicator, byte[] hash) {
+			add(hashes, ByteBuffer.wrap(hash), indicator);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#address(org.mitre.stix.indicator_2.Indicator, boolean, long, long, int)
+		 */
+		@Override
+		void address(Indicator indicator, boolean ipv6, long high, long low,
+				int length) {
+			add(addresses, new AddressPrefix(ipv6, high, low, length),
+					indicator);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#domain(org.mitre.stix.indicator_2.Indicator, java.lang.String)
+		 */
+		@Override
+		void domain(Indicator indicator, String domain) {
+			add(domains, domain, indicator);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.mitre.stix.IndicatorValues#uri(org.mitre.stix.indicator_2.Indicator, java.lang.String)
+		 */
+		@Override
+		void uri(Indicator indicator, String uri) {
+			add(uris, uri, indicator);
+		}
+
+		private <K> void add(Map<K, List<Indicator>> values, K key,
+				Indicator indicator) {
+			List<Indicator> indicators = values.get(key);
+
+			if (indicators == null) {
+				List<Indicator> list = new ArrayList<Indicator>(1);
+
+				indicators = Collections.unmodifiableList(list);
+				built.put(indicators, list);
+				values.put(key, indicators);
+			}
+
+			// an Indicator with a value more than once is listed once
+			List<Indicator> list = built.get(indicators);
+
+			if (list.isEmpty() || list.get(list.size() - 1) != indicator) {
+				list.add(indicator);
+			}
+		}
+
+		/**
+		 * Returns the Indicators of each address or block, following those
+		 * of the blocks it is in.
+		 */
+		Map<AddressPrefix, List<Indicator>> nestedAddresses() {
+			Map<AddressPrefix, List<Indicator>> nested = new HashMap<AddressPrefix, List<Indicator>>(
+					addresses.size() * 2);
+			List<List<Indicator>> lists = new ArrayList<List<Indicator>>();
+
+			for (Map.Entry<AddressPrefix, List<Indicator>> entry : addresses
+					.entrySet()) {
+				AddressPrefix prefix = entry.getKey();
+
+				lists.clear();
+
+				for (int length = 0; length < prefix.length; length++) {
+					List<Indicator> indicators = addresses.get(new AddressPrefix(
+							prefix.ipv6, prefix.high & prefixMask(length),
+							prefix.low & prefixMask(length - 64), length));
+
+					if (indicators != null) {
+						lists.add(indicators);
+					}
+				}
+
+				lists.add(entry.getValue());
+				nested.put(prefix, concat(lists));
+			}
+
+			return nested;
+		}
+
+		/**
+		 * Returns the Indicators of each domain, following those of the
+		 * domains it is a subdomain of.
+		 */
+		Map<String, List<Indicator>> nestedDomains() {
+			Map<String, List<Indicator>> nested = new HashMap<String, List<Indicator>>(
+					domains.size() * 2);
+			List<List<Indicator>> lists = new ArrayList<List<Indicator>>();
+
+			for (Map.Entry<String, List<Indicator>> entry : domains.entrySet()) {
+				String domain = entry.getKey();
+
+				lists.clear();
+
+				// the parent domains, last label first
+				for (int dot = domain.lastIndexOf('.'); dot > 0; dot = domain
+						.lastIndexOf('.', dot - 1)) {
+					List<Indicator> indicators = domains.get(domain
+							.substring(dot + 1));
+
+					if (indicators != null) {
+						lists.add(indicators);
+					}
+				}
+
+				lists.add(entry.getValue());
+				nested.put(domain, concat(lists));
+			}
+
+			return nested;
+		}
+
+		/**
+		 * Returns the Indicators of lists in order, each once.
+		 */
+		private static List<Indicator> concat(List<List<Indicator>> lists) {
+			if (lists.size() == 1) {
+				return lists.get(0);
+			}
+
+			List<Indicator> list = new ArrayList<Indicator>();
+			Set<Indicator> listed = Collections
+					.newSetFromMap(new IdentityHashMap<Indicator, Boolean>());
+
+			for (List<Indicator> indicators : lists) {
+				for (Indicator indicator : indicators) {
+					if (listed.add(indicator)) {
+						list.add(indicator);
+					}
+				}
+			}
+
+			return Collections.unmodifiableList(list);
+		}
+	}
+
+	private volatile Tables tables;
+
+	/**
+	 * Creates a matcher of no Indicators.
+	 */
+	public IndicatorMatcher() {
+		this(Collections.<IndicatorBaseType> emptyList());
+	}
+
+	/**
+	 * Creates a matcher of a set of Indicators.
+	 *
+	 * @param indicators
+	 *            The Indicators, e.g., of a watchlist
+	 */
+	public IndicatorMatcher(Collection<? extends IndicatorBaseType> indicators) {
+		rebuild(indicators);
+	}
+
+	/**
+	 * Creates a matcher of the Indicators of a package.
+	 *
+	 * @param stixPackage
+	 *            The package, e.g., a watchlist
+	 */
+	public IndicatorMatcher(STIXPackage stixPackage) {
+		rebuild(stixPackage);
+	}
+
+	/**
+	 * Compiles a set of Indicators and replaces those matched with them.
+	 * Matches made meanwhile are made against the Indicators compiled
+	 * before.
+	 *
+	 * @param indicators
+	 *            The Indicators
+	 * @return The number of values that were not compiled as they were not
+	 *         recognized (e.g., an address that is not IPv4 or IPv6)
+	 */
+	public int rebuild(Collection<? extends IndicatorBaseType> indicators) {
+		Compiler compiler = new Compiler();
+		compiler.add(indicators);
+
+		tables = new Tables(compiler);
+
+		return compiler.getSkippedCount();
+	}
+
+	/**
+	 * Compiles the Indicators of a package and replaces those matched with
+	 * them.
+	 *
+	 * @param stixPackage
+	 *            The package
+	 * @return The number of values that were not compiled as they were not
+	 *         recognized
+	 */
+	public int rebuild(STIXPackage stixPackage) {
+		if (stixPackage.getIndicators() == null) {
+			return rebuild(Collections.<IndicatorBaseType> emptyList());
+		}
+
+		return rebuild(stixPackage.getIndicators().getIndicators());
+	}
+
+	/**
+	 * Returns the Indicators with a hash.
+	 *
+	 * @param hash
+	 *            The hash bytes, e.g., an MD5 digest
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchHash(byte[] hash) {
+		return matchHash(hash, 0, hash.length);
+	}
+
+	/**
+	 * Returns the Indicators with a hash held in part of an array.
+	 *
+	 * @param hash
+	 *            An array holding the hash bytes
+	 * @param offset
+	 *            The offset of the hash in the array
+	 * @param length
+	 *            The length of the hash
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchHash(byte[] hash, int offset, int length) {
+		return orNoMatch(tables.hashes.get(hash, offset, length));
+	}
+
+	/**
+	 * Returns the Indicators with a hash written in hexadecimal, in either
+	 * case.
+	 *
+	 * @param hex
+	 *            The hash, e.g., "4EC0027BEF4D7E1786A04D021FA8A67F"
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchHash(CharSequence hex) {
+		return orNoMatch(tables.hashes.getHex(hex));
+	}
+
+	/**
+	 * Returns the Indicators with the CIDR blocks an IPv4 address is in, or
+	 * with the address itself, those of the widest block first.
+	 *
+	 * @param address
+	 *            The address, its first octet in the most significant bits
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchIPv4(int address) {
+		return orNoMatch(tables.ipv4Addresses.match((long) address << 32, 0,
+				32));
+	}
+
+	/**
+	 * Returns the Indicators with the CIDR blocks an IPv6 address is in, or
+	 * with the address itself, those of the widest block first.
+	 *
+	 * @param high
+	 *            The most significant 64 bits of the address
+	 * @param low
+	 *            The least significant 64 bits of the address
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchIPv6(long high, long low) {
+		return orNoMatch(tables.ipv6Addresses.match(high, low, 128));
+	}
+
+	/**
+	 * Returns the Indicators with the CIDR blocks an IPv4 or IPv6 address is
+	 * in, or with the address itself, those of the widest block first.
+	 *
+	 * @param address
+	 *            The 4 or 16 bytes of the address in network byte order,
+	 *            e.g., from InetAddress.getAddress
+	 * @return The Indicators, or an empty list if there are none or the
+	 *         address is of another length
+	 */
+	public List<Indicator> matchAddress(byte[] address) {
+		if (address.length == 4) {
+			return matchIPv4((int) getLong(address, 0, 4));
+		} else if (address.length == 16) {
+			return matchIPv6(getLong(address, 0, 8), getLong(address, 8, 8));
+		}
+
+		return NO_MATCH;
+	}
+
+	/**
+	 * Returns the Indicators with the CIDR blocks an IPv4 or IPv6 address
+	 * written as text is in, or with the address itself, those of the widest
+	 * block first.
+	 *
+	 * @param address
+	 *            The address, e.g., "10.0.0.1" or "2001:db8::1" (IPv6
+	 *            addresses ending in IPv4 dotted quads are not recognized)
+	 * @return The Indicators, or an empty list if there are none or the
+	 *         address is not recognized
+	 */
+	public List<Indicator> matchAddress(CharSequence address) {
+		int length = address.length();
+
+		for (int i = 0; i < length; i++) {
+			if (address.charAt(i) == ':') {
+				long[] buffer = ipv6Buffers.get();
+
+				if (!IndicatorValues.parseIPv6(address, 0, length, buffer)) {
+					return NO_MATCH;
+				}
+
+				return matchIPv6(buffer[0], buffer[1]);
+			}
+		}
+
+		long ipv4 = IndicatorValues.parseIPv4(address, 0, length);
+
+		return (ipv4 < 0) ? NO_MATCH : matchIPv4((int) ipv4);
+	}
+
+	/**
+	 * Returns the Indicators with the domains a name is or is a subdomain
+	 * of, those of the parent domains first.
+	 *
+	 * @param name
+	 *            The domain name, in any case, e.g., "www.example.com"
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchDomain(CharSequence name) {
+		return orNoMatch(tables.domains.match(name));
+	}
+
+	/**
+	 * Returns the Indicators with a URI.
+	 *
+	 * @param uri
+	 *            The URI, as it is written in the Indicators
+	 * @return The Indicators, or an empty list if there are none
+	 */
+	public List<Indicator> matchURI(CharSequence uri) {
+		return orNoMatch(tables.uris.get(uri));
+	}
+
+	/**
+	 * Returns the number of Indicators compiled.
+	 *
+	 * @return The number of Indicators with Observables
+	 */
+	public int getIndicatorCount() {
+		return tables.indicatorCount;
+	}
+
+	/**
+	 * Returns the number of distinct values compiled.
+	 *
+	 * @return The number of hashes, addresses, domains and URIs
+	 */
+	public int getValueCount() {
+		return tables.valueCount;
+	}
+
+	private static List<Indicator> orNoMatch(List<Indicator> indicators) {
+		return (indicators == null) ? NO_MATCH : indicators;
+	}
+
+	private static long getLong(byte[] bytes, int offset, int length) {
+		long value = 0;
+
+		for (int i = offset; i < offset + length; i++) {
+			value = (value << 8) | (bytes[i] & 0xff);
+		}
+
+		return value;
+	}
+}
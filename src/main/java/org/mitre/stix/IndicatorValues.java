@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBElement;
+
+import org.mitre.cybox.common_2.BaseObjectPropertyType;
+import org.mitre.cybox.common_2.ConditionApplicationEnum;
+import org.mitre.cybox.common_2.ConditionTypeEnum;
+import org.mitre.cybox.common_2.HashListType;
+import org.mitre.cybox.common_2.HashType;
+import org.mitre.cybox.common_2.ObjectPropertiesType;
+import org.mitre.cybox.cybox_2.ObjectType;
+import org.mitre.cybox.cybox_2.ObservableCompositionType;
+import org.mitre.cybox.cybox_2.ObservableType;
+import org.mitre.cybox.cybox_2.OperatorTypeEnum;
+import org.mitre.cybox.objects.AddressObjectType;
+import org.mitre.cybox.objects.DomainNameObjectType;
+import org.mitre.cybox.objects.FileObjectType;
+import org.mitre.cybox.objects.URIObjectType;
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+
+/**
+ * Pulls the values an event may equal out of the Observables of
+ * Indicators, for IndicatorMatcher and IndicatorBloomFilter: the hashes of
+ * File Objects, the IPv4 and IPv6 addresses and CIDR blocks of Address
+ * Objects, the names of Domain Name Objects and the values of URI Objects.
+ *
+ * Only values compared for equality are pulled: properties with no
+ * condition or the Equals condition, including lists of values applied to
+ * ANY of them. The Observables of OR compositions are looked into, those of
+ * AND compositions are not, and neither are Indicators that only refer to
+ * others by idref. Values that are not recognized (e.g., an address that is
+ * not IPv4 or IPv6) are counted and skipped.
+ *
+ * Not thread-safe.
+ */
+abstract class IndicatorValues {
+
+	private static final Logger LOGGER = Logger.getLogger(IndicatorValues.class
+			.getName());
+
+	private int indicatorCount = 0;
+
+	private int skippedCount = 0;
+
+	/**
+	 * Receives the bytes of a hash.
+	 */
+	abstract void hash(Indicator indicator, byte[] hash);
+
+	/**
+	 * Receives an address or CIDR block, with the bits past its prefix
+	 * cleared. IPv4 addresses are in the most significant 32 bits of high.
+	 */
+	abstract void address(Indicator indicator, boolean ipv6, long high,
+			long low, int length);
+
+	/**
+	 * Receives a domain name, in lower case without a trailing dot.
+	 */
+	abstract void domain(Indicator indicator, String domain);
+
+	/**
+	 * Receives a URI.
+	 */
+	abstract void uri(Indicator indicator, String uri);
+
+	/**
+	 * Pulls the values out of a set of Indicators.
+	 */
+	void add(Collection<? extends IndicatorBaseType> indicators) {
+		for (IndicatorBaseType indicator : indicators) {
+			add(indicator);
+		}
+	}
+
+	/**
+	 * Pulls the values out of an Indicator, or a construct of another kind
+	 * (e.g., read by a STIXPackageReader), which has none.
+	 */
+	void add(Object construct) {
+		if (construct instanceof JAXBElement) {
+			construct = ((JAXBElement<?>) construct).getValue();
+		}
+
+		if (construct instanceof Indicator
+				&& ((Indicator) construct).getObservable() != null) {
+			indicatorCount++;
+			add((Indicator) construct, ((Indicator) construct).getObservable());
+		}
+	}
+
+	/**
+	 * Returns the number of Indicators with Observables looked into.
+	 */
+	int getIndicatorCount() {
+		return indicatorCount;
+	}
+
+	/**
+	 * Returns the number of values that were not recognized.
+	 */
+	int getSkippedCount() {
+		return skippedCount;
+	}
+
+	private void add(Indicator indicator, ObservableType observable) {
+		ObjectType obj = observable.getObject();
+
+		if (obj != null && obj.getProperties() != null) {
+			add(indicator, obj.getProperties());
+		}
+
+		ObservableCompositionType composition = observable
+				.getObservableComposition();
+
+		if (composition != null
+				&& composition.getOperator() == OperatorTypeEnum.OR) {
+			for (ObservableType child : composition.getObservables()) {
+				add(indicator, child);
+			}
+		}
+	}
+
+	private void add(Indicator indicator, ObjectPropertiesType properties) {
+		if (properties instanceof FileObjectType) {
+			HashListType hashList = ((FileObjectType) properties).getHashes();
+
+			if (hashList != null) {
+				for (HashType hash : hashList.getHashes()) {
+					for (String value : values(hash.getSimpleHashValue())) {
+						addHash(indicator, value);
+					}
+				}
+			}
+		} else if (properties instanceof AddressObjectType) {
+			for (String value : values(((AddressObjectType) properties)
+					.getAddressValue())) {
+				addAddress(indicator, value);
+			}
+		} else if (properties instanceof DomainNameObjectType) {
+			for (String value : values(((DomainNameObjectType) properties)
+					.getValue())) {
+				addDomain(indicator, value);
+			}
+		} else if (properties instanceof URIObjectType) {
+			for (String value : values(((URIObjectType) properties)
+					.getValue())) {
+				uri(indicator, value);
+			}
+		}
+	}
+
+	/**
+	 * Returns the values of a property compared for equality.
+	 */
+	private static List<String> values(BaseObjectPropertyType property) {
+		if (property == null
+				|| (property.getCondition() != null && property.getCondition() != ConditionTypeEnum.EQUALS)) {
+			return Collections.emptyList();
+		}
+
+		List<String> values = PropertyPaths.values(property);
+
+		if (values.size() > 1 && property.getApplyCondition() != null
+				&& property.getApplyCondition() != ConditionApplicationEnum.ANY) {
+			return Collections.emptyList();
+		}
+
+		return values;
+	}
+
+	private void addHash(Indicator indicator, String hex) {
+		if (hex.length() == 0 || (hex.length() & 1) != 0) {
+			skip(hex);
+			return;
+		}
+
+		byte[] bytes = new byte[hex.length() / 2];
+
+		for (int i = 0; i < bytes.length; i++) {
+			int b = ByteKeyTable.hexByte(hex, i * 2);
+
+			if (b < 0) {
+				skip(hex);
+				return;
+			}
+
+			bytes[i] = (byte) b;
+		}
+
+		hash(indicator, bytes);
+	}
+
+	private void addAddress(Indicator indicator, String text) {
+		int slash = text.indexOf('/');
+		int end = (slash < 0) ? text.length() : slash;
+		boolean ipv6 = text.indexOf(':') >= 0;
+		int length = ipv6 ? 128 : 32;
+
+		if (slash >= 0) {
+			try {
+				length = Integer.parseInt(text.substring(slash + 1));
+			} catch (NumberFormatException e) {
+				length = -1;
+			}
+		}
+
+		if (length < 0 || length > (ipv6 ? 128 : 32)) {
+			skip(text);
+			return;
+		}
+
+		if (ipv6) {
+			long[] address = new long[2];
+
+			if (!parseIPv6(text, 0, end, address)) {
+				skip(text);
+				return;
+			}
+
+			address(indicator, true, address[0] & prefixMask(length),
+					address[1] & prefixMask(length - 64), length);
+		} else {
+			long address = parseIPv4(text, 0, end);
+
+			if (address < 0) {
+				skip(text);
+				return;
+			}
+
+			address(indicator, false, (address << 32) & prefixMask(length),
+					0, length);
+		}
+	}
+
+	private void addDomain(Indicator indicator, String name) {
+		StringBuilder domain = new StringBuilder(name.length());
+
+		for (int i = 0; i < name.length(); i++) {
+			domain.append(DomainTrie.toLowerCase(name.charAt(i)));
+		}
+
+		if (domain.length() > 0 && domain.charAt(domain.length() - 1) == '.') {
+			domain.setLength(domain.length() - 1);
+		}
+
+		if (domain.length() == 0) {
+			skip(name);
+			return;
+		}
+
+		domain(indicator, domain.toString());
+	}
+
+	private void skip(String value) {
+		skippedCount++;
+		LOGGER.fine("Skipping unrecognized value " + value);
+	}
+
+	/**
+	 * Returns the mask of the first bits of a long that are part of a
+	 * prefix of a length, which may be outside of 0 to 64.
+	 */
+	static long prefixMask(int length) {
+		if (length <= 0) {
+			return 0;
+		}
+
+		return (length >= 64) ? -1L : -1L << (64 - length);
+	}
+
+	/**
+	 * Parses an IPv4 dotted quad.
+	 *
+	 * @return The 32 bits of the address, or -1 if it is not one
+	 */
+	static long parseIPv4(CharSequence text, int start, int end) {
+		long address = 0;
+		int octets = 0;
+
+		for (int i = start;;) {
+			int octet = 0;
+			int digits = 0;
+
+			while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+				octet = octet * 10 + (text.charAt(i++) - '0');
+
+				if (++digits > 3) {
+					return -1;
+				}
+			}
+
+			if (digits == 0 || octet > 255) {
+				return -1;
+			}
+
+			address = (address << 8) | octet;
+			octets++;
+
+			if (i == end) {
+				break;
+			}
+
+			if (octets == 4 || text.charAt(i) != '.') {
+				return -1;
+			}
+
+			i++;
+		}
+
+		return (octets == 4) ? address : -1;
+	}
+
+	/**
+	 * Parses an IPv6 address of hexadecimal groups, which may have one "::"
+	 * standing for groups of zeros.
+	 *
+	 * @param address
+	 *            Receives the most and least significant 64 bits
+	 * @return Whether it is an IPv6 address
+	 */
+	static boolean parseIPv6(CharSequence text, int start, int end,
+			long[] address) {
+		// the number of groups written, to know how many "::" stands for
+		int groups = 0;
+
+		for (int i = start; i < end; i++) {
+			if (text.charAt(i) != ':'
+					&& (i == start || text.charAt(i - 1) == ':')) {
+				groups++;
+			}
+		}
+
+		if (groups > 8) {
+			return false;
+		}
+
+		long high = 0;
+		long low = 0;
+		int group = 0;
+		boolean elided = false;
+		int i = start;
+
+		if (end - start >= 2 && text.charAt(start) == ':'
+				&& text.charAt(start + 1) == ':') {
+			elided = true;
+			group = 8 - groups;
+			i += 2;
+		}
+
+		while (i < end) {
+			int value = 0;
+			int digits = 0;
+
+			while (i < end && digits <= 4) {
+				int digit = ByteKeyTable.hexDigit(text.charAt(i));
+
+				if (digit < 0) {
+					break;
+				}
+
+				value = (value << 4) | digit;
+				digits++;
+				i++;
+			}
+
+			if (digits == 0 || digits > 4 || group > 7) {
+				return false;
+			}
+
+			if (group < 4) {
+				high |= (long) value << (48 - group * 16);
+			} else {
+				low |= (long) value << (48 - (group - 4) * 16);
+			}
+
+			group++;
+
+			if (i == end) {
+				break;
+			}
+
+			if (text.charAt(i++) != ':' || i == end) {
+				return false;
+			}
+
+			if (text.charAt(i) == ':') {
+				if (elided) {
+					return false;
+				}
+
+				elided = true;
+				group += 8 - groups;
+				i++;
+			}
+		}
+
+		if (group != 8) {
+			return false;
+		}
+
+		address[0] = high;
+		address[1] = low;
+
+		return true;
+	}
+}
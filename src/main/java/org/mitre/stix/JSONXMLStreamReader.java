@@ -0,0 +1,1207 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An XMLStreamReader reading the JSON form written by JSONXMLStreamWriter
+ * (see STIXJSONCodec), so that FastPathUnmarshaller and JAXB can unmarshal
+ * it as they would XML.
+ *
+ * The JSON is read as the events are asked for. An element's "@xmlns" and
+ * attribute members must therefore come before its other members, as they
+ * do in the JSON written by JSONXMLStreamWriter. An element's value may be a
+ * single value rather than an array, and numbers and booleans are read as
+ * text.
+ *
+ * Not thread-safe.
+ */
+class JSONXMLStreamReader implements XMLStreamReader {
+
+	private static final String[] NONE = new String[0];
+
+	/**
+	 * The JSON tokens.
+	 */
+	private static enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, VALUE, NULL, END
+	}
+
+	/**
+	 * An element being read.
+	 */
+	private static class Frame {
+
+		final String prefix;
+		final String namespaceURI;
+		final String localName;
+
+		// prefix and namespace URI pairs
+		final String[] namespaces;
+
+		// the text of an element given as a string, to be returned next
+		String text;
+
+		// whether the element has no more content
+		boolean closed = false;
+
+		// a member name read while looking for the end of the attributes
+		String member;
+
+		// the name of the array of child elements being read
+		String array;
+
+		Frame(String prefix, String namespaceURI, String localName,
+				String[] namespaces) {
+			this.prefix = prefix;
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.namespaces = namespaces;
+		}
+	}
+
+	private final Reader in;
+
+	private final char[] buffer = new char[8192];
+
+	private int position = 0;
+
+	private int limit = 0;
+
+	private int line = 1;
+
+	private int column = 0;
+
+	private int offset = 0;
+
+	// the value of the last NAME or VALUE token
+	private String tokenValue;
+
+	// whether a member or an array element is expected to be preceded by a
+	// comma
+	private boolean comma = false;
+
+	private final LinkedList<Frame> frames = new LinkedList<Frame>();
+
+	private int eventType = XMLStreamConstants.START_DOCUMENT;
+
+	private Frame element;
+
+	// prefix, namespace URI, local name and value of each attribute of the
+	// current start tag
+	private String[] attributes = NONE;
+
+	private String text;
+
+	private char[] textCharacters;
+
+	private final Location location = new Location() {
+
+		public int getLineNumber() {
+			return line;
+		}
+
+		public int getColumnNumber() {
+			return column;
+		}
+
+		public int getCharacterOffset() {
+			return offset;
+		}
+
+		public String getPublicId() {
+			return null;
+		}
+
+		public String getSystemId() {
+			return null;
+		}
+	};
+
+	private final NamespaceContext namespaceContext = new NamespaceContext() {
+
+		public String getNamespaceURI(String prefix) {
+			String namespaceURI = JSONXMLStreamReader.this
+					.getNamespaceURI(prefix);
+
+			return (namespaceURI == null) ? XMLConstants.NULL_NS_URI
+					: namespaceURI;
+		}
+
+		public String getPrefix(String namespaceURI) {
+			for (Frame open : frames) {
+				for (int i = 0; i < open.namespaces.length; i += 2) {
+					String prefix = open.namespaces[i];
+
+					if (open.namespaces[i + 1].equals(namespaceURI)
+							&& namespaceURI.equals(JSONXMLStreamReader.this
+									.getNamespaceURI(prefix))) {
+						return prefix;
+					}
+				}
+			}
+
+			return XMLConstants.XML_NS_URI.equals(namespaceURI) ? XMLConstants.XML_NS_PREFIX
+					: null;
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			List<String> prefixes = new ArrayList<String>(1);
+			String prefix = getPrefix(namespaceURI);
+
+			if (prefix != null) {
+				prefixes.add(prefix);
+			}
+
+			return prefixes.iterator();
+		}
+	};
+
+	/**
+	 * Creates a reader.
+	 *
+	 * @param in
+	 *            The Reader to read from, which is not closed by close()
+	 */
+	JSONXMLStreamReader(Reader in) {
+		this.in = in;
+	}
+
+	private int peekChar() throws XMLStreamException {
+		if (position == limit) {
+			try {
+				limit = in.read(buffer, 0, buffer.length);
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+
+			position = 0;
+
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+
+		return buffer[position];
+	}
+
+	private int readChar() throws XMLStreamException {
+		int c = peekChar();
+
+		if (c >= 0) {
+			position++;
+			offset++;
+
+			if (c == '\n') {
+				line++;
+				column = 0;
+			} else {
+				column++;
+			}
+		}
+
+		return c;
+	}
+
+	private XMLStreamException syntaxError(String message) {
+		return new XMLStreamException(message, location);
+	}
+
+	private int skipWhiteSpace() throws XMLStreamException {
+		int c = peekChar();
+
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			readChar();
+			c = peekChar();
+		}
+
+		return c;
+	}
+
+	/**
+	 * Reads the next token, checking the commas and colons between them.
+	 */
+	private Token nextToken() throws XMLStreamException {
+		int c = skipWhiteSpace();
+
+		if (c == '}' || c == ']') {
+			readChar();
+			comma = true;
+			return (c == '}') ? Token.END_OBJECT : Token.END_ARRAY;
+		}
+
+		if (c == -1) {
+			return Token.END;
+		}
+
+		if (comma) {
+			if (c != ',') {
+				throw syntaxError("Expected ','");
+			}
+
+			readChar();
+			c = skipWhiteSpace();
+		}
+
+		switch (c) {
+		case '{':
+			readChar();
+			comma = false;
+			return Token.BEGIN_OBJECT;
+		case '[':
+			readChar();
+			comma = false;
+			return Token.BEGIN_ARRAY;
+		case '"':
+			tokenValue = readString();
+
+			if (skipWhiteSpace() == ':') {
+				readChar();
+				comma = false;
+				return Token.NAME;
+			}
+
+			comma = true;
+			return Token.VALUE;
+		default:
+			tokenValue = readLiteral();
+			comma = true;
+
+			if ("null".equals(tokenValue)) {
+				return Token.NULL;
+			}
+
+			return Token.VALUE;
+		}
+	}
+
+	private String readString() throws XMLStreamException {
+		readChar();
+
+		StringBuilder value = new StringBuilder();
+
+		for (int c = readChar(); c != '"'; c = readChar()) {
+			if (c == -1) {
+				throw syntaxError("Unterminated string");
+			}
+
+			if (c == '\\') {
+				c = readChar();
+
+				switch (c) {
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case 'u':
+					int code = 0;
+
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(readChar(), 16);
+
+						if (digit < 0) {
+							throw syntaxError("Malformed \\u escape");
+						}
+
+						code = code * 16 + digit;
+					}
+
+					c = code;
+					break;
+				case '"':
+				case '\\':
+				case '/':
+					break;
+				default:
+					throw syntaxError("Malformed escape");
+				}
+			}
+
+			value.append((char) c);
+		}
+
+		return value.toString();
+	}
+
+	/**
+	 * Reads a number, true, false or null.
+	 */
+	private String readLiteral() throws XMLStreamException {
+		StringBuilder value = new StringBuilder();
+
+		for (int c = peekChar(); c >= 0
+				&& (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.'); c = peekChar()) {
+			value.append((char) readChar());
+		}
+
+		if (value.length() == 0) {
+			throw syntaxError("Unexpected character");
+		}
+
+		return value.toString();
+	}
+
+	private void expect(Token expected) throws XMLStreamException {
+		Token token = nextToken();
+
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but found " + token);
+		}
+	}
+
+	private String lookupNamespaceURI(String prefix, String[] namespaces) {
+		for (int i = 0; i < namespaces.length; i += 2) {
+			if (namespaces[i].equals(prefix)) {
+				return namespaces[i + 1];
+			}
+		}
+
+		return getNamespaceURI(prefix);
+	}
+
+	/**
+	 * Starts an element whose value begins with token.
+	 */
+	private int startElement(String name, Token token)
+			throws XMLStreamException {
+
+		List<String> namespaces = new ArrayList<String>(0);
+		List<String> attributeList = new ArrayList<String>(0);
+		String value = null;
+		String member = null;
+		boolean closed = true;
+
+		switch (token) {
+		case VALUE:
+			value = tokenValue;
+			break;
+		case NULL:
+			break;
+		case BEGIN_OBJECT:
+			closed = false;
+
+			while (member == null) {
+				Token next = nextToken();
+
+				if (next == Token.END_OBJECT) {
+					closed = true;
+					break;
+				}
+
+				if (next != Token.NAME) {
+					throw syntaxError("Expected a member name");
+				}
+
+				String key = tokenValue;
+
+				if ("@xmlns".equals(key)) {
+					expect(Token.BEGIN_OBJECT);
+
+					for (Token declaration = nextToken(); declaration != Token.END_OBJECT; declaration = nextToken()) {
+						if (declaration != Token.NAME) {
+							throw syntaxError("Expected a prefix");
+						}
+
+						namespaces.add("$".equals(tokenValue) ? "" : tokenValue);
+						expect(Token.VALUE);
+						namespaces.add(tokenValue);
+					}
+				} else if (key.startsWith("@")) {
+					attributeList.add(key.substring(1));
+					expect(Token.VALUE);
+					attributeList.add(tokenValue);
+				} else {
+					member = key;
+				}
+			}
+			break;
+		default:
+			throw syntaxError("Expected the value of " + name);
+		}
+
+		String[] declared = namespaces.toArray(new String[namespaces.size()]);
+
+		String prefix = "";
+		String localName = name;
+		int colon = name.indexOf(':');
+
+		if (colon > 0) {
+			prefix = name.substring(0, colon);
+			localName = name.substring(colon + 1);
+		}
+
+		String namespaceURI = lookupNamespaceURI(prefix, declared);
+
+		if (namespaceURI == null) {
+			if (prefix.length() > 0) {
+				throw syntaxError("Unbound prefix " + prefix);
+			}
+
+			namespaceURI = "";
+		}
+
+		Frame frame = new Frame(prefix, namespaceURI, localName, declared);
+		frame.closed = closed;
+		frame.member = member;
+		frame.text = (value == null || value.length() == 0) ? null : value;
+
+		attributes = new String[attributeList.size() * 2];
+
+		for (int i = 0; i < attributeList.size(); i += 2) {
+			String attributeName = attributeList.get(i);
+			String attributePrefix = "";
+			String attributeNamespaceURI = "";
+
+			colon = attributeName.indexOf(':');
+
+			if (colon > 0) {
+				attributePrefix = attributeName.substring(0, colon);
+				attributeName = attributeName.substring(colon + 1);
+				attributeNamespaceURI = lookupNamespaceURI(attributePrefix,
+						declared);
+
+				if (attributeNamespaceURI == null) {
+					throw syntaxError("Unbound prefix " + attributePrefix);
+				}
+			}
+
+			attributes[i * 2] = attributePrefix;
+			attributes[i * 2 + 1] = attributeNamespaceURI;
+			attributes[i * 2 + 2] = attributeName;
+			attributes[i * 2 + 3] = attributeList.get(i + 1);
+		}
+
+		frames.push(frame);
+		element = frame;
+
+		return eventType = XMLStreamConstants.START_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#next()
+	 */
+	@Override
+	public int next() throws XMLStreamException {
+		if (eventType == XMLStreamConstants.END_DOCUMENT) {
+			throw new NoSuchElementException();
+		}
+
+		// the namespaces of an element stay in scope up to its end tag
+		if (eventType == XMLStreamConstants.END_ELEMENT) {
+			frames.pop();
+		}
+
+		attributes = NONE;
+		text = null;
+		textCharacters = null;
+
+		if (eventType == XMLStreamConstants.START_DOCUMENT) {
+			expect(Token.BEGIN_OBJECT);
+			expect(Token.NAME);
+
+			return startElement(tokenValue, nextToken());
+		}
+
+		if (frames.isEmpty()) {
+			expect(Token.END_OBJECT);
+
+			if (nextToken() != Token.END) {
+				throw syntaxError("Unexpected content after the root element");
+			}
+
+			element = null;
+			return eventType = XMLStreamConstants.END_DOCUMENT;
+		}
+
+		Frame frame = frames.peek();
+
+		while (true) {
+			if (frame.text != null) {
+				text = frame.text;
+				frame.text = null;
+				return eventType = XMLStreamConstants.CHARACTERS;
+			}
+
+			if (frame.closed) {
+				element = frame;
+				return eventType = XMLStreamConstants.END_ELEMENT;
+			}
+
+			if (frame.array != null) {
+				Token token = nextToken();
+
+				if (token == Token.END_ARRAY) {
+					frame.array = null;
+					continue;
+				}
+
+				return startElement(frame.array, token);
+			}
+
+			String member = frame.member;
+
+			if (member != null) {
+				frame.member = null;
+			} else {
+				Token token = nextToken();
+
+				if (token == Token.END_OBJECT) {
+					frame.closed = true;
+					continue;
+				}
+
+				if (token != Token.NAME) {
+					throw syntaxError("Expected a member name");
+				}
+
+				member = tokenValue;
+			}
+
+			if ("$".equals(member)) {
+				Token token = nextToken();
+
+				if (token != Token.VALUE && token != Token.NULL) {
+					throw syntaxError("Expected text");
+				}
+
+				if (token == Token.VALUE && tokenValue.length() > 0) {
+					text = tokenValue;
+					return eventType = XMLStreamConstants.CHARACTERS;
+				}
+
+				continue;
+			}
+
+			if (member.startsWith("@")) {
+				throw syntaxError("Attribute " + member
+						+ " follows the content of its element");
+			}
+
+			Token token = nextToken();
+
+			if (token == Token.BEGIN_ARRAY) {
+				frame.array = member;
+				continue;
+			}
+
+			return startElement(member, token);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#nextTag()
+	 */
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+
+		while (event == XMLStreamConstants.CHARACTERS && isWhiteSpace()) {
+			event = next();
+		}
+
+		if (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("Expected a start or end tag",
+					location);
+		}
+
+		return event;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getElementText()
+	 */
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (eventType != XMLStreamConstants.START_ELEMENT) {
+			throw new XMLStreamException("Not on a start tag", location);
+		}
+
+		StringBuilder content = new StringBuilder();
+
+		for (int event = next(); event != XMLStreamConstants.END_ELEMENT; event = next()) {
+			if (event != XMLStreamConstants.CHARACTERS) {
+				throw new XMLStreamException("Element has child elements",
+						location);
+			}
+
+			content.append(text);
+		}
+
+		return content.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasNext()
+	 */
+	@Override
+	public boolean hasNext() throws XMLStreamException {
+		return eventType != XMLStreamConstants.END_DOCUMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#close()
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		// the Reader belongs to the caller
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#require(int, java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void require(int type, String namespaceURI, String localName)
+			throws XMLStreamException {
+		if (type != eventType
+				|| (namespaceURI != null && !namespaceURI
+						.equals(getNamespaceURI()))
+				|| (localName != null && !localName.equals(getLocalName()))) {
+			throw new XMLStreamException("Expected event " + type + " "
+					+ new QName(namespaceURI, String.valueOf(localName)),
+					location);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI(java.lang.String)
+	 */
+	@Override
+	public String getNamespaceURI(String prefix) {
+		if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+			return XMLConstants.XML_NS_URI;
+		}
+
+		if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+		}
+
+		for (Frame open : frames) {
+			for (int i = 0; i < open.namespaces.length; i += 2) {
+				if (open.namespaces[i].equals(prefix)) {
+					return open.namespaces[i + 1];
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isStartElement()
+	 */
+	@Override
+	public boolean isStartElement() {
+		return eventType == XMLStreamConstants.START_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isEndElement()
+	 */
+	@Override
+	public boolean isEndElement() {
+		return eventType == XMLStreamConstants.END_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isCharacters()
+	 */
+	@Override
+	public boolean isCharacters() {
+		return eventType == XMLStreamConstants.CHARACTERS;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isWhiteSpace()
+	 */
+	@Override
+	public boolean isWhiteSpace() {
+		if (eventType != XMLStreamConstants.CHARACTERS) {
+			return false;
+		}
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void requireStartElement() {
+		if (eventType != XMLStreamConstants.START_ELEMENT) {
+			throw new IllegalStateException("Not on a start tag");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeValue(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public String getAttributeValue(String namespaceURI, String localName) {
+		requireStartElement();
+
+		for (int i = 0; i < attributes.length; i += 4) {
+			if (attributes[i + 2].equals(localName)
+					&& (namespaceURI == null || attributes[i + 1]
+							.equals(namespaceURI))) {
+				return attributes[i + 3];
+			}
+		}
+
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeCount()
+	 */
+	@Override
+	public int getAttributeCount() {
+		requireStartElement();
+
+		return attributes.length / 4;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeName(int)
+	 */
+	@Override
+	public QName getAttributeName(int index) {
+		requireStartElement();
+
+		return new QName(attributes[index * 4 + 1], attributes[index * 4 + 2],
+				attributes[index * 4]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeNamespace(int)
+	 */
+	@Override
+	public String getAttributeNamespace(int index) {
+		requireStartElement();
+
+		String namespaceURI = attributes[index * 4 + 1];
+
+		return (namespaceURI.length() == 0) ? null : namespaceURI;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeLocalName(int)
+	 */
+	@Override
+	public String getAttributeLocalName(int index) {
+		requireStartElement();
+
+		return attributes[index * 4 + 2];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributePrefix(int)
+	 */
+	@Override
+	public String getAttributePrefix(int index) {
+		requireStartElement();
+
+		return attributes[index * 4];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeType(int)
+	 */
+	@Override
+	public String getAttributeType(int index) {
+		requireStartElement();
+
+		return "CDATA";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getAttributeValue(int)
+	 */
+	@Override
+	public String getAttributeValue(int index) {
+		requireStartElement();
+
+		return attributes[index * 4 + 3];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isAttributeSpecified(int)
+	 */
+	@Override
+	public boolean isAttributeSpecified(int index) {
+		requireStartElement();
+
+		return true;
+	}
+
+	private String[] currentNamespaces() {
+		if (!hasName()) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return element.namespaces;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceCount()
+	 */
+	@Override
+	public int getNamespaceCount() {
+		return currentNamespaces().length / 2;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespacePrefix(int)
+	 */
+	@Override
+	public String getNamespacePrefix(int index) {
+		String prefix = currentNamespaces()[index * 2];
+
+		return (prefix.length() == 0) ? null : prefix;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI(int)
+	 */
+	@Override
+	public String getNamespaceURI(int index) {
+		return currentNamespaces()[index * 2 + 1];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceContext()
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getEventType()
+	 */
+	@Override
+	public int getEventType() {
+		return eventType;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getText()
+	 */
+	@Override
+	public String getText() {
+		if (!hasText()) {
+			throw new IllegalStateException("The event has no text");
+		}
+
+		return text;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextCharacters()
+	 */
+	@Override
+	public char[] getTextCharacters() {
+		if (textCharacters == null) {
+			textCharacters = getText().toCharArray();
+		}
+
+		return textCharacters;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextCharacters(int, char[],
+	 * int, int)
+	 */
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target,
+			int targetStart, int length) throws XMLStreamException {
+		String value = getText();
+
+		int count = Math.min(length, value.length() - sourceStart);
+
+		if (count <= 0) {
+			return 0;
+		}
+
+		value.getChars(sourceStart, sourceStart + count, target, targetStart);
+
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextStart()
+	 */
+	@Override
+	public int getTextStart() {
+		getText();
+
+		return 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getTextLength()
+	 */
+	@Override
+	public int getTextLength() {
+		return getText().length();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getEncoding()
+	 */
+	@Override
+	public String getEncoding() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasText()
+	 */
+	@Override
+	public boolean hasText() {
+		return eventType == XMLStreamConstants.CHARACTERS;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getLocation()
+	 */
+	@Override
+	public Location getLocation() {
+		return location;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getName()
+	 */
+	@Override
+	public QName getName() {
+		if (!hasName()) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return new QName(element.namespaceURI, element.localName,
+				element.prefix);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getLocalName()
+	 */
+	@Override
+	public String getLocalName() {
+		if (!hasName()) {
+			throw new IllegalStateException("Not on a start or end tag");
+		}
+
+		return element.localName;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#hasName()
+	 */
+	@Override
+	public boolean hasName() {
+		return eventType == XMLStreamConstants.START_ELEMENT
+				|| eventType == XMLStreamConstants.END_ELEMENT;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getNamespaceURI()
+	 */
+	@Override
+	public String getNamespaceURI() {
+		if (!hasName() || element.namespaceURI.length() == 0) {
+			return null;
+		}
+
+		return element.namespaceURI;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPrefix()
+	 */
+	@Override
+	public String getPrefix() {
+		return hasName() ? element.prefix : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getVersion()
+	 */
+	@Override
+	public String getVersion() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#isStandalone()
+	 */
+	@Override
+	public boolean isStandalone() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#standaloneSet()
+	 */
+	@Override
+	public boolean standaloneSet() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getCharacterEncodingScheme()
+	 */
+	@Override
+	public String getCharacterEncodingScheme() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPITarget()
+	 */
+	@Override
+	public String getPITarget() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getPIData()
+	 */
+	@Override
+	public String getPIData() {
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamReader#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String name) {
+		return null;
+	}
+}
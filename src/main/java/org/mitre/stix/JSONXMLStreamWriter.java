@@ -0,0 +1,853 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * An XMLStreamWriter writing the JSON form read by JSONXMLStreamReader (see
+ * STIXJSONCodec.)
+ *
+ * Each element is a member of its parent's object named by its qualified
+ * name as written (e.g., "indicator:Title"), whose value is an array holding
+ * one value per consecutive element of that name. An element with only text
+ * is a string; anything else is an object whose "@xmlns" member holds its
+ * namespace declarations (prefix to namespace URI, "$" for the default
+ * namespace), whose "@"-prefixed members are its attributes (e.g.,
+ * "@xsi:type") and whose "$" member is its text. The root element is the
+ * only member of the document's object and is not wrapped in an array.
+ * As the members of an object must have distinct names, an element whose
+ * name was already used by an earlier, non-adjacent sibling (e.g., the
+ * second A of A, B, A) is rejected, and so is text on both sides of a child
+ * element, as it would be two "$" members.
+ *
+ * Whitespace between child elements is dropped, and comments and processing
+ * instructions are not written. Text is only held until it is known whether
+ * its element has children, or until the next tag after a child, so output
+ * is written as the events arrive.
+ *
+ * A NamespaceContext set before the root element is used, like setPrefix, to
+ * find the prefixes of namespaces that are not declared in scope.
+ *
+ * Not thread-safe.
+ */
+class JSONXMLStreamWriter implements XMLStreamWriter {
+
+	/**
+	 * An element being written.
+	 */
+	private static class Frame {
+
+		// attribute names and values, namespace declarations and text held
+		// back until it is known whether the element is a string or an
+		// object
+		List<String> attributes = new ArrayList<String>(4);
+		List<String> namespaces = new ArrayList<String>(2);
+		StringBuilder text;
+
+		// whether the element's object has been opened, whether it has
+		// members yet, and whether one of them is its text
+		boolean object = false;
+		boolean members = false;
+		boolean textWritten = false;
+
+		// the name of the array of child elements that is open, and the
+		// names of those closed, created with the second array
+		String array;
+		Set<String> arrays;
+
+		final Map<String, String> scope = new HashMap<String, String>(4);
+	}
+
+	private final Writer out;
+
+	private final LinkedList<Frame> frames = new LinkedList<Frame>();
+
+	// whether the start tag of the top frame is still open for attributes
+	private boolean pending = false;
+
+	// whether the top frame is an empty element, ended by the next event
+	private boolean pendingEmpty = false;
+
+	// the context set by setNamespaceContext, consulted after the scopes
+	private NamespaceContext rootNamespaceContext;
+
+	private final NamespaceContext namespaceContext = new NamespaceContext() {
+
+		public String getNamespaceURI(String prefix) {
+			String namespaceURI = lookupNamespaceURI(prefix);
+
+			return (namespaceURI == null) ? XMLConstants.NULL_NS_URI
+					: namespaceURI;
+		}
+
+		public String getPrefix(String namespaceURI) {
+			return lookupPrefix(namespaceURI);
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			List<String> prefixes = new ArrayList<String>(1);
+			String prefix = lookupPrefix(namespaceURI);
+
+			if (prefix != null) {
+				prefixes.add(prefix);
+			}
+
+			return prefixes.iterator();
+		}
+	};
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out
+	 *            The Writer to write to, which is not closed by close()
+	 */
+	JSONXMLStreamWriter(Writer out) {
+		this.out = out;
+
+		// the document, whose object holds the root element
+		Frame document = new Frame();
+		document.object = true;
+		frames.push(document);
+	}
+
+	private void write(String value) throws XMLStreamException {
+		try {
+			out.write(value);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	private void write(char c) throws XMLStreamException {
+		try {
+			out.write(c);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Writes a JSON string.
+	 */
+	private void writeString(CharSequence value) throws XMLStreamException {
+		try {
+			out.write('"');
+
+			for (int i = 0, length = value.length(); i < length; i++) {
+				char c = value.charAt(i);
+
+				switch (c) {
+				case '"':
+					out.write("\\\"");
+					break;
+				case '\\':
+					out.write("\\\\");
+					break;
+				case '\n':
+					out.write("\\n");
+					break;
+				case '\r':
+					out.write("\\r");
+					break;
+				case '\t':
+					out.write("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						out.write(String.format("\\u%04x", (int) c));
+					} else {
+						out.write(c);
+					}
+				}
+			}
+
+			out.write('"');
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Writes the name of a member of the object of a frame.
+	 */
+	private void writeMember(Frame frame, String name)
+			throws XMLStreamException {
+		if (frame.members) {
+			write(',');
+		}
+
+		frame.members = true;
+
+		writeString(name);
+		write(':');
+	}
+
+	private void closeArray(Frame frame) throws XMLStreamException {
+		if (frame.array != null) {
+			write(']');
+
+			if (frame.arrays == null) {
+				frame.arrays = new HashSet<String>(4);
+			}
+
+			frame.arrays.add(frame.array);
+			frame.array = null;
+		}
+	}
+
+	/**
+	 * Opens the object of a frame, writing what was held back.
+	 */
+	private void openObject(Frame frame) throws XMLStreamException {
+		if (frame.object) {
+			return;
+		}
+
+		write('{');
+		frame.object = true;
+
+		if (!frame.namespaces.isEmpty()) {
+			writeMember(frame, "@xmlns");
+			write('{');
+
+			for (int i = 0; i < frame.namespaces.size(); i += 2) {
+				if (i > 0) {
+					write(',');
+				}
+
+				String prefix = frame.namespaces.get(i);
+
+				writeString(prefix.length() == 0 ? "$" : prefix);
+				write(':');
+				writeString(frame.namespaces.get(i + 1));
+			}
+
+			write('}');
+		}
+
+		for (int i = 0; i < frame.attributes.size(); i += 2) {
+			writeMember(frame, "@" + frame.attributes.get(i));
+			writeString(frame.attributes.get(i + 1));
+		}
+
+		if (frame.text != null) {
+			writeMember(frame, "$");
+			writeString(frame.text);
+			frame.text = null;
+			frame.textWritten = true;
+		}
+
+		frame.attributes = null;
+		frame.namespaces = null;
+	}
+
+	/**
+	 * Writes the text held by a frame whose object is open as its "$"
+	 * member, unless it is whitespace between child elements.
+	 */
+	private void writeText(Frame frame) throws XMLStreamException {
+		StringBuilder text = frame.text;
+
+		frame.text = null;
+
+		if (text == null || isWhiteSpace(text)) {
+			return;
+		}
+
+		if (frame.textWritten) {
+			throw new XMLStreamException(
+					"Text on both sides of a child element cannot be written"
+							+ " as one JSON member");
+		}
+
+		closeArray(frame);
+		writeMember(frame, "$");
+		writeString(text);
+		frame.textWritten = true;
+	}
+
+	private String lookupNamespaceURI(String prefix) {
+		if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+			return XMLConstants.XML_NS_URI;
+		}
+
+		for (Frame frame : frames) {
+			String namespaceURI = frame.scope.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		if (rootNamespaceContext != null) {
+			String namespaceURI = rootNamespaceContext.getNamespaceURI(prefix);
+
+			if (namespaceURI != null && namespaceURI.length() > 0) {
+				return namespaceURI;
+			}
+		}
+
+		return null;
+	}
+
+	private String lookupPrefix(String namespaceURI) {
+		if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+			return XMLConstants.XML_NS_PREFIX;
+		}
+
+		for (Frame frame : frames) {
+			for (Map.Entry<String, String> entry : frame.scope.entrySet()) {
+				if (entry.getValue().equals(namespaceURI)
+						&& namespaceURI.equals(lookupNamespaceURI(entry
+								.getKey()))) {
+					return entry.getKey();
+				}
+			}
+		}
+
+		if (rootNamespaceContext != null && namespaceURI != null) {
+			String prefix = rootNamespaceContext.getPrefix(namespaceURI);
+
+			// unless the prefix was bound to another namespace since
+			if (prefix != null
+					&& namespaceURI.equals(lookupNamespaceURI(prefix))) {
+				return prefix;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Ends the start tag of the top frame, and the element itself if it was
+	 * written as empty.
+	 */
+	private void endStartTag() throws XMLStreamException {
+		pending = false;
+
+		if (pendingEmpty) {
+			pendingEmpty = false;
+			end();
+		}
+	}
+
+	private void start(String prefix, String localName, boolean empty)
+			throws XMLStreamException {
+		endStartTag();
+
+		Frame parent = frames.peek();
+
+		if (parent.object) {
+			writeText(parent);
+		} else if (parent.text != null && isWhiteSpace(parent.text)) {
+			// whitespace before a child element is formatting
+			parent.text = null;
+		}
+
+		openObject(parent);
+
+		String name = (prefix == null || prefix.length() == 0) ? localName
+				: prefix + ":" + localName;
+
+		if (frames.size() == 1) {
+			if (parent.members) {
+				throw new XMLStreamException("A document has one root element");
+			}
+
+			write('{');
+			writeMember(parent, name);
+		} else if (name.equals(parent.array)) {
+			write(',');
+		} else {
+			closeArray(parent);
+
+			if (parent.arrays != null && parent.arrays.contains(name)) {
+				throw new XMLStreamException(name
+						+ " repeats the name of an earlier, non-adjacent sibling,"
+						+ " which cannot be written as one JSON member");
+			}
+
+			writeMember(parent, name);
+			write('[');
+			parent.array = name;
+		}
+
+		frames.push(new Frame());
+
+		pending = true;
+		pendingEmpty = empty;
+	}
+
+	private void end() throws XMLStreamException {
+		if (frames.size() == 1) {
+			throw new XMLStreamException("No element is open");
+		}
+
+		Frame frame = frames.pop();
+
+		if (frame.object) {
+			writeText(frame);
+			closeArray(frame);
+			write('}');
+		} else if (frame.attributes.isEmpty() && frame.namespaces.isEmpty()) {
+			if (frame.text != null) {
+				writeString(frame.text);
+			} else {
+				write("{}");
+			}
+		} else {
+			openObject(frame);
+			write('}');
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		start("", localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		start(lookupPrefix(namespaceURI), localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		start(prefix, localName, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		start(lookupPrefix(namespaceURI), localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		start(prefix, localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		start("", localName, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndElement()
+	 */
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		endStartTag();
+		end();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndDocument()
+	 */
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		endStartTag();
+
+		while (frames.size() > 1) {
+			end();
+		}
+
+		Frame document = frames.peek();
+
+		if (!document.members) {
+			write('{');
+		}
+
+		write('}');
+		flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#close()
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#flush()
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String localName, String value)
+			throws XMLStreamException {
+		writeAttribute("", "", localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI,
+			String localName, String value) throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Attributes can only be written on a start tag");
+		}
+
+		Frame frame = frames.peek();
+
+		frame.attributes.add((prefix == null || prefix.length() == 0) ? localName
+				: prefix + ":" + localName);
+		frame.attributes.add(value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		String prefix = "";
+
+		if (namespaceURI != null && namespaceURI.length() > 0) {
+			prefix = lookupPrefix(namespaceURI);
+
+			if (prefix == null) {
+				throw new XMLStreamException("No prefix is bound to "
+						+ namespaceURI);
+			}
+		}
+
+		writeAttribute(prefix, namespaceURI, localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeNamespace(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Namespaces can only be declared on a start tag");
+		}
+
+		if (prefix == null || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			prefix = XMLConstants.DEFAULT_NS_PREFIX;
+		}
+
+		Frame frame = frames.peek();
+
+		frame.namespaces.add(prefix);
+		frame.namespaces.add(namespaceURI);
+		frame.scope.put(prefix, namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void writeDefaultNamespace(String namespaceURI)
+			throws XMLStreamException {
+		writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeComment(java.lang.String)
+	 */
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		endStartTag();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target)
+			throws XMLStreamException {
+		endStartTag();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String, java.lang.String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target, String data)
+			throws XMLStreamException {
+		endStartTag();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCData(java.lang.String)
+	 */
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		writeCharacters(data);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeDTD(java.lang.String)
+	 */
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		throw new XMLStreamException("DTDs are not supported");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEntityRef(java.lang.String)
+	 */
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		throw new XMLStreamException("Entity references are not supported");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument()
+	 */
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		// JSON has no prolog
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		// JSON has no prolog
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String encoding, String version)
+			throws XMLStreamException {
+		// JSON has no prolog
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(java.lang.String)
+	 */
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		endStartTag();
+
+		Frame frame = frames.peek();
+
+		if (frames.size() == 1 || text.length() == 0) {
+			return;
+		}
+
+		// held, after a child too, as text may arrive in several parts
+		if (frame.text == null) {
+			frame.text = new StringBuilder(text);
+		} else {
+			frame.text.append(text);
+		}
+	}
+
+	private static boolean isWhiteSpace(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(char[], int, int)
+	 */
+	@Override
+	public void writeCharacters(char[] text, int start, int len)
+			throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getPrefix(java.lang.String)
+	 */
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return lookupPrefix(uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#setPrefix(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		frames.peek().scope.put(prefix == null ? "" : prefix, uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#setDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		setPrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#setNamespaceContext(javax.xml.namespace
+	 * .NamespaceContext)
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context)
+			throws XMLStreamException {
+		if (frames.size() > 1 || frames.peek().members) {
+			throw new XMLStreamException(
+					"The namespace context can only be set before the root element");
+		}
+
+		rootNamespaceContext = context;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getNamespaceContext()
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException(name + " is not supported");
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mitre.cybox.common_2.BaseObjectPropertyType;
+import org.mitre.cybox.cybox_2.ObjectType;
+import org.mitre.cybox.cybox_2.ObservableType;
+
+/**
+ * An ObservableEvent holding its values in a map by path. An event may be
+ * cleared and filled again for each event, keeping its lists:
+ *
+ * <pre>
+ * event.clear();
+ * event.add(&quot;AddressObjectType/Address_Value&quot;, destination);
+ * event.add(&quot;DomainNameObjectType/Value&quot;, host);
+ *
+ * if (evaluator.matches(event)) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * Not thread-safe.
+ */
+public class MapObservableEvent implements ObservableEvent {
+
+	private final Map<String, List<CharSequence>> values = new HashMap<String, List<CharSequence>>();
+
+	/**
+	 * Creates an event with no values.
+	 */
+	public MapObservableEvent() {
+	}
+
+	/**
+	 * Creates an event of the property values of an Observable instance
+	 * (e.g., an Object seen by a sensor), including those of the
+	 * Observables it is composed of.
+	 *
+	 * @param observable
+	 *            The Observable
+	 * @return The event
+	 */
+	public static MapObservableEvent of(ObservableType observable) {
+		final MapObservableEvent event = new MapObservableEvent();
+
+		event.addAll(observable, new PropertyPaths.Visitor() {
+			@Override
+			public void property(String path, BaseObjectPropertyType property) {
+				for (String value : PropertyPaths.values(property)) {
+					event.add(path, value);
+				}
+			}
+		});
+
+		return event;
+	}
+
+	private void addAll(ObservableType observable,
+			PropertyPaths.Visitor visitor) {
+		ObjectType obj = observable.getObject();
+
+		if (obj != null && obj.getProperties() != null) {
+			PropertyPaths.visit(obj.getProperties(), visitor);
+		}
+
+		if (observable.getObservableComposition() != null) {
+			for (ObservableType child : observable.getObservableComposition()
+					.getObservables()) {
+				addAll(child, visitor);
+			}
+		}
+	}
+
+	/**
+	 * Adds a value of a property.
+	 *
+	 * @param path
+	 *            The path of the property, e.g.,
+	 *            "AddressObjectType/Address_Value"
+	 * @param value
+	 *            The value
+	 * @return This event
+	 */
+	public MapObservableEvent add(String path, CharSequence value) {
+		List<CharSequence> pathValues = values.get(path);
+
+		if (pathValues == null) {
+			pathValues = new ArrayList<CharSequence>(1);
+			values.put(path, pathValues);
+		}
+
+		pathValues.add(value);
+
+		return this;
+	}
+
+	/**
+	 * Removes all values, keeping the lists that held them.
+	 */
+	public void clear() {
+		for (List<CharSequence> pathValues : values.values()) {
+			pathValues.clear();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mitre.stix.ObservableEvent#getValueCount(java.lang.String)
+	 */
+	@Override
+	public int getValueCount(String path) {
+		List<CharSequence> pathValues = values.get(path);
+
+		return (pathValues == null) ? 0 : pathValues.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.mitre.stix.ObservableEvent#getValue(java.lang.String, int)
+	 */
+	@Override
+	public CharSequence getValue(String path, int index) {
+		return values.get(path).get(index);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.mitre.stix.stix_1.STIXPackage;
+
+/**
+ * A STIX file mapped into memory with FileChannel.map, so that it is parsed
+ * straight from the page cache rather than first being copied onto the heap
+ * (e.g., with FileUtils.readFileToString.)
+ *
+ * The file may hold a single STIX_Package or several concatenated one after
+ * another. Concatenated packages can be parsed in parallel with
+ * readPackages, and the constructs of large packages with readConstructs,
+ * which splits each package into regions of whole top-level constructs (see
+ * STIXConstruct) parsed separately. Splitting works on the raw bytes, so it
+ * requires an ASCII-compatible encoding such as UTF-8.
+ *
+ * Files larger than 2GB cannot be mapped at once. Java offers no way to
+ * unmap a file, so the mapping is released once the MappedSTIXFile and any
+ * buffers or objects read from it are garbage collected.
+ */
+public class MappedSTIXFile {
+
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+	private final Path path;
+
+	private final MappedByteBuffer buffer;
+
+	private List<MarkupScanner.Element> roots;
+
+	private MappedSTIXFile(Path path, MappedByteBuffer buffer) {
+		this.path = path;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Maps a file into memory.
+	 *
+	 * @param path
+	 *            The file
+	 * @return The mapped file
+	 * @throws IOException
+	 *             If the file cannot be read or is too large to be mapped
+	 */
+	public static MappedSTIXFile map(Path path) throws IOException {
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(path + " is too large to be mapped");
+			}
+
+			return new MappedSTIXFile(path, channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, size));
+		} finally {
+			// the mapping remains valid once the channel is closed
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the path of the file.
+	 *
+	 * @return The path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns a read-only view of the whole file.
+	 *
+	 * @return A buffer positioned at the start of the file
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Unmarshals the file as a single STIX_Package, validating it as
+	 * STIXPackage.fromXMLString does.
+	 *
+	 * @return The STIXPackage
+	 */
+	public STIXPackage readPackage() {
+		return STIXPackage.fromXML(getBuffer());
+	}
+
+	/**
+	 * Returns a reader for the top-level constructs of the file, which must
+	 * hold a single STIX_Package.
+	 *
+	 * @return A STIXPackageReader over the file
+	 */
+	public STIXPackageReader openReader() {
+		return new STIXPackageReader(new ByteBufferInputStream(getBuffer()));
+	}
+
+	/**
+	 * Returns a view of each document in the file, including any XML
+	 * declaration preceding it.
+	 *
+	 * @return A buffer per document, in the order they appear in the file
+	 */
+	public List<ByteBuffer> getDocuments() {
+
+		List<ByteBuffer> documents = new ArrayList<ByteBuffer>();
+
+		int start = skipWhitespace(0);
+
+		for (MarkupScanner.Element root : getRoots()) {
+			documents.add(slice(start, root.end));
+			start = skipWhitespace(root.end);
+		}
+
+		return documents;
+	}
+
+	/**
+	 * Returns the position of the first byte from a position that is not
+	 * whitespace, where the next document starts: whitespace may not precede
+	 * an XML declaration.
+	 */
+	private int skipWhitespace(int position) {
+		int limit = buffer.limit();
+
+		while (position < limit) {
+			byte b = buffer.get(position);
+
+			if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+				break;
+			}
+
+			position++;
+		}
+
+		return position;
+	}
+
+	/**
+	 * Unmarshals each of the concatenated STIX_Packages of the file as a task
+	 * on the executor.
+	 *
+	 * @param executor
+	 *            The ExecutorService to parse on
+	 * @return The STIXPackages, in the order they appear in the file
+	 */
+	public List<STIXPackage> readPackages(ExecutorService executor) {
+
+		List<Future<STIXPackage>> futures = new ArrayList<Future<STIXPackage>>();
+
+		for (final ByteBuffer document : getDocuments()) {
+			futures.add(executor.submit(new Callable<STIXPackage>() {
+
+				@Override
+				public STIXPackage call() {
+					return STIXPackage.fromXML(document);
+				}
+			}));
+		}
+
+		return getAll(futures);
+	}
+
+	/**
+	 * Unmarshals the top-level constructs of every STIX_Package of the file,
+	 * splitting each package into up to the given number of regions that are
+	 * parsed as tasks on the executor.
+	 *
+	 * Each region holds whole constructs of the same kind (e.g., a run of
+	 * Indicators) and is parsed within a copy of the enclosing STIX_Package
+	 * and container start tags, so the namespaces declared on them are in
+	 * scope.
+	 *
+	 * @param executor
+	 *            The ExecutorService to parse on
+	 * @param regionsPerPackage
+	 *            The number of regions to split each package into
+	 * @return The constructs, in the order they appear in the file
+	 */
+	public List<Object> readConstructs(ExecutorService executor,
+			int regionsPerPackage) {
+
+		if (regionsPerPackage < 1) {
+			throw new IllegalArgumentException(
+					"regionsPerPackage must be at least 1");
+		}
+
+		List<Future<List<Object>>> futures = new ArrayList<Future<List<Object>>>();
+
+		int start = skipWhitespace(0);
+
+		for (MarkupScanner.Element root : getRoots()) {
+
+			for (final Region region : split(start, root, regionsPerPackage)) {
+				futures.add(executor.submit(new Callable<List<Object>>() {
+
+					@Override
+					public List<Object> call() throws IOException {
+						return region.read();
+					}
+				}));
+			}
+
+			start = skipWhitespace(root.end);
+		}
+
+		List<Object> constructs = new ArrayList<Object>();
+
+		for (List<Object> regionConstructs : getAll(futures)) {
+			constructs.addAll(regionConstructs);
+		}
+
+		return constructs;
+	}
+
+	/**
+	 * Splits a package into regions of roughly equal size.
+	 */
+	private List<Region> split(int documentStart, MarkupScanner.Element root,
+			int regionCount) {
+
+		MarkupScanner scanner = new MarkupScanner(buffer);
+
+		// each region is read within the prolog and the package start tag
+		ByteBuffer prolog = slice(documentStart, root.start);
+		ByteBuffer packageStartTag = slice(root.start, root.startTagEnd);
+		String packageName = scanner.getQualifiedName(root);
+
+		// units are the smallest pieces a package is split into: a whole
+		// child of the package or a construct within a container
+		List<MarkupScanner.Element> units = new ArrayList<MarkupScanner.Element>();
+		List<MarkupScanner.Element> containers = new ArrayList<MarkupScanner.Element>();
+
+		for (MarkupScanner.Element child : root.children) {
+			if (child.children.isEmpty()
+					|| STIXConstruct.STIX_HEADER.getElementName()
+							.getLocalPart().equals(scanner.getLocalName(child))) {
+				units.add(child);
+				containers.add(null);
+			} else {
+				for (MarkupScanner.Element construct : child.children) {
+					units.add(construct);
+					containers.add(child);
+				}
+			}
+		}
+
+		List<Region> regions = new ArrayList<Region>();
+
+		if (units.isEmpty()) {
+			return regions;
+		}
+
+		int target = Math.max(1, (root.end - root.start) / regionCount);
+
+		int first = 0;
+
+		for (int i = 1; i <= units.size(); i++) {
+
+			if (i == units.size()
+					|| containers.get(i) != containers.get(first)
+					|| units.get(i).start - units.get(first).start >= target) {
+
+				MarkupScanner.Element container = containers.get(first);
+
+				StringBuilder endTags = new StringBuilder();
+
+				if (container != null) {
+					endTags.append("</")
+							.append(scanner.getQualifiedName(container))
+							.append('>');
+				}
+
+				endTags.append("</").append(packageName).append('>');
+
+				regions.add(new Region(prolog, packageStartTag,
+						container == null ? null : slice(container.start,
+								container.startTagEnd), slice(
+								units.get(first).start, units.get(i - 1).end),
+						endTags.toString().getBytes(US_ASCII)));
+
+				first = i;
+			}
+		}
+
+		return regions;
+	}
+
+	/**
+	 * A run of constructs and the markup needed to parse them on their own.
+	 */
+	private static class Region {
+
+		private final List<ByteBuffer> parts = new ArrayList<ByteBuffer>();
+
+		Region(ByteBuffer prolog, ByteBuffer packageStartTag,
+				ByteBuffer containerStartTag, ByteBuffer body, byte[] endTags) {
+			parts.add(prolog);
+			parts.add(packageStartTag);
+
+			if (containerStartTag != null) {
+				parts.add(containerStartTag);
+			}
+
+			parts.add(body);
+			parts.add(ByteBuffer.wrap(endTags));
+		}
+
+		List<Object> read() throws IOException {
+
+			List<InputStream> streams = new ArrayList<InputStream>();
+
+			for (ByteBuffer part : parts) {
+				streams.add(new ByteBufferInputStream(part));
+			}
+
+			STIXPackageReader reader = new STIXPackageReader(
+					new SequenceInputStream(Collections.enumeration(streams)));
+
+			List<Object> constructs = new ArrayList<Object>();
+
+			try {
+				while (reader.hasNext()) {
+					constructs.add(reader.next());
+				}
+			} finally {
+				reader.close();
+			}
+
+			return constructs;
+		}
+	}
+
+	private synchronized List<MarkupScanner.Element> getRoots() {
+
+		if (roots == null) {
+			if (buffer.limit() >= 2
+					&& ((buffer.get(0) == (byte) 0xFE && buffer.get(1) == (byte) 0xFF) || (buffer
+							.get(0) == (byte) 0xFF && buffer.get(1) == (byte) 0xFE))) {
+				throw new IllegalArgumentException(path
+						+ " is UTF-16 encoded and cannot be split");
+			}
+
+			roots = new MarkupScanner(buffer).scan();
+		}
+
+		return roots;
+	}
+
+	private ByteBuffer slice(int start, int end) {
+		ByteBuffer slice = buffer.asReadOnlyBuffer();
+		slice.limit(end).position(start);
+
+		return slice.slice();
+	}
+
+	private static <T> List<T> getAll(List<Future<T>> futures) {
+
+		List<T> results = new ArrayList<T>(futures.size());
+
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			cancelAll(futures);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			cancelAll(futures);
+			throw new RuntimeException(e.getCause());
+		}
+
+		return results;
+	}
+
+	private static <T> void cancelAll(List<Future<T>> futures) {
+		for (Future<T> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds where the elements of the top three levels of one or more
+ * concatenated XML documents begin and end, working on the raw bytes without
+ * parsing them: only markup delimiters are looked at (skipping comments,
+ * CDATA sections, processing instructions, DOCTYPEs and quoted attribute
+ * values), so the bytes must be in an ASCII-compatible encoding such as
+ * UTF-8.
+ *
+ * Used to split STIX documents into regions that can be parsed separately.
+ */
+class MarkupScanner {
+
+	/**
+	 * An element found by the scanner, as offsets into the buffer.
+	 */
+	static class Element {
+
+		/**
+		 * The offset of the '&lt;' of the start tag.
+		 */
+		final int start;
+
+		/**
+		 * The offset following the '&gt;' of the start tag.
+		 */
+		final int startTagEnd;
+
+		/**
+		 * The offset following the '&gt;' of the end tag (or of the start
+		 * tag of an empty element.)
+		 */
+		int end;
+
+		final List<Element> children = new ArrayList<Element>();
+
+		Element(int start, int startTagEnd) {
+			this.start = start;
+			this.startTagEnd = startTagEnd;
+		}
+
+		/**
+		 * Returns whether the element was written as an empty-element tag.
+		 */
+		boolean isEmpty() {
+			return end == startTagEnd;
+		}
+	}
+
+	private static final int LEVELS = 3;
+
+	private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+	private final ByteBuffer buffer;
+
+	private final int limit;
+
+	MarkupScanner(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * Scans the buffer from its position to its limit.
+	 *
+	 * @return The root element of each document, with their children and
+	 *         grandchildren
+	 */
+	List<Element> scan() {
+
+		List<Element> roots = new ArrayList<Element>();
+
+		Element[] open = new Element[LEVELS];
+
+		int depth = 0;
+
+		int i = buffer.position();
+
+		while (i < limit) {
+
+			if (buffer.get(i) != '<') {
+				i++;
+				continue;
+			}
+
+			byte next = byteAt(i + 1);
+
+			if (next == '?') {
+				i = skipPast(i + 2, "?>");
+
+			} else if (next == '!') {
+				if (startsWith(i, "<!--")) {
+					i = skipPast(i + 4, "-->");
+				} else if (startsWith(i, "<![CDATA[")) {
+					i = skipPast(i + 9, "]]>");
+				} else {
+					i = skipDeclaration(i + 2);
+				}
+
+			} else if (next == '/') {
+				i = skipPast(i + 2, ">");
+
+				depth--;
+
+				if (depth < 0) {
+					throw new IllegalArgumentException(
+							"Unbalanced end tag at offset " + i);
+				}
+
+				if (depth < LEVELS) {
+					open[depth].end = i;
+				}
+
+			} else {
+				int startTagEnd = skipTag(i + 1);
+				boolean empty = buffer.get(startTagEnd - 2) == '/';
+
+				if (depth < LEVELS) {
+					Element element = new Element(i, startTagEnd);
+
+					if (depth == 0) {
+						roots.add(element);
+					} else {
+						open[depth - 1].children.add(element);
+					}
+
+					if (empty) {
+						element.end = startTagEnd;
+					} else {
+						open[depth] = element;
+					}
+				}
+
+				if (!empty) {
+					depth++;
+				}
+
+				i = startTagEnd;
+			}
+		}
+
+		if (depth != 0) {
+			throw new IllegalArgumentException("The document is incomplete");
+		}
+
+		return roots;
+	}
+
+	/**
+	 * Returns the qualified name of an element, as written in its start tag.
+	 */
+	String getQualifiedName(Element element) {
+		int end = element.start + 1;
+
+		while (end < element.startTagEnd) {
+			byte b = buffer.get(end);
+
+			if (b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r'
+					|| b == '\n') {
+				break;
+			}
+
+			end++;
+		}
+
+		byte[] name = new byte[end - element.start - 1];
+
+		for (int j = 0; j < name.length; j++) {
+			name[j] = buffer.get(element.start + 1 + j);
+		}
+
+		return new String(name, US_ASCII);
+	}
+
+	/**
+	 * Returns the local part of the name of an element.
+	 */
+	String getLocalName(Element element) {
+		String qualifiedName = getQualifiedName(element);
+
+		return qualifiedName.substring(qualifiedName.indexOf(':') + 1);
+	}
+
+	private byte byteAt(int i) {
+		if (i >= limit) {
+			throw new IllegalArgumentException("The document is incomplete");
+		}
+
+		return buffer.get(i);
+	}
+
+	private boolean startsWith(int i, String markup) {
+		if (i + markup.length() > limit) {
+			return false;
+		}
+
+		for (int j = 0; j < markup.length(); j++) {
+			if (buffer.get(i + j) != markup.charAt(j)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the offset following the next occurrence of the delimiter.
+	 */
+	private int skipPast(int i, String delimiter) {
+		while (i < limit) {
+			if (startsWith(i, delimiter)) {
+				return i + delimiter.length();
+			}
+
+			i++;
+		}
+
+		throw new IllegalArgumentException("The document is incomplete");
+	}
+
+	/**
+	 * Returns the offset following the '&gt;' closing a start tag, skipping
+	 * over quoted attribute values.
+	 */
+	private int skipTag(int i) {
+		byte quote = 0;
+
+		while (i < limit) {
+			byte b = buffer.get(i++);
+
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return i;
+			}
+		}
+
+		throw new IllegalArgumentException("The document is incomplete");
+	}
+
+	/**
+	 * Returns the offset following a markup declaration such as a DOCTYPE,
+	 * skipping over its internal subset.
+	 */
+	private int skipDeclaration(int i) {
+		int brackets = 0;
+		byte quote = 0;
+
+		while (i < limit) {
+			byte b = buffer.get(i++);
+
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '[') {
+				brackets++;
+			} else if (b == ']') {
+				brackets--;
+			} else if (b == '>' && brackets == 0) {
+				return i;
+			}
+		}
+
+		throw new IllegalArgumentException("The document is incomplete");
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+
+/**
+ * The namespace URI, name and qualified name of each model class, for
+ * STIXSchema.getNamespaceURI, getName and getQualifiedName.
+ *
+ * The build lists them for the generated model in model-metadata.txt
+ * alongside this class, so they are found without reading annotations.
+ * Classes not listed (e.g., from other JAXB models) have their annotations
+ * read once. Either way each class is looked up once and its names are kept
+ * in a ClassValue, so they do not keep the class or its ClassLoader from
+ * being unloaded.
+ *
+ * Thread-safe.
+ */
+final class ModelMetadata {
+
+	private static final Logger LOGGER = Logger.getLogger(ModelMetadata.class
+			.getName());
+
+	private static final String RESOURCE = "model-metadata.txt";
+
+	private static class Holder {
+		static final ModelMetadata instance = new ModelMetadata();
+	}
+
+	/**
+	 * The names of a class.
+	 */
+	static final class Names {
+
+		final String namespaceURI;
+
+		final String name;
+
+		final QName qualifiedName;
+
+		Names(String namespaceURI, String name) {
+			this.namespaceURI = QNameRegistry.internNamespaceURI(namespaceURI);
+			this.name = name;
+			this.qualifiedName = (namespaceURI == null || name == null) ? null
+					: new QName(this.namespaceURI, name);
+		}
+	}
+
+	// as listed by the build, by class name
+	private final Map<String, Names> listed = new HashMap<String, Names>();
+
+	private final ClassValue<Names> names = new ClassValue<Names>() {
+
+		@Override
+		protected Names computeValue(Class<?> clazz) {
+			Names classNames = listed.get(clazz.getName());
+
+			return (classNames == null) ? read(clazz) : classNames;
+		}
+	};
+
+	static ModelMetadata getInstance() {
+		return Holder.instance;
+	}
+
+	private ModelMetadata() {
+		InputStream inputStream = ModelMetadata.class
+				.getResourceAsStream(RESOURCE);
+
+		if (inputStream == null) {
+			LOGGER.fine("No model metadata was built, annotations are read instead");
+			return;
+		}
+
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					inputStream, "UTF-8"));
+
+			try {
+				String line;
+
+				while ((line = reader.readLine()) != null) {
+					if (line.length() == 0 || line.startsWith("#")) {
+						continue;
+					}
+
+					String[] fields = line.split("\t", -1);
+
+					if (fields.length == 3) {
+						listed.put(fields[0], new Names(fields[1], fields[2]));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read " + RESOURCE, e);
+
+			listed.clear();
+		}
+	}
+
+	/**
+	 * Returns the names of a class.
+	 *
+	 * @param clazz
+	 *            A JAXB model class
+	 * @return The names, whose members are null where the class has no
+	 *         annotation to give them
+	 */
+	Names forClass(Class<?> clazz) {
+		return names.get(clazz);
+	}
+
+	/**
+	 * Reads the names of a class from its annotations.
+	 */
+	private static Names read(Class<?> clazz) {
+		String namespaceURI = null;
+		String name = null;
+
+		Package pkg = clazz.getPackage();
+		XmlSchema xmlSchema = (pkg == null) ? null : pkg
+				.getAnnotation(XmlSchema.class);
+
+		if (xmlSchema != null) {
+			namespaceURI = xmlSchema.namespace();
+		}
+
+		XmlRootElement xmlRootElement = clazz
+				.getAnnotation(XmlRootElement.class);
+
+		if (xmlRootElement != null) {
+			name = xmlRootElement.name();
+		} else {
+			XmlType xmlType = clazz.getAnnotation(XmlType.class);
+
+			if (xmlType != null) {
+				name = xmlType.name();
+			}
+		}
+
+		return new Names(namespaceURI, name);
+	}
+}
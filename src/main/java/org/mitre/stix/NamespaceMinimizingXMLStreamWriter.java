@@ -0,0 +1,1028 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * An XMLStreamWriter that only writes the namespace declarations that are
+ * used.
+ *
+ * JAXB declares every namespace known by the JAXBContext on the root element
+ * it marshals (see DocumentUtilities.removeUnusedNamespaces.) Rather than
+ * pruning them afterwards, this writer holds back the namespace declarations
+ * written to it and declares a namespace where it is needed: for an element
+ * or attribute in the namespace, or an attribute value or element text that
+ * is a qualified name using one of the held back prefixes (e.g., xsi:type
+ * and id values.) Declarations already in scope are not repeated.
+ *
+ * So that a namespace used throughout a document is not declared again on
+ * every element that uses it, the root element's start tag and what follows
+ * it are buffered, up to maxBufferedEvents calls or until flush, and
+ * namespaces needed within the buffer are declared on the root element, as
+ * removeUnusedNamespaces leaves them. Beyond the buffer, namespaces not
+ * already declared are declared on the elements that use them.
+ *
+ * Namespaces passed to declareNamespace are always written. The bindings of
+ * a NamespaceContext set with setNamespaceContext before the root element
+ * are held back like those passed to setPrefix on the root.
+ *
+ * Not thread-safe.
+ */
+public class NamespaceMinimizingXMLStreamWriter implements XMLStreamWriter {
+
+	/**
+	 * Namespace bindings of an element: those written out and those held
+	 * back.
+	 */
+	private static class Scope {
+
+		final Map<String, String> written = new LinkedHashMap<String, String>(
+				4);
+
+		final Map<String, String> offered = new LinkedHashMap<String, String>(
+				4);
+	}
+
+	/**
+	 * A call to the underlying writer, buffered while the root element's
+	 * start tag is.
+	 */
+	private static class Event {
+
+		final int type;
+		final String a;
+		final String b;
+		final String c;
+		final String d;
+
+		Event(int type, String a, String b, String c, String d) {
+			this.type = type;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.d = d;
+		}
+	}
+
+	private static final int START_ELEMENT = 0;
+	private static final int EMPTY_ELEMENT = 1;
+	// stands in for the namespace declarations of the root element, which
+	// are only known once the buffer is written
+	private static final int ROOT_NAMESPACES = 2;
+	private static final int NAMESPACE = 3;
+	private static final int ATTRIBUTE = 4;
+	private static final int END_ELEMENT = 5;
+	private static final int CHARACTERS = 6;
+	private static final int CDATA = 7;
+	private static final int COMMENT = 8;
+	private static final int PROCESSING_INSTRUCTION = 9;
+	private static final int ENTITY_REF = 10;
+
+	/**
+	 * The number of calls buffered after the root element's start tag by
+	 * default.
+	 */
+	public static final int DEFAULT_MAX_BUFFERED_EVENTS = 1 << 14;
+
+	private static class Attribute {
+
+		final String prefix;
+		final String namespaceURI;
+		final String localName;
+		final String value;
+
+		Attribute(String prefix, String namespaceURI, String localName,
+				String value) {
+			this.prefix = prefix;
+			this.namespaceURI = namespaceURI;
+			this.localName = localName;
+			this.value = value;
+		}
+	}
+
+	private final XMLStreamWriter out;
+
+	private final LinkedList<Scope> scopes = new LinkedList<Scope>();
+
+	private final Map<String, String> preferredPrefixes;
+
+	private final int maxBufferedEvents;
+
+	private int generatedPrefixes = 0;
+
+	// the scope of the root element while its start tag is buffered
+	private Scope bufferedRoot;
+
+	private final List<Event> buffered = new ArrayList<Event>();
+
+	// bindings set with setNamespaceContext, held back like those of the
+	// root scope
+	private NamespaceContext rootNamespaceContext;
+
+	// the start tag being buffered until its namespaces can be worked out
+	private boolean pending = false;
+	private boolean pendingEmpty;
+	private String pendingPrefix;
+	private String pendingNamespaceURI;
+	private String pendingLocalName;
+	private Scope pendingScope;
+	private final List<Attribute> pendingAttributes = new ArrayList<Attribute>();
+
+	private final NamespaceContext namespaceContext = new NamespaceContext() {
+
+		public String getNamespaceURI(String prefix) {
+			return lookupNamespaceURI(prefix);
+		}
+
+		public String getPrefix(String namespaceURI) {
+			return lookupPrefix(namespaceURI);
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			String prefix = lookupPrefix(namespaceURI);
+
+			if (prefix == null) {
+				return Collections.<String> emptyList().iterator();
+			}
+
+			return Collections.singletonList(prefix).iterator();
+		}
+	};
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out
+	 *            The XMLStreamWriter to write to
+	 */
+	public NamespaceMinimizingXMLStreamWriter(XMLStreamWriter out) {
+		this(out, Collections.<String, String> emptyMap());
+	}
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out
+	 *            The XMLStreamWriter to write to
+	 * @param preferredPrefixes
+	 *            Prefixes to use for namespace URIs (namespace URI to prefix)
+	 *            when an element or attribute is written without one
+	 */
+	public NamespaceMinimizingXMLStreamWriter(XMLStreamWriter out,
+			Map<String, String> preferredPrefixes) {
+		this(out, preferredPrefixes, DEFAULT_MAX_BUFFERED_EVENTS);
+	}
+
+	/**
+	 * Creates a writer.
+	 *
+	 * @param out
+	 *            The XMLStreamWriter to write to
+	 * @param preferredPrefixes
+	 *            Prefixes to use for namespace URIs (namespace URI to prefix)
+	 *            when an element or attribute is written without one
+	 * @param maxBufferedEvents
+	 *            The most calls buffered after the root element's start tag,
+	 *            so that the namespaces they need are declared on it (e.g.,
+	 *            Integer.MAX_VALUE when writing to a Document, which is held
+	 *            in memory anyway, or 0 to buffer nothing)
+	 */
+	public NamespaceMinimizingXMLStreamWriter(XMLStreamWriter out,
+			Map<String, String> preferredPrefixes, int maxBufferedEvents) {
+		this.out = out;
+		this.preferredPrefixes = preferredPrefixes;
+		this.maxBufferedEvents = maxBufferedEvents;
+		this.scopes.push(new Scope());
+	}
+
+	/**
+	 * Declares a namespace on the element just started whether or not it is
+	 * used.
+	 *
+	 * @param prefix
+	 *            The prefix
+	 * @param namespaceURI
+	 *            The namespace URI
+	 * @throws XMLStreamException
+	 *             If no start tag is open
+	 */
+	public void declareNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Namespaces can only be declared on a start tag");
+		}
+
+		pendingScope.written.put(prefix == null ? "" : prefix, namespaceURI);
+	}
+
+	private Scope currentScope() {
+		return pending ? pendingScope : scopes.peek();
+	}
+
+	private String lookupNamespaceURI(String prefix) {
+		if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+			return XMLConstants.XML_NS_URI;
+		}
+
+		if (pending) {
+			String namespaceURI = pendingScope.written.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		for (Scope scope : scopes) {
+			String namespaceURI = scope.written.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		return offeredNamespaceURI(prefix);
+	}
+
+	private String writtenNamespaceURI(String prefix) {
+		for (Scope scope : scopes) {
+			String namespaceURI = scope.written.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		return "".equals(prefix) ? "" : null;
+	}
+
+	private String defaultNamespaceURI() {
+		String namespaceURI = lookupNamespaceURI("");
+
+		return namespaceURI == null ? "" : namespaceURI;
+	}
+
+	private String offeredNamespaceURI(String prefix) {
+		if (pending) {
+			String namespaceURI = pendingScope.offered.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		for (Scope scope : scopes) {
+			String namespaceURI = scope.offered.get(prefix);
+
+			if (namespaceURI != null) {
+				return namespaceURI;
+			}
+		}
+
+		if (rootNamespaceContext != null) {
+			String namespaceURI = rootNamespaceContext.getNamespaceURI(prefix);
+
+			if (namespaceURI != null && namespaceURI.length() > 0) {
+				return namespaceURI;
+			}
+		}
+
+		return null;
+	}
+
+	private String lookupPrefix(String namespaceURI) {
+		if (XMLConstants.XML_NS_URI.equals(namespaceURI)) {
+			return XMLConstants.XML_NS_PREFIX;
+		}
+
+		List<Scope> all = new ArrayList<Scope>(scopes.size() + 1);
+
+		if (pending) {
+			all.add(pendingScope);
+		}
+
+		all.addAll(scopes);
+
+		for (Scope scope : all) {
+			for (Map.Entry<String, String> entry : scope.written.entrySet()) {
+				if (entry.getValue().equals(namespaceURI)
+						&& namespaceURI.equals(lookupNamespaceURI(entry
+								.getKey()))) {
+					return entry.getKey();
+				}
+			}
+		}
+
+		for (Scope scope : all) {
+			for (Map.Entry<String, String> entry : scope.offered.entrySet()) {
+				if (entry.getValue().equals(namespaceURI)
+						&& namespaceURI.equals(offeredNamespaceURI(entry
+								.getKey()))) {
+					return entry.getKey();
+				}
+			}
+		}
+
+		if (rootNamespaceContext != null) {
+			String prefix = rootNamespaceContext.getPrefix(namespaceURI);
+
+			if (prefix != null
+					&& namespaceURI.equals(offeredNamespaceURI(prefix))) {
+				return prefix;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns a prefix for a namespace URI, holding back a declaration for it
+	 * if it has none.
+	 */
+	private String prefixFor(String namespaceURI, boolean attribute) {
+		if (namespaceURI == null || namespaceURI.length() == 0) {
+			return "";
+		}
+
+		String prefix = lookupPrefix(namespaceURI);
+
+		if (prefix != null && !(attribute && prefix.length() == 0)) {
+			return prefix;
+		}
+
+		prefix = preferredPrefixes.get(namespaceURI);
+
+		if (prefix == null || lookupNamespaceURI(prefix) != null) {
+			do {
+				prefix = "ns" + (++generatedPrefixes);
+			} while (lookupNamespaceURI(prefix) != null);
+		}
+
+		currentScope().offered.put(prefix, namespaceURI);
+
+		return prefix;
+	}
+
+	/**
+	 * Writes out the buffered start tag with the namespace declarations it
+	 * needs.
+	 */
+	private void flushStartTag() throws XMLStreamException {
+		if (!pending) {
+			return;
+		}
+
+		require(pendingPrefix, pendingNamespaceURI);
+
+		for (Attribute attribute : pendingAttributes) {
+			if (attribute.namespaceURI.length() > 0) {
+				require(attribute.prefix, attribute.namespaceURI);
+			}
+
+			requireQName(attribute.value);
+		}
+
+		pending = false;
+
+		boolean root = scopes.size() == 1;
+
+		if (root && !pendingEmpty && maxBufferedEvents > 0) {
+			bufferedRoot = pendingScope;
+		}
+
+		emit(pendingEmpty ? EMPTY_ELEMENT : START_ELEMENT, pendingPrefix,
+				pendingLocalName, pendingNamespaceURI, null);
+
+		if (pendingScope == bufferedRoot) {
+			emit(ROOT_NAMESPACES, null, null, null, null);
+		} else {
+			for (Map.Entry<String, String> declaration : pendingScope.written
+					.entrySet()) {
+				emit(NAMESPACE, declaration.getKey(), declaration.getValue(),
+						null, null);
+			}
+		}
+
+		for (Attribute attribute : pendingAttributes) {
+			emit(ATTRIBUTE, attribute.prefix, attribute.namespaceURI,
+					attribute.localName, attribute.value);
+		}
+
+		if (!pendingEmpty) {
+			scopes.push(pendingScope);
+		}
+
+		pendingAttributes.clear();
+		pendingScope = null;
+	}
+
+	/**
+	 * Declares a namespace on the buffered start tag unless an ancestor
+	 * already has, or on the root element if its start tag is still buffered
+	 * and nothing in between binds the prefix.
+	 */
+	private void require(String prefix, String namespaceURI) {
+		if (pendingScope.written.containsKey(prefix)) {
+			return;
+		}
+
+		String writtenNamespaceURI = writtenNamespaceURI(prefix);
+
+		if (namespaceURI.equals(writtenNamespaceURI)) {
+			return;
+		}
+
+		// the elements before this one did not use the prefix, unless bound
+		// in between, so it may be declared before them; the default
+		// namespace may not, as their unprefixed names would move into it
+		if (bufferedRoot != null && writtenNamespaceURI == null
+				&& prefix.length() > 0) {
+			bufferedRoot.written.put(prefix, namespaceURI);
+		} else {
+			pendingScope.written.put(prefix, namespaceURI);
+		}
+	}
+
+	/**
+	 * Declares the namespace of the prefix of a value that may be a
+	 * qualified name, if it is one of the held back prefixes.
+	 */
+	private void requireQName(CharSequence value) {
+		int length = value.length();
+
+		if (length == 0 || !isNCNameStart(value.charAt(0))) {
+			return;
+		}
+
+		int colon = 1;
+
+		while (colon < length && value.charAt(colon) != ':') {
+			if (!isNCNameChar(value.charAt(colon))) {
+				return;
+			}
+
+			colon++;
+		}
+
+		if (colon == length) {
+			return;
+		}
+
+		String prefix = value.subSequence(0, colon).toString();
+		String namespaceURI = offeredNamespaceURI(prefix);
+
+		if (namespaceURI == null) {
+			// not one of ours, so leave it be
+			return;
+		}
+
+		require(prefix, namespaceURI);
+	}
+
+	private static boolean isNCNameStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static boolean isNCNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '-'
+				|| c == '.';
+	}
+
+	/**
+	 * Writes a call to the underlying writer, or buffers it while the root
+	 * element's start tag is buffered.
+	 */
+	private void emit(int type, String a, String b, String c, String d)
+			throws XMLStreamException {
+		if (bufferedRoot == null) {
+			write(type, a, b, c, d);
+			return;
+		}
+
+		buffered.add(new Event(type, a, b, c, d));
+
+		if (buffered.size() >= maxBufferedEvents) {
+			writeBuffered();
+		}
+	}
+
+	/**
+	 * Writes the buffered calls, declaring the namespaces the root element
+	 * gathered on it. Later calls are written as they are made.
+	 */
+	private void writeBuffered() throws XMLStreamException {
+		if (bufferedRoot == null) {
+			return;
+		}
+
+		Scope root = bufferedRoot;
+
+		bufferedRoot = null;
+
+		for (Event event : buffered) {
+			if (event.type == ROOT_NAMESPACES) {
+				for (Map.Entry<String, String> declaration : root.written
+						.entrySet()) {
+					write(NAMESPACE, declaration.getKey(),
+							declaration.getValue(), null, null);
+				}
+			} else {
+				write(event.type, event.a, event.b, event.c, event.d);
+			}
+		}
+
+		buffered.clear();
+	}
+
+	private void write(int type, String a, String b, String c, String d)
+			throws XMLStreamException {
+		switch (type) {
+		case START_ELEMENT:
+			out.writeStartElement(a, b, c);
+			break;
+		case EMPTY_ELEMENT:
+			out.writeEmptyElement(a, b, c);
+			break;
+		case NAMESPACE:
+			if (a.length() == 0) {
+				out.writeDefaultNamespace(b);
+			} else {
+				out.writeNamespace(a, b);
+			}
+			break;
+		case ATTRIBUTE:
+			if (b.length() == 0) {
+				out.writeAttribute(c, d);
+			} else {
+				out.writeAttribute(a, b, c, d);
+			}
+			break;
+		case END_ELEMENT:
+			out.writeEndElement();
+			break;
+		case CHARACTERS:
+			out.writeCharacters(a);
+			break;
+		case CDATA:
+			out.writeCData(a);
+			break;
+		case COMMENT:
+			out.writeComment(a);
+			break;
+		case PROCESSING_INSTRUCTION:
+			if (b == null) {
+				out.writeProcessingInstruction(a);
+			} else {
+				out.writeProcessingInstruction(a, b);
+			}
+			break;
+		case ENTITY_REF:
+			out.writeEntityRef(a);
+			break;
+		default:
+			throw new IllegalStateException("Unknown event " + type);
+		}
+	}
+
+	private void startTag(String prefix, String localName,
+			String namespaceURI, boolean empty) throws XMLStreamException {
+		flushStartTag();
+
+		pending = true;
+		pendingEmpty = empty;
+		pendingScope = new Scope();
+		pendingLocalName = localName;
+		pendingNamespaceURI = namespaceURI == null ? "" : namespaceURI;
+		pendingPrefix = prefix == null ? prefixFor(pendingNamespaceURI, false)
+				: prefix;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		flushStartTag();
+		startTag("", localName, defaultNamespaceURI(), false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		startTag(null, localName, namespaceURI, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeStartElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		startTag(prefix, localName, namespaceURI, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName)
+			throws XMLStreamException {
+		startTag(null, localName, namespaceURI, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String prefix, String localName,
+			String namespaceURI) throws XMLStreamException {
+		startTag(prefix, localName, namespaceURI, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String)
+	 */
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		flushStartTag();
+		startTag("", localName, defaultNamespaceURI(), true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndElement()
+	 */
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		flushStartTag();
+
+		Scope scope = scopes.pop();
+
+		emit(END_ELEMENT, null, null, null, null);
+
+		if (scope == bufferedRoot) {
+			writeBuffered();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndDocument()
+	 */
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		flushStartTag();
+		writeBuffered();
+		out.writeEndDocument();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#close()
+	 */
+	@Override
+	public void close() throws XMLStreamException {
+		flushStartTag();
+		writeBuffered();
+		out.close();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#flush()
+	 */
+	@Override
+	public void flush() throws XMLStreamException {
+		flushStartTag();
+		writeBuffered();
+		out.flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String localName, String value)
+			throws XMLStreamException {
+		writeAttribute("", "", localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI,
+			String localName, String value) throws XMLStreamException {
+		if (!pending) {
+			throw new XMLStreamException(
+					"Attributes can only be written on a start tag");
+		}
+
+		if (namespaceURI == null) {
+			namespaceURI = "";
+		}
+
+		if (prefix == null || (prefix.length() == 0 && namespaceURI.length() > 0)) {
+			prefix = prefixFor(namespaceURI, true);
+		}
+
+		pendingAttributes.add(new Attribute(prefix, namespaceURI, localName,
+				value));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String,
+	 * java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void writeAttribute(String namespaceURI, String localName,
+			String value) throws XMLStreamException {
+		writeAttribute(null, namespaceURI, localName, value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeNamespace(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI)
+			throws XMLStreamException {
+		if (prefix == null || prefix.length() == 0
+				|| XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+			writeDefaultNamespace(namespaceURI);
+			return;
+		}
+
+		currentScope().offered.put(prefix, namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void writeDefaultNamespace(String namespaceURI)
+			throws XMLStreamException {
+		currentScope().offered.put("", namespaceURI);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeComment(java.lang.String)
+	 */
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		flushStartTag();
+		emit(COMMENT, data, null, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target)
+			throws XMLStreamException {
+		flushStartTag();
+		emit(PROCESSING_INSTRUCTION, target, null, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang
+	 * .String, java.lang.String)
+	 */
+	@Override
+	public void writeProcessingInstruction(String target, String data)
+			throws XMLStreamException {
+		flushStartTag();
+		emit(PROCESSING_INSTRUCTION, target, data, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCData(java.lang.String)
+	 */
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		flushStartTag();
+		emit(CDATA, data, null, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeDTD(java.lang.String)
+	 */
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		out.writeDTD(dtd);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeEntityRef(java.lang.String)
+	 */
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		flushStartTag();
+		emit(ENTITY_REF, name, null, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument()
+	 */
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		out.writeStartDocument();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		out.writeStartDocument(version);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void writeStartDocument(String encoding, String version)
+			throws XMLStreamException {
+		out.writeStartDocument(encoding, version);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(java.lang.String)
+	 */
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		if (pending) {
+			// the text of an element may be a qualified name too
+			requireQName(text);
+		}
+
+		flushStartTag();
+		emit(CHARACTERS, text, null, null, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(char[], int, int)
+	 */
+	@Override
+	public void writeCharacters(char[] text, int start, int len)
+			throws XMLStreamException {
+		if (pending) {
+			requireQName(CharBuffer.wrap(text, start, len));
+		}
+
+		flushStartTag();
+
+		if (bufferedRoot == null) {
+			out.writeCharacters(text, start, len);
+		} else {
+			emit(CHARACTERS, new String(text, start, len), null, null, null);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getPrefix(java.lang.String)
+	 */
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return lookupPrefix(uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#setPrefix(java.lang.String,
+	 * java.lang.String)
+	 */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		currentScope().offered.put(prefix == null ? "" : prefix, uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#setDefaultNamespace(java.lang.String)
+	 */
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		currentScope().offered.put("", uri);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * javax.xml.stream.XMLStreamWriter#setNamespaceContext(javax.xml.namespace
+	 * .NamespaceContext)
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context)
+			throws XMLStreamException {
+		if (pending || scopes.size() > 1) {
+			throw new XMLStreamException(
+					"The namespace context can only be set before the root element");
+		}
+
+		rootNamespaceContext = context;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getNamespaceContext()
+	 */
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.XMLStreamWriter#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		return out.getProperty(name);
+	}
+}
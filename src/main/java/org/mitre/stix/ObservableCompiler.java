@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.mitre.cybox.common_2.BaseObjectPropertyType;
+import org.mitre.cybox.common_2.ConditionApplicationEnum;
+import org.mitre.cybox.common_2.ConditionTypeEnum;
+import org.mitre.cybox.cybox_2.ObjectType;
+import org.mitre.cybox.cybox_2.ObservableCompositionType;
+import org.mitre.cybox.cybox_2.ObservableType;
+import org.mitre.cybox.cybox_2.OperatorTypeEnum;
+import org.mitre.stix.EvaluatorNodes.Node;
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.indicator_2.Indicator;
+
+/**
+ * Compiles the conditions of CybOX Observables into ObservableEvaluators,
+ * so events (see ObservableEvent) are matched without interpreting the
+ * JAXB beans of the Observables for every event.
+ *
+ * An Observable compiles to the AND of the conditions of its Object's
+ * properties, or to the AND or OR of the Observables of its
+ * Observable_Composition, negated if it is negated. A property compiles to
+ * its condition (Equals if it has none) applied to ANY, ALL or NONE of its
+ * values as its apply_condition calls for, and matches an event if any
+ * event value of its path satisfies the condition; DoesNotEqual and
+ * DoesNotContain match events with values of the path, none of which equal
+ * or contain the property's value.
+ *
+ * On the way:
+ *
+ * <ul>
+ * <li>Equals, Contains, StartsWith and EndsWith conditions ORed on the same
+ * path (e.g., by an OR composition or a list of values) are merged into one
+ * hash table and Aho-Corasick automata, so their values are searched for in
+ * one pass,</li>
+ * <li>FitsPattern regular expressions are compiled once and found anywhere
+ * in values,</li>
+ * <li>GreaterThan, LessThan and the like compare numbers as numbers and
+ * anything else as strings, and</li>
+ * <li>the children of ANDs and ORs are evaluated cheapest first, stopping
+ * as soon as the outcome is known.</li>
+ * </ul>
+ *
+ * The Bitwise conditions are not supported, and compile to conditions that
+ * never match. Observables that refer to others by idref compile to the
+ * Observables they refer to when the compiler has an IdrefIndex with them,
+ * negated if the referring Observable is negated, and never match
+ * otherwise. An Observable found again within itself, through idrefs and
+ * compositions, never matches there.
+ *
+ * Not thread-safe; the evaluators it compiles are.
+ */
+public class ObservableCompiler {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(ObservableCompiler.class.getName());
+
+	private final IdrefIndex index;
+
+	// the Observables being compiled, to stop at cycles
+	private final Set<ObservableType> compiling = Collections
+			.newSetFromMap(new IdentityHashMap<ObservableType, Boolean>());
+
+	/**
+	 * Creates a compiler that does not resolve idrefs.
+	 */
+	public ObservableCompiler() {
+		this(null);
+	}
+
+	/**
+	 * Creates a compiler resolving idrefs through an index.
+	 *
+	 * @param index
+	 *            The index of the Observables referred to, e.g., of a package
+	 */
+	public ObservableCompiler(IdrefIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Compiles an Observable.
+	 *
+	 * @param observable
+	 *            The Observable
+	 * @return The evaluator
+	 */
+	public ObservableEvaluator compile(ObservableType observable) {
+		return compileObservable(observable);
+	}
+
+	/**
+	 * Compiles the Observable of an Indicator.
+	 *
+	 * @param indicator
+	 *            The Indicator
+	 * @return The evaluator, never matching if the Indicator has no
+	 *         Observable
+	 */
+	public ObservableEvaluator compile(Indicator indicator) {
+		return (indicator.getObservable() == null) ? EvaluatorNodes.FALSE
+				: compileObservable(indicator.getObservable());
+	}
+
+	/**
+	 * Compiles the Observables of a set of Indicators into one evaluator
+	 * matching events any of them match, e.g., for a watchlist.
+	 *
+	 * @param indicators
+	 *            The Indicators
+	 * @return The evaluator
+	 */
+	public ObservableEvaluator compileAny(
+			Collection<? extends IndicatorBaseType> indicators) {
+		List<Node> nodes = new ArrayList<Node>();
+
+		for (IndicatorBaseType indicator : indicators) {
+			if (indicator instanceof Indicator
+					&& ((Indicator) indicator).getObservable() != null) {
+				nodes.add(compileObservable(((Indicator) indicator)
+						.getObservable()));
+			}
+		}
+
+		return EvaluatorNodes.or(nodes);
+	}
+
+	private Node compileObservable(ObservableType observable) {
+
+		// a reference is negated by its own negate, not by that of the
+		// Observable it refers to
+		boolean negate = observable.isNegate();
+
+		if (IdrefIndex.getIdref(observable) != null) {
+			Object referred = (index == null) ? null : index
+					.resolve(observable);
+
+			if (!(referred instanceof ObservableType)) {
+				LOGGER.fine("Not compiling unresolved Observable "
+						+ IdrefIndex.getIdref(observable));
+				return EvaluatorNodes.FALSE;
+			}
+
+			observable = (ObservableType) referred;
+		}
+
+		if (!compiling.add(observable)) {
+			LOGGER.warning("Not compiling Observable "
+					+ IdrefIndex.getId(observable) + " within itself");
+			return EvaluatorNodes.FALSE;
+		}
+
+		Node node;
+
+		try {
+			node = compileContent(observable);
+		} finally {
+			compiling.remove(observable);
+		}
+
+		return negate ? EvaluatorNodes.not(node) : node;
+	}
+
+	/**
+	 * Compiles the composition or Object of an Observable.
+	 */
+	private Node compileContent(ObservableType observable) {
+		Node node = EvaluatorNodes.FALSE;
+		ObservableCompositionType composition = observable
+				.getObservableComposition();
+		ObjectType obj = observable.getObject();
+
+		if (composition != null) {
+			List<Node> children = new ArrayList<Node>();
+
+			for (ObservableType child : composition.getObservables()) {
+				children.add(compileObservable(child));
+			}
+
+			node = (composition.getOperator() == OperatorTypeEnum.OR) ? EvaluatorNodes
+					.or(children) : EvaluatorNodes.and(children);
+		} else if (obj != null && obj.getProperties() != null) {
+			final List<Node> conditions = new ArrayList<Node>();
+
+			PropertyPaths.visit(obj.getProperties(),
+					new PropertyPaths.Visitor() {
+						@Override
+						public void property(String path,
+								BaseObjectPropertyType property) {
+							conditions.add(compileProperty(path, property));
+						}
+					});
+
+			// an Object with no conditions on its properties matches nothing
+			// rather than everything
+			if (!conditions.isEmpty()) {
+				node = EvaluatorNodes.and(conditions);
+			}
+		}
+
+		return node;
+	}
+
+	private Node compileProperty(String path, BaseObjectPropertyType property) {
+		ConditionTypeEnum condition = (property.getCondition() == null) ? ConditionTypeEnum.EQUALS
+				: property.getCondition();
+		boolean caseSensitive = property.isIsCaseSensitive();
+
+		List<Node> nodes = new ArrayList<Node>();
+
+		for (String value : PropertyPaths.values(property)) {
+			nodes.add(compileCondition(path, condition, value, caseSensitive));
+		}
+
+		ConditionApplicationEnum applyCondition = property.getApplyCondition();
+
+		if (applyCondition == ConditionApplicationEnum.ALL) {
+			return EvaluatorNodes.and(nodes);
+		} else if (applyCondition == ConditionApplicationEnum.NONE) {
+			return EvaluatorNodes.not(EvaluatorNodes.or(nodes));
+		}
+
+		return EvaluatorNodes.or(nodes);
+	}
+
+	private static Node compileCondition(String path,
+			ConditionTypeEnum condition, String value, boolean caseSensitive) {
+		switch (condition) {
+		case EQUALS:
+			return EvaluatorNodes.StringSet.of(path, value,
+					AhoCorasickAutomaton.EQUALS, caseSensitive);
+		case DOES_NOT_EQUAL:
+			return new EvaluatorNodes.NoneOf(EvaluatorNodes.StringSet.of(path,
+					value, AhoCorasickAutomaton.EQUALS, caseSensitive));
+		case CONTAINS:
+			return EvaluatorNodes.StringSet.of(path, value,
+					AhoCorasickAutomaton.CONTAINS, caseSensitive);
+		case DOES_NOT_CONTAIN:
+			return new EvaluatorNodes.NoneOf(EvaluatorNodes.StringSet.of(path,
+					value, AhoCorasickAutomaton.CONTAINS, caseSensitive));
+		case STARTS_WITH:
+			return EvaluatorNodes.StringSet.of(path, value,
+					AhoCorasickAutomaton.STARTS_WITH, caseSensitive);
+		case ENDS_WITH:
+			return EvaluatorNodes.StringSet.of(path, value,
+					AhoCorasickAutomaton.ENDS_WITH, caseSensitive);
+		case FITS_PATTERN:
+			return new EvaluatorNodes.PatternNode(path, value, caseSensitive);
+		case GREATER_THAN:
+			return new EvaluatorNodes.Comparison(path, value, false, false,
+					true);
+		case GREATER_THAN_OR_EQUAL:
+			return new EvaluatorNodes.Comparison(path, value, false, true,
+					true);
+		case LESS_THAN:
+			return new EvaluatorNodes.Comparison(path, value, true, false,
+					false);
+		case LESS_THAN_OR_EQUAL:
+			return new EvaluatorNodes.Comparison(path, value, true, true,
+					false);
+		default:
+			LOGGER.warning("Unsupported condition " + condition.value()
+					+ " on " + path + " never matches");
+			return EvaluatorNodes.FALSE;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+/**
+ * Decides whether events match the conditions of an Observable, as compiled
+ * by an ObservableCompiler.
+ *
+ * Thread-safe.
+ */
+public interface ObservableEvaluator {
+
+	/**
+	 * Returns whether an event matches.
+	 *
+	 * @param event
+	 *            The event
+	 * @return True if its property values satisfy the conditions
+	 */
+	boolean matches(ObservableEvent event);
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+/**
+ * The property values of an event (e.g., a file seen or a connection made)
+ * that an ObservableEvaluator matches against. Properties are named by
+ * paths of the xsi:type of a CybOX Object's properties followed by their
+ * element names, e.g., "AddressObjectType/Address_Value" or
+ * "FileObjectType/Hashes/Hash/Simple_Hash_Value" (see MapObservableEvent.)
+ *
+ * Implementations used from several threads must be thread-safe.
+ */
+public interface ObservableEvent {
+
+	/**
+	 * Returns the number of values of a property.
+	 *
+	 * @param path
+	 *            The path of the property
+	 * @return The number of values, 0 if the event has none
+	 */
+	int getValueCount(String path);
+
+	/**
+	 * Returns a value of a property.
+	 *
+	 * @param path
+	 *            The path of the property
+	 * @param index
+	 *            The index of the value, less than getValueCount(path)
+	 * @return The value
+	 */
+	CharSequence getValue(String path, int index);
+}
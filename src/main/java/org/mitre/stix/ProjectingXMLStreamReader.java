@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * An XMLStreamReader passing on only the parts of a document a
+ * STIXProjection keeps. The elements it skips are read past in the
+ * underlying reader without reporting any of their events, and the text of
+ * the elements kept only on the way to others is dropped.
+ *
+ * Not thread-safe.
+ */
+class ProjectingXMLStreamReader extends StreamReaderDelegate {
+
+	private final STIXProjection.Matcher matcher;
+
+	// the depth within the element being kept whole, 0 outside of one
+	private int kept = 0;
+
+	ProjectingXMLStreamReader(XMLStreamReader reader,
+			STIXProjection.Matcher matcher) {
+		super(reader);
+		this.matcher = matcher;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.util.StreamReaderDelegate#next()
+	 */
+	@Override
+	public int next() throws XMLStreamException {
+		while (true) {
+			int event = super.next();
+
+			if (kept > 0) {
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					kept++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					kept--;
+				}
+
+				return event;
+			}
+
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				switch (matcher.start(getParent())) {
+				case STIXProjection.KEEP:
+					kept = 1;
+					return event;
+				case STIXProjection.SKIP:
+					skipElement(getParent());
+					break;
+				default:
+					return event;
+				}
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+				matcher.end();
+				return event;
+
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+			case XMLStreamConstants.COMMENT:
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				// the text of elements kept on the way to others
+				break;
+
+			default:
+				return event;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.util.StreamReaderDelegate#nextTag()
+	 */
+	@Override
+	public int nextTag() throws XMLStreamException {
+		int event = next();
+
+		while ((event == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+				|| (event == XMLStreamConstants.CDATA && isWhiteSpace())
+				|| event == XMLStreamConstants.SPACE
+				|| event == XMLStreamConstants.COMMENT
+				|| event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+			event = next();
+		}
+
+		if (event != XMLStreamConstants.START_ELEMENT
+				&& event != XMLStreamConstants.END_ELEMENT) {
+			throw new XMLStreamException("Expected a start or end tag",
+					getLocation());
+		}
+
+		return event;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.xml.stream.util.StreamReaderDelegate#getElementText()
+	 */
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (getEventType() != XMLStreamConstants.START_ELEMENT) {
+			throw new XMLStreamException("Not on a start tag", getLocation());
+		}
+
+		StringBuilder content = new StringBuilder();
+
+		for (int event = next(); event != XMLStreamConstants.END_ELEMENT; event = next()) {
+			if (event == XMLStreamConstants.CHARACTERS
+					|| event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE
+					|| event == XMLStreamConstants.ENTITY_REFERENCE) {
+				content.append(getText());
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				throw new XMLStreamException("Element has child elements",
+						getLocation());
+			} else if (event == XMLStreamConstants.END_DOCUMENT) {
+				throw new XMLStreamException("Unexpected end of document",
+						getLocation());
+			}
+		}
+
+		return content.toString();
+	}
+
+	/**
+	 * Reads past the element a reader is positioned on, leaving it on its
+	 * end tag.
+	 */
+	static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+
+		while (depth > 0) {
+			int event = reader.next();
+
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAnyAttribute;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.XmlValue;
+
+import org.mitre.cybox.common_2.BaseObjectPropertyType;
+import org.mitre.cybox.common_2.ObjectPropertiesType;
+
+/**
+ * Finds the properties of CybOX Objects (e.g., the Address_Value of an
+ * AddressObjectType) with their paths: the xsi:type of the Object's
+ * properties followed by the element names down to the property, e.g.,
+ * "AddressObjectType/Address_Value". The element fields of each class are
+ * found by reflection once and kept in a ClassValue, so the class can still
+ * be unloaded.
+ *
+ * Thread-safe.
+ */
+final class PropertyPaths {
+
+	/**
+	 * Receives the properties found.
+	 */
+	interface Visitor {
+
+		void property(String path, BaseObjectPropertyType property);
+	}
+
+	/**
+	 * An element field of a model class.
+	 */
+	private static final class Element {
+
+		final Field field;
+
+		final String name;
+
+		Element(Field field, String name) {
+			this.field = field;
+			this.name = name;
+		}
+	}
+
+	private static final ClassValue<List<Element>> elements = new ClassValue<List<Element>>() {
+
+		@Override
+		protected List<Element> computeValue(Class<?> clazz) {
+			return findElements(clazz);
+		}
+	};
+
+	private PropertyPaths() {
+	}
+
+	/**
+	 * Visits the properties of an Object that have values.
+	 *
+	 * @param properties
+	 *            The Object's properties
+	 * @param visitor
+	 *            Receives each property with its path
+	 */
+	static void visit(ObjectPropertiesType properties, Visitor visitor) {
+		visitBean(typeName(properties.getClass()), properties, visitor);
+	}
+
+	/**
+	 * Returns the values of a property, split by its delimiter (e.g.,
+	 * "10.0.0.0##comma##10.0.0.1"), whatever its condition.
+	 *
+	 * @param property
+	 *            The property
+	 * @return The values, none if it has no value
+	 */
+	static List<String> values(BaseObjectPropertyType property) {
+		if (property == null || property.getValue() == null) {
+			return Collections.emptyList();
+		}
+
+		String value = property.getValue().toString();
+		String delimiter = property.getDelimiter();
+
+		if (delimiter == null || delimiter.length() == 0
+				|| !value.contains(delimiter)) {
+			return Collections.singletonList(value.trim());
+		}
+
+		List<String> values = new ArrayList<String>();
+
+		for (int start = 0;;) {
+			int end = value.indexOf(delimiter, start);
+
+			values.add(value.substring(start,
+					(end < 0) ? value.length() : end).trim());
+
+			if (end < 0) {
+				return values;
+			}
+
+			start = end + delimiter.length();
+		}
+	}
+
+	/**
+	 * Returns the xsi:type name of a properties class that paths start with.
+	 */
+	static String typeName(Class<?> clazz) {
+		XmlType xmlType = clazz.getAnnotation(XmlType.class);
+
+		if (xmlType == null || xmlType.name().length() == 0
+				|| xmlType.name().equals("##default")) {
+			return clazz.getSimpleName();
+		}
+
+		return xmlType.name();
+	}
+
+	private static void visitBean(String path, Object bean, Visitor visitor) {
+		for (Element element : elements(bean.getClass())) {
+			try {
+				visitValue(path, element.name, element.field.get(bean),
+						visitor);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static void visitValue(String parent, String name, Object value,
+			Visitor visitor) {
+		if (value == null) {
+			return;
+		}
+
+		if (value instanceof JAXBElement) {
+			JAXBElement<?> element = (JAXBElement<?>) value;
+
+			visitValue(parent, element.getName().getLocalPart(),
+					element.getValue(), visitor);
+		} else if (value instanceof Collection) {
+			for (Object item : (Collection<?>) value) {
+				visitValue(parent, name, item, visitor);
+			}
+		} else if (value instanceof BaseObjectPropertyType) {
+			if (((BaseObjectPropertyType) value).getValue() != null) {
+				visitor.property(parent + "/" + name,
+						(BaseObjectPropertyType) value);
+			}
+		} else if (!value.getClass().isEnum()
+				&& value.getClass().getAnnotation(XmlType.class) != null) {
+			visitBean(parent + "/" + name, value, visitor);
+		}
+	}
+
+	private static List<Element> elements(Class<?> clazz) {
+		return elements.get(clazz);
+	}
+
+	private static List<Element> findElements(Class<?> clazz) {
+		List<Element> classElements = new ArrayList<Element>();
+
+		for (Class<?> c = clazz; c != null && c != Object.class; c = c
+				.getSuperclass()) {
+			List<Element> declared = new ArrayList<Element>();
+
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())
+						|| Modifier.isTransient(field.getModifiers())
+						|| field.getType().isPrimitive()
+						|| field.getAnnotation(XmlAttribute.class) != null
+						|| field.getAnnotation(XmlAnyAttribute.class) != null
+						|| field.getAnnotation(XmlValue.class) != null
+						|| field.getAnnotation(XmlTransient.class) != null) {
+					continue;
+				}
+
+				XmlElement xmlElement = field
+						.getAnnotation(XmlElement.class);
+				String name = (xmlElement == null || xmlElement.name()
+						.equals("##default")) ? field.getName()
+						: xmlElement.name();
+
+				field.setAccessible(true);
+				declared.add(new Element(field, name));
+			}
+
+			// the elements of superclasses come first, as in documents
+			classElements.addAll(0, declared);
+		}
+
+		return classElements;
+	}
+}
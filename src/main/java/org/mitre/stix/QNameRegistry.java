@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A process-wide registry of the namespace URIs, prefixes and type names
+ * read from STIX documents, so that the many ids, idrefs and xsi:types of a
+ * large object graph share one copy of each instead of holding a copy per
+ * object.
+ *
+ * Namespace URIs and prefixes are interned as strings, and type names (the
+ * values of xsi:type, which repeat for every object of a type) as whole
+ * QNames. Ids are unique, so only the strings of their QNames are interned.
+ * Each table stops growing at MAX_ENTRIES, after which values not already in
+ * it are returned as they are, so that hostile or unusual input cannot
+ * exhaust the heap.
+ *
+ * Thread-safe.
+ */
+public class QNameRegistry {
+
+	/**
+	 * The most entries each table holds.
+	 */
+	public static final int MAX_ENTRIES = 1 << 16;
+
+	private static final ConcurrentMap<String, String> namespaceURIs = new ConcurrentHashMap<String, String>();
+
+	private static final ConcurrentMap<String, String> prefixes = new ConcurrentHashMap<String, String>();
+
+	// QName.equals ignores prefixes, so a type name is only shared with names
+	// written with the same prefix
+	private static final ConcurrentMap<QName, QName> typeNames = new ConcurrentHashMap<QName, QName>();
+
+	private QNameRegistry() {
+	}
+
+	private static String intern(ConcurrentMap<String, String> table,
+			String value) {
+		if (value == null) {
+			return null;
+		}
+
+		String interned = table.get(value);
+
+		if (interned != null) {
+			return interned;
+		}
+
+		if (table.size() >= MAX_ENTRIES) {
+			return value;
+		}
+
+		interned = table.putIfAbsent(value, value);
+
+		return (interned == null) ? value : interned;
+	}
+
+	/**
+	 * Returns the shared copy of a namespace URI.
+	 *
+	 * @param namespaceURI
+	 *            A namespace URI, or null
+	 * @return An equal string
+	 */
+	public static String internNamespaceURI(String namespaceURI) {
+		return intern(namespaceURIs, namespaceURI);
+	}
+
+	/**
+	 * Returns the shared copy of a namespace prefix.
+	 *
+	 * @param prefix
+	 *            A prefix, or null
+	 * @return An equal string
+	 */
+	public static String internPrefix(String prefix) {
+		return intern(prefixes, prefix);
+	}
+
+	/**
+	 * Returns a QName whose namespace URI and prefix are the shared copies,
+	 * e.g., for an id or idref.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI
+	 * @param localPart
+	 *            The local part, which is not interned
+	 * @param prefix
+	 *            The prefix
+	 * @return A new QName
+	 */
+	public static QName intern(String namespaceURI, String localPart,
+			String prefix) {
+		return new QName(internNamespaceURI(namespaceURI), localPart,
+				internPrefix(prefix));
+	}
+
+	/**
+	 * Returns a QName equal to, and with the same prefix as, name whose
+	 * namespace URI and prefix are the shared copies.
+	 *
+	 * @param name
+	 *            A QName, or null
+	 * @return name itself if its strings are already the shared copies
+	 */
+	public static QName intern(QName name) {
+		if (name == null) {
+			return null;
+		}
+
+		String namespaceURI = internNamespaceURI(name.getNamespaceURI());
+		String prefix = internPrefix(name.getPrefix());
+
+		if (namespaceURI == name.getNamespaceURI()
+				&& prefix == name.getPrefix()) {
+			return name;
+		}
+
+		return new QName(namespaceURI, name.getLocalPart(), prefix);
+	}
+
+	/**
+	 * Returns the shared QName for a type name, e.g., the value of an
+	 * xsi:type attribute.
+	 *
+	 * @param typeName
+	 *            A QName, or null
+	 * @return An equal QName with the same prefix
+	 */
+	public static QName internTypeName(QName typeName) {
+		if (typeName == null) {
+			return null;
+		}
+
+		QName interned = typeNames.get(typeName);
+
+		if (interned != null && interned.getPrefix().equals(typeName.getPrefix())) {
+			return interned;
+		}
+
+		typeName = intern(typeName);
+
+		if (interned != null || typeNames.size() >= MAX_ENTRIES) {
+			return typeName;
+		}
+
+		interned = typeNames.putIfAbsent(typeName, typeName);
+
+		return (interned == null) ? typeName : interned;
+	}
+
+	/**
+	 * Returns a shared QName for a type name.
+	 *
+	 * @param namespaceURI
+	 *            The namespace URI
+	 * @param localPart
+	 *            The local part
+	 * @param prefix
+	 *            The prefix
+	 * @return An equal QName with the same prefix
+	 */
+	public static QName internTypeName(String namespaceURI, String localPart,
+			String prefix) {
+		return internTypeName(new QName(namespaceURI, localPart, prefix));
+	}
+}
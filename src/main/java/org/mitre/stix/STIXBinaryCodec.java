@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Encodes JAXB model objects in a compact binary form of their XML, for
+ * passing them between JVMs or keeping them in caches, and decodes them
+ * again.
+ *
+ * The binary form is a stream of the StAX events of the XML document.
+ * Namespace URIs, prefixes, names, enumeration and vocabulary values are
+ * encoded as integers, starting from a dictionary of the model's strings
+ * generated by the build (see BinaryDictionary), and qualified name values
+ * such as ids are encoded as a prefix, a local part and, if the local part
+ * ends with one, a 16 byte UUID. Objects are written and read with
+ * FastPathMarshaller and FastPathUnmarshaller, so they round-trip exactly as
+ * they do through XML, and encodeXML and decodeXML convert between the two
+ * forms of a document.
+ *
+ * The binary form can only be read by a build with the same dictionary,
+ * which is checked. Documents are not validated.
+ */
+public class STIXBinaryCodec {
+
+	static final byte[] MAGIC = { 'S', 'T', 'X', 'B' };
+
+	static final int VERSION = 1;
+
+	// tokens
+	static final int END_DOCUMENT = 0;
+	static final int START_ELEMENT = 1;
+	static final int END_ELEMENT = 2;
+	static final int CHARACTERS = 3;
+	static final int COMMENT = 4;
+	static final int PROCESSING_INSTRUCTION = 5;
+
+	// kinds of values
+	static final int STRING_VALUE = 0;
+	static final int QNAME_VALUE = 1;
+	static final int QNAME_UUID_VALUE = 2;
+
+	static final int UUID_LENGTH = 36;
+
+	// strings longer than this are not given codes, as they are unlikely to
+	// be repeated (e.g., descriptions)
+	private static final int MAX_CODED_LENGTH = 64;
+
+	private static final int MAX_CODES = 1 << 16;
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(false);
+
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory
+			.newInstance();
+
+	/**
+	 * Writes an object in binary form to an OutputStream. The stream is not
+	 * closed.
+	 *
+	 * @param value
+	 *            A JAXBElement, or a JAXB model object, which is written as
+	 *            the element named by its class (see
+	 *            STIXSchema.getQualifiedName)
+	 * @param outputStream
+	 *            The stream to write to
+	 */
+	public static void encode(Object value, OutputStream outputStream) {
+		try {
+			BinaryXMLStreamWriter writer = new BinaryXMLStreamWriter(
+					outputStream);
+
+			new FastPathMarshaller(writer).marshal(value);
+
+			writer.writeEndDocument();
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns an object in binary form.
+	 *
+	 * @param value
+	 *            A JAXBElement or a JAXB model object
+	 * @return The binary form
+	 */
+	public static byte[] encode(Object value) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		encode(value, outputStream);
+
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Reads an object in binary form from an InputStream. The stream is not
+	 * closed.
+	 *
+	 * @param inputStream
+	 *            The binary form
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The object
+	 */
+	public static <T> T decode(InputStream inputStream, Class<T> declaredType) {
+		try {
+			return new FastPathUnmarshaller(new BinaryXMLStreamReader(
+					inputStream)).unmarshal(declaredType);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads an object in binary form.
+	 *
+	 * @param bytes
+	 *            The binary form
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The object
+	 */
+	public static <T> T decode(byte[] bytes, Class<T> declaredType) {
+		return decode(new ByteArrayInputStream(bytes), declaredType);
+	}
+
+	/**
+	 * Converts an XML document to binary form, keeping its namespace
+	 * declarations, text (including whitespace), comments and processing
+	 * instructions. The streams are not closed.
+	 *
+	 * @param xml
+	 *            The XML document
+	 * @param outputStream
+	 *            The stream to write the binary form to
+	 */
+	public static void encodeXML(InputStream xml, OutputStream outputStream) {
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xml);
+
+			try {
+				BinaryXMLStreamWriter writer = new BinaryXMLStreamWriter(
+						outputStream);
+
+				copy(reader, writer);
+
+				writer.flush();
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Converts a document in binary form to UTF-8 encoded XML. The streams
+	 * are not closed.
+	 *
+	 * @param inputStream
+	 *            The binary form
+	 * @param xml
+	 *            The stream to write the XML document to
+	 */
+	public static void decodeXML(InputStream inputStream, OutputStream xml) {
+		try {
+			XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(
+					xml, "UTF-8");
+
+			try {
+				writer.writeStartDocument("UTF-8", "1.0");
+
+				copy(new BinaryXMLStreamReader(inputStream), writer);
+
+				writer.flush();
+			} finally {
+				writer.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Copies the events of a document, up to and including its end.
+	 */
+	static void copy(XMLStreamReader reader, XMLStreamWriter writer)
+			throws XMLStreamException {
+
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				String prefix = reader.getPrefix();
+				String namespaceURI = reader.getNamespaceURI();
+
+				writer.writeStartElement(prefix == null ? "" : prefix,
+						reader.getLocalName(), namespaceURI == null ? ""
+								: namespaceURI);
+
+				for (int i = 0; i < reader.getNamespaceCount(); i++) {
+					String namespacePrefix = reader.getNamespacePrefix(i);
+
+					if (namespacePrefix == null
+							|| namespacePrefix.length() == 0) {
+						writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+					} else {
+						writer.writeNamespace(namespacePrefix,
+								reader.getNamespaceURI(i));
+					}
+				}
+
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					String attributePrefix = reader.getAttributePrefix(i);
+					String attributeNamespaceURI = reader
+							.getAttributeNamespace(i);
+
+					writer.writeAttribute(attributePrefix == null ? ""
+							: attributePrefix,
+							attributeNamespaceURI == null ? ""
+									: attributeNamespaceURI, reader
+									.getAttributeLocalName(i), reader
+									.getAttributeValue(i));
+				}
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				writer.writeEndElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				writer.writeCharacters(reader.getTextCharacters(),
+						reader.getTextStart(), reader.getTextLength());
+				break;
+			case XMLStreamConstants.COMMENT:
+				writer.writeComment(reader.getText());
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				writer.writeProcessingInstruction(reader.getPITarget(),
+						reader.getPIData());
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				writer.writeEndDocument();
+				break;
+			default:
+				// DTDs and entity references are not kept
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a string read or written in full is given the next
+	 * code, the same way for the reader and the writer.
+	 */
+	static boolean isCoded(String value, int codes) {
+		return value.length() <= MAX_CODED_LENGTH && codes < MAX_CODES;
+	}
+
+	/**
+	 * Returns whether the characters between start and end are a non-empty
+	 * NCName made of ASCII letters, digits, '.', '-' and '_'.
+	 */
+	static boolean isName(String value, int start, int end) {
+		if (start >= end) {
+			return false;
+		}
+
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+
+			boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| c == '_';
+
+			if (!letter
+					&& (i == start || !((c >= '0' && c <= '9') || c == '.' || c == '-'))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns whether a string ends with a UUID in the canonical, lower case
+	 * form UUID.toString returns, starting at start.
+	 */
+	static boolean isUUID(String value, int start) {
+		if (value.length() - start != UUID_LENGTH) {
+			return false;
+		}
+
+		for (int i = 0; i < UUID_LENGTH; i++) {
+			char c = value.charAt(start + i);
+
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return false;
+				}
+			} else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
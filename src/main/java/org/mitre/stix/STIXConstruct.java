@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.mitre.cybox.cybox_2.ObservableType;
+import org.mitre.stix.common_1.CampaignBaseType;
+import org.mitre.stix.common_1.CourseOfActionBaseType;
+import org.mitre.stix.common_1.ExploitTargetBaseType;
+import org.mitre.stix.common_1.IncidentBaseType;
+import org.mitre.stix.common_1.IndicatorBaseType;
+import org.mitre.stix.common_1.ReportBaseType;
+import org.mitre.stix.common_1.TTPBaseType;
+import org.mitre.stix.common_1.ThreatActorBaseType;
+import org.mitre.stix.stix_1.STIXHeaderType;
+
+/**
+ * The top-level constructs of a STIX_Package in the order the schema requires
+ * them to appear, along with the elements that contain them and the JAXB types
+ * they are declared as.
+ */
+public enum STIXConstruct {
+
+	STIX_HEADER(null, new QName(STIXConstruct.STIX_NAMESPACE, "STIX_Header"),
+			STIXHeaderType.class),
+
+	OBSERVABLE(new QName(STIXConstruct.STIX_NAMESPACE, "Observables"),
+			new QName(STIXConstruct.CYBOX_NAMESPACE, "Observable"),
+			ObservableType.class),
+
+	INDICATOR(new QName(STIXConstruct.STIX_NAMESPACE, "Indicators"), new QName(
+			STIXConstruct.STIX_NAMESPACE, "Indicator"), IndicatorBaseType.class),
+
+	TTP(new QName(STIXConstruct.STIX_NAMESPACE, "TTPs"), new QName(
+			STIXConstruct.STIX_NAMESPACE, "TTP"), TTPBaseType.class),
+
+	EXPLOIT_TARGET(new QName(STIXConstruct.STIX_NAMESPACE, "Exploit_Targets"),
+			new QName(STIXConstruct.STIX_COMMON_NAMESPACE, "Exploit_Target"),
+			ExploitTargetBaseType.class),
+
+	INCIDENT(new QName(STIXConstruct.STIX_NAMESPACE, "Incidents"), new QName(
+			STIXConstruct.STIX_NAMESPACE, "Incident"), IncidentBaseType.class),
+
+	COURSE_OF_ACTION(new QName(STIXConstruct.STIX_NAMESPACE,
+			"Courses_Of_Action"), new QName(STIXConstruct.STIX_NAMESPACE,
+			"Course_Of_Action"), CourseOfActionBaseType.class),
+
+	CAMPAIGN(new QName(STIXConstruct.STIX_NAMESPACE, "Campaigns"), new QName(
+			STIXConstruct.STIX_NAMESPACE, "Campaign"), CampaignBaseType.class),
+
+	THREAT_ACTOR(new QName(STIXConstruct.STIX_NAMESPACE, "Threat_Actors"),
+			new QName(STIXConstruct.STIX_NAMESPACE, "Threat_Actor"),
+			ThreatActorBaseType.class),
+
+	REPORT(new QName(STIXConstruct.STIX_NAMESPACE, "Reports"), new QName(
+			STIXConstruct.STIX_NAMESPACE, "Report"), ReportBaseType.class);
+
+	public static final String STIX_NAMESPACE = "http://stix.mitre.org/stix-1";
+
+	public static final String STIX_COMMON_NAMESPACE = "http://stix.mitre.org/common-1";
+
+	public static final String CYBOX_NAMESPACE = "http://cybox.mitre.org/cybox-2";
+
+	public static final QName STIX_PACKAGE = new QName(STIX_NAMESPACE,
+			"STIX_Package");
+
+	private static final Map<QName, STIXConstruct> byElementName = new HashMap<QName, STIXConstruct>();
+
+	static {
+		for (STIXConstruct construct : values()) {
+			byElementName.put(construct.elementName, construct);
+		}
+	}
+
+	private final QName containerName;
+
+	private final QName elementName;
+
+	private final Class<?> declaredType;
+
+	private STIXConstruct(QName containerName, QName elementName,
+			Class<?> declaredType) {
+		this.containerName = containerName;
+		this.elementName = elementName;
+		this.declaredType = declaredType;
+	}
+
+	/**
+	 * Returns the name of the element containing the construct, which is a
+	 * child of the STIX_Package.
+	 *
+	 * @return The container element name, or null for the STIX_Header, which
+	 *         is a child of the STIX_Package itself.
+	 */
+	public QName getContainerName() {
+		return containerName;
+	}
+
+	/**
+	 * Returns the name of the construct's element.
+	 *
+	 * @return The element name
+	 */
+	public QName getElementName() {
+		return elementName;
+	}
+
+	/**
+	 * Returns the type the construct's element is declared as, which is the
+	 * type it is unmarshalled as.
+	 *
+	 * @return The declared type
+	 */
+	public Class<?> getDeclaredType() {
+		return declaredType;
+	}
+
+	/**
+	 * Returns the construct for an element name.
+	 *
+	 * @param elementName
+	 *            The element name
+	 * @return The construct or null if there is none by that name
+	 */
+	public static STIXConstruct forElementName(QName elementName) {
+		return byElementName.get(elementName);
+	}
+
+	/**
+	 * Returns the construct a JAXB model object can be written as.
+	 *
+	 * @param obj
+	 *            A JAXB model object
+	 * @return The construct or null if the object is not a top-level construct
+	 */
+	public static STIXConstruct forObject(Object obj) {
+		for (STIXConstruct construct : values()) {
+			if (construct.declaredType.isInstance(obj)) {
+				return construct;
+			}
+		}
+
+		return null;
+	}
+}
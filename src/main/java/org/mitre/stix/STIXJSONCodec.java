@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes JAXB model objects as JSON, and reads them again.
+ *
+ * The JSON follows the XML of the object (see JSONXMLStreamWriter): members
+ * are named by the qualified names of the elements and attributes, as given
+ * by the @XmlElement and @XmlAttribute annotations of the model, and each
+ * object carries the namespace declarations of its element in an "@xmlns"
+ * member. Polymorphic types such as the Indicators of a package or the
+ * Properties of a CybOX Object keep their "@xsi:type" attribute, and
+ * qualified name values such as ids and idrefs are kept as they are
+ * written in XML (e.g., "example:indicator-1"), so both are resolved
+ * against the "@xmlns" declarations in scope when read.
+ *
+ * The elements of one name are held in one array, so elements of a name
+ * must be adjacent: an element repeating the name of an earlier sibling with
+ * other elements between them (e.g., the second A of A, B, A) cannot be
+ * written as JSON, and encoding it throws a RuntimeException.
+ * Likewise, an element's text is its one "$" member, so text on both sides
+ * of a child element (mixed content, which no STIX schema allows) throws a
+ * RuntimeException rather than being written as two members.
+ *
+ * The JSON is written and read as a stream of StAX events by
+ * FastPathMarshaller and FastPathUnmarshaller, without building a tree of
+ * either form, so conversion is linear in the size of the document.
+ * encodeXML and decodeXML convert documents between the two forms.
+ * Whitespace between elements, comments and processing instructions are not
+ * kept in the JSON. Documents are not validated.
+ */
+public class STIXJSONCodec {
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(false);
+
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory
+			.newInstance();
+
+	/**
+	 * Writes an object as JSON to a Writer. The Writer is not closed.
+	 *
+	 * @param value
+	 *            A JAXBElement, or a JAXB model object, which is written as
+	 *            the element named by its class (see
+	 *            STIXSchema.getQualifiedName)
+	 * @param out
+	 *            The Writer to write to
+	 */
+	public static void encode(Object value, Writer out) {
+		try {
+			JSONXMLStreamWriter writer = new JSONXMLStreamWriter(out);
+
+			new FastPathMarshaller(writer).marshal(value);
+
+			writer.writeEndDocument();
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns an object as JSON.
+	 *
+	 * @param value
+	 *            A JAXBElement or a JAXB model object
+	 * @return The JSON
+	 */
+	public static String encode(Object value) {
+		StringWriter out = new StringWriter();
+
+		encode(value, out);
+
+		return out.toString();
+	}
+
+	/**
+	 * Reads an object from JSON. The Reader is not closed.
+	 *
+	 * @param in
+	 *            The JSON
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The object
+	 */
+	public static <T> T decode(Reader in, Class<T> declaredType) {
+		try {
+			return new FastPathUnmarshaller(new JSONXMLStreamReader(in))
+					.unmarshal(declaredType);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Reads an object from JSON.
+	 *
+	 * @param json
+	 *            The JSON
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The object
+	 */
+	public static <T> T decode(String json, Class<T> declaredType) {
+		return decode(new StringReader(json), declaredType);
+	}
+
+	/**
+	 * Converts an XML document to JSON. The stream and the Writer are not
+	 * closed.
+	 *
+	 * @param xml
+	 *            The XML document
+	 * @param out
+	 *            The Writer to write the JSON to
+	 */
+	public static void encodeXML(InputStream xml, Writer out) {
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xml);
+
+			try {
+				JSONXMLStreamWriter writer = new JSONXMLStreamWriter(out);
+
+				STIXBinaryCodec.copy(reader, writer);
+
+				writer.flush();
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Converts JSON to a UTF-8 encoded XML document. The Reader and the
+	 * stream are not closed.
+	 *
+	 * @param in
+	 *            The JSON
+	 * @param xml
+	 *            The stream to write the XML document to
+	 */
+	public static void decodeXML(Reader in, OutputStream xml) {
+		try {
+			XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(
+					xml, "UTF-8");
+
+			try {
+				writer.writeStartDocument("UTF-8", "1.0");
+
+				STIXBinaryCodec.copy(new JSONXMLStreamReader(in), writer);
+
+				writer.flush();
+			} finally {
+				writer.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
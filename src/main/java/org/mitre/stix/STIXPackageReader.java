@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the top-level constructs of a STIX_Package one at a time.
+ *
+ * The package is walked with StAX and each construct found (i.e., the
+ * STIX_Header and every Observable, Indicator, TTP, Exploit_Target, Incident,
+ * Course_Of_Action, Campaign, Threat_Actor and Report) is unmarshalled on its
+ * own, so only one construct is held in memory at a time regardless of the
+ * size of the package.
+ *
+ * Constructs (see STIXConstruct) are returned as their JAXB model objects
+ * (e.g., an Indicator is returned as the IndicatorBaseType subclass named by
+ * its xsi:type.) They are unmarshalled by a FastPathUnmarshaller, so types
+ * with fast-path bindings are read without JAXB.
+ *
+ * Not thread-safe.
+ */
+public class STIXPackageReader implements Iterator<Object>, Closeable {
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(true);
+
+	private final XMLStreamReader reader;
+
+	private final FastPathUnmarshaller unmarshaller;
+
+	private Closeable source;
+
+	private int depth = 0;
+
+	private QName container;
+
+	private QName packageId;
+
+	private String packageVersion;
+
+	private Object next;
+
+	private boolean done = false;
+
+	/**
+	 * Creates a reader for a STIX_Package read from an InputStream. The
+	 * encoding is detected from the XML declaration. Closing the reader
+	 * closes the stream.
+	 *
+	 * @param inputStream
+	 *            The STIX_Package XML
+	 */
+	public STIXPackageReader(InputStream inputStream) {
+		this(createXMLStreamReader(inputStream));
+		this.source = inputStream;
+	}
+
+	/**
+	 * Creates a reader for a STIX_Package read from a Reader. Closing this
+	 * reader closes the Reader.
+	 *
+	 * @param xmlReader
+	 *            The STIX_Package XML
+	 */
+	public STIXPackageReader(Reader xmlReader) {
+		this(createXMLStreamReader(xmlReader));
+		this.source = xmlReader;
+	}
+
+	/**
+	 * Creates a reader for a STIX_Package read from an XMLStreamReader
+	 * positioned at or before the STIX_Package start tag.
+	 *
+	 * @param reader
+	 *            The XMLStreamReader
+	 */
+	public STIXPackageReader(XMLStreamReader reader) {
+		this.reader = reader;
+		this.unmarshaller = new FastPathUnmarshaller(reader);
+	}
+
+	private static XMLStreamReader createXMLStreamReader(
+			InputStream inputStream) {
+		try {
+			return xmlInputFactory.createXMLStreamReader(inputStream);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static XMLStreamReader createXMLStreamReader(Reader xmlReader) {
+		try {
+			return xmlInputFactory.createXMLStreamReader(xmlReader);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the id of the STIX_Package, available once the first construct
+	 * has been read (or hasNext() called.)
+	 *
+	 * @return The STIX_Package id or null if it has none
+	 */
+	public QName getPackageId() {
+		return packageId;
+	}
+
+	/**
+	 * Returns the version of the STIX_Package, available once the first
+	 * construct has been read (or hasNext() called.)
+	 *
+	 * @return The STIX_Package version or null if it has none
+	 */
+	public String getPackageVersion() {
+		return packageVersion;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		if (next == null && !done) {
+			next = advance();
+			done = (next == null);
+		}
+
+		return next != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		Object construct = next;
+		next = null;
+
+		return construct;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Moves through the document to the next construct and unmarshals it.
+	 *
+	 * @return The construct or null at the end of the document
+	 */
+	private Object advance() {
+		try {
+			while (true) {
+				switch (reader.getEventType()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+
+					QName name = reader.getName();
+
+					if (depth == 1) {
+						if (!STIXConstruct.STIX_PACKAGE.equals(name)) {
+							throw new RuntimeException("Expected "
+									+ STIXConstruct.STIX_PACKAGE
+									+ " but found " + name);
+						}
+
+						readPackageAttributes();
+
+					} else if (depth == 2) {
+						container = name;
+
+						if (STIXConstruct.STIX_HEADER.getElementName().equals(
+								name)) {
+							return unmarshal(STIXConstruct.STIX_HEADER);
+						}
+
+					} else if (depth == 3 && container != null) {
+						STIXConstruct construct = STIXConstruct
+								.forElementName(name);
+
+						if (construct != null
+								&& container.equals(construct
+										.getContainerName())) {
+							return unmarshal(construct);
+						}
+					}
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+
+					if (depth == 1) {
+						container = null;
+					}
+					break;
+
+				case XMLStreamConstants.END_DOCUMENT:
+					return null;
+
+				default:
+					break;
+				}
+
+				if (!reader.hasNext()) {
+					return null;
+				}
+
+				reader.next();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Unmarshals the element the reader is positioned on, which leaves the
+	 * reader positioned on the event following its end tag.
+	 */
+	private Object unmarshal(STIXConstruct construct)
+			throws XMLStreamException {
+		Object value = unmarshaller.unmarshal(construct.getDeclaredType());
+
+		depth--;
+
+		return value;
+	}
+
+	private void readPackageAttributes() {
+		String id = reader.getAttributeValue(null, "id");
+
+		if (id != null) {
+			int colon = id.indexOf(':');
+
+			// an id without a prefix is in the default namespace, as
+			// FastPathUnmarshaller.parseQName resolves it
+			String prefix = (colon > 0) ? id.substring(0, colon)
+					: XMLConstants.DEFAULT_NS_PREFIX;
+			String namespaceURI = reader.getNamespaceURI(prefix);
+
+			packageId = QNameRegistry.intern(namespaceURI == null ? ""
+					: namespaceURI, id.substring(colon + 1), prefix);
+		}
+
+		packageVersion = reader.getAttributeValue(null, "version");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		done = true;
+		next = null;
+
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (source != null) {
+				source.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a STIX_Package one construct at a time.
+ *
+ * The STIX_Package envelope is opened by writeStartPackage, constructs are
+ * then marshalled one by one as fragments straight to the output and the
+ * containers (e.g., stix:Indicators) are opened and closed as needed, so the
+ * package is never held in memory as a whole. Constructs must be written in
+ * the order the schema requires (see STIXConstruct), though constructs of the
+ * same kind need not be written together.
+ *
+ * Namespaces passed to declareNamespace are declared on the STIX_Package
+ * element; any other namespace is declared on the first element of a
+ * construct that uses it.
+ *
+ * Not thread-safe.
+ */
+public class STIXPackageWriter implements Closeable, Flushable {
+
+	private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory
+			.newInstance();
+
+	private final NamespaceMinimizingXMLStreamWriter writer;
+
+	private final Marshaller marshaller;
+
+	private final Map<String, String> namespaces = new LinkedHashMap<String, String>();
+
+	private OutputStream outputStream;
+
+	private boolean started = false;
+
+	private boolean closed = false;
+
+	private STIXConstruct current;
+
+	/**
+	 * Creates a writer that writes UTF-8 encoded XML to an OutputStream.
+	 * Closing the writer closes the stream.
+	 *
+	 * @param outputStream
+	 *            The stream to write to
+	 */
+	public STIXPackageWriter(OutputStream outputStream) {
+		this(createXMLStreamWriter(outputStream));
+		this.outputStream = outputStream;
+	}
+
+	/**
+	 * Creates a writer that writes to an XMLStreamWriter.
+	 *
+	 * @param xmlStreamWriter
+	 *            The XMLStreamWriter to write to
+	 */
+	public STIXPackageWriter(XMLStreamWriter xmlStreamWriter) {
+		this.writer = new NamespaceMinimizingXMLStreamWriter(xmlStreamWriter);
+
+		try {
+			this.marshaller = DocumentUtilities.stixJaxbContext()
+					.createMarshaller();
+			this.marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+
+		namespaces.put("stix", STIXConstruct.STIX_NAMESPACE);
+		namespaces.put("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+	}
+
+	private static XMLStreamWriter createXMLStreamWriter(
+			OutputStream outputStream) {
+		try {
+			return xmlOutputFactory.createXMLStreamWriter(outputStream,
+					"UTF-8");
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Declares a namespace on the STIX_Package element. Namespaces used by
+	 * most constructs (e.g., "indicator", "cybox", "stixCommon") are best
+	 * declared here so they are not repeated on every construct.
+	 *
+	 * Must be called before writeStartPackage.
+	 *
+	 * @param prefix
+	 *            The prefix
+	 * @param namespaceURI
+	 *            The namespace URI
+	 */
+	public void declareNamespace(String prefix, String namespaceURI) {
+		if (started) {
+			throw new IllegalStateException(
+					"The STIX_Package has already been started");
+		}
+
+		namespaces.put(prefix, namespaceURI);
+	}
+
+	/**
+	 * Writes the XML declaration and the STIX_Package start tag.
+	 *
+	 * @param id
+	 *            The package id or null
+	 * @param timestamp
+	 *            The package timestamp or null
+	 * @param version
+	 *            The STIX version of the package (e.g., "1.2") or null
+	 */
+	public void writeStartPackage(QName id, XMLGregorianCalendar timestamp,
+			String version) {
+		if (started) {
+			throw new IllegalStateException(
+					"The STIX_Package has already been started");
+		}
+
+		started = true;
+
+		try {
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeStartElement("stix", STIXConstruct.STIX_PACKAGE
+					.getLocalPart(), STIXConstruct.STIX_NAMESPACE);
+
+			for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+				writer.declareNamespace(namespace.getKey(),
+						namespace.getValue());
+			}
+
+			if (id != null) {
+				if (id.getPrefix().length() > 0) {
+					writer.declareNamespace(id.getPrefix(),
+							id.getNamespaceURI());
+					writer.writeAttribute("id",
+							id.getPrefix() + ":" + id.getLocalPart());
+				} else {
+					writer.writeAttribute("id", id.getLocalPart());
+				}
+			}
+
+			if (timestamp != null) {
+				writer.writeAttribute("timestamp", timestamp.toXMLFormat());
+			}
+
+			if (version != null) {
+				writer.writeAttribute("version", version);
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Marshals a construct (e.g., a STIXHeaderType, an Indicator or an
+	 * Observable) into the package.
+	 *
+	 * @param construct
+	 *            The construct
+	 * @throws IllegalArgumentException
+	 *             If the object is not a top-level construct
+	 * @throws IllegalStateException
+	 *             If the package has not been started, or the construct is
+	 *             out of the order required by the schema
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void write(Object construct) {
+		if (!started || closed) {
+			throw new IllegalStateException(
+					"The STIX_Package has not been started or is closed");
+		}
+
+		STIXConstruct kind = STIXConstruct.forObject(construct);
+
+		if (kind == null) {
+			throw new IllegalArgumentException(construct.getClass().getName()
+					+ " is not a top-level STIX construct");
+		}
+
+		try {
+			if (kind != current) {
+				if (current != null
+						&& (kind.ordinal() < current.ordinal() || kind == STIXConstruct.STIX_HEADER)) {
+					throw new IllegalStateException(kind
+							+ " cannot be written after " + current);
+				}
+
+				endContainer();
+
+				current = kind;
+
+				if (kind.getContainerName() != null) {
+					writer.writeStartElement(kind.getContainerName()
+							.getNamespaceURI(), kind.getContainerName()
+							.getLocalPart());
+				}
+			} else if (kind == STIXConstruct.STIX_HEADER) {
+				throw new IllegalStateException(
+						"The STIX_Header has already been written");
+			}
+
+			marshaller.marshal(new JAXBElement(kind.getElementName(), kind
+					.getDeclaredType(), construct), writer);
+
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		} catch (JAXBException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void endContainer() throws XMLStreamException {
+		if (current != null && current.getContainerName() != null) {
+			writer.writeEndElement();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.Flushable#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+		try {
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Closes any open container and the STIX_Package, and then the
+	 * underlying output.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			if (started) {
+				endContainer();
+				writer.writeEndElement();
+				writer.writeEndDocument();
+			}
+
+			writer.flush();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			if (outputStream != null) {
+				outputStream.close();
+			}
+		}
+	}
+}
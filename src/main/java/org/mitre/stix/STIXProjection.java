@@ -0,0 +1,510 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlSchema;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Unmarshals only the parts of a document that are asked for, skipping
+ * everything else as it is read so that no objects are created for it.
+ *
+ * The parts to keep are given as paths of element names from the root
+ * element, e.g.,
+ *
+ * <pre>
+ * STIXProjection projection = new STIXProjection()
+ * 		.keep(&quot;STIX_Package/STIX_Header&quot;)
+ * 		.keep(&quot;STIX_Package/Indicators/Indicator/Title&quot;)
+ * 		.keep(FileObjectType.class);
+ *
+ * STIXPackage sparse = projection.unmarshal(inputStream, STIXPackage.class);
+ * </pre>
+ *
+ * Each step of a path is a local name, which matches elements of that name
+ * in any namespace, a name in the {namespaceURI}localName form, or "*",
+ * which matches any element. Steps are separated by "/", or by "//" to match
+ * any number of elements in between (e.g., "//Hashes".) The element a path
+ * ends at is kept with everything it contains. The elements on the way to it
+ * are kept with their attributes (e.g., the id of each Indicator) but
+ * without their text or any other children.
+ *
+ * A class keeps every element named by its XmlRootElement, or whose
+ * xsi:type is its XmlType (e.g., the Properties of the CybOX Objects of
+ * FileObjectType), wherever it is in the document.
+ *
+ * Paths starting or continuing with "//", and classes, can match anywhere,
+ * so every element is kept on the way down in case it leads to a match, and
+ * only text is skipped. select() does not keep the way down, so it is the
+ * better fit for these.
+ *
+ * A projection is configured by keep() and is then thread-safe.
+ */
+public class STIXProjection {
+
+	/**
+	 * How an element is read.
+	 */
+	static final int SKIP = 0;
+	static final int KEEP = 1;
+	static final int STRUCTURE = 2;
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(false);
+
+	// the steps of all the paths one after the other, a null namespace URI
+	// or local name matching any
+	private final List<String> stepNamespaceURIs = new ArrayList<String>();
+	private final List<String> stepLocalNames = new ArrayList<String>();
+	private final BitSet descendantSteps = new BitSet();
+	private final BitSet lastSteps = new BitSet();
+	private final BitSet firstSteps = new BitSet();
+
+	private final Set<QName> elementNames = new HashSet<QName>();
+
+	private final Set<QName> typeNames = new HashSet<QName>();
+
+	/**
+	 * Creates a projection that keeps nothing but the root element.
+	 */
+	public STIXProjection() {
+	}
+
+	/**
+	 * Keeps the elements a path leads to.
+	 *
+	 * @param path
+	 *            The path, e.g., "STIX_Package/Indicators/Indicator/Title"
+	 * @return This projection
+	 * @throws IllegalArgumentException
+	 *             If the path is malformed
+	 */
+	public STIXProjection keep(String path) {
+		int first = stepLocalNames.size();
+		int i = 0;
+		boolean descendant = false;
+
+		if (path.startsWith("//")) {
+			descendant = true;
+			i = 2;
+		} else if (path.startsWith("/")) {
+			i = 1;
+		}
+
+		while (true) {
+			String namespaceURI = null;
+
+			if (i < path.length() && path.charAt(i) == '{') {
+				int close = path.indexOf('}', i);
+
+				if (close < 0) {
+					throw new IllegalArgumentException("Unclosed { in " + path);
+				}
+
+				namespaceURI = path.substring(i + 1, close);
+				i = close + 1;
+			}
+
+			int end = path.indexOf('/', i);
+
+			if (end < 0) {
+				end = path.length();
+			}
+
+			String localName = path.substring(i, end);
+
+			if (localName.length() == 0 || localName.indexOf(':') >= 0) {
+				throw new IllegalArgumentException("Expected a local name, "
+						+ "{namespaceURI}localName or * at " + i + " in "
+						+ path);
+			}
+
+			if (descendant) {
+				descendantSteps.set(stepLocalNames.size());
+			}
+
+			stepNamespaceURIs.add(namespaceURI);
+			stepLocalNames.add("*".equals(localName) ? null : localName);
+
+			if (end == path.length()) {
+				break;
+			}
+
+			descendant = path.startsWith("//", end);
+			i = end + (descendant ? 2 : 1);
+		}
+
+		firstSteps.set(first);
+		lastSteps.set(stepLocalNames.size() - 1);
+
+		return this;
+	}
+
+	/**
+	 * Keeps every element of a model class: those named by its
+	 * XmlRootElement, or whose xsi:type names its XmlType.
+	 *
+	 * @param type
+	 *            A JAXB model class, e.g., FileObjectType.class
+	 * @return This projection
+	 * @throws IllegalArgumentException
+	 *             If the class has neither annotation
+	 */
+	public STIXProjection keep(Class<?> type) {
+		XmlSchema xmlSchema = (type.getPackage() == null) ? null : type
+				.getPackage().getAnnotation(XmlSchema.class);
+
+		String packageNamespaceURI = (xmlSchema == null) ? "" : xmlSchema
+				.namespace();
+
+		boolean named = false;
+
+		XmlRootElement xmlRootElement = type
+				.getAnnotation(XmlRootElement.class);
+
+		if (xmlRootElement != null) {
+			String namespaceURI = xmlRootElement.namespace();
+
+			elementNames.add(new QName("##default".equals(namespaceURI) ? packageNamespaceURI
+					: namespaceURI, xmlRootElement.name()));
+			named = true;
+		}
+
+		XmlType xmlType = type.getAnnotation(XmlType.class);
+
+		if (xmlType != null && xmlType.name().length() > 0) {
+			String namespaceURI = xmlType.namespace();
+
+			typeNames.add(new QName("##default".equals(namespaceURI) ? packageNamespaceURI
+					: namespaceURI, xmlType.name()));
+			named = true;
+		}
+
+		if (!named) {
+			throw new IllegalArgumentException(type
+					+ " names no element or type");
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns a reader of the parts of a document this projection keeps.
+	 * JAXB, FastPathUnmarshaller or a STIXPackageReader can read it as they
+	 * would the whole document.
+	 *
+	 * @param reader
+	 *            A reader positioned at the start of the document
+	 * @return The projected reader
+	 */
+	public XMLStreamReader project(XMLStreamReader reader) {
+		return new ProjectingXMLStreamReader(reader, new Matcher());
+	}
+
+	/**
+	 * Unmarshals the parts of a document this projection keeps, e.g., into
+	 * a sparse STIXPackage. The stream is not closed.
+	 *
+	 * @param inputStream
+	 *            The XML document
+	 * @param declaredType
+	 *            The class of the root element (e.g., STIXPackage.class)
+	 * @return The root element's object, holding only what was kept
+	 */
+	public <T> T unmarshal(InputStream inputStream, Class<T> declaredType) {
+		try {
+			XMLStreamReader reader = xmlInputFactory
+					.createXMLStreamReader(inputStream);
+
+			try {
+				return new FastPathUnmarshaller(project(reader))
+						.unmarshal(declaredType);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Unmarshals each element this projection keeps on its own, in document
+	 * order, skipping everything else. Elements kept by a path are not
+	 * looked into for further matches.
+	 *
+	 * @param reader
+	 *            A reader positioned at the start of the document
+	 * @param declaredType
+	 *            The class of the elements; an xsi:type names a subclass
+	 * @return The elements' objects, unmarshalled as they are iterated over
+	 */
+	public <T> Iterator<T> select(XMLStreamReader reader, Class<T> declaredType) {
+		return new Selection<T>(reader, declaredType, new Matcher());
+	}
+
+	/**
+	 * Unmarshals each element this projection keeps on its own. The stream
+	 * is not closed.
+	 *
+	 * @param inputStream
+	 *            The XML document
+	 * @param declaredType
+	 *            The class of the elements; an xsi:type names a subclass
+	 * @return The elements' objects, unmarshalled as they are iterated over
+	 */
+	public <T> Iterator<T> select(InputStream inputStream,
+			Class<T> declaredType) {
+		try {
+			return select(xmlInputFactory.createXMLStreamReader(inputStream),
+					declaredType);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Decides how each element of a document is read, following the paths
+	 * down the document one level at a time.
+	 */
+	class Matcher {
+
+		// the steps to match against the children of the element at each
+		// depth; the sets are reused as the depth goes up and down
+		private final List<BitSet> levels = new ArrayList<BitSet>();
+
+		private int depth = 0;
+
+		Matcher() {
+			levels.add((BitSet) firstSteps.clone());
+		}
+
+		/**
+		 * Decides how the element the reader is on is read. For STRUCTURE,
+		 * end() must be called at its end tag.
+		 *
+		 * @return SKIP, KEEP or STRUCTURE
+		 */
+		int start(XMLStreamReader reader) {
+			BitSet active = levels.get(depth);
+
+			if (levels.size() == depth + 1) {
+				levels.add(new BitSet());
+			}
+
+			BitSet next = levels.get(depth + 1);
+			next.clear();
+
+			String namespaceURI = reader.getNamespaceURI();
+			String localName = reader.getLocalName();
+
+			if (namespaceURI == null) {
+				namespaceURI = XMLConstants.NULL_NS_URI;
+			}
+
+			boolean keep = false;
+
+			for (int step = active.nextSetBit(0); step >= 0; step = active
+					.nextSetBit(step + 1)) {
+
+				if (descendantSteps.get(step)) {
+					next.set(step);
+				}
+
+				String stepNamespaceURI = stepNamespaceURIs.get(step);
+				String stepLocalName = stepLocalNames.get(step);
+
+				if ((stepLocalName == null || stepLocalName.equals(localName))
+						&& (stepNamespaceURI == null || stepNamespaceURI
+								.equals(namespaceURI))) {
+					if (lastSteps.get(step)) {
+						keep = true;
+					} else {
+						next.set(step + 1);
+					}
+				}
+			}
+
+			if (!keep && (!elementNames.isEmpty() || !typeNames.isEmpty())) {
+				keep = isKeptClass(reader, namespaceURI, localName);
+			}
+
+			if (keep) {
+				return KEEP;
+			}
+
+			if (next.isEmpty() && elementNames.isEmpty()
+					&& typeNames.isEmpty() && depth > 0) {
+				return SKIP;
+			}
+
+			depth++;
+
+			return STRUCTURE;
+		}
+
+		private boolean isKeptClass(XMLStreamReader reader,
+				String namespaceURI, String localName) {
+			if (!elementNames.isEmpty()
+					&& elementNames.contains(new QName(namespaceURI,
+							localName))) {
+				return true;
+			}
+
+			String xsiType = reader.getAttributeValue(
+					XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
+
+			if (xsiType == null || typeNames.isEmpty()) {
+				return false;
+			}
+
+			xsiType = xsiType.trim();
+
+			int colon = xsiType.indexOf(':');
+			String typeNamespaceURI = reader.getNamespaceURI(colon < 0 ? ""
+					: xsiType.substring(0, colon));
+
+			return typeNames.contains(new QName(
+					typeNamespaceURI == null ? "" : typeNamespaceURI,
+					xsiType.substring(colon + 1)));
+		}
+
+		/**
+		 * Ends an element read as STRUCTURE.
+		 */
+		void end() {
+			depth--;
+		}
+	}
+
+	/**
+	 * Iterates over the elements a projection keeps.
+	 */
+	private static class Selection<T> implements Iterator<T> {
+
+		private final XMLStreamReader reader;
+
+		private final Class<T> declaredType;
+
+		private final Matcher matcher;
+
+		private final FastPathUnmarshaller unmarshaller;
+
+		private T next;
+
+		private boolean done = false;
+
+		Selection(XMLStreamReader reader, Class<T> declaredType,
+				Matcher matcher) {
+			this.reader = reader;
+			this.declaredType = declaredType;
+			this.matcher = matcher;
+			this.unmarshaller = new FastPathUnmarshaller(reader);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			if (next == null && !done) {
+				next = advance();
+				done = (next == null);
+			}
+
+			return next != null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			T value = next;
+			next = null;
+
+			return value;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Moves through the document to the next element kept and
+		 * unmarshals it, which leaves the reader on the event following its
+		 * end tag.
+		 *
+		 * @return The element's object or null at the end of the document
+		 */
+		private T advance() {
+			try {
+				while (true) {
+					switch (reader.getEventType()) {
+
+					case XMLStreamConstants.START_ELEMENT:
+						switch (matcher.start(reader)) {
+						case KEEP:
+							return unmarshaller.unmarshal(declaredType);
+						case SKIP:
+							ProjectingXMLStreamReader.skipElement(reader);
+							break;
+						default:
+							break;
+						}
+						break;
+
+					case XMLStreamConstants.END_ELEMENT:
+						matcher.end();
+						break;
+
+					case XMLStreamConstants.END_DOCUMENT:
+						return null;
+
+					default:
+						break;
+					}
+
+					if (!reader.hasNext()) {
+						return null;
+					}
+
+					reader.next();
+				}
+			} catch (XMLStreamException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
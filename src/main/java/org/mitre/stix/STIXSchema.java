@@ -4,30 +4,39 @@
  */
 package org.mitre.stix;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 import javax.xml.XMLConstants;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.bind.annotation.XmlSchema;
-import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.JAXBContext;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
@@ -37,11 +46,19 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
  * Gathers up the STIX schema useful for marshalling and unmarshalling, and
@@ -58,10 +75,34 @@ public class STIXSchema {
 
 	private Map<String, String> prefixSchemaBindings;
 
-	private Validator validator;
+	private Map<String, String> namespaceSchemaBindings;
+
+	private ValidatorPool validatorPool;
+
+	private volatile boolean customErrorHandler = false;
+
+	private volatile ErrorHandler errorHandler;
 
 	private javax.xml.validation.Schema schema;
 
+	private final SAXParserFactory saxParserFactory;
+
+	private final ThreadLocal<SAXParser> saxParsers = new ThreadLocal<SAXParser>() {
+
+		@Override
+		protected SAXParser initialValue() {
+			try {
+				return saxParserFactory.newSAXParser();
+			} catch (ParserConfigurationException e) {
+				throw new RuntimeException(e);
+			} catch (SAXException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	private static final AtomicReference<Future<STIXSchema>> preloaded = new AtomicReference<Future<STIXSchema>>();
+
 	private static class SchemaHolder {
 		public static final STIXSchema instance = new STIXSchema();
 	}
@@ -78,71 +119,182 @@ public class STIXSchema {
 	}
 
 	/**
-	 * Private constructor to permit a single STIXSchema to exists.
+	 * Compiles the STIX schema and creates the STIX model's JAXBContext in
+	 * parallel, each on its own daemon thread, so that they are ready before
+	 * the first request needs them. Only the first call to preload starts
+	 * the work, later calls return the same Future.
+	 * 
+	 * @return A Future that completes with the STIXSchema once both are ready
 	 */
-	private STIXSchema() {
+	public static Future<STIXSchema> preload() {
+		return preload(new Executor() {
+
+			@Override
+			public void execute(Runnable command) {
+				Thread thread = new Thread(command, "stix-schema-preload");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		});
+	}
 
-		this.version = ((Version) this.getClass().getPackage()
-				.getAnnotation(Version.class)).schema();
+	/**
+	 * Compiles the STIX schema and creates the STIX model's JAXBContext in
+	 * parallel on the supplied Executor, so that they are ready before the
+	 * first request needs them. Only the first call to preload starts the
+	 * work, later calls return the same Future whatever the Executor.
+	 * 
+	 * The Executor must be able to run two tasks at once for the work to be
+	 * done in parallel.
+	 * 
+	 * @param executor
+	 *            The Executor to run the work on
+	 * @return A Future that completes with the STIXSchema once both are ready
+	 */
+	public static Future<STIXSchema> preload(Executor executor) {
 
-		ResourcePatternResolver patternResolver = new PathMatchingResourcePatternResolver(
-				this.getClass().getClassLoader());
-		Resource[] schemaResources;
+		Future<STIXSchema> readiness = preloaded.get();
+
+		if (readiness != null) {
+			return readiness;
+		}
+
+		FutureTask<STIXSchema> schemaTask = new FutureTask<STIXSchema>(
+				new Callable<STIXSchema>() {
+
+					@Override
+					public STIXSchema call() {
+						return getInstance();
+					}
+				});
+
+		FutureTask<JAXBContext> jaxbContextTask = new FutureTask<JAXBContext>(
+				new Callable<JAXBContext>() {
+
+					@Override
+					public JAXBContext call() {
+						return DocumentUtilities.stixJaxbContext();
+					}
+				});
+
+		readiness = new Readiness(schemaTask, jaxbContextTask);
+
+		if (!preloaded.compareAndSet(null, readiness)) {
+			return preloaded.get();
+		}
 
 		try {
-			schemaResources = patternResolver
-					.getResources("classpath:schemas/v" + version + "/**/*.xsd");
+			executor.execute(schemaTask);
+			executor.execute(jaxbContextTask);
+		} catch (RejectedExecutionException e) {
+			readiness.cancel(false);
+			preloaded.compareAndSet(readiness, null);
+			throw e;
+		}
+
+		return readiness;
+	}
+
+	/**
+	 * Returns whether preload has finished compiling the STIX schema and
+	 * creating the STIX model's JAXBContext. Suitable for gating traffic in a
+	 * health check, as it never blocks.
+	 * 
+	 * @return True if preload has been called and has completed successfully
+	 */
+	public static boolean isReady() {
+
+		Future<STIXSchema> readiness = preloaded.get();
 
-			prefixSchemaBindings = new HashMap<String, String>();
+		if (readiness == null || !readiness.isDone()
+				|| readiness.isCancelled()) {
+			return false;
+		}
 
-			String url, prefix, targetNamespace;
-			Document schemaDocument;
-			NamedNodeMap attributes;
-			Node attribute;
+		try {
+			readiness.get();
+			return true;
+		} catch (ExecutionException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 
-			for (Resource resource : schemaResources) {
+	/**
+	 * A Future over both halves of preload, done once both are done.
+	 */
+	private static class Readiness implements Future<STIXSchema> {
 
-				url = resource.getURL().toString();
+		private final Future<STIXSchema> schema;
 
-				schemaDocument = DocumentBuilderFactory.newInstance()
-						.newDocumentBuilder().parse(resource.getInputStream());
+		private final Future<JAXBContext> jaxbContext;
 
-				schemaDocument.getDocumentElement().normalize();
+		Readiness(Future<STIXSchema> schema, Future<JAXBContext> jaxbContext) {
+			this.schema = schema;
+			this.jaxbContext = jaxbContext;
+		}
 
-				attributes = schemaDocument.getDocumentElement()
-						.getAttributes();
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return schema.cancel(mayInterruptIfRunning)
+					| jaxbContext.cancel(mayInterruptIfRunning);
+		}
 
-				for (int i = 0; i < attributes.getLength(); i++) {
+		@Override
+		public boolean isCancelled() {
+			return schema.isCancelled() || jaxbContext.isCancelled();
+		}
 
-					attribute = attributes.item(i);
+		@Override
+		public boolean isDone() {
+			return schema.isDone() && jaxbContext.isDone();
+		}
 
-					targetNamespace = schemaDocument.getDocumentElement()
-							.getAttribute("targetNamespace");
+		@Override
+		public STIXSchema get() throws InterruptedException,
+				ExecutionException {
+			jaxbContext.get();
+			return schema.get();
+		}
 
-					if (attribute.getNodeName().startsWith("xmlns:")
-							&& attribute.getNodeValue().equals(targetNamespace)) {
+		@Override
+		public STIXSchema get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException,
+				TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
 
-						prefix = attributes.item(i).getNodeName().split(":")[1];
+			jaxbContext.get(timeout, unit);
+			return schema.get(deadline - System.nanoTime(),
+					TimeUnit.NANOSECONDS);
+		}
+	}
 
-						if ((prefixSchemaBindings.containsKey(prefix))
-								&& (prefixSchemaBindings.get(prefix).split(
-										"schemas/v" + version + "/")[1]
-										.startsWith("external"))) {
+	/**
+	 * Private constructor to permit a single STIXSchema to exists.
+	 */
+	private STIXSchema() {
 
-							continue;
+		saxParserFactory = SAXParserFactory.newInstance();
+		saxParserFactory.setNamespaceAware(true);
 
-						}
+		this.version = ((Version) this.getClass().getPackage()
+				.getAnnotation(Version.class)).schema();
 
-						LOGGER.fine("     adding: " + prefix + " :: " + url);
+		prefixSchemaBindings = new HashMap<String, String>();
+		namespaceSchemaBindings = new HashMap<String, String>();
 
-						prefixSchemaBindings.put(prefix, url);
-					}
-				}
+		try {
+			if (!readSchemaIndex()) {
+				crawlSchemas();
 			}
 
 			SchemaFactory factory = SchemaFactory
 					.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
 
+			factory.setResourceResolver(new SchemaResourceResolver());
+
 			Source[] schemas = new Source[prefixSchemaBindings.values().size()];
 
 			int i = 0;
@@ -152,8 +304,7 @@ public class STIXSchema {
 
 			schema = factory.newSchema(schemas);
 
-			validator = schema.newValidator();
-			validator.setErrorHandler(new ValidationErrorHandler());
+			validatorPool = new ValidatorPool(schema);
 
 		} catch (IOException e) {
 			throw new RuntimeException(e);
@@ -164,14 +315,195 @@ public class STIXSchema {
 		}
 	}
 
+	/**
+	 * Reads the prefix, namespace and schema location bindings from the index
+	 * created by the build (see PrefixNamespaceBindingsTask) and shipped
+	 * alongside this class.
+	 * 
+	 * @return True if the index was read, false if there is none or it names
+	 *         a schema that is not on the classpath
+	 */
+	private boolean readSchemaIndex() throws IOException {
+
+		InputStream inputStream = STIXSchema.class
+				.getResourceAsStream("schema-index-v" + version
+						+ ".properties");
+
+		if (inputStream == null) {
+			LOGGER.fine("No schema index for version " + version);
+			return false;
+		}
+
+		Properties index = new Properties();
+
+		try {
+			index.load(inputStream);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+
+		ClassLoader classLoader = this.getClass().getClassLoader();
+
+		for (String prefix : index.stringPropertyNames()) {
+
+			String[] binding = index.getProperty(prefix).trim().split("\\s+");
+
+			URL url = (binding.length == 2) ? classLoader
+					.getResource(binding[1]) : null;
+
+			if (url == null) {
+				LOGGER.warning("The schema index is out of date, "
+						+ "crawling the schemas instead");
+
+				prefixSchemaBindings.clear();
+				namespaceSchemaBindings.clear();
+
+				return false;
+			}
+
+			LOGGER.fine("     adding: " + prefix + " :: " + url);
+
+			prefixSchemaBindings.put(prefix, url.toString());
+			namespaceSchemaBindings.put(binding[0], url.toString());
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds the prefix, namespace and schema location bindings by parsing
+	 * every schema on the classpath.
+	 */
+	private void crawlSchemas() throws IOException, SAXException,
+			ParserConfigurationException {
+
+		ResourcePatternResolver patternResolver = new PathMatchingResourcePatternResolver(
+				this.getClass().getClassLoader());
+		Resource[] schemaResources = patternResolver
+				.getResources("classpath:schemas/v" + version + "/**/*.xsd");
+
+		DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance()
+				.newDocumentBuilder();
+
+		String url, prefix, targetNamespace;
+		Document schemaDocument;
+		NamedNodeMap attributes;
+		Node attribute;
+
+		for (Resource resource : schemaResources) {
+
+			url = resource.getURL().toString();
+
+			documentBuilder.reset();
+
+			schemaDocument = documentBuilder.parse(resource.getInputStream());
+
+			schemaDocument.getDocumentElement().normalize();
+
+			attributes = schemaDocument.getDocumentElement().getAttributes();
+
+			for (int i = 0; i < attributes.getLength(); i++) {
+
+				attribute = attributes.item(i);
+
+				targetNamespace = schemaDocument.getDocumentElement()
+						.getAttribute("targetNamespace");
+
+				if (attribute.getNodeName().startsWith("xmlns:")
+						&& attribute.getNodeValue().equals(targetNamespace)) {
+
+					prefix = attributes.item(i).getNodeName().split(":")[1];
+
+					if ((prefixSchemaBindings.containsKey(prefix))
+							&& (prefixSchemaBindings.get(prefix).split(
+									"schemas/v" + version + "/")[1]
+									.startsWith("external"))) {
+
+						continue;
+
+					}
+
+					LOGGER.fine("     adding: " + prefix + " :: " + url);
+
+					prefixSchemaBindings.put(prefix, url);
+					namespaceSchemaBindings.put(targetNamespace, url);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves schemas imported from a remote location to the copy of the
+	 * schema on the classpath, so compiling the schema never goes to the
+	 * network.
+	 */
+	private class SchemaResourceResolver implements LSResourceResolver {
+
+		private final DOMImplementationLS domImplementationLS;
+
+		SchemaResourceResolver() throws ParserConfigurationException {
+			this.domImplementationLS = (DOMImplementationLS) DocumentBuilderFactory
+					.newInstance().newDocumentBuilder().getDOMImplementation();
+		}
+
+		@Override
+		public LSInput resolveResource(String type, String namespaceURI,
+				String publicId, String systemId, String baseURI) {
+
+			if (systemId == null || namespaceURI == null
+					|| !(systemId.startsWith("http:") || systemId
+							.startsWith("https:"))) {
+				return null;
+			}
+
+			String schemaLocation = namespaceSchemaBindings.get(namespaceURI);
+
+			if (schemaLocation == null) {
+				return null;
+			}
+
+			LOGGER.fine("     resolving: " + systemId + " :: " + schemaLocation);
+
+			LSInput input = domImplementationLS.createLSInput();
+			input.setPublicId(publicId);
+			input.setSystemId(schemaLocation);
+			input.setBaseURI(baseURI);
+
+			return input;
+		}
+	}
+
 	/**
 	 * Override the default ValidationErrorHandler with one of your own.
 	 * 
+	 * The handler is shared by all pooled Validators, so it must be
+	 * thread-safe if validate is called concurrently.
+	 * 
 	 * @param customErrorHandler
 	 *            The Handler to use instead.
 	 */
 	public void setValidationErrorHandler(ErrorHandler customErrorHandler) {
-		validator.setErrorHandler(customErrorHandler);
+		this.errorHandler = customErrorHandler;
+		this.customErrorHandler = true;
+	}
+
+	/**
+	 * Goes back to the default ValidationErrorHandler of each pooled
+	 * Validator, undoing setValidationErrorHandler (e.g., after a test.)
+	 */
+	void resetValidationErrorHandler() {
+		this.customErrorHandler = false;
+		this.errorHandler = null;
+	}
+
+	/**
+	 * Returns the pool of Validators used by validate, which also exposes
+	 * pool metrics.
+	 * 
+	 * @return The ValidatorPool
+	 */
+	public ValidatorPool getValidatorPool() {
+		return validatorPool;
 	}
 
 	/**
@@ -195,15 +527,20 @@ public class STIXSchema {
 	 */
 	public boolean validate(URL url) throws SAXException {
 
-		String xmlText = null;
+		InputStream inputStream = null;
 
 		try {
-			xmlText = IOUtils.toString(url.openStream());
+			inputStream = url.openStream();
+
+			InputSource inputSource = new InputSource(inputStream);
+			inputSource.setSystemId(url.toString());
+
+			return validate(new SAXSource(inputSource));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
 		}
-
-		return validate(xmlText);
 	}
 
 	/**
@@ -218,61 +555,278 @@ public class STIXSchema {
 	 */
 	public boolean validate(String xmlText) throws SAXException {
 
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
+		return validate(new SAXSource(new InputSource(new StringReader(
+				xmlText))));
+	}
 
-		// This section removes the schema hint as we have the schema docs
-		// otherwise exceptions may be thrown
+	/**
+	 * Validate XML read from an InputStream against the STIX schema. The
+	 * document is validated as it is read, so memory use does not grow with
+	 * the size of the document. The stream is not closed.
+	 * 
+	 * @param inputStream
+	 *            The XML to be validated. The encoding is detected from the
+	 *            XML declaration.
+	 * @return boolean True If the XML validates against the schema
+	 * @throws SAXException
+	 *             If the a validation ErrorHandler has not been set, and
+	 *             validation throws a SAXException
+	 */
+	public boolean validate(InputStream inputStream) throws SAXException {
 
-		try {
-			DocumentBuilder b = factory.newDocumentBuilder();
-			Document document = b.parse(new ByteArrayInputStream(xmlText
-					.getBytes()));
+		return validate(new SAXSource(new InputSource(inputStream)));
+	}
 
-			Element root = document.getDocumentElement();
+	/**
+	 * Validate XML read from a channel against the STIX schema. The document
+	 * is validated as it is read. The channel is not closed.
+	 * 
+	 * @param channel
+	 *            The XML to be validated. The encoding is detected from the
+	 *            XML declaration.
+	 * @return boolean True If the XML validates against the schema
+	 * @throws SAXException
+	 *             If the a validation ErrorHandler has not been set, and
+	 *             validation throws a SAXException
+	 */
+	public boolean validate(ReadableByteChannel channel) throws SAXException {
+
+		return validate(Channels.newInputStream(channel));
+	}
 
-			root.removeAttribute("xsi:schemaLocation");
+	/**
+	 * Validate XML held in the remaining bytes of a ByteBuffer against the
+	 * STIX schema. The position of the buffer is left as it is.
+	 * 
+	 * @param buffer
+	 *            The XML to be validated. The encoding is detected from the
+	 *            XML declaration.
+	 * @return boolean True If the XML validates against the schema
+	 * @throws SAXException
+	 *             If the a validation ErrorHandler has not been set, and
+	 *             validation throws a SAXException
+	 */
+	public boolean validate(ByteBuffer buffer) throws SAXException {
 
-			TransformerFactory transFactory = TransformerFactory.newInstance();
-			Transformer transformer = transFactory.newTransformer();
-			StringWriter buffer = new StringWriter();
-			transformer
-					.transform(new DOMSource(root), new StreamResult(buffer));
-			xmlText = buffer.toString();
+		return validate(new ByteBufferInputStream(buffer));
+	}
 
-		} catch (ParserConfigurationException e) {
-			throw new RuntimeException(e);
-		} catch (TransformerConfigurationException e) {
-			throw new RuntimeException(e);
-		} catch (TransformerException e) {
-			throw new RuntimeException(e);
-		} catch (SAXException e) {
-			throw new RuntimeException(e);
+	/**
+	 * Validate an XML file against the STIX schema. The document is validated
+	 * as it is read, so memory use does not grow with the size of the
+	 * document.
+	 * 
+	 * @param path
+	 *            The path of the XML file to be validated.
+	 * @return boolean True If the XML validates against the schema
+	 * @throws SAXException
+	 *             If the a validation ErrorHandler has not been set, and
+	 *             validation throws a SAXException
+	 */
+	public boolean validate(Path path) throws SAXException {
+
+		InputStream inputStream = null;
+
+		try {
+			inputStream = Files.newInputStream(path);
+
+			InputSource inputSource = new InputSource(inputStream);
+			inputSource.setSystemId(path.toUri().toString());
+
+			return validate(new SAXSource(inputSource));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
 		}
+	}
+
+	/**
+	 * Validate XML from a Source against the STIX schema.
+	 * 
+	 * Stream and SAX sources are validated in a single pass with any
+	 * xsi:schemaLocation hints dropped as they are read, since the schema
+	 * documents are already at hand and following the hints may otherwise
+	 * cause exceptions to be thrown. Other sources (e.g., a DOMSource) are
+	 * validated as they are.
+	 * 
+	 * @param source
+	 *            The XML to be validated.
+	 * @return boolean True If the XML validates against the schema
+	 * @throws SAXException
+	 *             If the a validation ErrorHandler has not been set, and
+	 *             validation throws a SAXException
+	 */
+	public boolean validate(Source source) throws SAXException {
+
+		// a custom handler is set on the Validator even if it is null, so
+		// that the SAXException is re-thrown
+		return validate(source, customErrorHandler, errorHandler);
+	}
+
+	/**
+	 * Validate XML from a Source against the STIX schema, reporting errors to
+	 * the given ErrorHandler in place of the one set by
+	 * setValidationErrorHandler. Useful when errors must be collected per
+	 * document while validating several at once.
+	 * 
+	 * @param source
+	 *            The XML to be validated.
+	 * @param handler
+	 *            The ErrorHandler for this validation only, or null to use
+	 *            the default ValidationErrorHandler
+	 * @return boolean True unless validation stopped with a SAXException. A
+	 *         handler that does not throw on errors must keep track of them
+	 *         itself.
+	 * @throws SAXException
+	 *             If the Validator has no ErrorHandler, and validation
+	 *             throws a SAXException
+	 */
+	public boolean validate(Source source, ErrorHandler handler)
+			throws SAXException {
+
+		return validate(source, handler != null, handler);
+	}
+
+	/**
+	 * Validates with a pooled Validator, replacing its default
+	 * ValidationErrorHandler with a handler, which may be null, if asked to.
+	 */
+	private boolean validate(Source source, boolean setHandler,
+			ErrorHandler handler) throws SAXException {
+
+		Source filteredSource = removeSchemaLocations(source);
+
+		// each thread borrows its own Validator to avoid
+		// org.xml.sax.SAXException: FWK005 parse may not be called while
+		// parsing.
+		Validator validator = validatorPool.borrow();
 
 		try {
-			// synchronized to avoid org.xml.sax.SAXException: FWK005 parse may
-			// not be called while parsing.
-			synchronized (this) {
-				validator.validate(new StreamSource(new ByteArrayInputStream(
-						xmlText.getBytes(StandardCharsets.UTF_8))));
+			if (setHandler) {
+				validator.setErrorHandler(handler);
 			}
+
+			validator.validate(filteredSource);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		} catch (SAXException e) {
-			if (this.validator.getErrorHandler() != null) {
+			if (validator.getErrorHandler() != null) {
 				return false;
 			} else {
 				// re-throw the SAXException
 				throw e;
 			}
+		} finally {
+			validatorPool.release(validator);
 		}
 
 		return true;
 	}
 
+	/**
+	 * Validate XML from a Source against the STIX schema, collecting the
+	 * issues found into a ValidationReport rather than logging them and
+	 * throwing on the first. (It is not an overload of validate, as a
+	 * ValidationReport is an ErrorHandler and validate(source, null) must
+	 * still use the default ValidationErrorHandler.)
+	 * 
+	 * @param source
+	 *            The XML to be validated.
+	 * @param report
+	 *            The report to collect issues into
+	 * @return The report
+	 */
+	public ValidationReport validateInto(Source source, ValidationReport report) {
+
+		boolean completed;
+
+		try {
+			completed = validate(source, (ErrorHandler) report);
+		} catch (SAXException e) {
+			completed = false;
+		}
+
+		if (!completed && report.isValid()) {
+			// stopped by something other than an issue reported to it
+			report.add(ValidationReport.Severity.FATAL_ERROR,
+					new SAXParseException("Validation stopped", null));
+		}
+
+		return report;
+	}
+
+	/**
+	 * Wraps the XMLReader for a stream or SAX source with a filter that drops
+	 * xsi:schemaLocation and xsi:noNamespaceSchemaLocation attributes.
+	 */
+	private Source removeSchemaLocations(Source source) {
+
+		InputSource inputSource = SAXSource.sourceToInputSource(source);
+
+		if (inputSource == null) {
+			return source;
+		}
+
+		XMLReader xmlReader = null;
+
+		if (source instanceof SAXSource) {
+			xmlReader = ((SAXSource) source).getXMLReader();
+		}
+
+		if (xmlReader == null) {
+			// each thread reuses its own SAXParser
+			SAXParser saxParser = saxParsers.get();
+			saxParser.reset();
+
+			try {
+				xmlReader = saxParser.getXMLReader();
+			} catch (SAXException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		return new SAXSource(new SchemaLocationFilter(xmlReader), inputSource);
+	}
+
+	/**
+	 * Drops schema location hints from the elements passing through it.
+	 */
+	private static class SchemaLocationFilter extends XMLFilterImpl {
+
+		SchemaLocationFilter(XMLReader parent) {
+			super(parent);
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes atts) throws SAXException {
+
+			if (atts.getIndex(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+					"schemaLocation") >= 0
+					|| atts.getIndex(
+							XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI,
+							"noNamespaceSchemaLocation") >= 0) {
+
+				AttributesImpl filtered = new AttributesImpl(atts);
+
+				for (int i = filtered.getLength() - 1; i >= 0; i--) {
+					if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI
+							.equals(filtered.getURI(i))
+							&& ("schemaLocation".equals(filtered
+									.getLocalName(i)) || "noNamespaceSchemaLocation"
+									.equals(filtered.getLocalName(i)))) {
+						filtered.removeAttribute(i);
+					}
+				}
+
+				atts = filtered;
+			}
+
+			super.startElement(uri, localName, qName, atts);
+		}
+	}
+
 	/**
 	 * Returns Schema object representing the STIX schema.
 	 * 
@@ -299,44 +853,39 @@ public class STIXSchema {
 
 	/**
 	 * Return the namespace URI from the package for the class of the object.
+	 * The names of each class are looked up once (see ModelMetadata.)
 	 * 
 	 * @param obj
 	 *            Expects a JAXB model object.
-	 * @return Name of the XML namespace.
+	 * @return Name of the XML namespace, or null if the package of the class
+	 *         has no XmlSchema annotation
 	 */
 	public static String getNamespaceURI(Object obj) {
-
-		Package pkg = obj.getClass().getPackage();
-
-		XmlSchema xmlSchemaAnnotation = pkg.getAnnotation(XmlSchema.class);
-
-		return xmlSchemaAnnotation.namespace();
+		return ModelMetadata.getInstance().forClass(obj.getClass()).namespaceURI;
 	}
 
 	/**
-	 * Return the name from the JAXB model object.
+	 * Return the name from the JAXB model object: the name of its
+	 * XmlRootElement, or failing that of its XmlType.
 	 * 
 	 * @param obj
 	 *            Expects a JAXB model object.
-	 * @return element name
+	 * @return element name, or null if the class has neither annotation
 	 */
 	public static String getName(Object obj) {
-		try {
-			return obj.getClass().getAnnotation(XmlRootElement.class).name();
-		} catch (NullPointerException e) {
-			return obj.getClass().getAnnotation(XmlType.class).name();
-		}
+		return ModelMetadata.getInstance().forClass(obj.getClass()).name;
 	}
 
 	/**
-	 * Return the QualifiedNam from the JAXB model object.
+	 * Return the QualifiedNam from the JAXB model object. The same QName is
+	 * returned for every object of a class.
 	 * 
 	 * @param obj
 	 *            Expects a JAXB model object.
-	 * @return Qualified dName as defined by JAXB model
+	 * @return Qualified dName as defined by JAXB model, or null if either
+	 *         part is unknown
 	 */
 	public static QName getQualifiedName(Object obj) {
-		return new QName(STIXSchema.getNamespaceURI(obj),
-				STIXSchema.getName(obj));
+		return ModelMetadata.getInstance().forClass(obj.getClass()).qualifiedName;
 	}
 }
@@ -0,0 +1,642 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Statistics of a STIX_Package gathered by reading it with StAX alone,
+ * without unmarshalling anything, for monitoring feeds: the number of each
+ * kind of construct (see STIXConstruct) with their sizes and depths, the
+ * number of elements of each name, of each namespace and of each xsi:type,
+ * and the depth of the document.
+ *
+ * Nothing but the counts is kept, so a scan runs in constant memory at about
+ * the speed of the parser. Each histogram counts at most MAX_DISTINCT
+ * distinct values; values beyond those are only counted by
+ * getUntalliedCount.
+ */
+public class STIXStatistics {
+
+	/**
+	 * The most distinct values each histogram counts.
+	 */
+	public static final int MAX_DISTINCT = 1 << 12;
+
+	private static final XMLInputFactory xmlInputFactory = DocumentUtilities
+			.createXMLInputFactory(false);
+
+	/**
+	 * Statistics of the constructs of one kind.
+	 */
+	public static class ConstructStatistics {
+
+		private long count;
+
+		private long elementCount;
+
+		private long attributeCount;
+
+		private long textLength;
+
+		private int maxDepth;
+
+		/**
+		 * Returns the number of constructs.
+		 *
+		 * @return The number of constructs
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Returns the number of elements of the constructs, including their
+		 * own.
+		 *
+		 * @return The number of elements
+		 */
+		public long getElementCount() {
+			return elementCount;
+		}
+
+		/**
+		 * Returns the number of attributes of the elements of the
+		 * constructs.
+		 *
+		 * @return The number of attributes
+		 */
+		public long getAttributeCount() {
+			return attributeCount;
+		}
+
+		/**
+		 * Returns the number of characters of text of the constructs,
+		 * including whitespace.
+		 *
+		 * @return The length of their text
+		 */
+		public long getTextLength() {
+			return textLength;
+		}
+
+		/**
+		 * Returns the depth of the most deeply nested construct, its own
+		 * element being at depth 1.
+		 *
+		 * @return The maximum depth
+		 */
+		public int getMaxDepth() {
+			return maxDepth;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return String.format(
+					"%d (%d elements, %d attributes, %d characters, depth %d)",
+					count, elementCount, attributeCount, textLength, maxDepth);
+		}
+	}
+
+	private final Map<STIXConstruct, ConstructStatistics> constructs = new EnumMap<STIXConstruct, ConstructStatistics>(
+			STIXConstruct.class);
+
+	// counts by namespace URI and local name, so that names reported by the
+	// parser are counted without creating QNames
+	private final Map<String, Map<String, long[]>> elementNames = new HashMap<String, Map<String, long[]>>();
+
+	private final Map<String, long[]> namespaces = new HashMap<String, long[]>();
+
+	private final Map<String, Map<String, long[]>> typeNames = new HashMap<String, Map<String, long[]>>();
+
+	private int distinctElementNames = 0;
+
+	private int distinctTypeNames = 0;
+
+	private long untalliedCount = 0;
+
+	private long elementCount = 0;
+
+	private long attributeCount = 0;
+
+	private long textLength = 0;
+
+	private int maxDepth = 0;
+
+	private long byteCount = -1;
+
+	private QName packageId;
+
+	private String packageVersion;
+
+	private STIXStatistics() {
+		for (STIXConstruct construct : STIXConstruct.values()) {
+			constructs.put(construct, new ConstructStatistics());
+		}
+	}
+
+	/**
+	 * Scans a document read from a file.
+	 *
+	 * @param path
+	 *            The STIX_Package XML file
+	 * @return The statistics
+	 */
+	public static STIXStatistics scan(Path path) {
+		try {
+			InputStream inputStream = Files.newInputStream(path);
+
+			try {
+				return scan(inputStream);
+			} finally {
+				inputStream.close();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Scans a document read from an InputStream, counting its bytes. The
+	 * stream is not closed.
+	 *
+	 * @param inputStream
+	 *            The STIX_Package XML
+	 * @return The statistics
+	 */
+	public static STIXStatistics scan(InputStream inputStream) {
+		CountingInputStream countingInputStream = new CountingInputStream(
+				inputStream);
+
+		try {
+			XMLStreamReader reader = xmlInputFactory
+					.createXMLStreamReader(countingInputStream);
+
+			try {
+				STIXStatistics statistics = scan(reader);
+				statistics.byteCount = countingInputStream.getByteCount();
+				return statistics;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Scans a document from an XMLStreamReader positioned at or before the
+	 * STIX_Package start tag, to its end.
+	 *
+	 * @param reader
+	 *            The XMLStreamReader
+	 * @return The statistics
+	 */
+	public static STIXStatistics scan(XMLStreamReader reader) {
+		STIXStatistics statistics = new STIXStatistics();
+
+		try {
+			statistics.read(reader);
+		} catch (XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+
+		return statistics;
+	}
+
+	private void read(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 0;
+
+		// the child of the STIX_Package being read, and the construct being
+		// read and the depth of its element
+		String container = null;
+		ConstructStatistics construct = null;
+		int constructDepth = 0;
+
+		for (int event = reader.getEventType();; event = reader.next()) {
+			switch (event) {
+
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+
+				String namespaceURI = reader.getNamespaceURI();
+				String localName = reader.getLocalName();
+				int attributes = reader.getAttributeCount();
+
+				if (namespaceURI == null) {
+					namespaceURI = XMLConstants.NULL_NS_URI;
+				}
+
+				if (depth == 1) {
+					if (!STIXConstruct.STIX_NAMESPACE.equals(namespaceURI)
+							|| !"STIX_Package".equals(localName)) {
+						throw new RuntimeException("Expected "
+								+ STIXConstruct.STIX_PACKAGE + " but found "
+								+ reader.getName());
+					}
+
+					readPackageAttributes(reader);
+				} else if (construct == null) {
+					STIXConstruct kind = null;
+
+					if (depth == 2) {
+						container = STIXConstruct.STIX_NAMESPACE
+								.equals(namespaceURI) ? localName : null;
+
+						if ("STIX_Header".equals(container)) {
+							kind = STIXConstruct.STIX_HEADER;
+						}
+					} else if (depth == 3 && container != null) {
+						kind = STIXConstruct.forElementName(new QName(
+								namespaceURI, localName));
+
+						if (kind != null
+								&& (kind.getContainerName() == null || !container
+										.equals(kind.getContainerName()
+												.getLocalPart()))) {
+							kind = null;
+						}
+					}
+
+					if (kind != null) {
+						construct = constructs.get(kind);
+						construct.count++;
+						constructDepth = depth;
+					}
+				}
+
+				if (construct != null) {
+					construct.elementCount++;
+					construct.attributeCount += attributes;
+					construct.maxDepth = Math.max(construct.maxDepth, depth
+							- constructDepth + 1);
+				}
+
+				elementCount++;
+				attributeCount += attributes;
+				maxDepth = Math.max(maxDepth, depth);
+
+				countElement(namespaceURI, localName);
+
+				if (attributes > 0) {
+					countType(reader);
+				}
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+				if (depth == constructDepth) {
+					construct = null;
+					constructDepth = 0;
+				}
+
+				if (depth == 2) {
+					container = null;
+				}
+
+				depth--;
+				break;
+
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				int length = reader.getTextLength();
+
+				textLength += length;
+
+				if (construct != null) {
+					construct.textLength += length;
+				}
+				break;
+
+			case XMLStreamConstants.END_DOCUMENT:
+				return;
+
+			default:
+				break;
+			}
+
+			if (!reader.hasNext()) {
+				return;
+			}
+		}
+	}
+
+	private void readPackageAttributes(XMLStreamReader reader) {
+		String id = reader.getAttributeValue(null, "id");
+
+		if (id != null) {
+			int colon = id.indexOf(':');
+			String prefix = (colon > 0) ? id.substring(0, colon)
+					: XMLConstants.DEFAULT_NS_PREFIX;
+			String namespaceURI = reader.getNamespaceURI(prefix);
+
+			packageId = QNameRegistry.intern(namespaceURI == null ? ""
+					: namespaceURI, id.substring(colon + 1), prefix);
+		}
+
+		packageVersion = reader.getAttributeValue(null, "version");
+	}
+
+	private void countElement(String namespaceURI, String localName) {
+		long[] namespaceCount = namespaces.get(namespaceURI);
+
+		Map<String, long[]> names = elementNames.get(namespaceURI);
+
+		if (namespaceCount == null) {
+			if (namespaces.size() >= MAX_DISTINCT) {
+				untalliedCount++;
+				return;
+			}
+
+			namespaceCount = new long[1];
+			namespaces.put(namespaceURI, namespaceCount);
+
+			names = new HashMap<String, long[]>();
+			elementNames.put(namespaceURI, names);
+		}
+
+		namespaceCount[0]++;
+
+		long[] count = names.get(localName);
+
+		if (count == null) {
+			if (distinctElementNames >= MAX_DISTINCT) {
+				untalliedCount++;
+				return;
+			}
+
+			count = new long[1];
+			names.put(localName, count);
+			distinctElementNames++;
+		}
+
+		count[0]++;
+	}
+
+	private void countType(XMLStreamReader reader) {
+		String xsiType = reader.getAttributeValue(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
+
+		if (xsiType == null) {
+			return;
+		}
+
+		xsiType = xsiType.trim();
+
+		int colon = xsiType.indexOf(':');
+		String namespaceURI = reader.getNamespaceURI((colon < 0) ? ""
+				: xsiType.substring(0, colon));
+		String localName = xsiType.substring(colon + 1);
+
+		if (namespaceURI == null) {
+			namespaceURI = XMLConstants.NULL_NS_URI;
+		}
+
+		Map<String, long[]> names = typeNames.get(namespaceURI);
+
+		if (names == null) {
+			if (typeNames.size() >= MAX_DISTINCT) {
+				untalliedCount++;
+				return;
+			}
+
+			names = new HashMap<String, long[]>();
+			typeNames.put(namespaceURI, names);
+		}
+
+		long[] count = names.get(localName);
+
+		if (count == null) {
+			if (distinctTypeNames >= MAX_DISTINCT) {
+				untalliedCount++;
+				return;
+			}
+
+			count = new long[1];
+			names.put(localName, count);
+			distinctTypeNames++;
+		}
+
+		count[0]++;
+	}
+
+	private static Map<QName, Long> toHistogram(
+			Map<String, Map<String, long[]>> counts) {
+		Map<QName, Long> histogram = new LinkedHashMap<QName, Long>();
+
+		for (Map.Entry<String, Map<String, long[]>> namespace : counts
+				.entrySet()) {
+			for (Map.Entry<String, long[]> name : namespace.getValue()
+					.entrySet()) {
+				histogram.put(new QName(namespace.getKey(), name.getKey()),
+						name.getValue()[0]);
+			}
+		}
+
+		return Collections.unmodifiableMap(histogram);
+	}
+
+	/**
+	 * Returns the statistics of the constructs of one kind.
+	 *
+	 * @param construct
+	 *            The kind of construct
+	 * @return The statistics, with a count of 0 if there are none
+	 */
+	public ConstructStatistics getConstruct(STIXConstruct construct) {
+		return constructs.get(construct);
+	}
+
+	/**
+	 * Returns the number of constructs of one kind.
+	 *
+	 * @param construct
+	 *            The kind of construct
+	 * @return The number of constructs
+	 */
+	public long getCount(STIXConstruct construct) {
+		return constructs.get(construct).count;
+	}
+
+	/**
+	 * Returns the statistics of every kind of construct.
+	 *
+	 * @return The statistics in the order of STIXConstruct
+	 */
+	public Map<STIXConstruct, ConstructStatistics> getConstructs() {
+		return Collections.unmodifiableMap(constructs);
+	}
+
+	/**
+	 * Returns the number of elements of a name, wherever they are (e.g.,
+	 * the CybOX Objects of the package.)
+	 *
+	 * @param name
+	 *            The element name
+	 * @return The number of elements
+	 */
+	public long getElementCount(QName name) {
+		Map<String, long[]> names = elementNames.get(name.getNamespaceURI());
+		long[] count = (names == null) ? null : names.get(name
+				.getLocalPart());
+
+		return (count == null) ? 0 : count[0];
+	}
+
+	/**
+	 * Returns the number of elements of each name.
+	 *
+	 * @return The counts by element name
+	 */
+	public Map<QName, Long> getElementNames() {
+		return toHistogram(elementNames);
+	}
+
+	/**
+	 * Returns the number of elements in each namespace.
+	 *
+	 * @return The counts by namespace URI
+	 */
+	public Map<String, Long> getNamespaces() {
+		Map<String, Long> histogram = new LinkedHashMap<String, Long>();
+
+		for (Map.Entry<String, long[]> namespace : namespaces.entrySet()) {
+			histogram.put(namespace.getKey(), namespace.getValue()[0]);
+		}
+
+		return Collections.unmodifiableMap(histogram);
+	}
+
+	/**
+	 * Returns the number of elements of each xsi:type.
+	 *
+	 * @return The counts by type name
+	 */
+	public Map<QName, Long> getTypeNames() {
+		return toHistogram(typeNames);
+	}
+
+	/**
+	 * Returns the number of elements and xsi:types that were not tallied in
+	 * the histograms, as they held MAX_DISTINCT values already.
+	 *
+	 * @return The number of values not tallied
+	 */
+	public long getUntalliedCount() {
+		return untalliedCount;
+	}
+
+	/**
+	 * Returns the number of elements of the document.
+	 *
+	 * @return The number of elements
+	 */
+	public long getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * Returns the number of attributes of the document, not counting
+	 * namespace declarations.
+	 *
+	 * @return The number of attributes
+	 */
+	public long getAttributeCount() {
+		return attributeCount;
+	}
+
+	/**
+	 * Returns the number of characters of text of the document, including
+	 * whitespace.
+	 *
+	 * @return The length of its text
+	 */
+	public long getTextLength() {
+		return textLength;
+	}
+
+	/**
+	 * Returns the depth of the document, the STIX_Package being at depth 1.
+	 *
+	 * @return The maximum depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the number of bytes read.
+	 *
+	 * @return The number of bytes, or -1 if the document was scanned from an
+	 *         XMLStreamReader
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Returns the id of the STIX_Package.
+	 *
+	 * @return The STIX_Package id or null if it has none
+	 */
+	public QName getPackageId() {
+		return packageId;
+	}
+
+	/**
+	 * Returns the version of the STIX_Package.
+	 *
+	 * @return The STIX_Package version or null if it has none
+	 */
+	public String getPackageVersion() {
+		return packageVersion;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+
+		text.append(String.format(
+				"%d bytes, %d elements, %d attributes, depth %d%n", byteCount,
+				elementCount, attributeCount, maxDepth));
+
+		for (Map.Entry<STIXConstruct, ConstructStatistics> construct : constructs
+				.entrySet()) {
+			if (construct.getValue().count > 0) {
+				text.append(String.format("%s: %s%n", construct.getKey(),
+						construct.getValue()));
+			}
+		}
+
+		return text.toString();
+	}
+}
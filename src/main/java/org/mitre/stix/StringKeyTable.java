@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.Map;
+
+/**
+ * A read-only hash table keyed by strings (e.g., the URIs of an
+ * IndicatorMatcher), looked up from any CharSequence without creating a
+ * String for it.
+ *
+ * Thread-safe once published.
+ */
+final class StringKeyTable<V> {
+
+	private final String[] keys;
+
+	private final Object[] values;
+
+	private final int mask;
+
+	/**
+	 * Creates a table holding entries.
+	 *
+	 * @param entries
+	 *            The values by key
+	 */
+	StringKeyTable(Map<String, V> entries) {
+		int capacity = ByteKeyTable.capacity(entries.size());
+
+		this.keys = new String[capacity];
+		this.values = new Object[capacity];
+		this.mask = capacity - 1;
+
+		for (Map.Entry<String, V> entry : entries.entrySet()) {
+			int slot = spread(entry.getKey().hashCode()) & mask;
+
+			while (keys[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			keys[slot] = entry.getKey();
+			values[slot] = entry.getValue();
+		}
+	}
+
+	/**
+	 * Returns the value of a key.
+	 *
+	 * @param key
+	 *            The key
+	 * @return The value or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	V get(CharSequence key) {
+		for (int slot = spread(hashCode(key)) & mask;; slot = (slot + 1)
+				& mask) {
+			String candidate = keys[slot];
+
+			if (candidate == null) {
+				return null;
+			}
+
+			if (candidate.length() == key.length()
+					&& candidate.contentEquals(key)) {
+				return (V) values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Returns the hash code a String of the same characters has.
+	 */
+	private static int hashCode(CharSequence key) {
+		if (key instanceof String) {
+			return key.hashCode();
+		}
+
+		int hash = 0;
+
+		for (int i = 0; i < key.length(); i++) {
+			hash = 31 * hash + key.charAt(i);
+		}
+
+		return hash;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
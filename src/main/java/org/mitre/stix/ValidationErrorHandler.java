@@ -8,10 +8,13 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.SAXException;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Parsing and validating error handler
+ * Parsing and validating error handler, which logs each issue and throws it.
+ * 
+ * See ValidationReport for a handler that collects issues instead.
  * 
  * @author nemonik (Michael Joseph Walsh <github.com@nemonik.com>) *
  */
@@ -19,12 +22,12 @@ public class ValidationErrorHandler implements ErrorHandler {
 	private static final Logger LOGGER = Logger.getLogger(ValidationErrorHandler.class.getName());
 	
 	private void log(String type, SAXParseException e) {
-		LOGGER.warning("SAXParseException " + type);
-		LOGGER.warning("\tPublic ID: " + e.getPublicId());
-		LOGGER.warning("\tSystem ID: " + e.getSystemId());
-		LOGGER.warning("\tLine     : " + e.getLineNumber());
-		LOGGER.warning("\tColumn   : " + e.getColumnNumber());
-		LOGGER.warning("\tMessage  : " + e.getMessage());
+		if (LOGGER.isLoggable(Level.WARNING)) {
+			LOGGER.log(Level.WARNING, "SAXParseException {0} (Public ID: {1}, System ID: {2}, Line: {3}, Column: {4}): {5}",
+					new Object[] { type, e.getPublicId(), e.getSystemId(),
+							String.valueOf(e.getLineNumber()),
+							String.valueOf(e.getColumnNumber()), e.getMessage() });
+		}
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,453 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Collects the issues reported while validating a document, as an
+ * alternative to the log-and-throw ValidationErrorHandler (see
+ * STIXSchema.validateInto(Source, ValidationReport).)
+ *
+ * Issues are kept as a line, column, code (e.g., "cvc-complex-type.3.2.2")
+ * and message each, in arrays that grow as needed up to a cap; issues past
+ * the cap are counted but not kept. In FAIL_FAST mode validation stops at the
+ * first error, and in COUNT_ONLY mode issues are only counted.
+ *
+ * Nothing is logged unless a Logger is given, and then only at levels the
+ * Logger is loggable at, with the message formatted by the Logger's handlers.
+ *
+ * A report may be reused for another document once reset. Not thread-safe.
+ */
+public class ValidationReport implements ErrorHandler {
+
+	/**
+	 * How issues are handled.
+	 */
+	public enum Mode {
+
+		/**
+		 * Keep issues up to the cap and validate the whole document.
+		 */
+		COLLECT,
+
+		/**
+		 * Keep the first error and stop validating.
+		 */
+		FAIL_FAST,
+
+		/**
+		 * Only count issues.
+		 */
+		COUNT_ONLY
+	}
+
+	/**
+	 * The severity of an issue, as reported to an ErrorHandler.
+	 */
+	public enum Severity {
+		WARNING, ERROR, FATAL_ERROR
+	}
+
+	/**
+	 * An issue kept by a ValidationReport.
+	 */
+	public static final class Issue {
+
+		private final Severity severity;
+
+		private final int line;
+
+		private final int column;
+
+		private final String code;
+
+		private final String message;
+
+		Issue(Severity severity, int line, int column, String code,
+				String message) {
+			this.severity = severity;
+			this.line = line;
+			this.column = column;
+			this.code = code;
+			this.message = message;
+		}
+
+		public Severity getSeverity() {
+			return severity;
+		}
+
+		/**
+		 * @return The line number or -1 if not known
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return The column number or -1 if not known
+		 */
+		public int getColumn() {
+			return column;
+		}
+
+		/**
+		 * @return The code of the schema constraint or parser error (e.g.,
+		 *         "cvc-complex-type.3.2.2") or null if the message has none
+		 */
+		public String getCode() {
+			return code;
+		}
+
+		/**
+		 * @return The message less its code
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return severity + " " + line + ":" + column + ": "
+					+ (code == null ? message : code + ": " + message);
+		}
+	}
+
+	/**
+	 * The number of issues kept unless otherwise given.
+	 */
+	public static final int DEFAULT_MAX_ISSUES = 100;
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private final Mode mode;
+
+	private final int maxIssues;
+
+	private Logger logger;
+
+	private String systemId;
+
+	private int warningCount;
+
+	private int errorCount;
+
+	private int fatalErrorCount;
+
+	private int size;
+
+	private Severity[] severities;
+
+	private int[] lines;
+
+	private int[] columns;
+
+	private String[] codes;
+
+	private String[] messages;
+
+	/**
+	 * Creates a report keeping up to DEFAULT_MAX_ISSUES issues.
+	 */
+	public ValidationReport() {
+		this(Mode.COLLECT, DEFAULT_MAX_ISSUES);
+	}
+
+	/**
+	 * Creates a report keeping up to DEFAULT_MAX_ISSUES issues.
+	 *
+	 * @param mode
+	 *            How issues are handled
+	 */
+	public ValidationReport(Mode mode) {
+		this(mode, DEFAULT_MAX_ISSUES);
+	}
+
+	/**
+	 * Creates a report.
+	 *
+	 * @param mode
+	 *            How issues are handled
+	 * @param maxIssues
+	 *            The maximum number of issues kept
+	 */
+	public ValidationReport(Mode mode, int maxIssues) {
+
+		if (maxIssues < 0) {
+			throw new IllegalArgumentException("maxIssues must not be negative");
+		}
+
+		this.mode = mode;
+		this.maxIssues = (mode == Mode.COUNT_ONLY) ? 0 : maxIssues;
+
+		int capacity = Math.min(this.maxIssues, INITIAL_CAPACITY);
+
+		this.severities = new Severity[capacity];
+		this.lines = new int[capacity];
+		this.columns = new int[capacity];
+		this.codes = new String[capacity];
+		this.messages = new String[capacity];
+	}
+
+	/**
+	 * Logs issues to a Logger as they are reported: warnings at WARNING and
+	 * errors at SEVERE.
+	 *
+	 * @param logger
+	 *            The Logger or null to log nothing, the default
+	 * @return This report
+	 */
+	public ValidationReport withLogger(Logger logger) {
+		this.logger = logger;
+		return this;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public int getMaxIssues() {
+		return maxIssues;
+	}
+
+	/**
+	 * Returns whether no errors or fatal errors were reported. Warnings do not
+	 * make a document invalid.
+	 *
+	 * @return True if the document is valid
+	 */
+	public boolean isValid() {
+		return errorCount == 0 && fatalErrorCount == 0;
+	}
+
+	/**
+	 * Returns the system id of the document, as given by its first issue.
+	 *
+	 * @return The system id or null
+	 */
+	public String getSystemId() {
+		return systemId;
+	}
+
+	public int getWarningCount() {
+		return warningCount;
+	}
+
+	public int getErrorCount() {
+		return errorCount;
+	}
+
+	public int getFatalErrorCount() {
+		return fatalErrorCount;
+	}
+
+	/**
+	 * Returns the number of issues reported, whether kept or not.
+	 *
+	 * @return The number of issues
+	 */
+	public int getIssueCount() {
+		return warningCount + errorCount + fatalErrorCount;
+	}
+
+	/**
+	 * Returns whether issues were reported past the cap (or at all in
+	 * COUNT_ONLY mode) and not kept.
+	 *
+	 * @return True if some issues were not kept
+	 */
+	public boolean isTruncated() {
+		return getIssueCount() > size;
+	}
+
+	/**
+	 * Returns the issues kept, in the order they were reported. Each Issue is
+	 * created as it is read.
+	 *
+	 * @return The issues kept
+	 */
+	public List<Issue> getIssues() {
+		return new AbstractList<Issue>() {
+
+			@Override
+			public Issue get(int index) {
+				if (index < 0 || index >= size) {
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+				}
+
+				return new Issue(severities[index], lines[index],
+						columns[index], codes[index], messages[index]);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Clears the report so it can be reused for another document.
+	 */
+	public void reset() {
+		Arrays.fill(codes, 0, size, null);
+		Arrays.fill(messages, 0, size, null);
+
+		systemId = null;
+		warningCount = 0;
+		errorCount = 0;
+		fatalErrorCount = 0;
+		size = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.xml.sax.ErrorHandler#warning(org.xml.sax.SAXParseException)
+	 */
+	@Override
+	public void warning(SAXParseException e) {
+		add(Severity.WARNING, e);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.xml.sax.ErrorHandler#error(org.xml.sax.SAXParseException)
+	 */
+	@Override
+	public void error(SAXParseException e) throws SAXException {
+		add(Severity.ERROR, e);
+
+		if (mode == Mode.FAIL_FAST) {
+			throw e;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.xml.sax.ErrorHandler#fatalError(org.xml.sax.SAXParseException)
+	 */
+	@Override
+	public void fatalError(SAXParseException e) throws SAXException {
+		add(Severity.FATAL_ERROR, e);
+
+		// the document cannot be read any further
+		throw e;
+	}
+
+	/**
+	 * Records an issue.
+	 */
+	void add(Severity severity, SAXParseException e) {
+
+		switch (severity) {
+		case WARNING:
+			warningCount++;
+			break;
+		case ERROR:
+			errorCount++;
+			break;
+		default:
+			fatalErrorCount++;
+			break;
+		}
+
+		if (systemId == null) {
+			systemId = e.getSystemId();
+		}
+
+		if (logger != null) {
+			Level level = (severity == Severity.WARNING) ? Level.WARNING
+					: Level.SEVERE;
+
+			if (logger.isLoggable(level)) {
+				logger.log(level, "{0} {1}:{2}:{3}: {4}", new Object[] {
+						severity, e.getSystemId(),
+						String.valueOf(e.getLineNumber()),
+						String.valueOf(e.getColumnNumber()), e.getMessage() });
+			}
+		}
+
+		if (size == maxIssues) {
+			return;
+		}
+
+		if (size == lines.length) {
+			grow();
+		}
+
+		String message = e.getMessage();
+		String code = null;
+
+		if (message != null) {
+			int colon = message.indexOf(": ");
+
+			if (colon > 0 && isCode(message, colon)) {
+				code = message.substring(0, colon);
+				message = message.substring(colon + 2);
+			}
+		}
+
+		severities[size] = severity;
+		lines[size] = e.getLineNumber();
+		columns[size] = e.getColumnNumber();
+		codes[size] = code;
+		messages[size] = message;
+
+		size++;
+	}
+
+	/**
+	 * Whether a message starts with a code, i.e., a run of characters with no
+	 * whitespace before ": " (e.g., "cvc-pattern-valid: ...".)
+	 */
+	private static boolean isCode(String message, int end) {
+		for (int i = 0; i < end; i++) {
+			if (Character.isWhitespace(message.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void grow() {
+		int capacity = Math.min(maxIssues,
+				Math.max(INITIAL_CAPACITY, lines.length * 2));
+
+		severities = Arrays.copyOf(severities, capacity);
+		lines = Arrays.copyOf(lines, capacity);
+		columns = Arrays.copyOf(columns, capacity);
+		codes = Arrays.copyOf(codes, capacity);
+		messages = Arrays.copyOf(messages, capacity);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return (isValid() ? "valid" : "invalid") + ": " + errorCount
+				+ " errors, " + fatalErrorCount + " fatal errors, "
+				+ warningCount + " warnings";
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ */
+package org.mitre.stix;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+
+/**
+ * A bounded pool of Validators created from a single Schema.
+ *
+ * A Validator is not thread-safe, but the Schema it is created from is, so
+ * rather than serializing all validation on one Validator, each thread
+ * borrows its own. Validators are created lazily up to the maximum size; once
+ * that many are in use further borrowers wait for one to be released.
+ *
+ * Each Validator is given the shared ValidationErrorHandler when created and
+ * again each time it is released.
+ */
+public class ValidatorPool {
+
+	// stateless, so shared by every Validator
+	private static final ValidationErrorHandler ERROR_HANDLER = new ValidationErrorHandler();
+
+	private final Schema schema;
+
+	private final int maxSize;
+
+	private final BlockingQueue<Validator> idle;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final AtomicLong borrows = new AtomicLong();
+
+	private final AtomicLong waits = new AtomicLong();
+
+	private final AtomicLong borrowNanos = new AtomicLong();
+
+	/**
+	 * Creates a pool holding up to one Validator per available processor.
+	 *
+	 * @param schema
+	 *            The Schema Validators are created from
+	 */
+	public ValidatorPool(Schema schema) {
+		this(schema, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a pool.
+	 *
+	 * @param schema
+	 *            The Schema Validators are created from
+	 * @param maxSize
+	 *            The maximum number of Validators the pool will create
+	 */
+	public ValidatorPool(Schema schema, int maxSize) {
+
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1");
+		}
+
+		this.schema = schema;
+		this.maxSize = maxSize;
+		this.idle = new LinkedBlockingQueue<Validator>(maxSize);
+	}
+
+	/**
+	 * Borrows a Validator, creating one if none are idle and the pool has not
+	 * reached its maximum size, otherwise waiting for one to be released.
+	 *
+	 * Validators must be handed back via release(Validator).
+	 *
+	 * @return A Validator for the exclusive use of the caller
+	 */
+	public Validator borrow() {
+
+		long start = System.nanoTime();
+
+		try {
+			Validator validator = idle.poll();
+
+			if (validator != null) {
+				return validator;
+			}
+
+			while (true) {
+				int current = size.get();
+
+				if (current >= maxSize) {
+					break;
+				}
+
+				if (size.compareAndSet(current, current + 1)) {
+					Validator created = null;
+
+					try {
+						created = create();
+						return created;
+					} finally {
+						if (created == null) {
+							// give back the slot of the Validator not created
+							size.decrementAndGet();
+						}
+					}
+				}
+			}
+
+			waits.incrementAndGet();
+
+			try {
+				return idle.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+
+		} finally {
+			borrows.incrementAndGet();
+			borrowNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns a borrowed Validator to the pool after resetting it.
+	 *
+	 * @param validator
+	 *            A Validator obtained from borrow()
+	 */
+	public void release(Validator validator) {
+
+		validator.reset();
+		validator.setErrorHandler(ERROR_HANDLER);
+
+		if (!idle.offer(validator)) {
+			// should not happen unless a foreign Validator was released
+			size.decrementAndGet();
+		}
+	}
+
+	private Validator create() {
+
+		Validator validator = schema.newValidator();
+		validator.setErrorHandler(ERROR_HANDLER);
+
+		return validator;
+	}
+
+	/**
+	 * Returns the maximum number of Validators the pool will create.
+	 *
+	 * @return The maximum pool size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of Validators created so far.
+	 *
+	 * @return The current pool size
+	 */
+	public int getSize() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the number of Validators waiting in the pool to be borrowed.
+	 *
+	 * @return The number of idle Validators
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * Returns the number of times a Validator was borrowed.
+	 *
+	 * @return The borrow count
+	 */
+	public long getBorrowCount() {
+		return borrows.get();
+	}
+
+	/**
+	 * Returns the number of borrows that had to wait for a Validator to be
+	 * released.
+	 *
+	 * @return The wait count
+	 */
+	public long getWaitCount() {
+		return waits.get();
+	}
+
+	/**
+	 * Returns the total time spent in borrow(), including any waiting, in
+	 * nanoseconds.
+	 *
+	 * @return The total borrow time in nanoseconds
+	 */
+	public long getBorrowTimeNanos() {
+		return borrowNanos.get();
+	}
+}
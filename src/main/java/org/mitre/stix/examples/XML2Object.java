@@ -4,12 +4,11 @@
  */
 package org.mitre.stix.examples;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.mitre.stix.MappedSTIXFile;
 import org.mitre.stix.stix_1.STIXPackage;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -40,11 +39,10 @@ public class XML2Object {
 					"/org/mitre/stix/examples/sample.xml");
 			File file = new File(url.toURI());
 
-			String text = FileUtils.readFileToString(file);
+			STIXPackage stixPackage = MappedSTIXFile.map(file.toPath())
+					.readPackage();
 
-			STIXPackage stixPackage = STIXPackage.fromXMLString(text);
-
-			text = stixPackage.toXMLString(true);
+			String text = stixPackage.toXMLString(true);
 
 			System.out.println(text);
 
@@ -56,8 +54,6 @@ public class XML2Object {
 
 		} catch (URISyntaxException e) {
 			throw new RuntimeException(e);
-		} catch (FileNotFoundException e) {
-			throw new RuntimeException(e);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -5,18 +5,21 @@
 package org.mitre.stix.examples;
 
 import java.io.File;
-import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.List;
 
-import org.apache.commons.io.FileUtils;
-import org.mitre.stix.common_1.IndicatorBaseType;
-import org.mitre.stix.indicator_2.Indicator;
-import org.mitre.stix.stix_1.STIXPackage;
+import javax.xml.namespace.QName;
+
+import org.mitre.stix.STIXConstruct;
+import org.mitre.stix.STIXStatistics;
 
 /**
- * Prints indicator, observable, object count from a STIXPackage object
+ * Prints indicator, observable, object count from a STIX_Package document,
+ * counted by STIXStatistics from its StAX events: the Indicators of the
+ * package, the Observables of those Indicators, and the CybOX Objects
+ * anywhere in the package, including those of the package's own Observables
+ * and of the Observables of compositions, so Objects may outnumber
+ * Observables.
  * 
  * See <a href=
  * "https://raw.githubusercontent.com/STIXProject/python-stix/master/examples/xml_parser.py"
@@ -28,6 +31,12 @@ import org.mitre.stix.stix_1.STIXPackage;
  */
 public class XMLParser {
 
+	private static final QName INDICATOR_OBSERVABLE = new QName(
+			"http://stix.mitre.org/Indicator-2", "Observable");
+
+	private static final QName CYBOX_OBJECT = new QName(
+			STIXConstruct.CYBOX_NAMESPACE, "Object");
+
 	public XMLParser() {
 
 	}
@@ -48,40 +57,14 @@ public class XMLParser {
 			}
 		}
 
-		try {
-
-			STIXPackage stixPackage = STIXPackage.fromXMLString(FileUtils
-					.readFileToString(file));
-
-			int indicatorCount = 0, observablesCount = 0, objectCount = 0;
-
-			if (stixPackage.getIndicators() != null) {
-				if (stixPackage.getIndicators().getIndicators() != null) {
-					List<IndicatorBaseType> indicators = stixPackage
-							.getIndicators().getIndicators();
-
-					indicatorCount = indicators.size();
+		// counted with StAX alone, without unmarshalling the package
+		STIXStatistics statistics = STIXStatistics.scan(file.toPath());
 
-					for (int i = 0; i < indicatorCount; i++) {
-
-						Indicator indicator = (Indicator) indicators.get(i);
-
-						if (indicator.getObservable() != null) {
-							observablesCount++;
-							if (indicator.getObservable().getObject() != null) {
-								objectCount++;
-							}
-						}
-					}
-				}
-			}
-
-			System.out.format("Indicators: %d%n", indicatorCount);
-			System.out.format("Observables: %d%n", observablesCount);
-			System.out.format("Objects: %d%n", objectCount);
-
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
+		System.out.format("Indicators: %d%n",
+				statistics.getCount(STIXConstruct.INDICATOR));
+		System.out.format("Indicator Observables: %d%n",
+				statistics.getElementCount(INDICATOR_OBSERVABLE));
+		System.out.format("CybOX Objects (all): %d%n",
+				statistics.getElementCount(CYBOX_OBJECT));
 	}
 }
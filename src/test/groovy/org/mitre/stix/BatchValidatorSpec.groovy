@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for BatchValidator
+ */
+import java.nio.file.Files
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import org.apache.commons.io.IOUtils
+import org.mitre.stix.BatchValidator
+
+class BatchValidatorSpec extends spock.lang.Specification {
+
+	def sampleXml() {
+		IOUtils.toByteArray(getClass().getClassLoader().getResource("org/mitre/stix/sample.xml"))
+	}
+
+	def invalidXml() {
+		new String(sampleXml(), "UTF-8").replace('version="1.2"', 'version="1.2" bogus="true"').getBytes("UTF-8")
+	}
+
+	def "Every XML file under a directory is validated and reported on"() {
+		setup: "a directory of valid and invalid documents"
+			def directory = Files.createTempDirectory("stix")
+			Files.createDirectory(directory.resolve("nested"))
+			(1..3).each { Files.write(directory.resolve("valid-${it}.xml"), sampleXml()) }
+			Files.write(directory.resolve("nested/invalid.xml"), invalidXml())
+			Files.write(directory.resolve("notes.txt"), "not xml".getBytes("UTF-8"))
+			def validator = new BatchValidator()
+		when: "the directory is validated"
+			def report = validator.validate(directory)
+		then: "each document has a report and the invalid one has errors"
+			report.getFileCount() == 4
+			report.getValidCount() == 3
+			report.getInvalidCount() == 1
+			report.getFiles().find { it.getName().endsWith("invalid.xml") }.getValidationReport().getErrorCount() > 0
+			report.getByteCount() == 3 * sampleXml().length + invalidXml().length
+			report.getFilesPerSecond() > 0
+		when: "only the top-level files are matched"
+			report = validator.validate(directory, "*.xml")
+		then: "the nested document is left out"
+			report.getFileCount() == 3
+			report.isValid()
+		cleanup:
+			validator.close()
+			directory.toFile().deleteDir()
+	}
+
+	def "The XML entries of a zip stream are validated"() {
+		setup: "a zip of a valid and an invalid document"
+			def bytes = new ByteArrayOutputStream()
+			def zip = new ZipOutputStream(bytes)
+			zip.putNextEntry(new ZipEntry("valid.xml"))
+			zip.write(sampleXml())
+			zip.putNextEntry(new ZipEntry("invalid.xml"))
+			zip.write(invalidXml())
+			zip.close()
+			def validator = new BatchValidator()
+		when: "the stream is validated"
+			def report = validator.validateZip(new ByteArrayInputStream(bytes.toByteArray()))
+		then: "both entries are reported on in order"
+			report.getFiles()*.getName() == ["valid.xml", "invalid.xml"]
+			report.getFiles()*.isValid() == [true, false]
+		cleanup:
+			validator.close()
+	}
+}
@@ -117,4 +117,114 @@ class DocumentUtilitiesSpec extends spock.lang.Specification{
 			
 			diff.identical()
 	}
-}
\ No newline at end of file
+	
+	def "JAXBContexts are created once and shared"() {
+		when: "contexts are retrieved for STIX model classes and other packages"
+			def warmedUp = DocumentUtilities.warmUpJAXBContext().get()
+			def stixContext = DocumentUtilities.getJAXBContext(STIXPackage.class)
+			def headerContext = DocumentUtilities.getJAXBContext(STIXHeaderType.class)
+			def ciqContext = DocumentUtilities.getJAXBContext("oasis.names.tc.ciq.xnl._3")
+			
+		then: "the STIX model classes share the default context and others are cached"
+			warmedUp.is(DocumentUtilities.stixJaxbContext())
+			stixContext.is(DocumentUtilities.stixJaxbContext())
+			headerContext.is(stixContext)
+			ciqContext.is(DocumentUtilities.getJAXBContext("oasis.names.tc.ciq.xnl._3"))
+	}
+	
+	def "Converting a JAXBElement to a Document declares only the namespaces used"() {
+		when: "A STIX Package model is created and converted to a Document"
+			def stixPackage = new STIXPackage()
+								.withVersion(version)
+								.withTimestamp(epoch)
+								.withId(new QName("http://example.com/", 
+									"package-af59abd3-102c-43d0-89ed-e0a90525d747", 
+									"example"))
+			
+			def root = DocumentUtilities.toDocument(stixPackage.toJAXBElement()).getDocumentElement()
+			
+		then: "Only the stix and example namespaces are declared"
+			root.getAttributeNS("http://www.w3.org/2000/xmlns/", "stix") == "http://stix.mitre.org/stix-1"
+			root.getAttributeNS("http://www.w3.org/2000/xmlns/", "example") == "http://example.com/"
+			!root.hasAttributeNS("http://www.w3.org/2000/xmlns/", "cybox")
+			!root.hasAttributeNS("http://www.w3.org/2000/xmlns/", "indicator")
+	}
+	
+	def "Converting a JAXBElement to a pretty printed Document indents it"() {
+		when: "A STIX Package model with a header is converted with and without pretty printing"
+			def stixPackage = new STIXPackage()
+								.withVersion(version)
+								.withTimestamp(epoch)
+								.withId(new QName("http://example.com/", 
+									"package-af59abd3-102c-43d0-89ed-e0a90525d747", 
+									"example"))
+								.withSTIXHeader(new STIXHeaderType().withTitle("Indented"))
+			
+			def pretty = DocumentUtilities.toDocument(stixPackage.toJAXBElement(), true).getDocumentElement()
+			def compact = DocumentUtilities.toDocument(stixPackage.toJAXBElement(), false).getDocumentElement()
+			
+		then: "Only the pretty printed Document has whitespace between its elements"
+			pretty.getFirstChild().getNodeType() == org.w3c.dom.Node.TEXT_NODE
+			pretty.getFirstChild().getNodeValue().trim().isEmpty()
+			compact.getFirstChild().getNodeType() == org.w3c.dom.Node.ELEMENT_NODE
+		and: "Both declare only the namespaces used"
+			[pretty, compact].every { !it.hasAttributeNS("http://www.w3.org/2000/xmlns/", "cybox") }
+	}
+	
+	def "Writing a JAXBElement to an OutputStream returns an expected result"() {
+		when: "A STIX Package model is written to a stream compact and pretty printed"
+			def stixPackage = new STIXPackage()
+								.withVersion(version)
+								.withTimestamp(epoch)
+								.withId(new QName("http://example.com/", 
+									"package-af59abd3-102c-43d0-89ed-e0a90525d747", 
+									"example"))
+			
+			def compact = new ByteArrayOutputStream()
+			DocumentUtilities.writeXML(stixPackage.toJAXBElement(), compact, false)
+			def pretty = new ByteArrayOutputStream()
+			stixPackage.toXML(pretty, true)
+			
+		then: "Both are identical to the expected XML String"
+			new DetailedDiff(XMLUnit.compareXML(controlXML, compact.toString("UTF-8"))).identical()
+			new DetailedDiff(XMLUnit.compareXML(controlXML, pretty.toString("UTF-8"))).identical()
+	}
+	
+	def "Converting XML bytes to a Document returns an expected result"() {
+		when: "The bytes are read from a stream, a channel and a buffer"
+			def bytes = controlXML.getBytes("UTF-8")
+			def documents = [
+				DocumentUtilities.toDocument(new ByteArrayInputStream(bytes)),
+				DocumentUtilities.toDocument(java.nio.channels.Channels.newChannel(new ByteArrayInputStream(bytes))),
+				DocumentUtilities.toDocument(java.nio.ByteBuffer.wrap(bytes))
+			]
+			
+		then: "Each is identical to the expected XML String"
+			documents.every { new DetailedDiff(XMLUnit.compareXML(controlXML, DocumentUtilities.toXMLString(it))).identical() }
+	}
+	
+	def "A STIX Package is read from and validated in a ByteBuffer"() {
+		when: "The sample is read into a buffer"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def buffer = java.nio.ByteBuffer.wrap(IOUtils.toByteArray(url))
+			def stixPackage = STIXPackage.fromXML(buffer)
+			
+		then: "It is unmarshalled and validated without moving the buffer"
+			stixPackage.getSTIXHeader().getTitle() == "Example watchlist that contains IP information."
+			org.mitre.stix.STIXSchema.getInstance().validate(buffer)
+			buffer.position() == 0
+	}
+
+	def "A stream over part of a ByteBuffer resets to the start of that part"() {
+		when: "A stream is created over a buffer positioned past its first bytes and read from"
+			def buffer = java.nio.ByteBuffer.wrap("skipped<xml/>".getBytes("UTF-8"))
+			buffer.position(7)
+			def stream = new org.mitre.stix.ByteBufferInputStream(buffer)
+			stream.skip(3)
+			stream.reset()
+			
+		then: "It is reset to the buffer's position rather than the start of the buffer"
+			new String(IOUtils.toByteArray(stream), "UTF-8") == "<xml/>"
+			buffer.position() == 7
+	}
+}
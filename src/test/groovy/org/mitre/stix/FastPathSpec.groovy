@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for FastPathUnmarshaller and FastPathMarshaller
+ */
+import org.mitre.stix.FastPathMarshaller
+import org.mitre.stix.FastPathUnmarshaller
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXPackage
+
+class FastPathSpec extends spock.lang.Specification {
+
+	def "The hot types have fast-path bindings"() {
+		expect:
+			FastPathUnmarshaller.isBound(STIXPackage.class)
+			FastPathUnmarshaller.isBound(Indicator.class)
+	}
+
+	def "A package is unmarshalled as JAXB would"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is unmarshalled by JAXB and by the fast path"
+			def expected = STIXPackage.fromXML(url.openStream())
+			def stixPackage = FastPathUnmarshaller.unmarshal(url.openStream(), STIXPackage.class)
+		then: "the two are equal"
+			stixPackage == expected
+			stixPackage.getIndicators().getIndicators()[0] instanceof Indicator
+	}
+
+	def "A package survives a round-trip through the fast path"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+		when: "it is marshalled and unmarshalled by the fast path"
+			def outputStream = new ByteArrayOutputStream()
+			FastPathMarshaller.marshal(stixPackage, outputStream)
+			def copy = FastPathUnmarshaller.unmarshal(new ByteArrayInputStream(outputStream.toByteArray()), STIXPackage.class)
+		then: "the copy is equal to the original and still valid"
+			copy == stixPackage
+			copy.validate()
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for IdrefIndex
+ */
+import javax.xml.namespace.QName
+
+import org.mitre.cybox.cybox_2.ObjectType
+import org.mitre.cybox.cybox_2.Observable
+import org.mitre.stix.IdrefIndex
+import org.mitre.stix.STIXPackageReader
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXPackage
+
+class IdrefIndexSpec extends spock.lang.Specification {
+
+	static final EXAMPLE_NAMESPACE = "http://example.com/"
+
+	def "Every object of a package with an id is indexed"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+		when: "it is indexed"
+			def index = new IdrefIndex(stixPackage)
+		then: "the package, Indicator, Observable and Object can be found by id"
+			index.size() == 4
+			index.get(stixPackage.getId()).is(stixPackage)
+			index.get(new QName(EXAMPLE_NAMESPACE, "Indicator-33fe3b22-0201-47cf-85d0-97c02164528d"), Indicator).is(stixPackage.getIndicators().getIndicators()[0])
+			index.get(new QName(EXAMPLE_NAMESPACE, "Observable-1c798262-a4cd-434d-a958-884d6980c459")) instanceof Observable
+			index.get(new QName(EXAMPLE_NAMESPACE, "Object-1980ce43-8e03-490b-863a-ea404d12242e"), ObjectType) != null
+		and: "ids are not confused with objects of another type"
+			index.get(stixPackage.getId(), Indicator) == null
+	}
+
+	def "An idref resolves to the object with its id, whatever its prefix"() {
+		given: "a package with an Indicator and a reference to it"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+			def indicator = stixPackage.getIndicators().getIndicators()[0]
+			def reference = new Indicator().withIdref(new QName(EXAMPLE_NAMESPACE, indicator.getId().getLocalPart(), "other"))
+			stixPackage.getIndicators().getIndicators().add(reference)
+		when: "it is indexed"
+			def index = new IdrefIndex(stixPackage)
+		then: "the reference resolves to the Indicator"
+			index.resolve(reference).is(indicator)
+			index.resolve(reference, Indicator).is(indicator)
+			index.dereference(reference).is(indicator)
+			index.dereference(indicator).is(indicator)
+		and: "objects without idrefs resolve to nothing"
+			index.resolve(indicator) == null
+	}
+
+	def "An index is built incrementally from the constructs of a STIXPackageReader"() {
+		given: "a reader of the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def reader = new STIXPackageReader(url.openStream())
+			def index = new IdrefIndex()
+		when: "each construct is added as it is read"
+			def added = []
+			while (reader.hasNext()) {
+				added << index.add(reader.next())
+			}
+			reader.close()
+		then: "the Indicator, Observable and Object are indexed"
+			added.sum() == 3
+			index.contains(new QName(EXAMPLE_NAMESPACE, "Indicator-33fe3b22-0201-47cf-85d0-97c02164528d"))
+			index.contains(new QName(EXAMPLE_NAMESPACE, "Object-1980ce43-8e03-490b-863a-ea404d12242e"))
+	}
+}
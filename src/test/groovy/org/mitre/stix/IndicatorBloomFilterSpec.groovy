@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for IndicatorBloomFilter
+ */
+import static IndicatorFixtures.*
+
+import java.nio.file.Files
+
+import org.mitre.stix.IndicatorBloomFilter
+import org.mitre.stix.STIXPackageReader
+
+class IndicatorBloomFilterSpec extends spock.lang.Specification {
+
+	def "The addresses of the sample watchlist are in its filter"() {
+		when: "filters are built of the sample package, unmarshalled and read construct by construct"
+			def filter = IndicatorBloomFilter.build(samplePackage(), 0.001)
+			def readFilter = IndicatorBloomFilter.build(new STIXPackageReader(sampleURL().openStream()), 0.001)
+		then: "each address of its list is in both"
+			[filter, readFilter].every { f ->
+				f.getValueCount() == 3 &&
+					SAMPLE_ADDRESSES.every { f.mightContainAddress(it) }
+			}
+			filter.mightContainAddress([10, 0, 0, 1] as byte[])
+			filter.mightContainIPv4(0x0a000002)
+		and: "text that is not an address is not"
+			!filter.mightContainAddress("not an address")
+	}
+
+	def "Hashes, CIDR blocks and domains are in a filter"() {
+		given: "Indicators of a File hash, IPv4 and IPv6 blocks and a domain"
+			def indicators = [
+				hashIndicator("hash", "4EC0027BEF4D7E1786A04D021FA8A67F"),
+				addressIndicator("ipv4", "192.168.0.0/16"),
+				addressIndicator("ipv6", "2001:db8::/32"),
+				domainIndicator("domain", "Example.com")
+			]
+		when: "a filter is built of them"
+			def filter = IndicatorBloomFilter.build(indicators, 0.001)
+		then: "the hash is in it, in either case and as bytes"
+			filter.mightContainHash("4ec0027bef4d7e1786a04d021fa8a67f")
+			filter.mightContainHash(new BigInteger("4EC0027BEF4D7E1786A04D021FA8A67F", 16).toByteArray())
+			!filter.mightContainHash("4EC0027B0")
+		and: "so are the addresses of the blocks"
+			filter.mightContainAddress("192.168.1.7")
+			filter.mightContainAddress("2001:DB8:ffff::1")
+			filter.mightContainAddress(InetAddress.getByName("2001:db8::2").getAddress())
+		and: "and the domain and its subdomains"
+			filter.mightContainDomain("example.com")
+			filter.mightContainDomain("WWW.example.com.")
+	}
+
+	def "A filter written to a file is mapped back"() {
+		setup: "a filter of a thousand hashes"
+			def indicators = (0..<1000).collect { hashIndicator("indicator-" + it, String.format("%032X", it)) }
+			def filter = IndicatorBloomFilter.build(indicators, 0.01)
+			def path = Files.createTempFile("indicators", ".filter")
+		when: "it is written and mapped"
+			filter.write(path)
+			def mapped = IndicatorBloomFilter.map(path)
+		then: "the mapped filter is the same"
+			Files.size(path) == 56 + mapped.getBitCount() / 8
+			mapped.getBitCount() == filter.getBitCount()
+			mapped.getHashCount() == filter.getHashCount()
+			mapped.getValueCount() == 1000
+			(0..<1000).every { mapped.mightContainHash(String.format("%032x", it)) }
+		and: "finds about as many hashes it does not hold as it should"
+			(1000..<101000).count { mapped.mightContainHash(String.format("%032x", it)) } < 2000
+		cleanup:
+			Files.delete(path)
+	}
+
+	def "Files that do not hold filters are not mapped"() {
+		setup: "a file of XML"
+			def path = Files.createTempFile("indicators", ".filter")
+			Files.write(path, sampleURL().openStream().bytes)
+		when: "it is mapped"
+			IndicatorBloomFilter.map(path)
+		then: "it is rejected"
+			thrown(IOException)
+		cleanup:
+			Files.delete(path)
+	}
+
+	def "The false positive probability must be between 0 and 1"() {
+		when: "a filter is built with a probability of 1"
+			IndicatorBloomFilter.build([hashIndicator("hash", "00")], 1.0)
+		then: "it is rejected"
+			thrown(IllegalArgumentException)
+	}
+}
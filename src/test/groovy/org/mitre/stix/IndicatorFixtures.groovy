@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Indicators and Observables shared by the specs of IndicatorMatcher,
+ * IndicatorBloomFilter and ObservableCompiler
+ */
+import javax.xml.namespace.QName
+
+import org.mitre.cybox.common_2.HashListType
+import org.mitre.cybox.common_2.HashType
+import org.mitre.cybox.common_2.SimpleHashValueType
+import org.mitre.cybox.common_2.StringObjectPropertyType
+import org.mitre.cybox.cybox_2.ObjectType
+import org.mitre.cybox.cybox_2.Observable
+import org.mitre.cybox.default_vocabularies_2.HashNameVocab10
+import org.mitre.cybox.objects.AddressObjectType
+import org.mitre.cybox.objects.DomainNameObjectType
+import org.mitre.cybox.objects.FileObjectType
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXPackage
+
+class IndicatorFixtures {
+
+	static final EXAMPLE_NAMESPACE = "http://example.com/"
+
+	// the addresses of the watchlist Indicator of sample.xml
+	static final SAMPLE_ADDRESSES = ["10.0.0.0", "10.0.0.1", "10.0.0.2"]
+
+	static URL sampleURL() {
+		return IndicatorFixtures.class.getClassLoader().getResource("org/mitre/stix/sample.xml")
+	}
+
+	static STIXPackage samplePackage() {
+		return STIXPackage.fromXML(sampleURL().openStream())
+	}
+
+	static observable(properties) {
+		def observable = new Observable()
+		observable.setObject(new ObjectType().withProperties(properties))
+
+		return observable
+	}
+
+	static indicator(id, properties) {
+		return new Indicator().withId(new QName(EXAMPLE_NAMESPACE, id, "example")).withObservable(observable(properties))
+	}
+
+	static hashIndicator(id, hash) {
+		return indicator(id, new FileObjectType().withHashes(new HashListType([
+			new HashType().withType(new HashNameVocab10().withValue("MD5"))
+				.withSimpleHashValue(new SimpleHashValueType().withValue(hash))
+		])))
+	}
+
+	static addressObject(address) {
+		return new AddressObjectType().withAddressValue(new StringObjectPropertyType().withValue(address))
+	}
+
+	static addressIndicator(id, address) {
+		return indicator(id, addressObject(address))
+	}
+
+	static domainObject(domain, condition = null) {
+		return new DomainNameObjectType().withValue(new StringObjectPropertyType().withValue(domain).withCondition(condition))
+	}
+
+	static domainIndicator(id, domain, condition = null) {
+		return indicator(id, domainObject(domain, condition))
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for IndicatorMatcher
+ */
+import static IndicatorFixtures.*
+
+import org.mitre.cybox.common_2.AnyURIObjectPropertyType
+import org.mitre.cybox.common_2.ConditionTypeEnum
+import org.mitre.cybox.objects.URIObjectType
+import org.mitre.stix.IndicatorMatcher
+
+class IndicatorMatcherSpec extends spock.lang.Specification {
+
+	def "The addresses of the sample watchlist are matched"() {
+		given: "the sample package"
+			def stixPackage = samplePackage()
+		when: "its Indicators are compiled"
+			def matcher = new IndicatorMatcher(stixPackage)
+		then: "each address of its list matches the Indicator"
+			matcher.getValueCount() == 3
+			SAMPLE_ADDRESSES.every {
+				matcher.matchAddress(it) == stixPackage.getIndicators().getIndicators()
+			}
+			matcher.matchAddress([10, 0, 0, 1] as byte[]).size() == 1
+			matcher.matchIPv4(0x0a000002).size() == 1
+		and: "other addresses do not"
+			matcher.matchAddress("10.0.0.3").isEmpty()
+			matcher.matchAddress("not an address").isEmpty()
+	}
+
+	def "File hashes are matched from bytes or hexadecimal text"() {
+		given: "an Indicator with a File hash, as built in the IndicatorHash example"
+			def indicator = hashIndicator("indicator-1", "4EC0027BEF4D7E1786A04D021FA8A67F")
+		when: "it is compiled"
+			def matcher = new IndicatorMatcher([indicator])
+		then: "the hash matches in either case and as bytes"
+			matcher.matchHash("4EC0027BEF4D7E1786A04D021FA8A67F") == [indicator]
+			matcher.matchHash("4ec0027bef4d7e1786a04d021fa8a67f") == [indicator]
+			matcher.matchHash(new BigInteger("4EC0027BEF4D7E1786A04D021FA8A67F", 16).toByteArray()) == [indicator]
+		and: "other hashes do not"
+			matcher.matchHash("4EC0027BEF4D7E1786A04D021FA8A670").isEmpty()
+			matcher.matchHash("4EC0027B").isEmpty()
+	}
+
+	def "Every CIDR block an address is in is matched"() {
+		given: "Indicators of nested IPv4 and IPv6 blocks"
+			def wide = addressIndicator("wide", "192.168.0.0/16")
+			def narrow = addressIndicator("narrow", "192.168.1.0/24")
+			def ipv6 = addressIndicator("ipv6", "2001:db8::/32")
+		when: "they are compiled"
+			def matcher = new IndicatorMatcher([narrow, wide, ipv6])
+		then: "addresses match every block they are in, the widest first"
+			matcher.matchAddress("192.168.1.7") == [wide, narrow]
+			matcher.matchAddress("192.168.1.0") == [wide, narrow]
+			matcher.matchAddress("192.168.2.7") == [wide]
+			matcher.matchAddress("192.169.0.1").isEmpty()
+			matcher.matchAddress("2001:DB8:ffff::1") == [ipv6]
+			matcher.matchAddress(InetAddress.getByName("2001:db8::2").getAddress()) == [ipv6]
+			matcher.matchAddress("2001:db9::1").isEmpty()
+	}
+
+	def "Domains match their subdomains"() {
+		given: "Indicators of a domain, of one of its subdomains and of a domain it contains"
+			def domain = domainIndicator("domain", "Example.com")
+			def subdomain = domainIndicator("subdomain", "mail.example.com")
+			def contains = domainIndicator("contains", "evil", ConditionTypeEnum.CONTAINS)
+		when: "they are compiled"
+			def matcher = new IndicatorMatcher([subdomain, domain, contains])
+		then: "the domain and its subdomains match, in any case"
+			matcher.matchDomain("example.com") == [domain]
+			matcher.matchDomain("WWW.example.com.") == [domain]
+		and: "names match every domain they are in, the parent domain first"
+			matcher.matchDomain("mail.example.com") == [domain, subdomain]
+			matcher.matchDomain("imap.MAIL.example.com") == [domain, subdomain]
+			matcher.matchDomain("badexample.com").isEmpty()
+			matcher.matchDomain("com").isEmpty()
+		and: "values not compared for equality are not compiled"
+			matcher.matchDomain("evil").isEmpty()
+	}
+
+	def "URIs are matched exactly"() {
+		given: "an Indicator of a URI"
+			def uri = indicator("uri", new URIObjectType().withValue(new AnyURIObjectPropertyType().withValue("http://example.com/malware")))
+		when: "it is compiled"
+			def matcher = new IndicatorMatcher([uri])
+		then: "only the URI matches"
+			matcher.matchURI("http://example.com/malware") == [uri]
+			matcher.matchURI(new StringBuilder("http://example.com/malware")) == [uri]
+			matcher.matchURI("http://example.com/").isEmpty()
+	}
+
+	def "A rebuild replaces the Indicators matched"() {
+		given: "a matcher of one hash"
+			def first = hashIndicator("first", "00000000000000000000000000000001")
+			def second = hashIndicator("second", "00000000000000000000000000000002")
+			def matcher = new IndicatorMatcher([first])
+		when: "it is rebuilt with another"
+			def skipped = matcher.rebuild([second, addressIndicator("e-mail", "someone@example.com")])
+		then: "only the other matches"
+			matcher.matchHash("00000000000000000000000000000001").isEmpty()
+			matcher.matchHash("00000000000000000000000000000002") == [second]
+			matcher.getIndicatorCount() == 2
+			skipped == 1
+	}
+}
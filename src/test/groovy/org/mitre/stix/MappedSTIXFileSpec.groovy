@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for MappedSTIXFile
+ */
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.util.concurrent.Executors
+
+import org.mitre.stix.MappedSTIXFile
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXHeaderType
+
+class MappedSTIXFileSpec extends spock.lang.Specification {
+
+	def "A mapped file is unmarshalled as a STIXPackage"() {
+		when: "the sample is mapped and read"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = MappedSTIXFile.map(Paths.get(url.toURI())).readPackage()
+		then: "the package is read"
+			stixPackage.getVersion() == "1.2"
+			stixPackage.getIndicators().getIndicators().size() == 1
+	}
+
+	def "Concatenated packages and their constructs are read in parallel"() {
+		setup: "a file of three concatenated samples"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def sample = url.openStream().bytes
+			def path = Files.createTempFile("concatenated", ".xml")
+			Files.write(path, sample + sample + sample)
+			def executor = Executors.newFixedThreadPool(4)
+		when: "the file is mapped"
+			def file = MappedSTIXFile.map(path)
+			def packages = file.readPackages(executor)
+			def constructs = file.readConstructs(executor, 4)
+		then: "each package is read"
+			file.getDocuments().size() == 3
+			packages.size() == 3
+			packages.every { it.getIndicators().getIndicators().size() == 1 }
+		and: "the constructs are returned in document order"
+			constructs.size() == 6
+			(0..2).every { constructs[it * 2] instanceof STIXHeaderType && constructs[it * 2 + 1] instanceof Indicator }
+		cleanup:
+			executor.shutdown()
+			Files.delete(path)
+	}
+
+	def "Concatenated packages with XML declarations are each read"() {
+		setup: "a file of three samples, each with an XML declaration and on lines of their own"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def document = '<?xml version="1.0" encoding="UTF-8"?>\n' + url.openStream().getText("UTF-8").trim()
+			def path = Files.createTempFile("declared", ".xml")
+			path.setText([document, document, document].join("\n") + "\n", "UTF-8")
+			def executor = Executors.newFixedThreadPool(4)
+		when: "the file is mapped"
+			def file = MappedSTIXFile.map(path)
+			def packages = file.readPackages(executor)
+			def constructs = file.readConstructs(executor, 4)
+		then: "each document starts with its declaration"
+			file.getDocuments().every { it.get(it.position()) == ('<' as char) && it.get(it.position() + 1) == ('?' as char) }
+		and: "each package and its constructs are read"
+			packages.size() == 3
+			packages.every { it.getIndicators().getIndicators().size() == 1 }
+			constructs.size() == 6
+		cleanup:
+			executor.shutdown()
+			Files.delete(path)
+	}
+}
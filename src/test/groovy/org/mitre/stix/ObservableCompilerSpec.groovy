@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for ObservableCompiler
+ */
+import static IndicatorFixtures.*
+
+import javax.xml.namespace.QName
+
+import org.mitre.cybox.common_2.ConditionApplicationEnum
+import org.mitre.cybox.common_2.ConditionTypeEnum
+import org.mitre.cybox.common_2.StringObjectPropertyType
+import org.mitre.cybox.cybox_2.Observable
+import org.mitre.cybox.cybox_2.ObservableCompositionType
+import org.mitre.cybox.cybox_2.OperatorTypeEnum
+import org.mitre.cybox.objects.DomainNameObjectType
+import org.mitre.stix.IdrefIndex
+import org.mitre.stix.MapObservableEvent
+import org.mitre.stix.ObservableCompiler
+
+class ObservableCompilerSpec extends spock.lang.Specification {
+
+	static final ADDRESS = "AddressObjectType/Address_Value"
+
+	static final DOMAIN = "DomainNameObjectType/Value"
+
+	static domain(value, condition) {
+		return observable(domainObject(value, condition))
+	}
+
+	static composition(operator, observables) {
+		def composition = new ObservableCompositionType().withOperator(operator)
+		composition.getObservables().addAll(observables)
+
+		def observable = new Observable()
+		observable.setObservableComposition(composition)
+
+		return observable
+	}
+
+	def "Events with any of the values of a property match it"() {
+		given: "an evaluator of the sample Indicator"
+			def evaluator = new ObservableCompiler().compile(samplePackage().getIndicators().getIndicators()[0])
+		expect: "an event with one of its addresses among others matches"
+			evaluator.matches(new MapObservableEvent().add(ADDRESS, "192.168.0.1").add(ADDRESS, SAMPLE_ADDRESSES[2]))
+		and: "the address of another property does not"
+			!evaluator.matches(new MapObservableEvent().add(DOMAIN, SAMPLE_ADDRESSES[1]))
+	}
+
+	def "Events made from Observable instances are matched"() {
+		given: "an evaluator of the sample Indicators and an instance of one of its addresses"
+			def evaluator = new ObservableCompiler().compileAny(samplePackage().getIndicators().getIndicators())
+			def instance = observable(addressObject(SAMPLE_ADDRESSES[0]))
+		expect: "the instance matches"
+			evaluator.matches(MapObservableEvent.of(instance))
+	}
+
+	def "Conditions are compiled"() {
+		given: "an evaluator of a Domain Name condition"
+			def evaluator = new ObservableCompiler().compile(domain(value, condition))
+		expect: "it matches as the condition calls for"
+			evaluator.matches(new MapObservableEvent().add(DOMAIN, "www.example.com")) == matches
+		where:
+			value                 | condition                           | matches
+			"www.example.com"     | null                                | true
+			"www.example.com"     | ConditionTypeEnum.EQUALS            | true
+			"example.com"         | ConditionTypeEnum.EQUALS            | false
+			"example.com"         | ConditionTypeEnum.DOES_NOT_EQUAL    | true
+			"example"             | ConditionTypeEnum.CONTAINS          | true
+			"EXAMPLE"             | ConditionTypeEnum.CONTAINS          | false
+			"example"             | ConditionTypeEnum.DOES_NOT_CONTAIN  | false
+			"www."                | ConditionTypeEnum.STARTS_WITH       | true
+			"example"             | ConditionTypeEnum.STARTS_WITH       | false
+			".com"                | ConditionTypeEnum.ENDS_WITH         | true
+			"^w{3}\\.[a-z]+\\.com" | ConditionTypeEnum.FITS_PATTERN     | true
+			"^example"            | ConditionTypeEnum.FITS_PATTERN      | false
+			"www.a"               | ConditionTypeEnum.GREATER_THAN      | true
+			"www.a"               | ConditionTypeEnum.LESS_THAN         | false
+	}
+
+	def "Numbers are compared as numbers"() {
+		given: "an evaluator of a comparison"
+			def evaluator = new ObservableCompiler().compile(domain(value, condition))
+		expect: "it compares numbers by their value"
+			evaluator.matches(new MapObservableEvent().add(DOMAIN, "100")) == matches
+		where:
+			value  | condition                                | matches
+			"99"   | ConditionTypeEnum.GREATER_THAN           | true
+			"100"  | ConditionTypeEnum.GREATER_THAN           | false
+			"100"  | ConditionTypeEnum.GREATER_THAN_OR_EQUAL  | true
+			"1e3"  | ConditionTypeEnum.LESS_THAN              | true
+			"99.5" | ConditionTypeEnum.LESS_THAN_OR_EQUAL     | false
+	}
+
+	def "Lists of values are applied to ANY, ALL or NONE of them"() {
+		given: "an evaluator of a list of strings the domain must contain"
+			def property = new StringObjectPropertyType().withValue("www##comma##example")
+					.withCondition(ConditionTypeEnum.CONTAINS).withApplyCondition(applyCondition)
+			def evaluator = new ObservableCompiler().compile(observable(new DomainNameObjectType().withValue(property)))
+		expect: "it matches as the apply condition calls for"
+			evaluator.matches(new MapObservableEvent().add(DOMAIN, domain)) == matches
+		where:
+			applyCondition                 | domain            | matches
+			ConditionApplicationEnum.ANY   | "www.test.com"    | true
+			ConditionApplicationEnum.ALL   | "www.test.com"    | false
+			ConditionApplicationEnum.ALL   | "www.example.com" | true
+			ConditionApplicationEnum.NONE  | "www.test.com"    | false
+			ConditionApplicationEnum.NONE  | "test.com"        | true
+	}
+
+	def "Compositions are compiled with their operators"() {
+		given: "a domain and an address Observable"
+			def domainObservable = domain("example", ConditionTypeEnum.CONTAINS)
+			def addressObservable = observable(addressObject("10.0.0.1"))
+			def event = new MapObservableEvent().add(DOMAIN, "www.example.com")
+		expect: "an AND composition needs both, an OR composition either"
+			!new ObservableCompiler().compile(composition(OperatorTypeEnum.AND, [domainObservable, addressObservable])).matches(event)
+			new ObservableCompiler().compile(composition(OperatorTypeEnum.OR, [domainObservable, addressObservable])).matches(event)
+			new ObservableCompiler().compile(composition(OperatorTypeEnum.AND, [domainObservable, addressObservable]))
+					.matches(event.add(ADDRESS, "10.0.0.1"))
+	}
+
+	def "String conditions of many Observables are merged"() {
+		given: "an OR of many domain conditions"
+			def observables = (0..<1000).collect {
+				domain("bad" + it + ".example", it % 2 == 0 ? ConditionTypeEnum.ENDS_WITH : ConditionTypeEnum.CONTAINS)
+			}
+		when: "it is compiled"
+			def evaluator = new ObservableCompiler().compile(composition(OperatorTypeEnum.OR, observables))
+		then: "domains match any of them"
+			evaluator.matches(new MapObservableEvent().add(DOMAIN, "www.bad998.example"))
+			evaluator.matches(new MapObservableEvent().add(DOMAIN, "www.bad999.example.com"))
+			!evaluator.matches(new MapObservableEvent().add(DOMAIN, "www.bad998.example.com"))
+			!evaluator.matches(new MapObservableEvent().add(DOMAIN, "www.bad1000.example"))
+	}
+
+	def "An Observable within itself does not match there"() {
+		given: "an OR of an address and a reference to the OR itself"
+			def id = new QName(EXAMPLE_NAMESPACE, "Observable-1", "example")
+			def cyclic = composition(OperatorTypeEnum.OR, [new Observable().withIdref(id), observable(addressObject("10.0.0.1"))])
+			cyclic.setId(id)
+		when: "it is compiled with an index holding it"
+			def evaluator = new ObservableCompiler(new IdrefIndex(cyclic)).compile(cyclic)
+		then: "the reference is compiled as never matching rather than recursing"
+			evaluator.matches(new MapObservableEvent().add(ADDRESS, "10.0.0.1"))
+			!evaluator.matches(new MapObservableEvent().add(ADDRESS, "10.0.0.2"))
+	}
+
+	def "A reference is negated by its own negate"() {
+		given: "an address Observable and references to it"
+			def id = new QName(EXAMPLE_NAMESPACE, "Observable-1", "example")
+			def address = observable(addressObject("10.0.0.1"))
+			address.setId(id)
+			def compiler = new ObservableCompiler(new IdrefIndex(address))
+			def event = new MapObservableEvent().add(ADDRESS, "10.0.0.1")
+		expect: "a negated reference does not match what the Observable matches"
+			!compiler.compile(new Observable().withIdref(id).withNegate(true)).matches(event)
+			compiler.compile(new Observable().withIdref(id)).matches(event)
+		when: "the Observable itself is negated"
+			address.setNegate(true)
+		then: "a reference that is not negated is not"
+			compiler.compile(new Observable().withIdref(id)).matches(event)
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for QNameRegistry
+ */
+import javax.xml.namespace.QName
+
+import org.mitre.stix.FastPathUnmarshaller
+import org.mitre.stix.QNameRegistry
+import org.mitre.stix.stix_1.STIXPackage
+
+class QNameRegistrySpec extends spock.lang.Specification {
+
+	def "Equal namespace URIs and prefixes are shared"() {
+		when: "two ids are interned from strings built separately"
+			def id = QNameRegistry.intern(new String("http://example.com"), "Indicator-1", new String("example"))
+			def id2 = QNameRegistry.intern(new String("http://example.com"), "Indicator-2", new String("example"))
+		then: "they share their namespace URI and prefix"
+			id.getNamespaceURI().is(id2.getNamespaceURI())
+			id.getPrefix().is(id2.getPrefix())
+			id.getLocalPart() == "Indicator-1"
+	}
+
+	def "Type names are shared only with names of the same prefix"() {
+		when:
+			def typeName = QNameRegistry.internTypeName("http://stix.mitre.org/Indicator-2", "IndicatorType", "indicator")
+			def same = QNameRegistry.internTypeName(new QName("http://stix.mitre.org/Indicator-2", "IndicatorType", "indicator"))
+			def other = QNameRegistry.internTypeName("http://stix.mitre.org/Indicator-2", "IndicatorType", "ind")
+		then:
+			typeName.is(same)
+			other == typeName
+			other.getPrefix() == "ind"
+	}
+
+	def "The ids of unmarshalled objects share their namespace URIs"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is read twice"
+			def stixPackage = FastPathUnmarshaller.unmarshal(url.openStream(), STIXPackage.class)
+			def stixPackage2 = FastPathUnmarshaller.unmarshal(url.openStream(), STIXPackage.class)
+		then: "the ids of the two copies share their strings"
+			stixPackage.getId() == stixPackage2.getId()
+			stixPackage.getId().getNamespaceURI().is(stixPackage2.getId().getNamespaceURI())
+			stixPackage.getIndicators().getIndicators()[0].getId().getPrefix().is(stixPackage2.getId().getPrefix())
+	}
+
+	def "The ids of packages read by fromXML share their namespace URIs"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is read twice through JAXB"
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+			def stixPackage2 = STIXPackage.fromXMLString(url.text)
+		then: "the ids of the two copies, and of the objects within them, share their strings"
+			stixPackage.getId().getNamespaceURI().is(stixPackage2.getId().getNamespaceURI())
+			stixPackage.getId().getNamespaceURI().is(stixPackage.getIndicators().getIndicators()[0].getId().getNamespaceURI())
+			stixPackage.getId().getPrefix().is(stixPackage2.getIndicators().getIndicators()[0].getId().getPrefix())
+	}
+
+	def "Nulls are passed through"() {
+		expect:
+			QNameRegistry.internNamespaceURI(null) == null
+			QNameRegistry.intern(null) == null
+			QNameRegistry.internTypeName(null) == null
+	}
+}
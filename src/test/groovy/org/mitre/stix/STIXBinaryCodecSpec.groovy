@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXBinaryCodec
+ */
+import org.mitre.stix.STIXBinaryCodec
+import org.mitre.stix.stix_1.STIXPackage
+
+class STIXBinaryCodecSpec extends spock.lang.Specification {
+
+	def "A package round-trips through the binary form"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+		when: "it is encoded and decoded"
+			def bytes = STIXBinaryCodec.encode(stixPackage)
+			def copy = STIXBinaryCodec.decode(bytes, STIXPackage.class)
+		then: "the copy is equal to the original and smaller than its XML"
+			copy == stixPackage
+			bytes.length < stixPackage.toXMLString().getBytes("UTF-8").length
+	}
+
+	def "An XML document converts to the binary form and back without loss"() {
+		given: "the sample document"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is converted to binary and back to XML"
+			def binary = new ByteArrayOutputStream()
+			STIXBinaryCodec.encodeXML(url.openStream(), binary)
+			def xml = new ByteArrayOutputStream()
+			STIXBinaryCodec.decodeXML(new ByteArrayInputStream(binary.toByteArray()), xml)
+		then: "the two documents have the same events"
+			XMLEvents.events(url.openStream()) == XMLEvents.events(new ByteArrayInputStream(xml.toByteArray()))
+	}
+
+	def "Data that is not in the binary form is rejected"() {
+		when:
+			STIXBinaryCodec.decode("<STIX_Package/>".getBytes("UTF-8"), STIXPackage.class)
+		then:
+			thrown(RuntimeException)
+	}
+}
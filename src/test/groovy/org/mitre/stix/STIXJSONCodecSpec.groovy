@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXJSONCodec
+ */
+import javax.xml.namespace.NamespaceContext
+import javax.xml.stream.XMLStreamException
+
+import org.mitre.stix.JSONXMLStreamWriter
+import org.mitre.stix.STIXJSONCodec
+import org.mitre.stix.stix_1.STIXPackage
+
+class STIXJSONCodecSpec extends spock.lang.Specification {
+
+	def "A package round-trips through JSON"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def stixPackage = STIXPackage.fromXML(url.openStream())
+		when: "it is encoded and decoded"
+			def json = STIXJSONCodec.encode(stixPackage)
+			def copy = STIXJSONCodec.decode(json, STIXPackage.class)
+		then: "the copy is equal to the original"
+			copy == stixPackage
+		and: "the JSON keeps the types and ids of the XML"
+			json.startsWith('{"stix:STIX_Package":{')
+			json.contains('"@xsi:type":"indicator:IndicatorType"')
+			json.contains('"@xsi:type":"AddressObject:AddressObjectType"')
+			json.contains('"@id":"example:Indicator-33fe3b22-0201-47cf-85d0-97c02164528d"')
+	}
+
+	def "An XML document converts to JSON and back"() {
+		given: "the sample document"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is converted to JSON and back to XML"
+			def json = new StringWriter()
+			STIXJSONCodec.encodeXML(url.openStream(), json)
+			def xml = new ByteArrayOutputStream()
+			STIXJSONCodec.decodeXML(new StringReader(json.toString()), xml)
+		then: "the two documents have the same elements, attributes and text"
+			XMLEvents.events(url.openStream(), true) == XMLEvents.events(new ByteArrayInputStream(xml.toByteArray()), true)
+	}
+
+	def "Attributes after the children of an element are rejected"() {
+		when:
+			STIXJSONCodec.decode('{"stix:STIX_Package":{"@xmlns":{"stix":"http://stix.mitre.org/stix-1"},"stix:STIX_Header":{},"@id":"x"}}', STIXPackage.class)
+		then:
+			thrown(RuntimeException)
+	}
+
+	def "Elements repeating the name of an earlier, non-adjacent sibling are rejected"() {
+		when: "a document with the children A, B, A is converted"
+			STIXJSONCodec.encodeXML(new ByteArrayInputStream('<root><A/><B/><A/></root>'.getBytes("UTF-8")), new StringWriter())
+		then: "it is rejected rather than written with two members named A"
+			thrown(RuntimeException)
+		when: "the children are A, A, B"
+			def json = new StringWriter()
+			STIXJSONCodec.encodeXML(new ByteArrayInputStream('<root><A/><A/><B/></root>'.getBytes("UTF-8")), json)
+		then: "the As are one array"
+			json.toString() == '{"root":{"A":[{},{}],"B":[{}]}}'
+	}
+
+	def "Text on both sides of a child element is rejected"() {
+		when: "a document with mixed content is converted"
+			STIXJSONCodec.encodeXML(new ByteArrayInputStream('<root>a<B/>c</root>'.getBytes("UTF-8")), new StringWriter())
+		then: "it is rejected rather than written with two members named \$"
+			thrown(RuntimeException)
+		when: "the text is only after the child"
+			def json = new StringWriter()
+			STIXJSONCodec.encodeXML(new ByteArrayInputStream('<root><B/>c&amp;d</root>'.getBytes("UTF-8")), json)
+		then: "it is one member"
+			json.toString() == '{"root":{"B":[{}],"$":"c&d"}}'
+	}
+
+	def "A namespace context set before the root element supplies prefixes"() {
+		given: "a writer with a context binding stix"
+			def json = new StringWriter()
+			def writer = new JSONXMLStreamWriter(json)
+			writer.setNamespaceContext([
+				getNamespaceURI: { prefix -> prefix == "stix" ? "http://stix.mitre.org/stix-1" : "" },
+				getPrefix: { uri -> uri == "http://stix.mitre.org/stix-1" ? "stix" : null },
+				getPrefixes: { uri -> [].iterator() }
+			] as NamespaceContext)
+		when: "an element is written by its namespace"
+			writer.writeStartElement("http://stix.mitre.org/stix-1", "STIX_Package")
+			writer.writeEndDocument()
+		then: "it is named with the prefix of the context"
+			json.toString() == '{"stix:STIX_Package":{}}'
+			writer.getNamespaceContext().getNamespaceURI("stix") == "http://stix.mitre.org/stix-1"
+		when: "the context is set again after the root element"
+			writer.setNamespaceContext(null)
+		then:
+			thrown(XMLStreamException)
+	}
+}
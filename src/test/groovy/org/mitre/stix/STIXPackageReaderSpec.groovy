@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXPackageReader
+ */
+import javax.xml.namespace.QName
+
+import org.mitre.stix.STIXPackageReader
+import org.mitre.stix.STIXStatistics
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXHeaderType
+
+class STIXPackageReaderSpec extends spock.lang.Specification {
+
+	def "Constructs are read from a STIX_Package one at a time"() {
+		when: "the sample package is read"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def reader = new STIXPackageReader(url.openStream())
+			def constructs = []
+			while (reader.hasNext()) {
+				constructs << reader.next()
+			}
+			reader.close()
+		then: "the header and the indicator are returned in document order"
+			constructs.size() == 2
+			constructs[0] instanceof STIXHeaderType
+			constructs[0].getTitle() == "Example watchlist that contains IP information."
+			constructs[1] instanceof Indicator
+			constructs[1].getId() == new QName("http://example.com/", "Indicator-33fe3b22-0201-47cf-85d0-97c02164528d")
+			constructs[1].getObservable().getObject().getProperties() != null
+		and: "the package attributes are available"
+			reader.getPackageVersion() == "1.2"
+			reader.getPackageId() == new QName("http://example.com/", "STIXPackage-33fe3b22-0201-47cf-85d0-97c02164528d")
+	}
+
+	def "An id without a prefix is in the default namespace"() {
+		given: "a package whose id has no prefix"
+			def xml = '<STIX_Package xmlns="http://stix.mitre.org/stix-1" id="package-1" version="1.2"/>'
+		when: "it is read and scanned"
+			def reader = new STIXPackageReader(new ByteArrayInputStream(xml.getBytes("UTF-8")))
+			reader.hasNext()
+			def statistics = STIXStatistics.scan(new ByteArrayInputStream(xml.getBytes("UTF-8")))
+		then: "both give the same id"
+			reader.getPackageId() == new QName("http://stix.mitre.org/stix-1", "package-1")
+			reader.getPackageId() == statistics.getPackageId()
+		cleanup:
+			reader.close()
+	}
+
+	def "Entities declared in a DTD are not expanded"() {
+		given: "a package using an entity of its DTD"
+			def xml = '<!DOCTYPE stix:STIX_Package [<!ENTITY version "1.2">]>' +
+				'<stix:STIX_Package xmlns:stix="http://stix.mitre.org/stix-1" version="&version;"/>'
+		when: "it is read"
+			new STIXPackageReader(new ByteArrayInputStream(xml.getBytes("UTF-8"))).hasNext()
+		then: "it is rejected"
+			thrown(RuntimeException)
+	}
+}
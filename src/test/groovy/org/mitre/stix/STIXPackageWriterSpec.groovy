@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXPackageWriter
+ */
+import java.util.GregorianCalendar
+import java.util.TimeZone
+
+import javax.xml.datatype.DatatypeFactory
+import javax.xml.namespace.NamespaceContext
+import javax.xml.namespace.QName
+import javax.xml.stream.XMLOutputFactory
+import javax.xml.stream.XMLStreamException
+
+import org.mitre.stix.NamespaceMinimizingXMLStreamWriter
+import org.mitre.stix.STIXPackageReader
+import org.mitre.stix.STIXPackageWriter
+import org.mitre.stix.STIXSchema
+import org.mitre.stix.common_1.StructuredTextType
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.STIXHeaderType
+
+class STIXPackageWriterSpec extends spock.lang.Specification {
+
+	def "Constructs written one at a time make up a valid STIX_Package"() {
+		setup:
+			def c = new GregorianCalendar(TimeZone.getTimeZone("UTC"))
+			c.setTimeInMillis(0)
+			def epoch = DatatypeFactory.newInstance().newXMLGregorianCalendar(c)
+			def bytes = new ByteArrayOutputStream()
+			
+		when: "a header and three indicators are written"
+			def writer = new STIXPackageWriter(bytes)
+			writer.declareNamespace("indicator", "http://stix.mitre.org/Indicator-2")
+			writer.writeStartPackage(new QName("http://example.com/", "package-1", "example"), epoch, "1.2")
+			writer.write(new STIXHeaderType().withTitle("Streamed"))
+			(1..3).each { i ->
+				writer.write(new Indicator()
+					.withId(new QName("http://example.com/", "indicator-${i}", "example"))
+					.withTimestamp(epoch)
+					.withTitle("Indicator ${i}"))
+			}
+			writer.close()
+			def xml = bytes.toString("UTF-8")
+			
+		then: "the package validates"
+			STIXSchema.getInstance().validate(xml)
+			
+		and: "the indicators share one container and do not redeclare the envelope's namespaces"
+			xml.count("<stix:Indicators>") == 1
+			xml.count("xmlns:indicator=") == 1
+			xml.count("xmlns:example=") == 1
+			
+		and: "it reads back the same"
+			def reader = new STIXPackageReader(new ByteArrayInputStream(bytes.toByteArray()))
+			def constructs = reader.collect { it }
+			constructs.size() == 4
+			constructs[0].getTitle() == "Streamed"
+			constructs[1..3]*.getTitle() == ["Indicator 1", "Indicator 2", "Indicator 3"]
+	}
+	
+	def "Constructs must be written in schema order"() {
+		when: "an indicator is followed by a header"
+			def writer = new STIXPackageWriter(new ByteArrayOutputStream())
+			writer.writeStartPackage(null, null, "1.2")
+			writer.write(new Indicator().withTitle("First"))
+			writer.write(new STIXHeaderType())
+		then:
+			thrown(IllegalStateException)
+	}
+
+	def "The bindings of a namespace context are declared on the root element when used"() {
+		setup: "a writer given a context binding two prefixes"
+			def bindings = [a: "urn:a", b: "urn:b"]
+			def context = [
+				getNamespaceURI: { prefix -> bindings[prefix] ?: "" },
+				getPrefix: { uri -> bindings.find { it.value == uri }?.key },
+				getPrefixes: { uri -> bindings.findAll { it.value == uri }.keySet().iterator() }
+			] as NamespaceContext
+			def text = new StringWriter()
+			def writer = new NamespaceMinimizingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(text))
+			writer.setNamespaceContext(context)
+		when: "elements in both namespaces are written"
+			writer.writeStartElement("urn:a", "root")
+			writer.writeStartElement("urn:b", "child")
+			writer.writeEndElement()
+			writer.writeEndElement()
+			writer.close()
+		then: "each prefix of the context that is used is declared on the root element"
+			text.toString() == '<a:root xmlns:a="urn:a" xmlns:b="urn:b"><b:child></b:child></a:root>'
+	}
+
+	def "A namespace used by sibling elements is declared once"() {
+		setup: "a writer offered two namespaces on the root element"
+			def text = new StringWriter()
+			def writer = new NamespaceMinimizingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(text))
+			writer.writeStartElement("a", "root", "urn:a")
+			writer.writeNamespace("a", "urn:a")
+			writer.writeNamespace("b", "urn:b")
+			writer.writeNamespace("c", "urn:c")
+		when: "two children use one of them in their names and text, and neither uses the other"
+			2.times {
+				writer.writeStartElement("urn:a", "child")
+				writer.writeStartElement("urn:b", "type")
+				writer.writeCharacters("b:Name")
+				writer.writeEndElement()
+				writer.writeEndElement()
+			}
+			writer.writeEndElement()
+			writer.close()
+		then: "the used namespace is declared on the root element only"
+			text.toString() == '<a:root xmlns:a="urn:a" xmlns:b="urn:b"><a:child><b:type>b:Name</b:type></a:child><a:child><b:type>b:Name</b:type></a:child></a:root>'
+	}
+
+	def "A prefix in element text is declared with the element"() {
+		setup: "a writer that does not buffer"
+			def text = new StringWriter()
+			def writer = new NamespaceMinimizingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(text), [:], 0)
+		when: "an element's text is a qualified name using a held back prefix"
+			writer.writeStartElement("a", "root", "urn:a")
+			writer.writeNamespace("a", "urn:a")
+			writer.writeNamespace("b", "urn:b")
+			writer.writeStartElement("urn:a", "type")
+			writer.writeCharacters("b:Name")
+			writer.writeEndElement()
+			writer.writeEndElement()
+			writer.close()
+		then: "the prefix is declared on that element"
+			text.toString() == '<a:root xmlns:a="urn:a"><a:type xmlns:b="urn:b">b:Name</a:type></a:root>'
+	}
+
+	def "A namespace context cannot be set once the root element is started"() {
+		setup: "a writer with a root element started"
+			def writer = new NamespaceMinimizingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(new StringWriter()))
+			writer.writeStartElement("urn:a", "root")
+		when: "a namespace context is set"
+			writer.setNamespaceContext([getNamespaceURI: { "" }, getPrefix: { null }, getPrefixes: { [].iterator() }] as NamespaceContext)
+		then: "it is rejected"
+			thrown(XMLStreamException)
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXProjection
+ */
+import javax.xml.namespace.QName
+
+import org.mitre.cybox.common_2.HashListType
+import org.mitre.cybox.common_2.HashType
+import org.mitre.cybox.common_2.SimpleHashValueType
+import org.mitre.cybox.cybox_2.ObjectType
+import org.mitre.cybox.cybox_2.Observable
+import org.mitre.cybox.default_vocabularies_2.HashNameVocab10
+import org.mitre.cybox.objects.FileObjectType
+import org.mitre.stix.STIXProjection
+import org.mitre.stix.indicator_2.Indicator
+import org.mitre.stix.stix_1.IndicatorsType
+import org.mitre.stix.stix_1.STIXPackage
+
+class STIXProjectionSpec extends spock.lang.Specification {
+
+	def "Only the STIX_Header is unmarshalled"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is unmarshalled keeping only its header"
+			def stixPackage = new STIXProjection()
+					.keep("STIX_Package/STIX_Header")
+					.unmarshal(url.openStream(), STIXPackage.class)
+		then: "the package has its id and header and nothing else"
+			stixPackage.getId().getLocalPart() == "STIXPackage-33fe3b22-0201-47cf-85d0-97c02164528d"
+			stixPackage.getSTIXHeader().getTitle() == "Example watchlist that contains IP information."
+			stixPackage.getIndicators() == null
+	}
+
+	def "Indicators are unmarshalled with only their ids and types"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is unmarshalled keeping the Indicator types"
+			def stixPackage = new STIXProjection()
+					.keep("STIX_Package/Indicators/Indicator/Type")
+					.unmarshal(url.openStream(), STIXPackage.class)
+			def indicator = stixPackage.getIndicators().getIndicators()[0]
+		then: "the Indicator has its id and type but no Observable"
+			indicator instanceof Indicator
+			indicator.getId().getLocalPart() == "Indicator-33fe3b22-0201-47cf-85d0-97c02164528d"
+			indicator.getTypes()[0].getValue() == "IP Watchlist"
+			indicator.getObservable() == null
+			stixPackage.getSTIXHeader() == null
+	}
+
+	def "The File Objects of a package are selected by their class"() {
+		given: "a package with a File hash Indicator"
+			def hashes = [new HashType().withType(new HashNameVocab10().withValue("MD5"))
+					.withSimpleHashValue(new SimpleHashValueType().withValue("4EC0027BEF4D7E1786A04D021FA8A67F"))]
+			def observable = new Observable().withId(new QName("http://example.com/", "observable-1", "example"))
+			observable.setObject(new ObjectType().withProperties(new FileObjectType().withHashes(new HashListType(hashes))))
+			def xml = new STIXPackage()
+					.withIndicators(new IndicatorsType().withIndicators(new Indicator()
+						.withId(new QName("http://example.com/", "indicator-1", "example"))
+						.withTitle("File Hash Example").withObservable(observable)))
+					.toXMLString()
+		when: "the FileObjectTypes are selected"
+			def files = new STIXProjection().keep(FileObjectType.class)
+					.select(new ByteArrayInputStream(xml.getBytes("UTF-8")), FileObjectType.class).collect()
+		then: "there is one, with its hash"
+			files.size() == 1
+			files[0].getHashes().getHashes()[0].getSimpleHashValue().getValue() == "4EC0027BEF4D7E1786A04D021FA8A67F"
+	}
+
+	def "Malformed paths are rejected"() {
+		when:
+			new STIXProjection().keep(path)
+		then:
+			thrown(IllegalArgumentException)
+		where:
+			path << ["", "STIX_Package//", "stix:STIX_Package", "{http://stix.mitre.org/stix-1STIX_Package"]
+	}
+}
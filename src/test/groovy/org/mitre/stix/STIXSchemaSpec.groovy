@@ -51,4 +51,130 @@ class STIXSchemaSpec extends spock.lang.Specification{
  		then: 'Messaged to STIXSchema.getNamespaceURI returns "http://stix.mitre.org/stix-1"'
  			"http://stix.mitre.org/stix-1" == STIXSchema.getNamespaceURI(stixPackage)
 	}
-}
\ No newline at end of file
+	
+	def "The qualified name of a model class is looked up once"() {
+		when: "the names of two STIXPackages are asked for"
+			def name = STIXSchema.getQualifiedName(new STIXPackage())
+			def name2 = STIXSchema.getQualifiedName(new STIXPackage())
+		then: "the same QName is returned for both"
+			name.is(name2)
+			name == new javax.xml.namespace.QName("http://stix.mitre.org/stix-1", "STIX_Package")
+	}
+	
+	def "The names of model classes are those of their annotations"() {
+		expect: "the names listed by the build agree with the annotations"
+			STIXSchema.getNamespaceURI(obj) == obj.getClass().getPackage().getAnnotation(javax.xml.bind.annotation.XmlSchema).namespace()
+			STIXSchema.getName(obj) == (obj.getClass().getAnnotation(javax.xml.bind.annotation.XmlRootElement)?.name() ?:
+					obj.getClass().getAnnotation(javax.xml.bind.annotation.XmlType).name())
+		where:
+			obj << [
+				new STIXPackage(),
+				new org.mitre.stix.indicator_2.Indicator(),
+				new org.mitre.stix.common_1.StructuredTextType()
+			]
+	}
+	
+	def "Concurrent validation borrows pooled Validators"() {
+		when: "several threads validate at once"
+			def schema = STIXSchema.getInstance()
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def xmlText = IOUtils.toString(url.openStream())
+			def pool = schema.getValidatorPool()
+			def borrowed = pool.getBorrowCount()
+			def results = Collections.synchronizedList([])
+			def threads = (1..8).collect {
+				Thread.start { results << schema.validate(xmlText) }
+			}
+			threads*.join()
+		then: "every document validates and the pool stays within its bounds"
+			results.size() == 8
+			results.every { it == true }
+			pool.getBorrowCount() - borrowed == 8
+			pool.getSize() <= pool.getMaxSize()
+			pool.getIdleCount() == pool.getSize()
+	}
+	
+	def "A Validator that cannot be created gives back its place in the pool"() {
+		given: "a pool of one Validator from a Schema that cannot create them"
+			def failing = new javax.xml.validation.Schema() {
+				javax.xml.validation.Validator newValidator() {
+					throw new IllegalStateException("no Validator")
+				}
+				javax.xml.validation.ValidatorHandler newValidatorHandler() {
+					throw new IllegalStateException("no ValidatorHandler")
+				}
+			}
+			def pool = new org.mitre.stix.ValidatorPool(failing, 1)
+		when: "a Validator is borrowed"
+			pool.borrow()
+		then: "the failure is thrown and the pool is still empty"
+			thrown(IllegalStateException)
+			pool.getSize() == 0
+		when: "another is borrowed"
+			pool.borrow()
+		then: "creation is attempted again rather than waiting forever"
+			thrown(IllegalStateException)
+			pool.getSize() == 0
+	}
+	
+	def "Valid STIX XML read from a stream or a file validates at true"() {
+		when: "read from an InputStream and from a Path"
+			def schema = STIXSchema.getInstance()
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def path = java.nio.file.Paths.get(url.toURI())
+		then: "it should validate"
+			url.withInputStream { schema.validate(it) } == true
+			schema.validate(path) == true
+	}
+	
+	def "Schema location hints are ignored when validating"() {
+		when: "the root element carries an xsi:schemaLocation hint"
+			def schema = STIXSchema.getInstance()
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			def xmlText = IOUtils.toString(url.openStream()).replace('version="1.2">',
+				'version="1.2" xsi:schemaLocation="http://stix.mitre.org/stix-1 http://example.com/missing/stix_core.xsd">')
+		then: "it should validate against the bundled schemas"
+			schema.validate(xmlText) == true
+	}
+	
+	def "The schema index created by the build names schemas on the classpath"() {
+		when: "the index for the schema version is read"
+			def schema = STIXSchema.getInstance()
+			def index = new Properties()
+			def inputStream = STIXSchema.class.getResourceAsStream("schema-index-v${schema.getVersion()}.properties")
+			index.load(inputStream)
+			inputStream.close()
+		then: "it binds the STIX prefix to the STIX namespace and every schema it names can be found"
+			index.getProperty("stix").startsWith("http://stix.mitre.org/stix-1 ")
+			index.values().every { getClass().getClassLoader().getResource(it.split(" ")[1]) != null }
+	}
+	
+	def "Preloading on an Executor reports readiness once the schema and JAXBContext are ready"() {
+		when: "the schema is preloaded on a thread pool"
+			def executor = java.util.concurrent.Executors.newFixedThreadPool(2)
+			def readiness = STIXSchema.preload(executor)
+			def schema = readiness.get(5, java.util.concurrent.TimeUnit.MINUTES)
+			executor.shutdown()
+		then: "it completes with the singleton and reports ready"
+			schema == STIXSchema.getInstance()
+			STIXSchema.isReady()
+			STIXSchema.preload() == readiness
+	}
+
+	def "Invalid STIX XML throws once the validation ErrorHandler is set to null"() {
+		setup: "the ErrorHandler is removed"
+			def schema = STIXSchema.getInstance()
+			schema.setValidationErrorHandler(null)
+			def xmlText = '<stix:STIX_Package xmlns:stix="http://stix.mitre.org/stix-1" version="1.2"><stix:Unknown/></stix:STIX_Package>'
+		when: "an invalid document is validated"
+			schema.validate(xmlText)
+		then: "the SAXException is thrown rather than reported as false"
+			thrown(org.xml.sax.SAXException)
+		when: "the default ErrorHandler is restored"
+			schema.resetValidationErrorHandler()
+		then: "the document is reported as invalid again"
+			schema.validate(xmlText) == false
+		cleanup: "the default ErrorHandler of each Validator is used again"
+			schema.resetValidationErrorHandler()
+	}
+}
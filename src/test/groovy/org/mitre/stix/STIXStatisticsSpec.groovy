@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for STIXStatistics
+ */
+import java.nio.file.Paths
+
+import javax.xml.namespace.QName
+
+import org.mitre.stix.STIXConstruct
+import org.mitre.stix.STIXStatistics
+
+class STIXStatisticsSpec extends spock.lang.Specification {
+
+	def "Constructs of the sample package are counted"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is scanned"
+			def statistics = STIXStatistics.scan(url.openStream())
+		then: "it has a header and an Indicator"
+			statistics.getPackageId().getLocalPart() == "STIXPackage-33fe3b22-0201-47cf-85d0-97c02164528d"
+			statistics.getCount(STIXConstruct.STIX_HEADER) == 1
+			statistics.getCount(STIXConstruct.INDICATOR) == 1
+			statistics.getCount(STIXConstruct.TTP) == 0
+			statistics.getConstruct(STIXConstruct.INDICATOR).getMaxDepth() > 1
+			statistics.getConstruct(STIXConstruct.INDICATOR).getElementCount() < statistics.getElementCount()
+	}
+
+	def "Element names, namespaces and types are counted"() {
+		given: "the sample package"
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		when: "it is scanned"
+			def statistics = STIXStatistics.scan(url.openStream())
+		then: "its Observable, Object and types are in the histograms"
+			statistics.getElementCount(new QName("http://stix.mitre.org/Indicator-2", "Observable")) == 1
+			statistics.getElementCount(new QName(STIXConstruct.CYBOX_NAMESPACE, "Object")) == 1
+			statistics.getElementNames().get(STIXConstruct.STIX_PACKAGE) == 1
+			statistics.getNamespaces().containsKey("http://cybox.mitre.org/objects#AddressObject-2")
+			statistics.getTypeNames().get(new QName("http://stix.mitre.org/Indicator-2", "IndicatorType")) == 1
+			statistics.getTypeNames().get(new QName("http://cybox.mitre.org/objects#AddressObject-2", "AddressObjectType")) == 1
+			statistics.getUntalliedCount() == 0
+	}
+
+	def "The size and depth of the document are measured"() {
+		given: "the sample package"
+			def path = Paths.get(getClass().getClassLoader().getResource("org/mitre/stix/sample.xml").toURI())
+		when: "it is scanned"
+			def statistics = STIXStatistics.scan(path)
+		then: "every byte was read"
+			statistics.getByteCount() == path.toFile().length()
+			statistics.getMaxDepth() > statistics.getConstruct(STIXConstruct.INDICATOR).getMaxDepth()
+			statistics.getElementNames().values().sum() == statistics.getElementCount()
+	}
+
+	def "Types of more namespaces than are tallied are only counted"() {
+		given: "a package with elements of types from many namespaces"
+			def count = STIXStatistics.MAX_DISTINCT + 10
+			def xml = new StringBuilder('<stix:STIX_Package xmlns:stix="http://stix.mitre.org/stix-1" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance">')
+			(0..<count).each { xml << "<stix:Element xmlns:t$it=\"urn:example:$it\" xsi:type=\"t$it:Type\"/>" }
+			xml << '</stix:STIX_Package>'
+		when: "it is scanned"
+			def statistics = STIXStatistics.scan(new ByteArrayInputStream(xml.toString().getBytes("UTF-8")))
+		then: "the types of the first namespaces are tallied and the rest are counted"
+			statistics.getTypeNames().size() == STIXStatistics.MAX_DISTINCT
+			statistics.getUntalliedCount() == 10
+	}
+
+	def "Documents other than STIX_Packages are rejected"() {
+		when: "another document is scanned"
+			STIXStatistics.scan(new ByteArrayInputStream("<a/>".getBytes("UTF-8")))
+		then: "an exception is thrown"
+			thrown(RuntimeException)
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * Spock unit test for ValidationReport
+ */
+import javax.xml.transform.stream.StreamSource
+
+import org.apache.commons.io.IOUtils
+import org.mitre.stix.STIXSchema
+import org.mitre.stix.ValidationReport
+
+class ValidationReportSpec extends spock.lang.Specification {
+
+	// the sample with three attributes the schema does not allow
+	def invalidXml() {
+		def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+		IOUtils.toString(url.openStream(), "UTF-8")
+			.replace('version="1.2"', 'version="1.2" bogus1="1" bogus2="2" bogus3="3"')
+	}
+
+	def validate(ValidationReport report) {
+		STIXSchema.getInstance().validateInto(new StreamSource(new StringReader(invalidXml())), report)
+	}
+
+	def "Every error is collected with its position and code"() {
+		when: "an invalid document is validated"
+			def report = validate(new ValidationReport())
+		then: "its errors are kept"
+			!report.isValid()
+			report.getErrorCount() == 3
+			report.getIssues().size() == 3
+			report.getIssues().every { it.getLine() > 0 && it.getColumn() > 0 }
+			report.getIssues()[0].getCode() == "cvc-complex-type.3.2.2"
+			report.getIssues()[0].getMessage().contains("bogus1")
+			!report.isTruncated()
+	}
+
+	def "Issues past the cap are counted but not kept"() {
+		when: "an invalid document is validated with a cap of one"
+			def report = validate(new ValidationReport(ValidationReport.Mode.COLLECT, 1))
+		then:
+			report.getErrorCount() == 3
+			report.getIssues().size() == 1
+			report.isTruncated()
+	}
+
+	def "Fail fast stops at the first error"() {
+		when:
+			def report = validate(new ValidationReport(ValidationReport.Mode.FAIL_FAST))
+		then:
+			!report.isValid()
+			report.getErrorCount() == 1
+			report.getIssues().size() == 1
+	}
+
+	def "Count only keeps no issues"() {
+		when:
+			def report = validate(new ValidationReport(ValidationReport.Mode.COUNT_ONLY))
+		then:
+			report.getErrorCount() == 3
+			report.getIssues().isEmpty()
+	}
+
+	def "A report can be reset and reused"() {
+		when: "a report is reset and used for a valid document"
+			def report = validate(new ValidationReport())
+			report.reset()
+			def url = getClass().getClassLoader().getResource("org/mitre/stix/sample.xml")
+			STIXSchema.getInstance().validateInto(new StreamSource(url.openStream()), report)
+		then:
+			report.isValid()
+			report.getIssueCount() == 0
+	}
+
+	def "Validating with a null ErrorHandler uses the default one"() {
+		when: "an invalid document is validated with no handler"
+			def valid = STIXSchema.getInstance().validate(new StreamSource(new StringReader(invalidXml())), null)
+		then: "it is reported invalid by the default ValidationErrorHandler"
+			valid == false
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2015, The MITRE Corporation. All rights reserved.
+ * See LICENSE for complete terms.
+ *
+ * The events of XML documents, for specs comparing documents that should
+ * hold the same markup
+ */
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLStreamConstants
+
+class XMLEvents {
+
+	/**
+	 * Returns the start and end tags, with their attributes, the text and
+	 * the comments of a document, joining adjacent text.
+	 *
+	 * @param inputStream The document
+	 * @param significantOnly True to leave out whitespace between elements
+	 *            and comments, e.g., for forms that do not keep them
+	 */
+	static events(inputStream, significantOnly = false) {
+		def reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream)
+		def events = []
+
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					def attributes = (0..<reader.getAttributeCount()).collect {
+						[reader.getAttributeName(it), reader.getAttributeValue(it)]
+					}
+					events << [reader.getName(), attributes]
+					break
+				case XMLStreamConstants.END_ELEMENT:
+					events << [reader.getName()]
+					break
+				case XMLStreamConstants.CHARACTERS:
+					if (!significantOnly || !reader.isWhiteSpace()) {
+						events << reader.getText()
+					}
+					break
+				case XMLStreamConstants.COMMENT:
+					if (!significantOnly) {
+						events << reader.getText()
+					}
+					break
+			}
+		}
+
+		// a parser may split text differently, so adjacent text is joined
+		events.inject([]) { joined, event ->
+			if (event instanceof String && joined && joined[-1] instanceof String) {
+				joined[-1] += event
+			} else {
+				joined << event
+			}
+			joined
+		}
+	}
+}